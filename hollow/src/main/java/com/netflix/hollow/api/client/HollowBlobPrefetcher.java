@@ -0,0 +1,251 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.client;
+
+import com.netflix.hollow.api.consumer.HollowConsumer;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * The HollowBlobPrefetcher fetches the blobs of a {@link HollowUpdatePlan} ahead of their application.
+ * <p>
+ * While each transition in a plan is applied, up to <i>maxPrefetchedBlobs</i> of the subsequent transitions are fetched 
+ * concurrently via the provided {@link Executor}, so that a consumer which is many deltas behind does not pay for each blob's 
+ * retrieval in turn.  Each prefetched blob is buffered in memory, up to <i>maxInMemoryBytesPerBlob</i>, beyond which it is 
+ * spilled to a temporary file.  The first transition in a plan is streamed directly from its blob, as it would be without
+ * prefetching.
+ */
+public class HollowBlobPrefetcher {
+
+    public static final long DEFAULT_MAX_IN_MEMORY_BYTES_PER_BLOB = 16 * 1024 * 1024;
+
+    private final Executor executor;
+    private final int maxPrefetchedBlobs;
+    private final long maxInMemoryBytesPerBlob;
+    private final File tempDirectory;
+
+    public HollowBlobPrefetcher(Executor executor, int maxPrefetchedBlobs) {
+        this(executor, maxPrefetchedBlobs, DEFAULT_MAX_IN_MEMORY_BYTES_PER_BLOB, null);
+    }
+
+    /**
+     * @param executor the Executor via which blobs are fetched
+     * @param maxPrefetchedBlobs the maximum number of blobs which may be fetched concurrently or held in buffers, ahead of the transition currently being applied
+     * @param maxInMemoryBytesPerBlob the number of bytes of each blob which may be buffered in memory before the blob is spilled to a temporary file
+     * @param tempDirectory the directory in which temporary files are created, or null for the default temporary-file directory
+     */
+    public HollowBlobPrefetcher(Executor executor, int maxPrefetchedBlobs, long maxInMemoryBytesPerBlob, File tempDirectory) {
+        if(maxPrefetchedBlobs < 1)
+            throw new IllegalArgumentException("maxPrefetchedBlobs must be at least 1");
+        this.executor = executor;
+        this.maxPrefetchedBlobs = maxPrefetchedBlobs;
+        this.maxInMemoryBytesPerBlob = maxInMemoryBytesPerBlob;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Begin prefetching the blobs of the plan.  The returned PrefetchedPlan must be closed once the plan has been applied,
+     * or has failed, to discard any blobs which were prefetched but not used.
+     */
+    public PrefetchedPlan prefetch(HollowUpdatePlan plan) {
+        return new PrefetchedPlan(plan);
+    }
+
+    public class PrefetchedPlan implements Closeable {
+        private final List<HollowConsumer.Blob> transitions;
+        private final PrefetchedBlob[] prefetchedBlobs;
+        private int nextTransitionToPrefetch;
+        private volatile boolean closed;
+
+        private PrefetchedPlan(HollowUpdatePlan plan) {
+            this.transitions = new ArrayList<HollowConsumer.Blob>(plan.numTransitions());
+            for(HollowConsumer.Blob transition : plan)
+                transitions.add(transition);
+            this.prefetchedBlobs = new PrefetchedBlob[transitions.size()];
+            this.nextTransitionToPrefetch = 1;
+
+            prefetchThrough(maxPrefetchedBlobs);
+        }
+
+        /**
+         * Open the data for the transition at the specified index in the plan, waiting for it to be fetched if necessary.  
+         * Prefetching of the subsequent transitions is advanced.
+         */
+        public InputStream getInputStream(int transitionIndex) throws IOException {
+            PrefetchedBlob prefetched = prefetchedBlobs[transitionIndex];
+            prefetchedBlobs[transitionIndex] = null;
+            prefetchThrough(transitionIndex + maxPrefetchedBlobs);
+
+            if(prefetched == null)
+                return transitions.get(transitionIndex).getInputStream();
+            return prefetched.awaitInputStream();
+        }
+
+        private void prefetchThrough(int lastTransitionIndex) {
+            while(nextTransitionToPrefetch <= lastTransitionIndex && nextTransitionToPrefetch < transitions.size() && !closed) {
+                PrefetchedBlob prefetched = new PrefetchedBlob(transitions.get(nextTransitionToPrefetch));
+                prefetchedBlobs[nextTransitionToPrefetch++] = prefetched;
+                executor.execute(prefetched);
+            }
+        }
+
+        /**
+         * Discard any blobs which were prefetched but not opened.  Blobs which are still being fetched are discarded once fetched.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            for(int i=0;i<prefetchedBlobs.length;i++) {
+                if(prefetchedBlobs[i] != null) {
+                    prefetchedBlobs[i].discard();
+                    prefetchedBlobs[i] = null;
+                }
+            }
+        }
+
+        private class PrefetchedBlob implements Runnable {
+            private final HollowConsumer.Blob blob;
+            private final CountDownLatch fetched;
+
+            private byte[] data;
+            private int dataLength;
+            private File file;
+            private Throwable failure;
+            private boolean discarded;
+
+            PrefetchedBlob(HollowConsumer.Blob blob) {
+                this.blob = blob;
+                this.fetched = new CountDownLatch(1);
+            }
+
+            @Override
+            public void run() {
+                try {
+                    if(!closed)
+                        fetch();
+                } catch(Throwable t) {
+                    failure = t;
+                } finally {
+                    synchronized(this) {
+                        fetched.countDown();
+                        if(discarded)
+                            deleteFile();
+                    }
+                }
+            }
+
+            private void fetch() throws IOException {
+                InputStream is = blob.getInputStream();
+
+                try {
+                    byte[] buffer = new byte[(int)Math.max(1, Math.min(maxInMemoryBytesPerBlob, 64 * 1024))];
+                    int length = 0;
+                    int bytesRead;
+
+                    while((bytesRead = is.read(buffer, length, buffer.length - length)) != -1) {
+                        length += bytesRead;
+
+                        if(length == buffer.length) {
+                            if(buffer.length >= maxInMemoryBytesPerBlob) {
+                                spill(is, buffer, length);
+                                return;
+                            }
+                            buffer = Arrays.copyOf(buffer, (int)Math.min(maxInMemoryBytesPerBlob, (long)buffer.length * 2));
+                        }
+                    }
+
+                    this.data = buffer;
+                    this.dataLength = length;
+                } finally {
+                    is.close();
+                }
+            }
+
+            private void spill(InputStream is, byte[] buffer, int length) throws IOException {
+                File file = File.createTempFile("hollow-blob-" + blob.getToVersion() + "-", ".prefetch", tempDirectory);
+                synchronized(this) {
+                    this.file = file;
+                }
+
+                OutputStream os = new BufferedOutputStream(new FileOutputStream(file));
+                try {
+                    os.write(buffer, 0, length);
+                    byte[] copyBuffer = new byte[64 * 1024];
+                    int bytesRead;
+                    while((bytesRead = is.read(copyBuffer)) != -1 && !closed)
+                        os.write(copyBuffer, 0, bytesRead);
+                } finally {
+                    os.close();
+                }
+            }
+
+            InputStream awaitInputStream() throws IOException {
+                try {
+                    fetched.await();
+                } catch(InterruptedException e) {
+                    discard();
+                    throw new InterruptedIOException("Interrupted while awaiting prefetch of blob " + blob.getToVersion());
+                }
+
+                if(failure != null) {
+                    if(failure instanceof IOException)
+                        throw (IOException)failure;
+                    throw new IOException("Unable to prefetch blob " + blob.getToVersion(), failure);
+                }
+
+                if(file == null)
+                    return new ByteArrayInputStream(data, 0, dataLength);
+
+                final File file = this.file;
+                return new FileInputStream(file) {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        file.delete();
+                    }
+                };
+            }
+
+            synchronized void discard() {
+                discarded = true;
+                data = null;
+                if(fetched.getCount() == 0)
+                    deleteFile();
+            }
+
+            private void deleteFile() {
+                if(file != null && !file.delete())
+                    file.deleteOnExit();
+            }
+        }
+    }
+
+}
@@ -43,6 +43,8 @@ public class HollowClientUpdater {
     private final HollowConsumer.ObjectLongevityConfig objectLongevityConfig;
     private final HollowConsumer.DoubleSnapshotConfig doubleSnapshotConfig;
 
+    private final HollowUpdateConfig updateConfig;
+
     private HollowFilterConfig filter;
 
     public HollowClientUpdater(HollowConsumer.BlobRetriever transitionCreator, 
@@ -52,7 +54,19 @@ public class HollowClientUpdater {
                                HollowObjectHashCodeFinder hashCodeFinder, 
                                HollowConsumer.ObjectLongevityConfig objectLongevityConfig,
                                HollowConsumer.ObjectLongevityDetector objectLongevityDetector) {
-        this.planner = new HollowUpdatePlanner(transitionCreator, doubleSnapshotConfig);
+        this(transitionCreator, updateListeners, apiFactory, doubleSnapshotConfig, hashCodeFinder, objectLongevityConfig, 
+             objectLongevityDetector, HollowUpdateConfig.DEFAULT_CONFIG);
+    }
+
+    public HollowClientUpdater(HollowConsumer.BlobRetriever transitionCreator, 
+                               List<HollowConsumer.RefreshListener> updateListeners, 
+                               HollowAPIFactory apiFactory, 
+                               HollowConsumer.DoubleSnapshotConfig doubleSnapshotConfig,
+                               HollowObjectHashCodeFinder hashCodeFinder, 
+                               HollowConsumer.ObjectLongevityConfig objectLongevityConfig,
+                               HollowConsumer.ObjectLongevityDetector objectLongevityDetector,
+                               HollowUpdateConfig updateConfig) {
+        this.planner = new HollowUpdatePlanner(transitionCreator, doubleSnapshotConfig, updateConfig.getUpdateCostEstimator());
         this.failedTransitionTracker = new FailedTransitionTracker();
         this.staleReferenceDetector = new StaleHollowReferenceDetector(objectLongevityConfig, objectLongevityDetector);
 
@@ -61,6 +75,7 @@ public class HollowClientUpdater {
         this.hashCodeFinder = hashCodeFinder;
         this.doubleSnapshotConfig = doubleSnapshotConfig;
         this.objectLongevityConfig = objectLongevityConfig;
+        this.updateConfig = updateConfig;
         this.staleReferenceDetector.startMonitoring();
     }
 
@@ -85,7 +100,7 @@ public class HollowClientUpdater {
             if(updatePlan.isSnapshotPlan()) {
                 if(hollowDataHolder == null || doubleSnapshotConfig.allowDoubleSnapshot()) {
                     HollowReadStateEngine newStateEngine = newStateEngine();
-                    HollowDataHolder newHollowDataHolder = new HollowDataHolder(newStateEngine, apiFactory, failedTransitionTracker, staleReferenceDetector, refreshListeners, objectLongevityConfig);
+                    HollowDataHolder newHollowDataHolder = new HollowDataHolder(newStateEngine, apiFactory, failedTransitionTracker, staleReferenceDetector, refreshListeners, objectLongevityConfig, updateConfig);
                     newHollowDataHolder.setFilter(filter);
                     newHollowDataHolder.update(updatePlan);
                     hollowDataHolder = newHollowDataHolder;
@@ -127,12 +142,14 @@ public class HollowClientUpdater {
     }
 
     private HollowReadStateEngine newStateEngine() {
-        if(hollowDataHolder != null) {
-            ArraySegmentRecycler existingRecycler = hollowDataHolder.getStateEngine().getMemoryRecycler();
-            return new HollowReadStateEngine(hashCodeFinder, true, existingRecycler);
-        }
-
-        return new HollowReadStateEngine(hashCodeFinder);
+        /// state engines created for double snapshots share the memory recycler of the first.
+        ArraySegmentRecycler memoryRecycler = hollowDataHolder != null ? hollowDataHolder.getStateEngine().getMemoryRecycler() : updateConfig.getMemoryRecycler();
+
+        HollowReadStateEngine stateEngine = memoryRecycler == null ? new HollowReadStateEngine(hashCodeFinder)
+                : new HollowReadStateEngine(hashCodeFinder, true, memoryRecycler);
+        stateEngine.setLazyTypeMaterialization(updateConfig.isLazyTypeMaterialization());
+        stateEngine.setFieldAccessCounting(updateConfig.isFieldAccessCounting());
+        return stateEngine;
     }
 
     public StackTraceRecorder getStaleReferenceUsageStackTraceRecorder() {
@@ -150,7 +167,7 @@ public class HollowClientUpdater {
     public void setFilter(HollowFilterConfig filter) {
         this.filter = filter;
     }
-    
+
     public void clearFailedTransitions() {
         this.failedTransitionTracker.clear();
     }
@@ -21,6 +21,7 @@ import com.netflix.hollow.api.consumer.HollowConsumer;
 import com.netflix.hollow.api.custom.HollowAPI;
 import com.netflix.hollow.core.read.dataaccess.HollowDataAccess;
 import com.netflix.hollow.core.read.dataaccess.proxy.HollowProxyDataAccess;
+import com.netflix.hollow.core.read.engine.HollowBlobHeaderReader;
 import com.netflix.hollow.core.read.engine.HollowBlobReader;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.filter.HollowFilterConfig;
@@ -44,6 +45,9 @@ public class HollowDataHolder {
     private final HollowConsumer.ObjectLongevityConfig objLongevityConfig;
     private final List<HollowConsumer.RefreshListener> refreshListeners;
 
+    private final HollowBlobPrefetcher blobPrefetcher;
+    private final HollowUpdateCostEstimator updateCostEstimator;
+
     private HollowFilterConfig filter;
 
     private HollowAPI currentAPI;
@@ -59,9 +63,22 @@ public class HollowDataHolder {
                             StaleHollowReferenceDetector staleReferenceDetector, 
                             List<HollowConsumer.RefreshListener> refreshListeners, 
                             HollowConsumer.ObjectLongevityConfig objLongevityConfig) {
+        this(stateEngine, apiFactory, failedTransitionTracker, staleReferenceDetector, refreshListeners, objLongevityConfig, HollowUpdateConfig.DEFAULT_CONFIG);
+    }
+
+    public HollowDataHolder(HollowReadStateEngine stateEngine, 
+                            HollowAPIFactory apiFactory, 
+                            FailedTransitionTracker failedTransitionTracker, 
+                            StaleHollowReferenceDetector staleReferenceDetector, 
+                            List<HollowConsumer.RefreshListener> refreshListeners, 
+                            HollowConsumer.ObjectLongevityConfig objLongevityConfig,
+                            HollowUpdateConfig updateConfig) {
         this.stateEngine = stateEngine;
         this.apiFactory = apiFactory;
-        this.reader = new HollowBlobReader(stateEngine);
+        this.reader = new HollowBlobReader(stateEngine, new HollowBlobHeaderReader(), updateConfig.getSnapshotLoadExecutor(), 
+                                           updateConfig.getDeltaApplicationExecutor(), updateConfig.getBlobReadAheadExecutor());
+        this.blobPrefetcher = updateConfig.getBlobPrefetcher();
+        this.updateCostEstimator = updateConfig.getUpdateCostEstimator();
         this.failedTransitionTracker = failedTransitionTracker;
         this.staleReferenceDetector = staleReferenceDetector;
         this.refreshListeners = refreshListeners;
@@ -88,15 +105,29 @@ public class HollowDataHolder {
         if(failedTransitionTracker.anyTransitionWasFailed(updatePlan))
             throw new RuntimeException("Update plan contains known failing transition!");
 
-        if(updatePlan.isSnapshotPlan())
-            applyInitialTransitions(updatePlan);
-        else
-            applySubsequentTransitions(updatePlan);
+        HollowBlobPrefetcher.PrefetchedPlan prefetchedPlan = blobPrefetcher == null ? null : blobPrefetcher.prefetch(updatePlan);
+
+        try {
+            if(updatePlan.isSnapshotPlan())
+                applyInitialTransitions(updatePlan, prefetchedPlan);
+            else
+                applySubsequentTransitions(updatePlan, prefetchedPlan);
+        } finally {
+            if(prefetchedPlan != null)
+                prefetchedPlan.close();
+        }
     }
 
-    private void applyInitialTransitions(HollowUpdatePlan updatePlan) throws Throwable {
-        for(HollowConsumer.Blob transition : updatePlan) {
-            InputStream is = transition.getInputStream();
+    private InputStream openTransition(HollowUpdatePlan updatePlan, HollowBlobPrefetcher.PrefetchedPlan prefetchedPlan, int transitionIndex) throws IOException {
+        if(prefetchedPlan != null)
+            return prefetchedPlan.getInputStream(transitionIndex);
+        return updatePlan.getTransition(transitionIndex).getInputStream();
+    }
+
+    private void applyInitialTransitions(HollowUpdatePlan updatePlan, HollowBlobPrefetcher.PrefetchedPlan prefetchedPlan) throws Throwable {
+        for(int i=0;i<updatePlan.numTransitions();i++) {
+            HollowConsumer.Blob transition = updatePlan.getTransition(i);
+            InputStream is = openTransition(updatePlan, prefetchedPlan, i);
 
             try {
                 applyTransition(is, transition);
@@ -127,9 +158,10 @@ public class HollowDataHolder {
         }
     }
 
-    private void applySubsequentTransitions(HollowUpdatePlan updatePlan) throws Throwable {
-        for(HollowConsumer.Blob blob : updatePlan) {
-            InputStream is = blob.getInputStream();
+    private void applySubsequentTransitions(HollowUpdatePlan updatePlan, HollowBlobPrefetcher.PrefetchedPlan prefetchedPlan) throws Throwable {
+        for(int i=0;i<updatePlan.numTransitions();i++) {
+            HollowConsumer.Blob blob = updatePlan.getTransition(i);
+            InputStream is = openTransition(updatePlan, prefetchedPlan, i);
 
             try {
                 applyTransition(is, blob);
@@ -182,6 +214,8 @@ public class HollowDataHolder {
     }
 
     private void applyTransition(InputStream is, HollowConsumer.Blob transition) throws IOException {
+        long startTime = System.nanoTime();
+
         if(transition.isSnapshot()) {
             if(filter == null)
                 reader.readSnapshot(is);
@@ -191,6 +225,9 @@ public class HollowDataHolder {
             reader.applyDelta(is);
         }
 
+        if(updateCostEstimator != null)
+            updateCostEstimator.recordTransition(transition, System.nanoTime() - startTime);
+
         setVersion(transition.getToVersion());
         
         for(HollowConsumer.RefreshListener refreshListener : refreshListeners)
@@ -0,0 +1,175 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.client;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Schedules refreshes of a {@link HollowClientUpdater} on an Executor, and hands out a {@link HollowRefreshFuture} for each request.
+ * <p>
+ * Concurrent requests for the same target version are merged: only one refresh to each target version will be in flight at a time,
+ * and each request for that version while it is in flight will be completed by it.
+ * <p>
+ * A refresh which has not yet begun is abandoned once every request it would complete has been cancelled.  A refresh which has begun
+ * is never interrupted, so that a partially applied blob does not leave the state engine inconsistent.
+ */
+public class HollowRefreshCoordinator {
+
+    private final HollowClientUpdater updater;
+    private final Executor executor;
+    private final Map<Long, SharedRefresh> inFlightRefreshes;
+
+    public HollowRefreshCoordinator(HollowClientUpdater updater, Executor executor) {
+        this.updater = updater;
+        this.executor = executor;
+        this.inFlightRefreshes = new HashMap<Long, SharedRefresh>();
+    }
+
+    /**
+     * Request a refresh to the specified version.
+     *
+     * @return a future which will complete with the version of the data once the refresh has been attempted.
+     */
+    public HollowRefreshFuture refreshTo(long version) {
+        SharedRefresh refresh;
+        HollowRefreshFuture future;
+        boolean newRefresh = false;
+
+        synchronized(this) {
+            refresh = inFlightRefreshes.get(version);
+            if(refresh == null) {
+                refresh = new SharedRefresh(version);
+                inFlightRefreshes.put(version, refresh);
+                newRefresh = true;
+            }
+            future = refresh.addWaiter();
+        }
+
+        if(newRefresh) {
+            try {
+                executor.execute(refresh);
+            } catch(RejectedExecutionException e) {
+                refresh.fail(e);
+            }
+        }
+
+        return future;
+    }
+
+    /**
+     * @return the number of distinct target versions which currently have a refresh in flight.
+     */
+    public synchronized int getNumInFlightRefreshes() {
+        return inFlightRefreshes.size();
+    }
+
+    /**
+     * Holding this lock while the refresh is cancelled ensures that no new request can be merged into a refresh which is being abandoned,
+     * and that a refresh cannot begin while it is being abandoned.  A refresh which has begun remains in flight, so that later requests
+     * for its version are still merged into it rather than starting a second, concurrent refresh.
+     */
+    private synchronized void cancelWaiter(SharedRefresh refresh, HollowRefreshFuture future) {
+        if(refresh.removeWaiter(future) && !refresh.started)
+            refresh.cancel(false);
+    }
+
+    private synchronized boolean startRefresh(SharedRefresh refresh) {
+        if(refresh.isDone())
+            return false;
+        refresh.started = true;
+        return true;
+    }
+
+    private synchronized void refreshCompleted(SharedRefresh refresh) {
+        if(inFlightRefreshes.get(refresh.version) == refresh)
+            inFlightRefreshes.remove(refresh.version);
+    }
+
+    class SharedRefresh extends FutureTask<Long> {
+
+        private final long version;
+        private final List<HollowRefreshFuture> waiters;
+        private boolean started;
+
+        SharedRefresh(final long version) {
+            super(new Callable<Long>() {
+                public Long call() throws Exception {
+                    try {
+                        updater.updateTo(version);
+                    } catch(Exception e) {
+                        throw e;
+                    } catch(Throwable th) {
+                        if(th instanceof Error)
+                            throw (Error)th;
+                        throw new RuntimeException(th);
+                    }
+                    return Long.valueOf(updater.getCurrentVersionId());
+                }
+            });
+            this.version = version;
+            this.waiters = new ArrayList<HollowRefreshFuture>();
+        }
+
+        private synchronized HollowRefreshFuture addWaiter() {
+            HollowRefreshFuture future = new HollowRefreshFuture(this);
+            waiters.add(future);
+            return future;
+        }
+
+        void waiterCancelled(HollowRefreshFuture future) {
+            cancelWaiter(this, future);
+        }
+
+        private synchronized boolean removeWaiter(HollowRefreshFuture future) {
+            waiters.remove(future);
+            return waiters.isEmpty();
+        }
+
+        @Override
+        public void run() {
+            if(startRefresh(this))
+                super.run();
+        }
+
+        void fail(Throwable cause) {
+            setException(cause);
+        }
+
+        @Override
+        protected void done() {
+            refreshCompleted(this);
+
+            List<HollowRefreshFuture> completedWaiters;
+            synchronized(this) {
+                completedWaiters = new ArrayList<HollowRefreshFuture>(waiters);
+                waiters.clear();
+            }
+
+            for(HollowRefreshFuture future : completedWaiters)
+                future.complete();
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The result of an asynchronous refresh requested from a {@link HollowRefreshCoordinator}.
+ * <p>
+ * Completes with the version of the data after the refresh was attempted, which will differ from the requested version
+ * if the requested version could not be reached.  If the refresh failed, {@link #get()} throws an ExecutionException with the cause.
+ * <p>
+ * Cancelling this future only withdraws this request.  Other requests for the same version are unaffected, and a refresh which has
+ * already begun will run to completion.  Rather than blocking a thread to wait, a listener may be registered via
+ * {@link #addListener(Runnable, Executor)}.
+ */
+public class HollowRefreshFuture implements Future<Long> {
+
+    private final HollowRefreshCoordinator.SharedRefresh refresh;
+    private final CountDownLatch completionLatch;
+    private final List<Runnable> listeners;
+    private boolean cancelled;
+
+    HollowRefreshFuture(HollowRefreshCoordinator.SharedRefresh refresh) {
+        this.refresh = refresh;
+        this.completionLatch = new CountDownLatch(1);
+        this.listeners = new ArrayList<Runnable>();
+    }
+
+    /**
+     * Run the listener via the executor once this future is done.  If already done, the listener is run immediately.
+     */
+    public void addListener(final Runnable listener, final Executor executor) {
+        Runnable task = new Runnable() {
+            public void run() {
+                executor.execute(listener);
+            }
+        };
+
+        synchronized(this) {
+            if(!isDone()) {
+                listeners.add(task);
+                return;
+            }
+        }
+
+        task.run();
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized(this) {
+            if(isDone())
+                return false;
+            cancelled = true;
+        }
+
+        refresh.waiterCancelled(this);
+        complete();
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public boolean isDone() {
+        return completionLatch.getCount() == 0;
+    }
+
+    @Override
+    public Long get() throws InterruptedException, ExecutionException {
+        completionLatch.await();
+        return result();
+    }
+
+    @Override
+    public Long get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if(!completionLatch.await(timeout, unit))
+            throw new TimeoutException();
+        return result();
+    }
+
+    private Long result() throws InterruptedException, ExecutionException {
+        if(isCancelled())
+            throw new CancellationException();
+        return refresh.get();
+    }
+
+    void complete() {
+        List<Runnable> listenersToRun;
+
+        synchronized(this) {
+            if(isDone())
+                return;
+            completionLatch.countDown();
+            listenersToRun = new ArrayList<Runnable>(listeners);
+            listeners.clear();
+        }
+
+        for(Runnable listener : listenersToRun)
+            listener.run();
+    }
+
+}
@@ -0,0 +1,120 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.client;
+
+import com.netflix.hollow.api.consumer.HollowConsumer;
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import java.util.concurrent.Executor;
+
+/**
+ * The optional settings which control how a {@link HollowClientUpdater} creates state engines and loads blobs into them.
+ * Each is null or false by default, which leaves the corresponding behavior disabled.
+ * <p>
+ * A {@link HollowConsumer} creates this from its {@link HollowConsumer.Builder}.
+ */
+public class HollowUpdateConfig {
+
+    public static final HollowUpdateConfig DEFAULT_CONFIG = new HollowUpdateConfig(null, null, null, null, null, null, false, false);
+
+    private final Executor snapshotLoadExecutor;
+    private final Executor deltaApplicationExecutor;
+    private final Executor blobReadAheadExecutor;
+    private final HollowBlobPrefetcher blobPrefetcher;
+    private final HollowUpdateCostEstimator updateCostEstimator;
+    private final ArraySegmentRecycler memoryRecycler;
+    private final boolean lazyTypeMaterialization;
+    private final boolean fieldAccessCounting;
+
+    public HollowUpdateConfig(Executor snapshotLoadExecutor,
+                              Executor deltaApplicationExecutor,
+                              Executor blobReadAheadExecutor,
+                              HollowBlobPrefetcher blobPrefetcher,
+                              HollowUpdateCostEstimator updateCostEstimator,
+                              ArraySegmentRecycler memoryRecycler,
+                              boolean lazyTypeMaterialization,
+                              boolean fieldAccessCounting) {
+        this.snapshotLoadExecutor = snapshotLoadExecutor;
+        this.deltaApplicationExecutor = deltaApplicationExecutor;
+        this.blobReadAheadExecutor = blobReadAheadExecutor;
+        this.blobPrefetcher = blobPrefetcher;
+        this.updateCostEstimator = updateCostEstimator;
+        this.memoryRecycler = memoryRecycler;
+        this.lazyTypeMaterialization = lazyTypeMaterialization;
+        this.fieldAccessCounting = fieldAccessCounting;
+    }
+
+    /**
+     * @return if non-null, type states and shards will be decoded concurrently via this Executor when loading snapshots.
+     */
+    public Executor getSnapshotLoadExecutor() {
+        return snapshotLoadExecutor;
+    }
+
+    /**
+     * @return if non-null, type states and shards will be updated concurrently via this Executor when applying deltas.
+     */
+    public Executor getDeltaApplicationExecutor() {
+        return deltaApplicationExecutor;
+    }
+
+    /**
+     * @return if non-null, blobs will be read ahead from their streams via this Executor while they are decoded.
+     */
+    public Executor getBlobReadAheadExecutor() {
+        return blobReadAheadExecutor;
+    }
+
+    /**
+     * @return if non-null, the blobs of each update plan will be fetched ahead of their application via this prefetcher.
+     */
+    public HollowBlobPrefetcher getBlobPrefetcher() {
+        return blobPrefetcher;
+    }
+
+    /**
+     * @return if non-null, deltas and double snapshots will be chosen between by their estimated cost, and the throughput of 
+     * each applied blob will be recorded with this estimator.
+     */
+    public HollowUpdateCostEstimator getUpdateCostEstimator() {
+        return updateCostEstimator;
+    }
+
+    /**
+     * @return if non-null, the memory recycler for the state engine, in place of a default {@link com.netflix.hollow.core.memory.pool.RecyclingRecycler}.
+     * The same recycler is used by state engines created for subsequent double snapshots.
+     */
+    public ArraySegmentRecycler getMemoryRecycler() {
+        return memoryRecycler;
+    }
+
+    /**
+     * @see HollowReadStateEngine#setLazyTypeMaterialization(boolean)
+     */
+    public boolean isLazyTypeMaterialization() {
+        return lazyTypeMaterialization;
+    }
+
+    /**
+     * @see HollowReadStateEngine#setFieldAccessCounting(boolean)
+     */
+    public boolean isFieldAccessCounting() {
+        return fieldAccessCounting;
+    }
+
+}
@@ -0,0 +1,113 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.client;
+
+import com.netflix.hollow.api.consumer.HollowConsumer;
+
+/**
+ * Estimates the time it will take to apply a {@link HollowUpdatePlan}, based on the sizes of the plan's blobs and the
+ * throughput observed while previously applied snapshots and deltas were read.
+ * <p>
+ * Throughput is tracked separately for snapshots and deltas as an exponentially weighted moving average of bytes per nanosecond.
+ * Until a throughput has been measured for one kind of blob, the throughput of the other kind is assumed, and until neither
+ * has been measured, plans are compared by their total size in bytes alone.
+ * <p>
+ * When supplied to a {@link HollowUpdatePlanner}, the planner will use these estimates to choose between a chain of deltas
+ * and a double snapshot.
+ */
+public class HollowUpdateCostEstimator {
+
+    public static final double DEFAULT_SMOOTHING_FACTOR = 0.25d;
+
+    private final double smoothingFactor;
+
+    private double snapshotBytesPerNano = Double.NaN;
+    private double deltaBytesPerNano = Double.NaN;
+
+    public HollowUpdateCostEstimator() {
+        this(DEFAULT_SMOOTHING_FACTOR);
+    }
+
+    /**
+     * @param smoothingFactor the weight, between 0 (exclusive) and 1 (inclusive), given to each new throughput measurement.
+     */
+    public HollowUpdateCostEstimator(double smoothingFactor) {
+        if(!(smoothingFactor > 0d && smoothingFactor <= 1d))
+            throw new IllegalArgumentException("smoothingFactor must be in the range (0, 1]: " + smoothingFactor);
+        this.smoothingFactor = smoothingFactor;
+    }
+
+    /**
+     * Record the time taken to apply a blob.  Measurements for blobs of unknown size are ignored.
+     */
+    public synchronized void recordTransition(HollowConsumer.Blob transition, long elapsedNanos) {
+        long sizeInBytes = transition.getSizeInBytes();
+        if(sizeInBytes <= 0 || elapsedNanos <= 0)
+            return;
+
+        double bytesPerNano = (double)sizeInBytes / elapsedNanos;
+
+        if(transition.isSnapshot())
+            snapshotBytesPerNano = smooth(snapshotBytesPerNano, bytesPerNano);
+        else
+            deltaBytesPerNano = smooth(deltaBytesPerNano, bytesPerNano);
+    }
+
+    /**
+     * @return the estimated cost of applying the plan, or -1 if the size of any of the plan's blobs is unknown.
+     * The cost is in nanoseconds once any throughput has been measured, and in bytes before then.
+     */
+    public synchronized double estimateCost(HollowUpdatePlan plan) {
+        double snapshotRate = Double.isNaN(snapshotBytesPerNano) ? deltaBytesPerNano : snapshotBytesPerNano;
+        double deltaRate = Double.isNaN(deltaBytesPerNano) ? snapshotBytesPerNano : deltaBytesPerNano;
+
+        double cost = 0d;
+
+        for(HollowConsumer.Blob transition : plan) {
+            long sizeInBytes = transition.getSizeInBytes();
+            if(sizeInBytes < 0)
+                return -1;
+
+            double rate = transition.isSnapshot() ? snapshotRate : deltaRate;
+            cost += Double.isNaN(rate) ? sizeInBytes : sizeInBytes / rate;
+        }
+
+        return cost;
+    }
+
+    /**
+     * @return the measured snapshot throughput in bytes per second, or -1 if no snapshot has been measured.
+     */
+    public synchronized double getSnapshotBytesPerSecond() {
+        return Double.isNaN(snapshotBytesPerNano) ? -1 : snapshotBytesPerNano * 1000000000d;
+    }
+
+    /**
+     * @return the measured delta throughput in bytes per second, or -1 if no delta has been measured.
+     */
+    public synchronized double getDeltaBytesPerSecond() {
+        return Double.isNaN(deltaBytesPerNano) ? -1 : deltaBytesPerNano * 1000000000d;
+    }
+
+    private double smooth(double current, double measurement) {
+        if(Double.isNaN(current))
+            return measurement;
+        return current + smoothingFactor * (measurement - current);
+    }
+
+}
@@ -27,6 +27,7 @@ public class HollowUpdatePlanner {
 
     private final HollowConsumer.BlobRetriever transitionCreator;
     private final HollowConsumer.DoubleSnapshotConfig doubleSnapshotConfig;
+    private final HollowUpdateCostEstimator updateCostEstimator;
     
     @Deprecated
     public HollowUpdatePlanner(HollowBlobRetriever blobRetriever) {
@@ -48,8 +49,17 @@ public class HollowUpdatePlanner {
     }
 
     public HollowUpdatePlanner(HollowConsumer.BlobRetriever transitionCreator, HollowConsumer.DoubleSnapshotConfig doubleSnapshotConfig) {
+        this(transitionCreator, doubleSnapshotConfig, null);
+    }
+
+    /**
+     * @param updateCostEstimator if non-null, when both a delta plan and a snapshot plan reach the desired version, the plan with
+     * the lower estimated cost will be chosen.  Otherwise, the delta plan is always preferred when it reaches the desired version.
+     */
+    public HollowUpdatePlanner(HollowConsumer.BlobRetriever transitionCreator, HollowConsumer.DoubleSnapshotConfig doubleSnapshotConfig, HollowUpdateCostEstimator updateCostEstimator) {
         this.transitionCreator = transitionCreator;
         this.doubleSnapshotConfig = doubleSnapshotConfig;
+        this.updateCostEstimator = updateCostEstimator;
     }
 
     /**
@@ -90,6 +100,28 @@ public class HollowUpdatePlanner {
                 return snapshotPlan;
         }
 
+        if(deltaDestinationVersion == desiredVersion && allowSnapshot && updateCostEstimator != null)
+            return cheaperPlan(deltaPlan, currentVersion, desiredVersion);
+
+        return deltaPlan;
+    }
+
+    /**
+     * Returns the snapshot plan if it reaches the desired version and is estimated to be cheaper to apply than the given delta plan.
+     */
+    private HollowUpdatePlan cheaperPlan(HollowUpdatePlan deltaPlan, long currentVersion, long desiredVersion) {
+        double deltaCost = updateCostEstimator.estimateCost(deltaPlan);
+        if(deltaCost < 0)
+            return deltaPlan;
+
+        HollowUpdatePlan snapshotPlan = snapshotPlan(desiredVersion);
+        if(snapshotPlan.destinationVersion(currentVersion) != desiredVersion)
+            return deltaPlan;
+
+        double snapshotCost = updateCostEstimator.estimateCost(snapshotPlan);
+        if(snapshotCost >= 0 && snapshotCost < deltaCost)
+            return snapshotPlan;
+
         return deltaPlan;
     }
 
@@ -19,11 +19,17 @@ package com.netflix.hollow.api.consumer;
 
 import com.netflix.hollow.api.client.FailedTransitionTracker;
 import com.netflix.hollow.api.client.HollowAPIFactory;
+import com.netflix.hollow.api.client.HollowBlobPrefetcher;
 import com.netflix.hollow.api.client.HollowClientUpdater;
+import com.netflix.hollow.api.client.HollowRefreshCoordinator;
+import com.netflix.hollow.api.client.HollowRefreshFuture;
+import com.netflix.hollow.api.client.HollowUpdateConfig;
+import com.netflix.hollow.api.client.HollowUpdateCostEstimator;
 import com.netflix.hollow.api.client.StaleHollowReferenceDetector;
 import com.netflix.hollow.api.codegen.HollowAPIClassJavaGenerator;
 import com.netflix.hollow.api.consumer.fs.HollowFilesystemBlobRetriever;
 import com.netflix.hollow.api.custom.HollowAPI;
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.filter.HollowFilterConfig;
 import com.netflix.hollow.core.util.DefaultHashCodeFinder;
@@ -96,8 +102,18 @@ import java.util.concurrent.ThreadFactory;
  *      <dd>Implementations of this config will be notified when usage of expired Hollow object references is attempted.</dd>
  *      
  *      <dt>An Executor</dt>
- *      <dd>The Executor which will be used to perform updates when {@link #triggerAsyncRefresh()} is called.  This will
+ *      <dd>The Executor which will be used to perform updates when {@link #triggerAsyncRefresh()}, {@link #refreshAsync()} or
+ *          {@link #refreshToAsync(long)} is called.  This will
  *          default to a new fixed thread pool with a single refresh thread.</dd>
+ *
+ *      <dt>A snapshot load Executor</dt>
+ *      <dd>If specified, the type states and shards in snapshots will be decoded concurrently by tasks submitted to this Executor.
+ *          By default, snapshots are decoded serially on the refresh thread.</dd>
+ *
+ *      <dt>A delta application Executor</dt>
+ *      <dd>If specified, the type states and shards in deltas will be updated concurrently by tasks submitted to this Executor, and 
+ *          the updated data for all of them will become visible together.  This requires retaining the prior data for every type
+ *          until the entire delta has been applied.  By default, deltas are applied serially on the refresh thread.</dd>
  *      
  *          
  *      
@@ -109,7 +125,12 @@ public class HollowConsumer {
     protected final HollowClientUpdater updater;
     
     private final Executor refreshExecutor;
+    private final HollowRefreshCoordinator refreshCoordinator;
 
+    /**
+     * The arguments are used as provided.  Unlike {@link Builder#build()}, no blob retriever is required and no default
+     * refresh Executor is created, so asynchronous refreshes require a non-null refreshExecutor.
+     */
     protected HollowConsumer(BlobRetriever blobRetriever,
                              AnnouncementWatcher announcementWatcher,
                              List<RefreshListener> updateListeners,
@@ -120,20 +141,81 @@ public class HollowConsumer {
                              DoubleSnapshotConfig doubleSnapshotConfig,
                              HollowObjectHashCodeFinder hashCodeFinder,
                              Executor refreshExecutor) {
-        
+        this(builderFor(blobRetriever, announcementWatcher, updateListeners, apiFactory, dataFilter, objectLongevityConfig,
+                        objectLongevityDetector, doubleSnapshotConfig, hashCodeFinder, refreshExecutor),
+             blobRetriever, refreshExecutor);
+    }
+
+    /**
+     * Create a consumer with the components and settings specified in the builder.  Subclasses which require additional
+     * settings may extend {@link Builder}.
+     */
+    protected HollowConsumer(Builder builder) {
+        this(builder, blobRetrieverFor(builder), refreshExecutorFor(builder));
+    }
+
+    private HollowConsumer(Builder builder, BlobRetriever blobRetriever, Executor refreshExecutor) {
         this.updater = new HollowClientUpdater(blobRetriever, 
-                                               updateListeners, 
-                                               apiFactory, 
-                                               doubleSnapshotConfig,
-                                               hashCodeFinder, 
-                                               objectLongevityConfig, 
-                                               objectLongevityDetector);
-        updater.setFilter(dataFilter);
-        this.announcementWatcher = announcementWatcher;
+                                               builder.refreshListeners, 
+                                               builder.apiFactory, 
+                                               builder.doubleSnapshotConfig,
+                                               builder.hashCodeFinder, 
+                                               builder.objectLongevityConfig, 
+                                               builder.objectLongevityDetector,
+                                               builder.updateConfig());
+        updater.setFilter(builder.filterConfig);
+        this.announcementWatcher = builder.announcementWatcher;
         this.refreshExecutor = refreshExecutor;
+        this.refreshCoordinator = new HollowRefreshCoordinator(updater, refreshExecutor);
         if(announcementWatcher != null)
             announcementWatcher.subscribeToUpdates(this);
     }
+
+    private static BlobRetriever blobRetrieverFor(Builder builder) {
+        if(builder.blobRetriever == null && builder.localBlobStoreDir == null) 
+            throw new IllegalArgumentException("A HollowBlobRetriever or local blob store directory must be specified when building a HollowClient");
+
+        if(builder.localBlobStoreDir != null)
+            return new HollowFilesystemBlobRetriever(builder.localBlobStoreDir, builder.blobRetriever);
+        return builder.blobRetriever;
+    }
+
+    private static Executor refreshExecutorFor(Builder builder) {
+        if(builder.refreshExecutor != null)
+            return builder.refreshExecutor;
+
+        return Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+    
+    private static Builder builderFor(BlobRetriever blobRetriever,
+                                      AnnouncementWatcher announcementWatcher,
+                                      List<RefreshListener> updateListeners,
+                                      HollowAPIFactory apiFactory,
+                                      HollowFilterConfig dataFilter,
+                                      ObjectLongevityConfig objectLongevityConfig,
+                                      ObjectLongevityDetector objectLongevityDetector,
+                                      DoubleSnapshotConfig doubleSnapshotConfig,
+                                      HollowObjectHashCodeFinder hashCodeFinder,
+                                      Executor refreshExecutor) {
+        Builder builder = new Builder();
+        builder.blobRetriever = blobRetriever;
+        builder.announcementWatcher = announcementWatcher;
+        builder.refreshListeners = updateListeners;
+        builder.apiFactory = apiFactory;
+        builder.filterConfig = dataFilter;
+        builder.objectLongevityConfig = objectLongevityConfig;
+        builder.objectLongevityDetector = objectLongevityDetector;
+        builder.doubleSnapshotConfig = doubleSnapshotConfig;
+        builder.hashCodeFinder = hashCodeFinder;
+        builder.refreshExecutor = refreshExecutor;
+        return builder;
+    }
     
     /**
      * Triggers a refresh to the latest version specified by the {@link HollowConsumer.AnnouncementWatcher}.
@@ -191,6 +273,39 @@ public class HollowConsumer {
         });
     }
 
+    /**
+     * Triggers a refresh in a different thread to the latest version specified by the {@link HollowConsumer.AnnouncementWatcher},
+     * or to the latest version available in the blob store if a {@link HollowConsumer.AnnouncementWatcher} is not present.
+     * 
+     * Concurrent requests for the same version are merged into a single refresh.
+     *
+     * This is an asynchronous call.
+     * 
+     * @return a future which completes with the current version once the refresh has been attempted.  See {@link HollowRefreshFuture}.
+     */
+    public HollowRefreshFuture refreshAsync() {
+        return refreshCoordinator.refreshTo(announcementWatcher == null ? Long.MAX_VALUE : announcementWatcher.getLatestVersion());
+    }
+
+    /**
+     * If a {@link HollowConsumer.AnnouncementWatcher} is not specified, then this method will trigger a refresh 
+     * in a different thread to the specified version.
+     *
+     * Otherwise, an UnsupportedOperationException will be thrown.
+     * 
+     * Concurrent requests for the same version are merged into a single refresh.
+     *
+     * This is an asynchronous call.
+     *
+     * @return a future which completes with the current version once the refresh has been attempted.  See {@link HollowRefreshFuture}.
+     */
+    public HollowRefreshFuture refreshToAsync(long version) {
+        if(announcementWatcher != null)
+            throw new UnsupportedOperationException("Cannot trigger refresh to specified version when a HollowConsumer.AnnouncementWatcher is present");
+
+        return refreshCoordinator.refreshTo(version);
+    }
+
     /**
      * If a {@link HollowConsumer.AnnouncementWatcher} is not specified, then this method will update
      * to the specified version.
@@ -319,6 +434,16 @@ public class HollowConsumer {
          */
         public abstract InputStream getInputStream() throws IOException;
 
+        /**
+         * Implementations may define the size of this blob's data, which will be used to estimate the cost of update plans
+         * including this blob.  See {@link Builder#withUpdateCostEstimator(HollowUpdateCostEstimator)}.
+         *
+         * @return the size of this blob in bytes, or -1 if unknown.
+         */
+        public long getSizeInBytes() {
+            return -1;
+        }
+
         public boolean isSnapshot() {
             return fromVersion == Long.MIN_VALUE;
         }
@@ -570,6 +695,14 @@ public class HollowConsumer {
         private HollowConsumer.ObjectLongevityDetector objectLongevityDetector = ObjectLongevityDetector.DEFAULT_DETECTOR;
         private File localBlobStoreDir = null;
         private Executor refreshExecutor = null;
+        private Executor snapshotLoadExecutor = null;
+        private Executor deltaApplicationExecutor = null;
+        private Executor blobReadAheadExecutor = null;
+        private boolean lazyTypeMaterialization = false;
+        private boolean fieldAccessCounting = false;
+        private ArraySegmentRecycler memoryRecycler = null;
+        private HollowBlobPrefetcher blobPrefetcher = null;
+        private HollowUpdateCostEstimator updateCostEstimator = null;
         
         public HollowConsumer.Builder withBlobRetriever(HollowConsumer.BlobRetriever blobRetriever) {
             this.blobRetriever = blobRetriever;
@@ -627,40 +760,96 @@ public class HollowConsumer {
             return this;
         }
         
+        public HollowConsumer.Builder withSnapshotLoadExecutor(Executor snapshotLoadExecutor) {
+            this.snapshotLoadExecutor = snapshotLoadExecutor;
+            return this;
+        }
+        
+        public HollowConsumer.Builder withDeltaApplicationExecutor(Executor deltaApplicationExecutor) {
+            this.deltaApplicationExecutor = deltaApplicationExecutor;
+            return this;
+        }
+        
+        public HollowConsumer.Builder withBlobReadAheadExecutor(Executor blobReadAheadExecutor) {
+            this.blobReadAheadExecutor = blobReadAheadExecutor;
+            return this;
+        }
+        
+        /**
+         * Decode each type only once it is first retrieved, rather than when each snapshot is loaded.
+         * See {@link HollowReadStateEngine#setLazyTypeMaterialization(boolean)}.
+         */
+        public HollowConsumer.Builder withLazyTypeMaterialization() {
+            this.lazyTypeMaterialization = true;
+            return this;
+        }
+        
+        /**
+         * Count every access to each field.
+         * See {@link HollowReadStateEngine#setFieldAccessCounting(boolean)}.
+         */
+        public HollowConsumer.Builder withFieldAccessCounting() {
+            this.fieldAccessCounting = true;
+            return this;
+        }
+        
+        /**
+         * Fetch the blobs of each update ahead of their application, with up to maxPrefetchedBlobs fetched concurrently
+         * via the prefetchExecutor.  See {@link HollowBlobPrefetcher}.
+         */
+        public HollowConsumer.Builder withBlobPrefetching(Executor prefetchExecutor, int maxPrefetchedBlobs) {
+            this.blobPrefetcher = new HollowBlobPrefetcher(prefetchExecutor, maxPrefetchedBlobs);
+            return this;
+        }
+        
+        public HollowConsumer.Builder withBlobPrefetcher(HollowBlobPrefetcher blobPrefetcher) {
+            this.blobPrefetcher = blobPrefetcher;
+            return this;
+        }
+        
+        /**
+         * Choose between a chain of deltas and a double snapshot by comparing the estimated time to apply each, based on
+         * the sizes of their blobs (see {@link Blob#getSizeInBytes()}) and the throughput measured during prior updates.
+         * See {@link HollowUpdateCostEstimator}.
+         */
+        public HollowConsumer.Builder withCostBasedUpdatePlanning() {
+            this.updateCostEstimator = new HollowUpdateCostEstimator();
+            return this;
+        }
+        
+        public HollowConsumer.Builder withUpdateCostEstimator(HollowUpdateCostEstimator updateCostEstimator) {
+            this.updateCostEstimator = updateCostEstimator;
+            return this;
+        }
+        
+        /**
+         * Use the specified memory recycler in place of a default {@link com.netflix.hollow.core.memory.pool.RecyclingRecycler},
+         * for example a {@link com.netflix.hollow.core.memory.pool.BoundedRecyclingRecycler} to cap the memory pooled during refreshes.
+         */
+        public HollowConsumer.Builder withMemoryRecycler(ArraySegmentRecycler memoryRecycler) {
+            this.memoryRecycler = memoryRecycler;
+            return this;
+        }
+        
         @Deprecated
         public HollowConsumer.Builder withHashCodeFinder(HollowObjectHashCodeFinder hashCodeFinder) {
             this.hashCodeFinder = hashCodeFinder;
             return this;
         }
         
+        private HollowUpdateConfig updateConfig() {
+            return new HollowUpdateConfig(snapshotLoadExecutor,
+                                          deltaApplicationExecutor,
+                                          blobReadAheadExecutor,
+                                          blobPrefetcher,
+                                          updateCostEstimator,
+                                          memoryRecycler,
+                                          lazyTypeMaterialization,
+                                          fieldAccessCounting);
+        }
+        
         public HollowConsumer build() {
-            if(blobRetriever == null && localBlobStoreDir == null) 
-                throw new IllegalArgumentException("A HollowBlobRetriever or local blob store directory must be specified when building a HollowClient");
-            
-            BlobRetriever blobRetriever = this.blobRetriever;
-            if(localBlobStoreDir != null)
-                blobRetriever = new HollowFilesystemBlobRetriever(localBlobStoreDir, blobRetriever);
-            
-            if(refreshExecutor == null)
-                refreshExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
-                    public Thread newThread(Runnable r) {
-                        Thread t = new Thread(r);
-                        t.setDaemon(true);
-                        return t;
-                    }
-                });
-            
-            
-            return new HollowConsumer(blobRetriever, 
-                                      announcementWatcher,
-                                      refreshListeners,
-                                      apiFactory, 
-                                      filterConfig, 
-                                      objectLongevityConfig, 
-                                      objectLongevityDetector, 
-                                      doubleSnapshotConfig, 
-                                      hashCodeFinder, 
-                                      refreshExecutor);
+            return new HollowConsumer(this);
         }
     }
     
@@ -17,52 +17,167 @@
  */
 package com.netflix.hollow.api.consumer.fs;
 
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
 import com.netflix.hollow.api.consumer.HollowConsumer;
 import com.netflix.hollow.api.producer.fs.HollowFilesystemAnnouncer;
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A {@link HollowConsumer.AnnouncementWatcher} which reads the version announced by a {@link HollowFilesystemAnnouncer}.
+ * <p>
+ * By default, the announcement directory is watched via a WatchService, so that subscribed consumers are refreshed as soon as 
+ * a new version is announced.  Because some filesystems (e.g. network filesystems) do not deliver events for changes made by 
+ * other hosts, the announcement file is also read each polling interval.  If a WatchService is not available for the 
+ * announcement directory, this watcher relies on polling alone.
+ * <p>
+ * Call {@link #close()} once this watcher is no longer needed, to stop its thread and release its WatchService.
+ */
+public class HollowFilesystemAnnouncementWatcher implements HollowConsumer.AnnouncementWatcher, Closeable {
+
+    private static final Logger LOG = Logger.getLogger(HollowFilesystemAnnouncementWatcher.class.getName());
 
-public class HollowFilesystemAnnouncementWatcher implements HollowConsumer.AnnouncementWatcher {
+    public static final long DEFAULT_POLLING_INTERVAL_MILLIS = 1000;
 
     private final File publishDir;
     private final List<HollowConsumer> subscribedConsumers;
+    private final long pollingIntervalMillis;
+    private final WatchService watchService;
+    private final Thread watchThread;
     
-    private long latestVersion;
+    private volatile long latestVersion;
+    private volatile boolean closed;
     
     public HollowFilesystemAnnouncementWatcher(File publishDir) {
+        this(publishDir, true, DEFAULT_POLLING_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param publishDir             The directory to which versions are announced
+     * @param watchForEvents         Whether to watch the directory for changes to the announcement file, rather than only polling it
+     * @param pollingIntervalMillis  The interval at which the announcement file is read, regardless of whether changes have been observed.
+     *                               Must be positive.
+     */
+    public HollowFilesystemAnnouncementWatcher(File publishDir, boolean watchForEvents, long pollingIntervalMillis) {
+        if(pollingIntervalMillis <= 0)
+            throw new IllegalArgumentException("pollingIntervalMillis must be positive: " + pollingIntervalMillis);
+
         this.publishDir = publishDir;
-        this.subscribedConsumers = new ArrayList<HollowConsumer>();
+        this.subscribedConsumers = new CopyOnWriteArrayList<HollowConsumer>();
+        this.pollingIntervalMillis = pollingIntervalMillis;
         this.latestVersion = readLatestVersion();
-        
-        setupPolling();
+        this.watchService = watchForEvents ? newWatchService() : null;
+        this.watchThread = setupWatching(watchService);
+    }
+
+    private WatchService newWatchService() {
+        WatchService watchService = null;
+        try {
+            watchService = publishDir.toPath().getFileSystem().newWatchService();
+            publishDir.toPath().register(watchService, ENTRY_CREATE, ENTRY_MODIFY, OVERFLOW);
+            return watchService;
+        } catch(IOException e) {
+            LOG.log(Level.WARNING, "Unable to watch announcement directory " + publishDir + ", falling back to polling", e);
+        } catch(UnsupportedOperationException e) {
+            LOG.log(Level.WARNING, "Unable to watch announcement directory " + publishDir + ", falling back to polling", e);
+        }
+
+        if(watchService != null)
+            closeQuietly(watchService);
+
+        return null;
+    }
+
+    private static void closeQuietly(WatchService watchService) {
+        try {
+            watchService.close();
+        } catch(IOException ignore) { }
     }
     
-    private void setupPolling() {
+    private Thread setupWatching(final WatchService watchService) {
         Thread t = new Thread(new Runnable() {
             public void run() {
-                while(true) {
+                WatchService activeWatchService = watchService;
+
+                while(!closed) {
                     try {
+                        if(activeWatchService != null) {
+                            try {
+                                awaitAnnouncementEvent(activeWatchService);
+                            } catch(ClosedWatchServiceException e) {
+                                if(closed)
+                                    return;
+                                LOG.warning("Announcement directory " + publishDir + " is no longer watched, falling back to polling");
+                                closeQuietly(activeWatchService);
+                                activeWatchService = null;
+                            }
+                        } else {
+                            Thread.sleep(pollingIntervalMillis);
+                        }
+
                         long currentVersion = readLatestVersion();
                         if(latestVersion != currentVersion) {
                             latestVersion = currentVersion;
                             for(HollowConsumer consumer : subscribedConsumers)
                                 consumer.triggerAsyncRefresh();
                         }
-                        
-                            Thread.sleep(1000);
+                    } catch(InterruptedException e) {
+                        if(closed)
+                            return;
                     } catch(Throwable th) { 
                         th.printStackTrace();
                     }
                 }
             }
-        });
+        }, "hollow-announcement-watcher");
         
         t.setDaemon(true);
         t.start();
+        return t;
+    }
+
+    /**
+     * Wait until the announcement file may have changed, or until the polling interval has elapsed.
+     */
+    private void awaitAnnouncementEvent(WatchService watchService) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + pollingIntervalMillis;
+        long remainingMillis = pollingIntervalMillis;
+
+        while(remainingMillis > 0) {
+            WatchKey key = watchService.poll(remainingMillis, TimeUnit.MILLISECONDS);
+            if(key == null)
+                return;
+
+            boolean announcementChanged = false;
+            for(WatchEvent<?> event : key.pollEvents()) {
+                if(event.kind() == OVERFLOW || HollowFilesystemAnnouncer.ANNOUNCEMENT_FILENAME.equals(((Path)event.context()).getFileName().toString()))
+                    announcementChanged = true;
+            }
+
+            if(!key.reset())
+                throw new ClosedWatchServiceException();
+
+            if(announcementChanged)
+                return;
+
+            remainingMillis = deadline - System.currentTimeMillis();
+        }
     }
     
     @Override
@@ -74,6 +189,17 @@ public class HollowFilesystemAnnouncementWatcher implements HollowConsumer.Annou
     public void subscribeToUpdates(final HollowConsumer consumer) {
         subscribedConsumers.add(consumer);
     }
+
+    /**
+     * Stop watching for announcements.  Subscribed consumers are no longer refreshed by this watcher.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        if(watchService != null)
+            closeQuietly(watchService);
+        watchThread.interrupt();
+    }
     
     public long readLatestVersion() {
         File f = new File(publishDir, HollowFilesystemAnnouncer.ANNOUNCEMENT_FILENAME);
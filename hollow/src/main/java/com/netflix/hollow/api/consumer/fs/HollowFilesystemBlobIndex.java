@@ -0,0 +1,315 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.consumer.fs;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An in-memory index of the blobs in a filesystem blob store directory, as written by a 
+ * {@link com.netflix.hollow.api.producer.fs.HollowFilesystemPublisher} or a {@link HollowFilesystemBlobRetriever}.
+ * <p>
+ * Snapshots are indexed by version in a sorted map, and deltas and reverse deltas are indexed by their from version, so that
+ * each lookup does not need to list the directory.  The index is updated as blobs are added to the directory via {@link #blobAdded(File)},
+ * and once {@link #startWatching()} is called, a WatchService keeps the index current with files added or removed by other writers.
+ * <p>
+ * Until the directory is watched, files written by other writers are only indexed by {@link #rescan()}, so callers which expect
+ * such files should rescan before concluding that a blob is not present.  Once the directory is watched, a lookup miss should be
+ * trusted rather than followed by a rescan; a file written by another writer is indexed as soon as its WatchService event is delivered.
+ */
+public class HollowFilesystemBlobIndex implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(HollowFilesystemBlobIndex.class.getName());
+
+    static final String SNAPSHOT_PREFIX = "snapshot-";
+    static final String DELTA_PREFIX = "delta-";
+    static final String REVERSE_DELTA_PREFIX = "reversedelta-";
+
+    private final File blobStoreDir;
+
+    private final TreeMap<Long, IndexedBlob> snapshots;
+    private final Map<Long, IndexedBlob> deltas;
+    private final Map<Long, IndexedBlob> reverseDeltas;
+
+    private WatchService watchService;
+
+    public HollowFilesystemBlobIndex(File blobStoreDir) {
+        this.blobStoreDir = blobStoreDir;
+        this.snapshots = new TreeMap<Long, IndexedBlob>();
+        this.deltas = new HashMap<Long, IndexedBlob>();
+        this.reverseDeltas = new HashMap<Long, IndexedBlob>();
+
+        rescan();
+    }
+
+    /**
+     * @return the snapshot with the greatest version less than or equal to the desired version, or null if there is no such snapshot.
+     */
+    public synchronized IndexedBlob getSnapshotAtOrBefore(long desiredVersion) {
+        Map.Entry<Long, IndexedBlob> entry = snapshots.floorEntry(desiredVersion);
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * @return the delta from the specified version, or null if there is no such delta.
+     */
+    public synchronized IndexedBlob getDelta(long fromVersion) {
+        return deltas.get(fromVersion);
+    }
+
+    /**
+     * @return the reverse delta from the specified version, or null if there is no such reverse delta.
+     */
+    public synchronized IndexedBlob getReverseDelta(long fromVersion) {
+        return reverseDeltas.get(fromVersion);
+    }
+
+    public synchronized int getNumSnapshots() {
+        return snapshots.size();
+    }
+
+    /**
+     * Rebuild the index from a listing of the directory.
+     */
+    public synchronized void rescan() {
+        snapshots.clear();
+        deltas.clear();
+        reverseDeltas.clear();
+
+        String[] filenames = blobStoreDir.list();
+        if(filenames != null) {
+            for(String filename : filenames)
+                index(filename);
+        }
+    }
+
+    /**
+     * Add a blob which has been written to the directory.
+     */
+    public synchronized void blobAdded(File file) {
+        index(file.getName());
+    }
+
+    /**
+     * Delete all but the specified number of most recent snapshots, along with every delta and reverse delta from a version
+     * prior to the oldest retained snapshot.
+     * 
+     * @return the number of files deleted
+     */
+    public synchronized int applyRetention(int numSnapshotsToRetain) {
+        if(numSnapshotsToRetain < 1)
+            throw new IllegalArgumentException("At least one snapshot must be retained");
+
+        if(snapshots.size() <= numSnapshotsToRetain)
+            return 0;
+
+        long oldestRetainedVersion = Long.MIN_VALUE;
+        Iterator<Long> descendingVersions = snapshots.descendingKeySet().iterator();
+        for(int i=0;i<numSnapshotsToRetain;i++)
+            oldestRetainedVersion = descendingVersions.next();
+
+        List<IndexedBlob> expired = new ArrayList<IndexedBlob>();
+        expired.addAll(snapshots.headMap(oldestRetainedVersion).values());
+        for(IndexedBlob delta : deltas.values()) {
+            if(delta.getFromVersion() < oldestRetainedVersion)
+                expired.add(delta);
+        }
+        for(IndexedBlob reverseDelta : reverseDeltas.values()) {
+            if(reverseDelta.getToVersion() < oldestRetainedVersion)
+                expired.add(reverseDelta);
+        }
+
+        int numDeleted = 0;
+        for(IndexedBlob blob : expired) {
+            unindex(blob.getFile().getName());
+            if(blob.getFile().delete())
+                numDeleted++;
+            else
+                LOG.warning("Unable to delete expired blob " + blob.getFile());
+        }
+
+        return numDeleted;
+    }
+
+    /**
+     * Keep this index current with files added to or removed from the directory by other writers, via a WatchService polled
+     * by a daemon thread.  If a WatchService is not available for the directory, the index is only updated by 
+     * {@link #blobAdded(File)} and {@link #rescan()}.
+     */
+    public synchronized void startWatching() {
+        if(watchService != null)
+            return;
+
+        try {
+            final WatchService watchService = blobStoreDir.toPath().getFileSystem().newWatchService();
+            blobStoreDir.toPath().register(watchService, ENTRY_CREATE, ENTRY_DELETE, OVERFLOW);
+            this.watchService = watchService;
+
+            Thread t = new Thread(new Runnable() {
+                public void run() {
+                    watch(watchService);
+                }
+            }, "hollow-blob-index-watcher");
+
+            t.setDaemon(true);
+            t.start();
+        } catch(IOException e) {
+            LOG.log(Level.WARNING, "Unable to watch blob store directory " + blobStoreDir, e);
+        } catch(UnsupportedOperationException e) {
+            LOG.log(Level.WARNING, "Unable to watch blob store directory " + blobStoreDir, e);
+        }
+    }
+
+    /**
+     * @return whether this index is currently watching the directory for changes.
+     */
+    public synchronized boolean isWatching() {
+        return watchService != null;
+    }
+
+    /**
+     * Stop watching the directory for changes.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if(watchService != null) {
+            watchService.close();
+            watchService = null;
+        }
+    }
+
+    private void watch(WatchService watchService) {
+        try {
+            while(true) {
+                WatchKey key = watchService.take();
+
+                for(WatchEvent<?> event : key.pollEvents()) {
+                    if(event.kind() == OVERFLOW) {
+                        rescan();
+                    } else {
+                        String filename = ((Path)event.context()).getFileName().toString();
+                        synchronized(this) {
+                            if(event.kind() == ENTRY_CREATE)
+                                index(filename);
+                            else
+                                unindex(filename);
+                        }
+                    }
+                }
+
+                if(!key.reset())
+                    return;
+            }
+        } catch(InterruptedException e) {
+            /// stop watching
+        } catch(ClosedWatchServiceException e) {
+            /// stop watching
+        }
+    }
+
+    private void index(String filename) {
+        try {
+            if(filename.startsWith(SNAPSHOT_PREFIX)) {
+                long version = Long.parseLong(filename.substring(SNAPSHOT_PREFIX.length()));
+                snapshots.put(version, new IndexedBlob(new File(blobStoreDir, filename), Long.MIN_VALUE, version));
+            } else if(filename.startsWith(DELTA_PREFIX)) {
+                IndexedBlob delta = parseTransition(filename, DELTA_PREFIX);
+                deltas.put(delta.getFromVersion(), delta);
+            } else if(filename.startsWith(REVERSE_DELTA_PREFIX)) {
+                IndexedBlob reverseDelta = parseTransition(filename, REVERSE_DELTA_PREFIX);
+                reverseDeltas.put(reverseDelta.getFromVersion(), reverseDelta);
+            }
+        } catch(NumberFormatException e) {
+            /// not a blob
+        }
+    }
+
+    private void unindex(String filename) {
+        try {
+            if(filename.startsWith(SNAPSHOT_PREFIX)) {
+                snapshots.remove(Long.parseLong(filename.substring(SNAPSHOT_PREFIX.length())));
+            } else if(filename.startsWith(DELTA_PREFIX)) {
+                removeIfFile(deltas, parseTransition(filename, DELTA_PREFIX));
+            } else if(filename.startsWith(REVERSE_DELTA_PREFIX)) {
+                removeIfFile(reverseDeltas, parseTransition(filename, REVERSE_DELTA_PREFIX));
+            }
+        } catch(NumberFormatException e) {
+            /// not a blob
+        }
+    }
+
+    private void removeIfFile(Map<Long, IndexedBlob> map, IndexedBlob blob) {
+        IndexedBlob indexed = map.get(blob.getFromVersion());
+        if(indexed != null && indexed.getFile().equals(blob.getFile()))
+            map.remove(blob.getFromVersion());
+    }
+
+    private IndexedBlob parseTransition(String filename, String prefix) {
+        int separatorIdx = filename.indexOf('-', prefix.length());
+        if(separatorIdx == -1)
+            throw new NumberFormatException(filename);
+
+        long fromVersion = Long.parseLong(filename.substring(prefix.length(), separatorIdx));
+        long toVersion = Long.parseLong(filename.substring(separatorIdx + 1));
+
+        return new IndexedBlob(new File(blobStoreDir, filename), fromVersion, toVersion);
+    }
+
+    public static class IndexedBlob {
+        private final File file;
+        private final long fromVersion;
+        private final long toVersion;
+
+        IndexedBlob(File file, long fromVersion, long toVersion) {
+            this.file = file;
+            this.fromVersion = fromVersion;
+            this.toVersion = toVersion;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        public long getFromVersion() {
+            return fromVersion;
+        }
+
+        public long getToVersion() {
+            return toVersion;
+        }
+    }
+
+}
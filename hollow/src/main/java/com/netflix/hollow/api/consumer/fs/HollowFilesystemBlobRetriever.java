@@ -18,18 +18,37 @@
 package com.netflix.hollow.api.consumer.fs;
 
 import com.netflix.hollow.api.consumer.HollowConsumer;
+import com.netflix.hollow.core.memory.MappedDataInputStream;
 import java.io.BufferedInputStream;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
-public class HollowFilesystemBlobRetriever implements HollowConsumer.BlobRetriever {
+/**
+ * A {@link HollowConsumer.BlobRetriever} which retrieves blobs from a local directory, optionally backed by a remote store.
+ * <p>
+ * The blobs in the directory are tracked by a {@link HollowFilesystemBlobIndex}, so that retrieving each blob does not require
+ * listing the directory.  The index is updated as blobs are copied from the remote store.  Without a remote store, the directory
+ * is listed again when a requested delta or reverse delta is not indexed, or when no snapshot at or before the requested version
+ * is indexed.  To also pick up newer snapshots written by other processes, call {@link #startWatching()}, after which the index is
+ * kept current by the watch and the directory is no longer listed on a miss.
+ * <p>
+ * With a remote store, the directory is never listed again after this retriever is created: a blob which is not indexed is retrieved
+ * from the remote store.  Blobs written to the directory by other processes are then only used if {@link #startWatching()} is called.
+ */
+public class HollowFilesystemBlobRetriever implements HollowConsumer.BlobRetriever, Closeable {
     
     private final HollowConsumer.BlobRetriever fallbackBlobRetriever;
     private final File blobStoreDir;
+    private final boolean mapSnapshots;
+    private final int numSnapshotsToRetain;
+    private final HollowFilesystemBlobIndex index;
     
     /**
      * A new HollowFilesystemBlobRetriever which is not backed by a remote store.
@@ -44,45 +63,89 @@ public class HollowFilesystemBlobRetriever implements HollowConsumer.BlobRetriev
      * A new HollowFileSystemBlobRetriever which is backed by a remote store.  When a blob from the remote store
      * is requested which exists locally, then the local copy is used.  When a blob from the remote store is
      * requested which does not exist locally, it is copied to the filesystem right before it is loaded.
+     * <p>
+     * The directory is only listed when this retriever is created.  Blobs which other processes later write to the directory
+     * are not seen, and are retrieved again from the remote store, unless {@link #startWatching()} is called.
      * 
      * @param blobStoreDir           The directory from which to retrieve blobs, if available
      * @param fallbackBlobRetriever  The remote blob retriever from which to retrieve blobs if they are not already available on the filesystem.
      */
     public HollowFilesystemBlobRetriever(File blobStoreDir, HollowConsumer.BlobRetriever fallbackBlobRetriever) {
+        this(blobStoreDir, fallbackBlobRetriever, false);
+    }
+
+    /**
+     * A new HollowFileSystemBlobRetriever which is optionally backed by a remote store, and which may map snapshots into memory.
+     * <p>
+     * If snapshots are mapped, then the data loaded from a snapshot refers in place to the snapshot file, instead of being 
+     * copied into memory.  Loading is then nearly instantaneous, and processes loading the same snapshot on the same host 
+     * will share the page cache.  Snapshot files must not be modified or removed while they are in use.
+     * 
+     * @param blobStoreDir           The directory from which to retrieve blobs, if available
+     * @param fallbackBlobRetriever  The remote blob retriever from which to retrieve blobs if they are not already available on the filesystem, or null.
+     * @param mapSnapshots           Whether snapshot files are mapped into memory and read in place.
+     */
+    public HollowFilesystemBlobRetriever(File blobStoreDir, HollowConsumer.BlobRetriever fallbackBlobRetriever, boolean mapSnapshots) {
+        this(blobStoreDir, fallbackBlobRetriever, mapSnapshots, 0);
+    }
+
+    /**
+     * A new HollowFileSystemBlobRetriever which is optionally backed by a remote store, and which removes old blobs from the directory.
+     * <p>
+     * Each time a snapshot is copied from the remote store, all but the specified number of most recent snapshots are deleted, along with
+     * the deltas and reverse deltas which lead from or to versions prior to the oldest retained snapshot.  If snapshots are mapped, then
+     * enough snapshots must be retained to cover every snapshot which may still be in use.
+     * 
+     * @param blobStoreDir           The directory from which to retrieve blobs, if available
+     * @param fallbackBlobRetriever  The remote blob retriever from which to retrieve blobs if they are not already available on the filesystem, or null.
+     * @param mapSnapshots           Whether snapshot files are mapped into memory and read in place.
+     * @param numSnapshotsToRetain   The number of most recent snapshots to retain, or 0 to retain all blobs.
+     */
+    public HollowFilesystemBlobRetriever(File blobStoreDir, HollowConsumer.BlobRetriever fallbackBlobRetriever, boolean mapSnapshots, int numSnapshotsToRetain) {
+        if(numSnapshotsToRetain < 0)
+            throw new IllegalArgumentException("numSnapshotsToRetain must not be negative: " + numSnapshotsToRetain);
+
         this.blobStoreDir = blobStoreDir;
         this.fallbackBlobRetriever = fallbackBlobRetriever;
+        this.mapSnapshots = mapSnapshots;
+        this.numSnapshotsToRetain = numSnapshotsToRetain;
         
         blobStoreDir.mkdirs();
+
+        this.index = new HollowFilesystemBlobIndex(blobStoreDir);
+    }
+
+    /**
+     * Keep the index current with blobs written to or removed from the directory by other processes, via a WatchService
+     * polled by a daemon thread.  Call {@link #close()} once this retriever is no longer needed, to stop watching.
+     * 
+     * @return this retriever
+     */
+    public HollowFilesystemBlobRetriever startWatching() {
+        index.startWatching();
+        return this;
     }
 
     @Override
     public HollowConsumer.Blob retrieveSnapshotBlob(long desiredVersion) {
-        File exactFile = new File(blobStoreDir, "snapshot-" + desiredVersion);
-        
-        if(exactFile.exists())
-            return new FilesystemBlob(exactFile, desiredVersion);
-        
-        long maxVersionBeforeDesired = Long.MIN_VALUE;
-        String maxVersionBeforeDesiredFilename = null;
-
-        for(String filename : blobStoreDir.list()) {
-            if(filename.startsWith("snapshot-")) {
-                long version = Long.parseLong(filename.substring(filename.lastIndexOf("-") + 1));
-                if(version < desiredVersion && version > maxVersionBeforeDesired) {
-                    maxVersionBeforeDesired = version;
-                    maxVersionBeforeDesiredFilename = filename;
-                }
-            }
+        HollowFilesystemBlobIndex.IndexedBlob snapshot = index.getSnapshotAtOrBefore(desiredVersion);
+
+        if(shouldRescan(snapshot)) {
+            index.rescan();
+            snapshot = index.getSnapshotAtOrBefore(desiredVersion);
         }
-        
+
         HollowConsumer.Blob filesystemBlob = null;
-        if(maxVersionBeforeDesired > Long.MIN_VALUE)
-            filesystemBlob = new FilesystemBlob(new File(blobStoreDir, maxVersionBeforeDesiredFilename), maxVersionBeforeDesired);
+        if(isPresent(snapshot))
+            filesystemBlob = new FilesystemBlob(snapshot.getFile(), snapshot.getToVersion());
+
+        if(filesystemBlob != null && filesystemBlob.getToVersion() == desiredVersion)
+            return filesystemBlob;
         
         if(fallbackBlobRetriever != null) {
             HollowConsumer.Blob remoteBlob = fallbackBlobRetriever.retrieveSnapshotBlob(desiredVersion);
             if(remoteBlob != null && (filesystemBlob == null || remoteBlob.getToVersion() != filesystemBlob.getToVersion()))
-                return new BlobForBackupToFilesystem(remoteBlob, new File(blobStoreDir, "snapshot-" + remoteBlob.getToVersion()));
+                return new BlobForBackupToFilesystem(remoteBlob, new File(blobStoreDir, HollowFilesystemBlobIndex.SNAPSHOT_PREFIX + remoteBlob.getToVersion()));
         }
         
         return filesystemBlob;
@@ -90,17 +153,20 @@ public class HollowFilesystemBlobRetriever implements HollowConsumer.BlobRetriev
 
     @Override
     public HollowConsumer.Blob retrieveDeltaBlob(long currentVersion) {
-        for(String filename : blobStoreDir.list()) {
-            if(filename.startsWith("delta-" + currentVersion)) {
-                long destinationVersion = Long.parseLong(filename.substring(filename.lastIndexOf("-") + 1));
-                return new FilesystemBlob(new File(blobStoreDir, filename), currentVersion, destinationVersion);
-            }
+        HollowFilesystemBlobIndex.IndexedBlob delta = index.getDelta(currentVersion);
+
+        if(shouldRescan(delta)) {
+            index.rescan();
+            delta = index.getDelta(currentVersion);
         }
+
+        if(isPresent(delta))
+            return new FilesystemBlob(delta.getFile(), currentVersion, delta.getToVersion());
         
         if(fallbackBlobRetriever != null) {
             HollowConsumer.Blob remoteBlob = fallbackBlobRetriever.retrieveDeltaBlob(currentVersion);
             if(remoteBlob != null)
-                return new BlobForBackupToFilesystem(remoteBlob, new File(blobStoreDir, "delta-" + remoteBlob.getFromVersion() + "-" + remoteBlob.getToVersion()));
+                return new BlobForBackupToFilesystem(remoteBlob, new File(blobStoreDir, HollowFilesystemBlobIndex.DELTA_PREFIX + remoteBlob.getFromVersion() + "-" + remoteBlob.getToVersion()));
         }
         
         return null;
@@ -108,23 +174,63 @@ public class HollowFilesystemBlobRetriever implements HollowConsumer.BlobRetriev
 
     @Override
     public HollowConsumer.Blob retrieveReverseDeltaBlob(long currentVersion) {
-        for(String filename : blobStoreDir.list()) {
-            if(filename.startsWith("reversedelta-" + currentVersion)) {
-                long destinationVersion = Long.parseLong(filename.substring(filename.lastIndexOf("-") + 1));
-                return new FilesystemBlob(new File(blobStoreDir, filename), currentVersion, destinationVersion);
-            }
+        HollowFilesystemBlobIndex.IndexedBlob reverseDelta = index.getReverseDelta(currentVersion);
+
+        if(shouldRescan(reverseDelta)) {
+            index.rescan();
+            reverseDelta = index.getReverseDelta(currentVersion);
         }
+
+        if(isPresent(reverseDelta))
+            return new FilesystemBlob(reverseDelta.getFile(), currentVersion, reverseDelta.getToVersion());
         
         if(fallbackBlobRetriever != null) {
             HollowConsumer.Blob remoteBlob = fallbackBlobRetriever.retrieveReverseDeltaBlob(currentVersion);
             if(remoteBlob != null)
-                return new BlobForBackupToFilesystem(remoteBlob, new File(blobStoreDir, "reversedelta-" + remoteBlob.getFromVersion() + "-" + remoteBlob.getToVersion()));
+                return new BlobForBackupToFilesystem(remoteBlob, new File(blobStoreDir, HollowFilesystemBlobIndex.REVERSE_DELTA_PREFIX + remoteBlob.getFromVersion() + "-" + remoteBlob.getToVersion()));
         }
         
         return null;
     }
+
+    /**
+     * @return the index of the blobs in this retriever's directory.
+     */
+    public HollowFilesystemBlobIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * Stop watching the directory for blobs written by other processes, if {@link #startWatching()} was called.
+     */
+    @Override
+    public void close() throws IOException {
+        index.close();
+    }
+
+    /**
+     * Without a remote store, a blob missing from the index may have been written since the last WatchService event was
+     * delivered, and a blob in the index may have since been removed.
+     */
+    /**
+     * Without a remote store to fall back to, a blob which is missing from the index may have been written by another process
+     * since the directory was last listed.  Once the directory is watched, the index is kept current and a miss is trusted.
+     */
+    private boolean shouldRescan(HollowFilesystemBlobIndex.IndexedBlob blob) {
+        return fallbackBlobRetriever == null && !isPresent(blob) && !index.isWatching();
+    }
+
+    private boolean isPresent(HollowFilesystemBlobIndex.IndexedBlob blob) {
+        return blob != null && blob.getFile().exists();
+    }
     
-    private static class FilesystemBlob extends HollowConsumer.Blob {
+    private InputStream newInputStream(HollowConsumer.Blob blob, File file) throws IOException {
+        if(mapSnapshots && blob.isSnapshot())
+            return new MappedDataInputStream(file);
+        return new BufferedInputStream(new FileInputStream(file));
+    }
+    
+    private class FilesystemBlob extends HollowConsumer.Blob {
 
         private final File file;
 
@@ -140,12 +246,17 @@ public class HollowFilesystemBlobRetriever implements HollowConsumer.BlobRetriev
 
         @Override
         public InputStream getInputStream() throws IOException {
-            return new BufferedInputStream(new FileInputStream(file));
+            return newInputStream(this, file);
+        }
+
+        @Override
+        public long getSizeInBytes() {
+            return file.length();
         }
         
     }
     
-    private static class BlobForBackupToFilesystem extends HollowConsumer.Blob {
+    private class BlobForBackupToFilesystem extends HollowConsumer.Blob {
         
         private final HollowConsumer.Blob remoteBlob;
         private final File file;
@@ -159,9 +270,12 @@ public class HollowFilesystemBlobRetriever implements HollowConsumer.BlobRetriev
         @Override
         public InputStream getInputStream() throws IOException {
 
+            /// copy to a file which will not be indexed, so that a partially written blob is never visible to other readers of the directory
+            File tempFile = new File(blobStoreDir, file.getName() + ".tmp");
+
             try(
                     InputStream is = remoteBlob.getInputStream();
-                    OutputStream os = new FileOutputStream(file);
+                    OutputStream os = new FileOutputStream(tempFile);
             ) {
                 byte buf[] = new byte[4096];
                 int n = 0;
@@ -169,7 +283,18 @@ public class HollowFilesystemBlobRetriever implements HollowConsumer.BlobRetriev
                     os.write(buf, 0, n);
             }
 
-            return new BufferedInputStream(new FileInputStream(file));
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            index.blobAdded(file);
+
+            if(isSnapshot() && numSnapshotsToRetain > 0)
+                index.applyRetention(numSnapshotsToRetain);
+
+            return newInputStream(this, file);
+        }
+
+        @Override
+        public long getSizeInBytes() {
+            return remoteBlob.getSizeInBytes();
         }
     }
 }
\ No newline at end of file
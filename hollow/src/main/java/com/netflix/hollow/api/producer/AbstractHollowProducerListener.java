@@ -24,7 +24,7 @@ import java.util.concurrent.TimeUnit;
  *
  * @author Tim Taylor {@literal<tim@toolbear.io>}
  */
-public class AbstractHollowProducerListener implements HollowProducerListener {
+public class AbstractHollowProducerListener implements HollowProducerArtifactStageListener {
     @Override public void onProducerInit(long elapsed, TimeUnit unit) {}
 
     @Override public void onProducerRestoreStart(long restoreVersion) {}
@@ -41,6 +41,7 @@ public class AbstractHollowProducerListener implements HollowProducerListener {
 
     @Override public void onPublishStart(long version) {}
     @Override public void onPublishComplete(ProducerStatus status, long elapsed, TimeUnit unit) {}
+    @Override public void onArtifactStage(PublishStatus stageStatus, long elapsed, TimeUnit unit) {}
     @Override public void onArtifactPublish(PublishStatus publishStatus, long elapsed, TimeUnit unit) {}
 
     @Override public void onIntegrityCheckStart(long version) {}
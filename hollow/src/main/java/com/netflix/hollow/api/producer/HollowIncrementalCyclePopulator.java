@@ -0,0 +1,141 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.producer;
+
+import com.netflix.hollow.core.index.HollowPrimaryKeyIndex;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowSchema;
+import com.netflix.hollow.core.write.HollowTypeWriteState;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.RecordPrimaryKey;
+import com.netflix.hollow.tools.traverse.TransitiveSetTraverser;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Populates a cycle of a {@link HollowIncrementalProducer} by carrying over all of the records from the prior state, 
+ * removing those which were modified or deleted, then adding the modified records.
+ * <p>
+ * Records are located in the prior state with a {@link HollowPrimaryKeyIndex} per type.  These indexes are retained 
+ * and kept up to date with delta updates for as long as the prior state's {@link HollowReadStateEngine} is reused
+ * from cycle to cycle.
+ */
+class HollowIncrementalCyclePopulator implements HollowProducer.Populator {
+
+    private volatile Map<RecordPrimaryKey, Object> mutations = Collections.emptyMap();
+
+    private HollowReadStateEngine indexedStateEngine;
+    private final Map<String, HollowPrimaryKeyIndex> primaryKeyIndexes = new HashMap<String, HollowPrimaryKeyIndex>();
+
+    void setMutations(Map<RecordPrimaryKey, Object> mutations) {
+        this.mutations = mutations;
+    }
+
+    @Override
+    public void populate(HollowProducer.WriteState newState) throws Exception {
+        Map<RecordPrimaryKey, Object> mutations = this.mutations;
+
+        newState.getStateEngine().addAllObjectsFromPreviousCycle();
+        removeRecords(newState, mutations);
+        addRecords(newState, mutations);
+    }
+
+    private void removeRecords(HollowProducer.WriteState newState, Map<RecordPrimaryKey, Object> mutations) {
+        if(newState.getPriorState() == null)
+            return;
+
+        HollowReadStateEngine priorStateEngine = newState.getPriorState().getStateEngine();
+        Map<String, BitSet> recordsToRemove = markRecordsToRemove(priorStateEngine, mutations);
+
+        if(recordsToRemove.isEmpty())
+            return;
+
+        /// records referenced only by the removed records are removed too, unless they are added again
+        TransitiveSetTraverser.addTransitiveMatches(priorStateEngine, recordsToRemove);
+        TransitiveSetTraverser.removeReferencedOutsideClosure(priorStateEngine, recordsToRemove);
+
+        HollowWriteStateEngine writeEngine = newState.getStateEngine();
+        for(Map.Entry<String, BitSet> entry : recordsToRemove.entrySet()) {
+            HollowTypeWriteState typeWriteState = writeEngine.getTypeState(entry.getKey());
+            BitSet ordinals = entry.getValue();
+            int ordinal = ordinals.nextSetBit(0);
+            while(ordinal != -1) {
+                typeWriteState.removeOrdinalFromThisCycle(ordinal);
+                ordinal = ordinals.nextSetBit(ordinal + 1);
+            }
+        }
+    }
+
+    private Map<String, BitSet> markRecordsToRemove(HollowReadStateEngine priorStateEngine, Map<RecordPrimaryKey, Object> mutations) {
+        Map<String, BitSet> recordsToRemove = new HashMap<String, BitSet>();
+
+        for(RecordPrimaryKey key : mutations.keySet()) {
+            HollowPrimaryKeyIndex index = primaryKeyIndex(priorStateEngine, key.getType());
+            if(index == null)
+                continue;
+
+            int priorOrdinal = index.getMatchingOrdinal(key.getKey());
+            if(priorOrdinal != -1) {
+                BitSet typeRecordsToRemove = recordsToRemove.get(key.getType());
+                if(typeRecordsToRemove == null) {
+                    typeRecordsToRemove = new BitSet(priorStateEngine.getTypeState(key.getType()).maxOrdinal() + 1);
+                    recordsToRemove.put(key.getType(), typeRecordsToRemove);
+                }
+                typeRecordsToRemove.set(priorOrdinal);
+            }
+        }
+
+        return recordsToRemove;
+    }
+
+    private HollowPrimaryKeyIndex primaryKeyIndex(HollowReadStateEngine priorStateEngine, String type) {
+        if(priorStateEngine != indexedStateEngine) {
+            for(HollowPrimaryKeyIndex index : primaryKeyIndexes.values())
+                index.detachFromDeltaUpdates();
+            primaryKeyIndexes.clear();
+            indexedStateEngine = priorStateEngine;
+        }
+
+        HollowPrimaryKeyIndex index = primaryKeyIndexes.get(type);
+        if(index == null) {
+            HollowSchema schema = priorStateEngine.getSchema(type);
+            if(schema == null)
+                return null;
+
+            if(!(schema instanceof HollowObjectSchema) || ((HollowObjectSchema)schema).getPrimaryKey() == null)
+                throw new IllegalStateException("Type " + type + " does not declare a primary key in the prior state");
+
+            index = new HollowPrimaryKeyIndex(priorStateEngine, ((HollowObjectSchema)schema).getPrimaryKey());
+            index.listenForDeltaUpdates();
+            primaryKeyIndexes.put(type, index);
+        }
+
+        return index;
+    }
+
+    private void addRecords(HollowProducer.WriteState newState, Map<RecordPrimaryKey, Object> mutations) {
+        for(Object record : mutations.values()) {
+            if(record != HollowIncrementalProducer.DELETE_RECORD)
+                newState.add(record);
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.producer;
+
+import com.netflix.hollow.api.producer.HollowProducerListener.ProducerStatus;
+import com.netflix.hollow.api.producer.HollowProducerListener.Status;
+import com.netflix.hollow.core.write.objectmapper.RecordPrimaryKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Warning: This is a BETA API and is subject to breaking changes.
+ * <p>
+ * A HollowIncrementalProducer accepts additions, modifications and removals of individual records, identified by 
+ * their primary keys, and publishes only those changes in each cycle.  Unlike {@link HollowProducer#runCycle(HollowProducer.Populator)},
+ * the full dataset does not need to be added to each cycle, so the cost of each cycle is driven by the volume of changes.
+ * <p>
+ * All record types which are added or deleted must declare a primary key with the 
+ * {@link com.netflix.hollow.core.write.objectmapper.HollowPrimaryKey} annotation.
+ * <p>
+ * Changes which are accumulated while a cycle is running will be included in the next cycle.  If a cycle fails, the 
+ * changes it attempted remain pending and will be retried in the next cycle.
+ * <p>
+ * Records are located in the prior state by primary key indexes, which are kept up to date with delta updates while the 
+ * producer continues to advance the same read state.  This is the case when the producer is built with
+ * {@link HollowProducer.Builder#withChecksumOnlyIntegrityCheck(boolean)}; otherwise the indexes are rebuilt each cycle.
+ */
+public class HollowIncrementalProducer {
+
+    static final Object DELETE_RECORD = new Object();
+
+    private final HollowProducer producer;
+    private final ConcurrentHashMap<RecordPrimaryKey, Object> mutations;
+    private final HollowIncrementalCyclePopulator populator;
+    private final CycleListener cycleListener;
+
+    public HollowIncrementalProducer(HollowProducer producer) {
+        this.producer = producer;
+        this.mutations = new ConcurrentHashMap<RecordPrimaryKey, Object>();
+        this.populator = new HollowIncrementalCyclePopulator();
+        this.cycleListener = new CycleListener();
+        producer.addListener(cycleListener);
+    }
+
+    /**
+     * Add the specified record, replacing any record with the same primary key which is present in the current state.
+     */
+    public void addOrModify(Object obj) {
+        RecordPrimaryKey pk = producer.getObjectMapper().extractPrimaryKey(obj);
+        mutations.put(pk, obj);
+    }
+
+    /**
+     * Remove the record with the same primary key as the specified record from the current state.
+     */
+    public void delete(Object obj) {
+        delete(producer.getObjectMapper().extractPrimaryKey(obj));
+    }
+
+    /**
+     * Remove the record with the specified primary key from the current state.
+     */
+    public void delete(RecordPrimaryKey key) {
+        mutations.put(key, DELETE_RECORD);
+    }
+
+    /**
+     * Discard all changes which have not yet been published.
+     */
+    public void clearChanges() {
+        mutations.clear();
+    }
+
+    /**
+     * @return whether any changes are waiting to be published.
+     */
+    public boolean hasChanges() {
+        return !mutations.isEmpty();
+    }
+
+    /**
+     * Run a cycle in the wrapped {@link HollowProducer}, in which the records from the prior state are retained, except for 
+     * those which have been modified or deleted since the last successful cycle.  The modified records are then added.
+     */
+    public synchronized void runIncrementalCycle() {
+        Map<RecordPrimaryKey, Object> cycleMutations = new HashMap<RecordPrimaryKey, Object>(mutations);
+
+        cycleListener.lastCycleStatus = null;
+        populator.setMutations(cycleMutations);
+        producer.runCycle(populator);
+
+        ProducerStatus status = cycleListener.lastCycleStatus;
+        if(status != null && status.getStatus() == Status.SUCCESS) {
+            /// only remove those changes which have not been superseded while the cycle was running
+            for(Map.Entry<RecordPrimaryKey, Object> entry : cycleMutations.entrySet())
+                mutations.remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static class CycleListener extends AbstractHollowProducerListener {
+        private volatile ProducerStatus lastCycleStatus;
+
+        @Override
+        public void onCycleComplete(ProducerStatus status, long elapsed, TimeUnit unit) {
+            this.lastCycleStatus = status;
+        }
+    }
+
+}
@@ -29,8 +29,10 @@ import com.netflix.hollow.core.read.engine.HollowBlobHeaderReader;
 import com.netflix.hollow.core.read.engine.HollowBlobReader;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.schema.HollowSchema;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
 import com.netflix.hollow.core.util.HollowWriteStateCreator;
 import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowTypeWriteState;
 import com.netflix.hollow.core.write.HollowWriteStateEngine;
 import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
@@ -45,7 +47,10 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -67,7 +72,12 @@ public class HollowProducer {
     private final VersionMinter versionMinter;
     private final ListenerSupport listeners;
     private ReadStateHelper readStates;
+    /// the checksum of checksummedReadState, carried forward from the cycle which produced it by checking deltas in place.
+    private ReadState checksummedReadState;
+    private HollowChecksum readStateChecksum;
     private final Executor snapshotPublishExecutor;
+    private final Executor blobStagingExecutor;
+    private final boolean checksumOnlyIntegrityCheck;
     private final int numStatesBetweenSnapshots;
     private int numStatesUntilNextSnapshot;
 
@@ -91,6 +101,20 @@ public class HollowProducer {
                              Executor snapshotPublishExecutor,
                              int numStatesBetweenSnapshots,
                              long targetMaxTypeShardSize) {
+        this(blobStager, publisher, announcer, validators, listeners, versionMinter, snapshotPublishExecutor, null, false, numStatesBetweenSnapshots, targetMaxTypeShardSize);
+    }
+
+    protected HollowProducer(BlobStager blobStager,
+                             Publisher publisher,
+                             Announcer announcer,
+                             List<Validator> validators,
+                             List<HollowProducerListener> listeners,
+                             VersionMinter versionMinter,
+                             Executor snapshotPublishExecutor,
+                             Executor blobStagingExecutor,
+                             boolean checksumOnlyIntegrityCheck,
+                             int numStatesBetweenSnapshots,
+                             long targetMaxTypeShardSize) {
         this.publisher = publisher;
         this.validators = validators;
         this.announcer = announcer;
@@ -101,6 +125,8 @@ public class HollowProducer {
                 command.run();
             }
         } : snapshotPublishExecutor;
+        this.blobStagingExecutor = blobStagingExecutor;
+        this.checksumOnlyIntegrityCheck = checksumOnlyIntegrityCheck;
         this.numStatesBetweenSnapshots = numStatesBetweenSnapshots;
 
         HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
@@ -124,6 +150,14 @@ public class HollowProducer {
         return objectMapper.getStateEngine();
     }
 
+    /**
+     * @return the {@link HollowObjectMapper} which populates this producer's data model.  This may be replaced 
+     * when the producer is restored.
+     */
+    public HollowObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+
     public void initializeDataModel(HollowSchema... schemas) {
         long start = currentTimeMillis();
         HollowWriteStateCreator.populateStateEngineWithTypeWriteStates(getWriteEngine(), Arrays.asList(schemas));
@@ -232,10 +266,19 @@ public class HollowProducer {
                 cycleStatus.version(candidate.pending());
                 candidate = checkIntegrity(candidate, artifacts);
 
-                validate(candidate.pending());
+                try {
+                    validate(candidate.pending());
 
-                announce(candidate.pending());
+                    announce(candidate.pending());
+                } catch(Throwable th) {
+                    readStates = rollback(candidate, artifacts);
+                    throw th;
+                }
                 readStates = candidate.commit();
+                if(candidate.isAdvancedInPlace()) {
+                    checksummedReadState = readStates.current();
+                    readStateChecksum = artifacts.snapshotChecksum;
+                }
                 cycleStatus.version(readStates.current()).success();
             } else {
                 // 3b. Nothing to do; reset the effects of Step 2
@@ -261,14 +304,17 @@ public class HollowProducer {
     private void publish(final WriteState writeState, final Artifacts artifacts) throws IOException {
         ProducerStatus.Builder psb = listeners.firePublishStart(writeState.getVersion());
         try {
-            stageBlob(writeState, artifacts, Blob.Type.SNAPSHOT);
-            
+            /// prepare the write state once, up front, so that each blob may then be staged concurrently
+            getWriteEngine().prepareForWrite();
+
             if (readStates.hasCurrent()) {
-                stageBlob(writeState, artifacts, Blob.Type.DELTA);
-                stageBlob(writeState, artifacts, Blob.Type.REVERSE_DELTA);
-                publishBlob(writeState, artifacts, Blob.Type.DELTA);
-                publishBlob(writeState, artifacts, Blob.Type.REVERSE_DELTA);
-                
+                /// each delta is published as soon as it has been staged, while the other blobs are still being written
+                List<FutureTask<Void>> tasks = new ArrayList<FutureTask<Void>>(3);
+                tasks.add(stagingTask(writeState, artifacts, Blob.Type.SNAPSHOT, false));
+                tasks.add(stagingTask(writeState, artifacts, Blob.Type.DELTA, true));
+                tasks.add(stagingTask(writeState, artifacts, Blob.Type.REVERSE_DELTA, true));
+                runStagingTasks(tasks);
+
                 if(--numStatesUntilNextSnapshot < 0) {
                     snapshotPublishExecutor.execute(new Runnable() {
                         public void run() {
@@ -285,6 +331,7 @@ public class HollowProducer {
                     artifacts.markSnapshotPublishComplete();
                 }
             } else {
+                stageBlob(writeState, artifacts, Blob.Type.SNAPSHOT);
                 publishBlob(writeState, artifacts, Blob.Type.SNAPSHOT);
                 artifacts.markSnapshotPublishComplete();
                 numStatesUntilNextSnapshot = numStatesBetweenSnapshots;
@@ -299,29 +346,94 @@ public class HollowProducer {
             listeners.firePublishComplete(psb);
         }
     }
+
+    private FutureTask<Void> stagingTask(final WriteState writeState, final Artifacts artifacts, final Blob.Type blobType, final boolean publish) {
+        return new FutureTask<Void>(new Callable<Void>() {
+            public Void call() throws IOException {
+                stageBlob(writeState, artifacts, blobType);
+                if(publish)
+                    publishBlob(writeState, artifacts, blobType);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Run the staging tasks on the blob staging executor, or on a new thread per task if none was configured, and wait for
+     * all of them to finish.  If any task failed, the first failure is rethrown only once every task has finished, so that
+     * no blob is still being written when the cycle's artifacts are cleaned up.
+     */
+    private void runStagingTasks(List<FutureTask<Void>> tasks) throws IOException {
+        SimultaneousExecutor defaultExecutor = null;
+        Executor executor = blobStagingExecutor;
+        if(executor == null)
+            executor = defaultExecutor = new SimultaneousExecutor(tasks.size(), "hollow-producer-blob-staging");
+
+        try {
+            for(FutureTask<Void> task : tasks)
+                executor.execute(task);
+
+            Throwable failure = null;
+            for(FutureTask<Void> task : tasks) {
+                try {
+                    task.get();
+                } catch(ExecutionException e) {
+                    if(failure == null)
+                        failure = e.getCause();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    if(failure == null)
+                        failure = e;
+                }
+            }
+
+            if(failure instanceof IOException)
+                throw (IOException)failure;
+            if(failure instanceof RuntimeException)
+                throw (RuntimeException)failure;
+            if(failure instanceof Error)
+                throw (Error)failure;
+            if(failure != null)
+                throw new RuntimeException(failure);
+        } finally {
+            if(defaultExecutor != null)
+                defaultExecutor.shutdown();
+        }
+    }
     
     private void stageBlob(WriteState writeState, Artifacts artifacts, Blob.Type blobType) throws IOException {
         HollowBlobWriter writer = new HollowBlobWriter(getWriteEngine());
+        PublishStatus.Builder builder = new PublishStatus.Builder();
         try {
             switch (blobType) {
                 case SNAPSHOT:
                     artifacts.snapshot = blobStager.openSnapshot(writeState.getVersion());
+                    builder.blob(artifacts.snapshot);
+                    if(checksumOnlyIntegrityCheck && readStates.hasCurrent())
+                        writer.calculateSnapshotChecksum(readStates.current().getStateEngine());
                     artifacts.snapshot.write(writer);
+                    artifacts.snapshotChecksum = writer.getSnapshotChecksum();
                     break;
                 case DELTA:
                     artifacts.delta = blobStager.openDelta(readStates.current().getVersion(), writeState.getVersion());
+                    builder.blob(artifacts.delta);
                     artifacts.delta.write(writer);
                     break;
                 case REVERSE_DELTA:
                     artifacts.reverseDelta = blobStager.openReverseDelta(writeState.getVersion(), readStates.current().getVersion());
+                    builder.blob(artifacts.reverseDelta);
                     artifacts.reverseDelta.write(writer);
                     break;
                 default:
                     throw new IllegalStateException("unknown type, type=" + blobType);
             }
+            builder.success();
 
         } catch (Throwable th) {
+            builder.fail(th);
             throw th;
+        } finally {
+            listeners.fireArtifactStage(builder);
         }
     }
 
@@ -371,6 +483,12 @@ public class HollowProducer {
     private ReadStateHelper checkIntegrity(ReadStateHelper readStates, Artifacts artifacts) throws Exception {
         ProducerStatus.Builder status = listeners.fireIntegrityCheckStart(readStates.pending());
         try {
+            if(artifacts.snapshotChecksum != null && schemasUnchanged(readStates.current().getStateEngine())) {
+                ReadStateHelper result = checkDeltasInPlace(readStates, artifacts);
+                status.success();
+                return result;
+            }
+
             ReadStateHelper result = readStates;
             HollowReadStateEngine current = readStates.hasCurrent() ? readStates.current().getStateEngine() : null;
             HollowReadStateEngine pending = readStates.pending().getStateEngine();
@@ -411,6 +529,79 @@ public class HollowProducer {
         }
     }
 
+    /**
+     * Verify the delta and reverse delta without reading the snapshot back into a second state engine.  The current state engine is
+     * brought to the pending version with the delta, and its checksum compared with the checksum calculated while the snapshot was
+     * written.  It is then returned to the current version with the reverse delta, checked again, and brought forward once more to become
+     * the pending state.
+     * <p>
+     * If any of these steps fails, the current state engine is left at an unknown version, so it is discarded and the next cycle
+     * begins a new delta chain.
+     * <p>
+     * If the current state was itself produced by a cycle which checked its deltas in place, the snapshot checksum from that cycle
+     * is the checksum of the current state, so it is used rather than calculated again.
+     */
+    private ReadStateHelper checkDeltasInPlace(ReadStateHelper readStates, Artifacts artifacts) throws IOException {
+        HollowReadStateEngine current = readStates.current().getStateEngine();
+        HollowWriteStateEngine writeEngine = getWriteEngine();
+
+        try {
+            HollowChecksum currentChecksum = readStates.current() == checksummedReadState ? readStateChecksum 
+                    : HollowChecksum.forStateEngineWithCommonSchemas(current, writeEngine);
+            HollowChecksum pendingChecksum = artifacts.snapshotChecksum;
+
+            applyDelta(artifacts.delta, current);
+            HollowChecksum forwardChecksum = HollowChecksum.forStateEngineWithCommonSchemas(current, writeEngine);
+            if(!forwardChecksum.equals(pendingChecksum)) throw new ChecksumValidationException(Blob.Type.DELTA);
+
+            applyDelta(artifacts.reverseDelta, current);
+            HollowChecksum reverseChecksum = HollowChecksum.forStateEngineWithCommonSchemas(current, writeEngine);
+            if(!reverseChecksum.equals(currentChecksum)) throw new ChecksumValidationException(Blob.Type.REVERSE_DELTA);
+
+            applyDelta(artifacts.delta, current);
+        } catch(Throwable th) {
+            this.readStates = ReadStateHelper.newDeltaChain();
+            throw th;
+        }
+
+        return readStates.advancedInPlace();
+    }
+
+    /**
+     * Return to the current version after the pending state has been rejected.  If the integrity check brought the current
+     * state engine forward in place, it is returned with the reverse delta, which the integrity check has already verified.
+     * If that fails, the current state engine is discarded and the next cycle begins a new delta chain.
+     */
+    private ReadStateHelper rollback(ReadStateHelper candidate, Artifacts artifacts) {
+        if(candidate.isAdvancedInPlace()) {
+            try {
+                applyDelta(artifacts.reverseDelta, candidate.current().getStateEngine());
+            } catch(Throwable th) {
+                log.log(Level.WARNING, "Unable to return the current read state to version " + candidate.current().getVersion(), th);
+                return ReadStateHelper.newDeltaChain();
+            }
+        }
+
+        return candidate.rollback();
+    }
+
+    /**
+     * The current state engine may only stand in for the pending state if the data model has not changed, since
+     * types and fields added this cycle are not applied by the delta.
+     */
+    private boolean schemasUnchanged(HollowReadStateEngine current) {
+        List<HollowTypeWriteState> typeStates = getWriteEngine().getOrderedTypeStates();
+        if(current.getTypeStates().size() != typeStates.size())
+            return false;
+
+        for(HollowTypeWriteState typeState : typeStates) {
+            if(!typeState.getSchema().equals(current.getSchema(typeState.getSchema().getName())))
+                return false;
+        }
+
+        return true;
+    }
+
     public static final class ChecksumValidationException extends IllegalStateException {
         private static final long serialVersionUID = -4399719849669674206L;
 
@@ -680,6 +871,7 @@ public class HollowProducer {
         Blob snapshot = null;
         Blob delta = null;
         Blob reverseDelta = null;
+        HollowChecksum snapshotChecksum = null;
         
         boolean cleanupCalled;
         boolean snapshotPublishComplete;
@@ -736,6 +928,8 @@ public class HollowProducer {
         private List<HollowProducerListener> listeners = new ArrayList<HollowProducerListener>();
         private VersionMinter versionMinter = new VersionMinterWithCounter();
         private Executor snapshotPublishExecutor = null;
+        private Executor blobStagingExecutor = null;
+        private boolean checksumOnlyIntegrityCheck = false;
         private int numStatesBetweenSnapshots = 0;
         private long targetMaxTypeShardSize = DEFAULT_TARGET_MAX_TYPE_SHARD_SIZE;
         
@@ -796,6 +990,29 @@ public class HollowProducer {
             return this;
         }
         
+        /**
+         * The snapshot, delta, and reverse delta produced each cycle are staged concurrently, and each delta is published as soon
+         * as it has been staged.  By default, a new thread is started for each blob.  Specify an Executor here to run the
+         * staging and publishing of the blobs on threads which you manage instead.
+         */
+        public Builder withBlobStagingExecutor(Executor executor) {
+            this.blobStagingExecutor = executor;
+            return this;
+        }
+        
+        /**
+         * By default, each cycle's integrity check reads the snapshot back into a second state engine, then applies the delta and 
+         * reverse delta to compare checksums.  Specify true here to skip reading the snapshot back once a delta chain has been established.
+         * Instead, the expected checksum is calculated while the snapshot is written, and the deltas are verified by applying them to the 
+         * current state engine, which then becomes the pending state.  This avoids holding two copies of the data in memory.
+         * <p>
+         * The snapshot is still read back in any cycle in which the data model has changed.
+         */
+        public Builder withChecksumOnlyIntegrityCheck(boolean checksumOnlyIntegrityCheck) {
+            this.checksumOnlyIntegrityCheck = checksumOnlyIntegrityCheck;
+            return this;
+        }
+        
         public Builder withNumStatesBetweenSnapshots(int numStatesBetweenSnapshots) {
             this.numStatesBetweenSnapshots = numStatesBetweenSnapshots;
             return this;
@@ -819,7 +1036,7 @@ public class HollowProducer {
                 stager = new HollowFilesystemBlobStager(stagingDir, compressor);
             }
             
-            return new HollowProducer(stager, publisher, announcer, validators, listeners, versionMinter, snapshotPublishExecutor, numStatesBetweenSnapshots, targetMaxTypeShardSize);
+            return new HollowProducer(stager, publisher, announcer, validators, listeners, versionMinter, snapshotPublishExecutor, blobStagingExecutor, checksumOnlyIntegrityCheck, numStatesBetweenSnapshots, targetMaxTypeShardSize);
         }
     }
     
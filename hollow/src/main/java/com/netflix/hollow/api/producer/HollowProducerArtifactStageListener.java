@@ -0,0 +1,44 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.producer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Beta API subject to change.
+ *
+ * A {@link HollowProducerListener} which is additionally notified as each blob produced in a cycle is staged.  Listeners
+ * registered with a {@link HollowProducer} receive these notifications only if they implement this interface.
+ */
+public interface HollowProducerArtifactStageListener extends HollowProducerListener {
+
+    /**
+     * Called once a blob has been staged (written) successfully or failed to be staged. Use {@link PublishStatus#getBlob()} to get more
+     * details on the blob type. This method is called for every {@link com.netflix.hollow.api.producer.HollowProducer.Blob.Type} produced
+     * in a cycle.
+     * <p>
+     * The blobs produced in a cycle are staged concurrently, so this method and {@link HollowProducerListener#onArtifactPublish(PublishStatus, long, TimeUnit)}
+     * may be called from multiple threads at the same time.
+     *
+     * @param stageStatus   Status of staging. {@link PublishStatus#getStatus()} returns {@code SUCCESS} or {@code FAIL}.
+     * @param elapsed       time taken to stage the blob
+     * @param unit          unit of elapsed.
+     */
+    public void onArtifactStage(PublishStatus stageStatus, long elapsed, TimeUnit unit);
+
+}
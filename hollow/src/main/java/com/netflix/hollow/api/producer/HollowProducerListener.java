@@ -131,6 +131,8 @@ public interface HollowProducerListener extends EventListener {
     /**
      * Called once a blob has been published successfully or failed to published. Use {@link PublishStatus#getBlob()} to get more details on blob type and size.
      * This method is called for every {@link com.netflix.hollow.api.producer.HollowProducer.Blob.Type} that was published.
+     * <p>
+     * Listeners which also need to be notified as each blob is staged may implement {@link HollowProducerArtifactStageListener}.
      *
      * @param publishStatus Status of publishing. {@link PublishStatus#getStatus()} returns {@code SUCCESS} or {@code FAIL}.
      * @param elapsed       time taken to publish the blob
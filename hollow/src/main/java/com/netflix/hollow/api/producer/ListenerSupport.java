@@ -98,6 +98,14 @@ final class ListenerSupport {
         for(final HollowProducerListener l : listeners) l.onPublishComplete(status, builder.elapsed(), MILLISECONDS);
     }
 
+    void fireArtifactStage(PublishStatus.Builder builder) {
+        PublishStatus status = builder.build();
+        for(final HollowProducerListener l : listeners) {
+            if(l instanceof HollowProducerArtifactStageListener)
+                ((HollowProducerArtifactStageListener)l).onArtifactStage(status, builder.elapsed(), MILLISECONDS);
+        }
+    }
+
     void fireArtifactPublish(PublishStatus.Builder builder) {
         PublishStatus status = builder.build();
         for(final HollowProducerListener l : listeners) l.onArtifactPublish(status, builder.elapsed(), MILLISECONDS);
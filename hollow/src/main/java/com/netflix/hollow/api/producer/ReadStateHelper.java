@@ -76,6 +76,31 @@ final class ReadStateHelper {
                 newReadState(pending.getVersion(), current.getStateEngine()));
     }
 
+    /**
+     * Use the current state engine as the pending state; used after checksum-only integrity checks have brought the
+     * current state engine to the pending version.
+     *
+     * @return
+     */
+    ReadStateHelper advancedInPlace() {
+        return new ReadStateHelper(current, newReadState(pending.getVersion(), current.getStateEngine()));
+    }
+
+    boolean isAdvancedInPlace() {
+        return current != null && pending != null && current.getStateEngine() == pending.getStateEngine();
+    }
+
+    /**
+     * Abandon the pending state; used when the pending state is rejected.  If the state engines were swapped by the integrity
+     * check, the current state engine has already been returned to the current version.
+     *
+     * @return
+     */
+    ReadStateHelper rollback() {
+        if(pending == null) throw new IllegalStateException();
+        return new ReadStateHelper(this.current, null);
+    }
+
     ReadStateHelper commit() {
         if(pending == null) throw new IllegalStateException();
         return new ReadStateHelper(this.pending, null);
@@ -21,6 +21,9 @@ import com.netflix.hollow.api.producer.HollowProducer;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
 public class HollowFilesystemAnnouncer implements HollowProducer.Announcer {
     
@@ -32,15 +35,30 @@ public class HollowFilesystemAnnouncer implements HollowProducer.Announcer {
         this.publishDir = publishDir;
     }
 
+    /**
+     * The version is written to a temporary file which is then moved into place, so that watchers of the announcement 
+     * file never observe a partially written version.
+     */
     @Override
     public void announce(long stateVersion) {
         File announceFile = new File(publishDir, ANNOUNCEMENT_FILENAME);
+        File tempFile = new File(publishDir, ANNOUNCEMENT_FILENAME + ".tmp");
         
-        try (FileWriter writer = new FileWriter(announceFile)){
+        try (FileWriter writer = new FileWriter(tempFile)){
             writer.write(String.valueOf(stateVersion));
         } catch(IOException ex) {
             throw new RuntimeException("Unable to write to announcement file", ex);
         }
+
+        try {
+            try {
+                Files.move(tempFile.toPath(), announceFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch(AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile.toPath(), announceFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch(IOException ex) {
+            throw new RuntimeException("Unable to write to announcement file", ex);
+        }
     }
 
 }
@@ -0,0 +1,115 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.sampling;
+
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts every access to each field of an OBJECT type.
+ * <p>
+ * Unlike the {@link HollowObjectSampler}, which consults a {@link HollowSamplingDirector} on each access, the counts are
+ * always recorded.  To keep the cost of recording low enough to leave enabled in production, the counts are striped across 
+ * cells which are selected by the accessing thread, in the manner of a LongAdder, so that concurrent readers do not contend
+ * on the same cache lines.  The count for each field is the sum over all stripes.
+ */
+public class HollowFieldAccessCounter {
+
+    private static final int NUM_STRIPES = numStripes();
+    private static final int STRIPE_MASK = NUM_STRIPES - 1;
+    private static final int LONGS_PER_CACHE_LINE = 8;
+
+    private final String typeName;
+    private final String fieldNames[];
+    private final int stripeLength;
+    private final AtomicLongArray counts;
+
+    public HollowFieldAccessCounter(HollowObjectSchema schema) {
+        this.typeName = schema.getName();
+
+        String fieldNames[] = new String[schema.numFields()];
+        for(int i=0;i<fieldNames.length;i++) {
+            fieldNames[i] = schema.getFieldName(i);
+        }
+        this.fieldNames = fieldNames;
+
+        /// each stripe is padded by a cache line so that no two stripes share a cache line.
+        int paddedNumFields = (fieldNames.length + LONGS_PER_CACHE_LINE - 1) & ~(LONGS_PER_CACHE_LINE - 1);
+        this.stripeLength = paddedNumFields + LONGS_PER_CACHE_LINE;
+        this.counts = new AtomicLongArray(NUM_STRIPES * stripeLength);
+    }
+
+    public void increment(int fieldPosition) {
+        int stripe = (int)Thread.currentThread().getId() & STRIPE_MASK;
+        counts.getAndIncrement(stripe * stripeLength + fieldPosition);
+    }
+
+    /**
+     * @return the number of accesses to the field at the specified position since counting began or was last reset.
+     */
+    public long getAccessCount(int fieldPosition) {
+        long count = 0;
+        for(int i=0;i<NUM_STRIPES;i++)
+            count += counts.get(i * stripeLength + fieldPosition);
+        return count;
+    }
+
+    public String getTypeName() {
+        return typeName;
+    }
+
+    public int numFields() {
+        return fieldNames.length;
+    }
+
+    public String getFieldName(int fieldPosition) {
+        return fieldNames[fieldPosition];
+    }
+
+    /**
+     * @return the access counts for each field, identified as <i>Type.field</i>.
+     */
+    public Collection<SampleResult> getAccessCounts() {
+        List<SampleResult> results = new ArrayList<SampleResult>(fieldNames.length);
+
+        for(int i=0;i<fieldNames.length;i++) {
+            results.add(new SampleResult(typeName + "." + fieldNames[i], getAccessCount(i)));
+        }
+
+        return results;
+    }
+
+    /**
+     * Reset all counts to zero.  Accesses which are concurrent with the reset may or may not be counted.
+     */
+    public void reset() {
+        for(int i=0;i<counts.length();i++)
+            counts.set(i, 0L);
+    }
+
+    private static int numStripes() {
+        int numStripes = 1;
+        while(numStripes < Runtime.getRuntime().availableProcessors() && numStripes < 64)
+            numStripes <<= 1;
+        return numStripes;
+    }
+
+}
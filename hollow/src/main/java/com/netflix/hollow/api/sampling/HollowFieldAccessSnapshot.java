@@ -0,0 +1,116 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.sampling;
+
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A point-in-time capture of the {@link HollowFieldAccessCounter} counts of each OBJECT type in a {@link HollowReadStateEngine}
+ * which has {@link HollowReadStateEngine#setFieldAccessCounting(boolean) field access counting} enabled.
+ * <p>
+ * Counts are cumulative, so read rates are derived from two snapshots via {@link #getAccessRatesPerSecond(HollowFieldAccessSnapshot)}.
+ * Fields are identified as <i>Type.field</i>.
+ */
+public class HollowFieldAccessSnapshot {
+
+    private final long timestampNanos;
+    private final Map<String, Long> accessCounts;
+
+    public HollowFieldAccessSnapshot(long timestampNanos, Map<String, Long> accessCounts) {
+        this.timestampNanos = timestampNanos;
+        this.accessCounts = Collections.unmodifiableMap(accessCounts);
+    }
+
+    /**
+     * Capture the access counts of each OBJECT type in the provided state engine.  Types for which counting is not enabled
+     * are omitted.  Types which have not yet been lazily materialized are included, without materializing them.
+     */
+    public static HollowFieldAccessSnapshot capture(HollowReadStateEngine stateEngine) {
+        Map<String, Long> accessCounts = new TreeMap<String, Long>();
+
+        for(HollowFieldAccessCounter counter : stateEngine.getFieldAccessCounters()) {
+            for(SampleResult result : counter.getAccessCounts())
+                accessCounts.put(result.getIdentifier(), result.getNumSamples());
+        }
+
+        return new HollowFieldAccessSnapshot(System.nanoTime(), accessCounts);
+    }
+
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * @return the cumulative access count for each field, ordered by identifier.
+     */
+    public Map<String, Long> getAccessCounts() {
+        return accessCounts;
+    }
+
+    public long getAccessCount(String type, String field) {
+        Long count = accessCounts.get(type + "." + field);
+        return count == null ? 0 : count.longValue();
+    }
+
+    /**
+     * Calculate the rate at which each field was read between a previous snapshot and this snapshot.
+     * <p>
+     * If a field's count decreased, for example because a double snapshot replaced the counted state engine with a new
+     * one, then its count in this snapshot is attributed entirely to the interval.
+     * 
+     * @return the reads per second of each field captured in this snapshot, ordered by identifier.
+     */
+    public Map<String, Double> getAccessRatesPerSecond(HollowFieldAccessSnapshot previous) {
+        double elapsedSeconds = (double)(timestampNanos - previous.timestampNanos) / 1000000000d;
+        Map<String, Double> rates = new TreeMap<String, Double>();
+
+        for(Map.Entry<String, Long> entry : accessCounts.entrySet()) {
+            long accesses = accessesSince(previous, entry.getKey(), entry.getValue().longValue());
+            rates.put(entry.getKey(), elapsedSeconds > 0 ? accesses / elapsedSeconds : 0d);
+        }
+
+        return rates;
+    }
+
+    /**
+     * @return the identifiers of the fields captured in this snapshot which were not read between a previous snapshot and this snapshot.
+     */
+    public List<String> getUnaccessedFields(HollowFieldAccessSnapshot previous) {
+        List<String> unaccessed = new ArrayList<String>();
+
+        for(Map.Entry<String, Long> entry : accessCounts.entrySet()) {
+            if(accessesSince(previous, entry.getKey(), entry.getValue().longValue()) == 0)
+                unaccessed.add(entry.getKey());
+        }
+
+        return unaccessed;
+    }
+
+    private static long accessesSince(HollowFieldAccessSnapshot previous, String identifier, long count) {
+        Long previousCount = previous.accessCounts.get(identifier);
+        if(previousCount == null || previousCount.longValue() > count)
+            return count;
+        return count - previousCount.longValue();
+    }
+
+}
@@ -34,6 +34,8 @@ public class HollowObjectSampler implements HollowSampler {
     private final String fieldNames[];
     private final long sampleCounts[];
     private final HollowSamplingDirector samplingDirectors[];
+    private HollowFieldAccessCounter accessCounter;
+    private Thread updateThread;
 
     public HollowObjectSampler(HollowObjectSchema schema, HollowSamplingDirector director) {
         this.typeName = schema.getName();
@@ -67,11 +69,32 @@ public class HollowObjectSampler implements HollowSampler {
     }
 
     public void setUpdateThread(Thread t) {
+        if(!"".equals(typeName))
+            this.updateThread = t;
+
         for(int i=0;i<samplingDirectors.length;i++)
             samplingDirectors[i].setUpdateThread(t);
     }
 
+    /**
+     * @param accessCounter if non-null, every field access will be counted, regardless of the sampling directors, except for
+     * accesses from the update thread (e.g. while updating indexes), which are not made on behalf of readers.
+     */
+    public void setFieldAccessCounter(HollowFieldAccessCounter accessCounter) {
+        if(!"".equals(typeName)) {
+            this.accessCounter = accessCounter;
+        }
+    }
+
+    public HollowFieldAccessCounter getFieldAccessCounter() {
+        return accessCounter;
+    }
+
     public void recordFieldAccess(int fieldPosition) {
+        HollowFieldAccessCounter accessCounter = this.accessCounter;
+        if(accessCounter != null && Thread.currentThread() != updateThread)
+            accessCounter.increment(fieldPosition);
+
         if(samplingDirectors[fieldPosition].shouldRecord())
             sampleCounts[fieldPosition]++;
     }
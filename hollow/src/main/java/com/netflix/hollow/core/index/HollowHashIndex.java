@@ -21,9 +21,14 @@ import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
 import com.netflix.hollow.core.memory.encoding.HashCodes;
 
 import com.netflix.hollow.core.read.HollowReadFieldUtils;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.IndexMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.IndexMemoryReporter;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.read.engine.HollowTypeStateListener;
 import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.util.IntList;
+import java.util.Arrays;
 
 /**
  * A HollowHashIndex is used for indexing non-primary-key data.  This type of index can map multiple keys to a single matching record, and/or
@@ -34,23 +39,21 @@ import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
  * <i>actors</i>, each elements contained therein, and finally each actors <i>actorId</i> field. 
  * <p>
  */
-public class HollowHashIndex {
-    
-    private final FixedLengthElementArray matchHashTable;
-    final FixedLengthElementArray selectHashArray;
-
-    private final HollowHashIndexField[] matchFields;
-    private final int matchHashMask;
-    private final int bitsPerMatchHashKey;
-    private final int bitsPerMatchHashEntry;
-    
-    private final int[] bitsPerTraverserField;
-    private final int[] offsetPerTraverserField;
-    private final int bitsPerSelectTableSize;
-    private final int bitsPerSelectTablePointer;
-    
-    final int bitsPerSelectHashEntry;
-    
+public class HollowHashIndex implements HollowTypeStateListener, IndexMemoryReporter {
+
+    private final HollowReadStateEngine stateEngine;
+    private final HollowTypeReadState typeState;
+    private final String type;
+    private final String selectField;
+    private final String[] matchFields;
+
+    private final IntList addedOrdinals;
+    private final IntList removedOrdinals;
+
+    private HollowHashIndexDeltaApplicator deltaApplicator;
+
+    private volatile HollowHashIndexState hashStateVolatile;
+
     /**
      * Define a {@link HollowHashIndex}. 
      * 
@@ -61,22 +64,51 @@ public class HollowHashIndex {
      * @param matchFields The query will match on the specified match fields.  The match fields may span collection elements and/or map keys or values.
      */
     public HollowHashIndex(HollowReadStateEngine stateEngine, String type, String selectField, String... matchFields) {
-        HollowHashIndexBuilder builder = new HollowHashIndexBuilder(stateEngine, type, selectField, matchFields);
-        
-        builder.buildIndex();
-        
-        this.matchHashTable = builder.getFinalMatchHashTable();
-        this.selectHashArray = builder.getFinalSelectHashArray();
-        this.matchFields = builder.getMatchFields();
-        this.matchHashMask = (int)builder.getFinalMatchHashMask();
-        this.bitsPerMatchHashKey = builder.getBitsPerMatchHashKey();
-        this.bitsPerMatchHashEntry = builder.getFinalBitsPerMatchHashEntry();
-        this.bitsPerTraverserField = builder.getBitsPerTraverserField();
-        this.offsetPerTraverserField = builder.getOffsetPerTraverserField();
-        this.bitsPerSelectTableSize = builder.getFinalBitsPerSelectTableSize();
-        this.bitsPerSelectTablePointer = builder.getFinalBitsPerSelectTablePointer();
-        this.bitsPerSelectHashEntry = builder.getBitsPerSelectHashEntry();
-        
+        this.stateEngine = stateEngine;
+        this.typeState = stateEngine.getTypeState(type);
+        this.type = type;
+        this.selectField = selectField;
+        this.matchFields = matchFields;
+        this.addedOrdinals = new IntList();
+        this.removedOrdinals = new IntList();
+
+        this.hashStateVolatile = buildIndex(false);
+    }
+
+    /**
+     * Once called, this HollowHashIndex will be kept up-to-date when deltas are applied to the indexed state engine.
+     * <p>
+     * Only the matches and selected records reachable from the records which were added or removed by each delta are updated,
+     * and the updated index is then swapped in atomically.  Results returned prior to an update continue to reflect the
+     * index as it was when they were returned.
+     * <p>
+     * As with {@link HollowPrimaryKeyIndex}, each listener callback is synchronized on this index, so that the ordinals recorded 
+     * during a delta are visible when the update is applied regardless of which thread delivers them.  Queries do not lock, and 
+     * read the most recently published index.
+     * <p>
+     * This method should be called <b>before</b> any subsequent deltas occur after the index is created.
+     * <p>
+     * In order to prevent memory leaks, if this method is called and the index is no longer needed, call detachFromDeltaUpdates() before
+     * discarding the index.
+     */
+    public synchronized void listenForDeltaUpdates() {
+        if(deltaApplicator != null)
+            return;
+
+        /// delta updates require the number of occurrences of each selected ordinal to be recorded for each match.
+        hashStateVolatile = buildIndex(true);
+        deltaApplicator = new HollowHashIndexDeltaApplicator(stateEngine, type, selectField, matchFields);
+        typeState.addListener(this);
+    }
+
+    /**
+     * Once called, this HollowHashIndex will no longer be kept up-to-date when deltas are applied to the indexed state engine.
+     * <p>
+     * Call this method before discarding indexes which are currently listening for delta updates.
+     */
+    public synchronized void detachFromDeltaUpdates() {
+        typeState.removeListener(this);
+        deltaApplicator = null;
     }
 
     /**
@@ -84,36 +116,89 @@ public class HollowHashIndex {
      * to gather the matched ordinals.
      */
     public HollowHashIndexResult findMatches(Object... query) {
+        HollowHashIndexState hashState = hashStateVolatile;
+
         int hashCode = 0;
 
         for(int i=0;i<query.length;i++) {
-            hashCode ^= HashCodes.hashInt(keyHashCode(query[i], i));
+            hashCode ^= HashCodes.hashInt(keyHashCode(hashState, query[i], i));
         }
 
         //System.out.println("QUERY HASH: " + hashCode);
 
-        long bucket = hashCode & matchHashMask;
-        long hashBucketBit = bucket * bitsPerMatchHashEntry;
-        boolean bucketIsEmpty = matchHashTable.getElementValue(hashBucketBit, bitsPerTraverserField[0]) == 0;
+        FixedLengthElementArray matchHashTable = hashState.matchHashTable;
+        long bucket = hashCode & hashState.matchHashMask;
+        long hashBucketBit = bucket * hashState.bitsPerMatchHashEntry;
+        boolean bucketIsEmpty = matchHashTable.getElementValue(hashBucketBit, hashState.bitsPerTraverserField[0]) == 0;
 
         while(!bucketIsEmpty) {
-            if(matchIsEqual(matchHashTable, hashBucketBit, query)) {
-                int selectSize = (int) matchHashTable.getElementValue(hashBucketBit + bitsPerMatchHashKey, bitsPerSelectTableSize);
-                long selectBucketPointer = matchHashTable.getElementValue(hashBucketBit + bitsPerMatchHashKey + bitsPerSelectTableSize, bitsPerSelectTablePointer);
+            if(matchIsEqual(hashState, hashBucketBit, query)) {
+                int selectSize = (int) matchHashTable.getElementValue(hashBucketBit + hashState.bitsPerMatchHashKey, hashState.bitsPerSelectTableSize);
+                long selectBucketPointer = matchHashTable.getElementValue(hashBucketBit + hashState.bitsPerMatchHashKey + hashState.bitsPerSelectTableSize, hashState.bitsPerSelectTablePointer);
 
-                return new HollowHashIndexResult(this, selectBucketPointer, selectSize);
+                return new HollowHashIndexResult(hashState, selectBucketPointer, selectSize);
             }
 
-            bucket = (bucket + 1) & matchHashMask;
-            hashBucketBit = (long)bucket * bitsPerMatchHashEntry;
-            bucketIsEmpty = matchHashTable.getElementValue(hashBucketBit, bitsPerTraverserField[0]) == 0;
+            bucket = (bucket + 1) & hashState.matchHashMask;
+            hashBucketBit = (long)bucket * hashState.bitsPerMatchHashEntry;
+            bucketIsEmpty = matchHashTable.getElementValue(hashBucketBit, hashState.bitsPerTraverserField[0]) == 0;
         }
 
         return null;
     }
 
-    private int keyHashCode(Object key, int fieldIdx) {
-        switch(matchFields[fieldIdx].getFieldType()) {
+    @Override
+    public synchronized void beginUpdate() {
+        addedOrdinals.clear();
+        removedOrdinals.clear();
+    }
+
+    @Override
+    public synchronized void addedOrdinal(int ordinal) {
+        addedOrdinals.add(ordinal);
+    }
+
+    @Override
+    public synchronized void removedOrdinal(int ordinal) {
+        removedOrdinals.add(ordinal);
+    }
+
+    @Override
+    public synchronized void endUpdate() {
+        if(deltaApplicator == null)
+            return;
+
+        HollowHashIndexState updatedState = deltaApplicator.applyDelta(hashStateVolatile, removedOrdinals, addedOrdinals);
+
+        if(updatedState == null)
+            updatedState = buildIndex(true);
+
+        hashStateVolatile = updatedState;
+    }
+
+    /**
+     * @return the bytes allocated for this index's match hash table, select hash array, and select counts.
+     */
+    @Override
+    public IndexMemory getIndexMemory() {
+        HollowHashIndexState hashState = hashStateVolatile;
+        long bytes = hashState.matchHashTable.sizeInBytes() + hashState.selectHashArray.sizeInBytes();
+        if(hashState.selectCountArray != null)
+            bytes += hashState.selectCountArray.sizeInBytes();
+        return new IndexMemory("HollowHashIndex[" + selectField + " by " + Arrays.toString(matchFields) + "]", bytes);
+    }
+
+    private HollowHashIndexState buildIndex(boolean trackSelectCounts) {
+        HollowHashIndexBuilder builder = new HollowHashIndexBuilder(stateEngine, type, selectField, matchFields);
+        builder.setTrackSelectCounts(trackSelectCounts);
+
+        builder.buildIndex();
+
+        return new HollowHashIndexState(builder);
+    }
+
+    private int keyHashCode(HollowHashIndexState hashState, Object key, int fieldIdx) {
+        switch(hashState.matchFields[fieldIdx].getFieldType()) {
         case BOOLEAN:
             return HollowReadFieldUtils.booleanHashCode((Boolean)key);
         case DOUBLE:
@@ -132,13 +217,13 @@ public class HollowHashIndex {
             return HashCodes.hashCode((String)key);
         }
 
-        throw new IllegalArgumentException("I don't know how to hash a " + matchFields[fieldIdx].getFieldType());
+        throw new IllegalArgumentException("I don't know how to hash a " + hashState.matchFields[fieldIdx].getFieldType());
     }
 
-    private boolean matchIsEqual(FixedLengthElementArray matchHashTable, long hashBucketBit, Object[] query) {
-        for(int i=0;i<matchFields.length;i++) {
-            HollowHashIndexField field = matchFields[i];
-            int hashOrdinal = (int)matchHashTable.getElementValue(hashBucketBit + offsetPerTraverserField[field.getBaseIteratorFieldIdx()], bitsPerTraverserField[field.getBaseIteratorFieldIdx()]) - 1;
+    private boolean matchIsEqual(HollowHashIndexState hashState, long hashBucketBit, Object[] query) {
+        for(int i=0;i<hashState.matchFields.length;i++) {
+            HollowHashIndexField field = hashState.matchFields[i];
+            int hashOrdinal = (int)hashState.matchHashTable.getElementValue(hashBucketBit + hashState.offsetPerTraverserField[field.getBaseIteratorFieldIdx()], hashState.bitsPerTraverserField[field.getBaseIteratorFieldIdx()]) - 1;
 
             HollowTypeReadState readState = field.getBaseDataAccess();
             int fieldPath[] = field.getSchemaFieldPositionPath();
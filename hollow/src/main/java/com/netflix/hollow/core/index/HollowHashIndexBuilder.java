@@ -45,12 +45,17 @@ public class HollowHashIndexBuilder {
 
     private final ArraySegmentRecycler memoryRecycler;
 
+    private boolean trackSelectCounts;
+
     private FixedLengthElementArray finalMatchHashTable;
     FixedLengthElementArray finalSelectHashArray;
+    private FixedLengthElementArray finalSelectCountArray;
     private long finalMatchHashMask;
     private int finalBitsPerMatchHashEntry;
     private int finalBitsPerSelectTableSize;
     private int finalBitsPerSelectTablePointer;
+    private int finalBitsPerSelectCount;
+    private long totalSelectBuckets;
 
     private GrowingSegmentedLongArray matchIndexHashAndSizeArray;
     private FixedLengthElementArray intermediateMatchHashTable;
@@ -61,6 +66,7 @@ public class HollowHashIndexBuilder {
     private int intermediateMatchHashMask;
     private int intermediateMatchHashTableSizeBeforeGrow;
     private int matchCount;
+    private int maxSelectCount;
 
 
     ///TODO: Optimization, make the matchFields[].schemaFieldPositionPath as short as possible, to reduce iteration
@@ -90,6 +96,15 @@ public class HollowHashIndexBuilder {
         this.bitsPerSelectHashEntry = bitsPerTraverserField[preindexer.getSelectFieldSpec().getBaseIteratorFieldIdx()];
     }
 
+    /**
+     * If enabled, the built index will additionally record how many times each select ordinal was encountered for each match, 
+     * and will leave headroom in the select table pointers and sizes.  This is required in order to keep the index up-to-date 
+     * with deltas.
+     */
+    public void setTrackSelectCounts(boolean trackSelectCounts) {
+        this.trackSelectCounts = trackSelectCounts;
+    }
+
     public void buildIndex() {
         matchIndexHashAndSizeArray = new GrowingSegmentedLongArray(memoryRecycler);
 
@@ -176,10 +191,20 @@ public class HollowHashIndexBuilder {
 
         int bitsPerFinalSelectBucketPointer = bitsRequiredToRepresentValue(totalNumberOfSelectBuckets);
         int bitsPerSelectTableSize = (int)(totalNumberOfSelectBucketsAndBitsRequiredForSelectTableSize >>> 56);
+        int bitsPerSelectCount = 0;
+
+        if(trackSelectCounts) {
+            /// leave room for select tables to be appended and grown as deltas are applied
+            bitsPerFinalSelectBucketPointer++;
+            bitsPerSelectTableSize++;
+            bitsPerSelectCount = bitsRequiredToRepresentValue(maxSelectCount) + 1;
+        }
+
         int finalBitsPerMatchHashEntry = bitsPerMatchHashKey + bitsPerSelectTableSize + bitsPerFinalSelectBucketPointer;
 
         FixedLengthElementArray finalMatchArray = new FixedLengthElementArray(memoryRecycler, totalNumberOfMatchBuckets * finalBitsPerMatchHashEntry);
         FixedLengthElementArray finalSelectArray = new FixedLengthElementArray(memoryRecycler, totalNumberOfSelectBuckets * bitsPerSelectHashEntry);
+        FixedLengthElementArray finalSelectCountArray = trackSelectCounts ? new FixedLengthElementArray(memoryRecycler, totalNumberOfSelectBuckets * bitsPerSelectCount) : null;
 
         long finalMatchHashMask = totalNumberOfMatchBuckets - 1;
 
@@ -206,6 +231,13 @@ public class HollowHashIndexBuilder {
                 if(bucketOrdinal == -1)
                     finalSelectArray.setElementValue((currentSelectArrayBucket + selectBucket) * bitsPerSelectHashEntry, bitsPerSelectHashEntry, selectOrdinal + 1);
 
+                if(finalSelectCountArray != null) {
+                    long countBit = (currentSelectArrayBucket + selectBucket) * bitsPerSelectCount;
+                    long count = finalSelectCountArray.getElementValue(countBit, bitsPerSelectCount);
+                    finalSelectCountArray.clearElementValue(countBit, bitsPerSelectCount);
+                    finalSelectCountArray.setElementValue(countBit, bitsPerSelectCount, count + 1);
+                }
+
                 selectOrdinal = selectOrdinalIter.next();
             }
 
@@ -239,10 +271,13 @@ public class HollowHashIndexBuilder {
 
         this.finalMatchHashTable = finalMatchArray;
         this.finalSelectHashArray = finalSelectArray;
+        this.finalSelectCountArray = finalSelectCountArray;
         this.finalBitsPerMatchHashEntry = finalBitsPerMatchHashEntry;
         this.finalBitsPerSelectTablePointer = bitsPerFinalSelectBucketPointer;
         this.finalBitsPerSelectTableSize = bitsPerSelectTableSize;
+        this.finalBitsPerSelectCount = bitsPerSelectCount;
         this.finalMatchHashMask = finalMatchHashMask;
+        this.totalSelectBuckets = totalNumberOfSelectBuckets;
     }
 
     private void growIntermediateHashTable() {
@@ -301,16 +336,22 @@ public class HollowHashIndexBuilder {
         long totalBuckets = 0;
         long maxSize = 0;
         int[] selectArray = new int[8];
+        int[] selectCounts = new int[8];
+        maxSelectCount = 0;
 
         for(int i=0;i<elementArray.numLists();i++) {
             int listSize = elementArray.listSize(i);
             int setSize = 0;
             int predictedBuckets = HashCodes.hashTableSize(listSize);
             int hashMask = predictedBuckets - 1;
-            if(predictedBuckets > selectArray.length)
+            if(predictedBuckets > selectArray.length) {
                 selectArray = new int[predictedBuckets];
-            for(int j=0;j<predictedBuckets;j++)
+                selectCounts = new int[predictedBuckets];
+            }
+            for(int j=0;j<predictedBuckets;j++) {
                 selectArray[j] = -1;
+                selectCounts[j] = 0;
+            }
 
             HollowOrdinalIterator iter = elementArray.iterator(i);
             int selectOrdinal = iter.next();
@@ -319,10 +360,15 @@ public class HollowHashIndexBuilder {
                 int bucket = hash & hashMask;
 
                 while(true) {
-                    if(selectArray[bucket] == selectOrdinal)
+                    if(selectArray[bucket] == selectOrdinal) {
+                        if(++selectCounts[bucket] > maxSelectCount)
+                            maxSelectCount = selectCounts[bucket];
                         break;
+                    }
                     if(selectArray[bucket] == -1) {
                         selectArray[bucket] = selectOrdinal;
+                        if(++selectCounts[bucket] > maxSelectCount)
+                            maxSelectCount = selectCounts[bucket];
                         setSize++;
                         break;
                     }
@@ -431,6 +477,22 @@ public class HollowHashIndexBuilder {
         return finalSelectHashArray;
     }
 
+    public FixedLengthElementArray getFinalSelectCountArray() {
+        return finalSelectCountArray;
+    }
+
+    public int getFinalBitsPerSelectCount() {
+        return finalBitsPerSelectCount;
+    }
+
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    public long getTotalSelectBuckets() {
+        return totalSelectBuckets;
+    }
+
     public HollowHashIndexField getSelectField() {
         return preindexer.getSelectFieldSpec();
     }
@@ -0,0 +1,640 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.index;
+
+import static com.netflix.hollow.core.memory.encoding.FixedLengthElementArray.bitsRequiredToRepresentValue;
+
+import com.netflix.hollow.core.index.traversal.HollowIndexerValueTraverser;
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import com.netflix.hollow.core.memory.encoding.HashCodes;
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.WastefulRecycler;
+import com.netflix.hollow.core.read.HollowReadFieldUtils;
+import com.netflix.hollow.core.read.dataaccess.HollowObjectTypeDataAccess;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.util.IntList;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Produces an updated {@link HollowHashIndexState} from a prior state and the ordinals added to and removed from the indexed
+ * type during a delta, without traversing the records which did not change.
+ * <p>
+ * Records are immutable once assigned an ordinal, so any change to a record reachable via the indexed field paths results in 
+ * a new ordinal for the referencing record in the indexed type.  Only the ordinals added to and removed from the indexed type
+ * therefore need to be traversed.  The type states of the match fields in the traversal path are consulted to determine
+ * whether the ordinals representing each affected match are still populated.
+ * <p>
+ * The prior state is never modified.  Its arrays are copied, and the copies are updated:
+ * <ul>
+ * <li>matches which no longer select any records are removed from the match hash table,</li>
+ * <li>select tables which do not need to be resized are updated in place, and</li>
+ * <li>select tables for new matches, or which must be resized, are appended to the end of the select array.</li>
+ * </ul>
+ * If the prior state does not have enough bits to represent the updated index, or the select array contains too many 
+ * abandoned select tables, then null is returned and the index must be rebuilt. 
+ */
+class HollowHashIndexDeltaApplicator {
+
+    private final HollowIndexerValueTraverser traverser;
+    private final HollowHashIndexField[] matchFieldSpecs;
+    private final int numMatchTraverserFields;
+    private final int selectFieldIdx;
+    private final boolean selectsTraversedRecords;
+    private final HollowTypeReadState[] traverserFieldTypeStates;
+
+    private final ArraySegmentRecycler memoryRecycler;
+
+    HollowHashIndexDeltaApplicator(HollowReadStateEngine stateEngine, String type, String selectField, String... matchFields) {
+        HollowPreindexer preindexer = new HollowPreindexer(stateEngine, type, selectField, matchFields);
+        preindexer.buildFieldSpecifications();
+
+        this.traverser = preindexer.getTraverser();
+        this.matchFieldSpecs = preindexer.getMatchFieldSpecs();
+        this.numMatchTraverserFields = preindexer.getNumMatchTraverserFields();
+        this.selectFieldIdx = preindexer.getSelectFieldSpec().getBaseIteratorFieldIdx();
+        this.selectsTraversedRecords = "".equals(traverser.getFieldPath(selectFieldIdx)) && preindexer.getSelectFieldSpec().getSchemaFieldPositionPath().length == 0;
+        this.traverserFieldTypeStates = new HollowTypeReadState[traverser.getNumFieldPaths()];
+        for(int i=0;i<traverserFieldTypeStates.length;i++)
+            traverserFieldTypeStates[i] = (HollowTypeReadState)traverser.getFieldTypeDataAccess(i);
+
+        this.memoryRecycler = WastefulRecycler.DEFAULT_INSTANCE;
+    }
+
+    /**
+     * @return the updated state, or null if the index must be rebuilt.
+     */
+    HollowHashIndexState applyDelta(HollowHashIndexState state, IntList removedOrdinals, IntList addedOrdinals) {
+        if(state.selectCountArray == null || !traverserFieldOrdinalsFit(state))
+            return null;
+
+        List<MatchChange> changes = new ArrayList<MatchChange>();
+        Map<Integer, List<MatchChange>> changesByHash = new HashMap<Integer, List<MatchChange>>();
+
+        for(int i=0;i<removedOrdinals.size();i++)
+            traverseChangedRecord(removedOrdinals.get(i), -1, changes, changesByHash);
+        for(int i=0;i<addedOrdinals.size();i++)
+            traverseChangedRecord(addedOrdinals.get(i), 1, changes, changesByHash);
+
+        if(changes.isEmpty())
+            return state;
+
+        /// determine the outcome of each change against the prior state, and whether the prior state can accommodate them
+        int newMatchCount = state.matchCount;
+        long newTotalSelectBuckets = state.totalSelectBuckets;
+        long newGarbageSelectBuckets = state.garbageSelectBuckets;
+
+        for(MatchChange change : changes) {
+            if(!planChange(state, change))
+                return null;
+
+            if(change.priorBucket == -1) {
+                if(change.newSize > 0)
+                    newMatchCount++;
+            } else if(change.newSize == 0) {
+                newMatchCount--;
+            }
+
+            if(change.relocateSelectTable) {
+                newTotalSelectBuckets += HashCodes.hashTableSize(change.newSize);
+                if(change.priorBucket != -1)
+                    newGarbageSelectBuckets += HashCodes.hashTableSize(change.priorSize);
+            } else if(change.newSize == 0 && change.priorBucket != -1) {
+                newGarbageSelectBuckets += HashCodes.hashTableSize(change.priorSize);
+            }
+        }
+
+        if(HashCodes.hashTableSize(newMatchCount) > state.matchHashMask + 1)
+            return null;
+        if(bitsRequiredToRepresentValue(newTotalSelectBuckets) > state.bitsPerSelectTablePointer)
+            return null;
+        if(newGarbageSelectBuckets * 2 > newTotalSelectBuckets)
+            return null;
+
+        /// copy the prior state's arrays
+        long matchTableBits = (long)(state.matchHashMask + 1) * state.bitsPerMatchHashEntry;
+        FixedLengthElementArray matchHashTable = new FixedLengthElementArray(memoryRecycler, matchTableBits);
+        matchHashTable.copyBits(state.matchHashTable, 0, 0, matchTableBits);
+
+        FixedLengthElementArray selectHashArray = new FixedLengthElementArray(memoryRecycler, Math.max(newTotalSelectBuckets * state.bitsPerSelectHashEntry, 1));
+        selectHashArray.copyBits(state.selectHashArray, 0, 0, state.totalSelectBuckets * state.bitsPerSelectHashEntry);
+        FixedLengthElementArray selectCountArray = new FixedLengthElementArray(memoryRecycler, Math.max(newTotalSelectBuckets * state.bitsPerSelectCount, 1));
+        selectCountArray.copyBits(state.selectCountArray, 0, 0, state.totalSelectBuckets * state.bitsPerSelectCount);
+
+        /// remove matches which no longer select any records
+        for(MatchChange change : changes) {
+            if(change.priorBucket != -1 && change.newSize == 0)
+                removeMatch(state, matchHashTable, findMatchBucket(state, matchHashTable, change.hash, change.tuple));
+        }
+
+        /// update or add the remaining matches
+        long nextSelectBucket = state.totalSelectBuckets;
+
+        for(MatchChange change : changes) {
+            if(change.newSize == 0)
+                continue;
+
+            long bucket;
+            if(change.priorBucket != -1) {
+                bucket = findMatchBucket(state, matchHashTable, change.hash, change.tuple);
+            } else {
+                bucket = change.hash & state.matchHashMask;
+                while(!matchBucketIsEmpty(state, matchHashTable, bucket))
+                    bucket = (bucket + 1) & state.matchHashMask;
+            }
+
+            long selectTablePointer;
+            if(change.relocateSelectTable) {
+                selectTablePointer = nextSelectBucket;
+                nextSelectBucket += HashCodes.hashTableSize(change.newSize);
+                writeSelectTable(state, selectHashArray, selectCountArray, selectTablePointer, change);
+            } else {
+                selectTablePointer = change.priorSelectTablePointer;
+                updateSelectTable(state, selectHashArray, selectCountArray, selectTablePointer, change);
+            }
+
+            writeMatch(state, matchHashTable, bucket, change.newTuple, change.newSize, selectTablePointer);
+        }
+
+        return new HollowHashIndexState(matchHashTable, selectHashArray, selectCountArray, state.matchFields,
+                state.matchHashMask, state.bitsPerMatchHashKey, state.bitsPerMatchHashEntry,
+                state.bitsPerTraverserField, state.offsetPerTraverserField, state.bitsPerSelectTableSize, state.bitsPerSelectTablePointer,
+                state.bitsPerSelectHashEntry, state.bitsPerSelectCount, newMatchCount, newTotalSelectBuckets, newGarbageSelectBuckets);
+    }
+
+    private boolean traverserFieldOrdinalsFit(HollowHashIndexState state) {
+        for(int i=0;i<traverserFieldTypeStates.length;i++) {
+            if(bitsRequiredToRepresentValue(traverserFieldTypeStates[i].maxOrdinal() + 1) > state.bitsPerTraverserField[i])
+                return false;
+        }
+        return true;
+    }
+
+    private void traverseChangedRecord(int ordinal, int countDelta, List<MatchChange> changes, Map<Integer, List<MatchChange>> changesByHash) {
+        traverser.traverse(ordinal);
+
+        for(int i=0;i<traverser.getNumMatches();i++) {
+            int tuple[] = new int[numMatchTraverserFields];
+            for(int j=0;j<numMatchTraverserFields;j++)
+                tuple[j] = traverser.getMatchOrdinal(i, j);
+
+            int hash = matchHash(tuple);
+
+            List<MatchChange> hashChanges = changesByHash.get(hash);
+            if(hashChanges == null) {
+                hashChanges = new ArrayList<MatchChange>(1);
+                changesByHash.put(hash, hashChanges);
+            }
+
+            MatchChange change = null;
+            for(MatchChange hashChange : hashChanges) {
+                if(matchesAreEqual(hashChange.tuple, tuple)) {
+                    change = hashChange;
+                    break;
+                }
+            }
+
+            if(change == null) {
+                change = new MatchChange(hash, tuple);
+                hashChanges.add(change);
+                changes.add(change);
+            }
+
+            if(countDelta > 0 && change.currentTuple == null)
+                change.currentTuple = tuple;
+
+            change.adjustSelectCount(traverser.getMatchOrdinal(i, selectFieldIdx), countDelta);
+        }
+    }
+
+    /**
+     * Populate the prior and new sizes of the change's select table, and the tuple of ordinals which will represent the match.
+     *
+     * @return false if the change cannot be applied to the prior state.
+     */
+    private boolean planChange(HollowHashIndexState state, MatchChange change) {
+        change.priorBucket = findMatchBucket(state, state.matchHashTable, change.hash, change.tuple);
+
+        int sizeDelta = 0;
+        long maxCount = 0;
+
+        if(change.priorBucket != -1) {
+            long bucketBit = change.priorBucket * state.bitsPerMatchHashEntry;
+            change.priorSize = (int)state.matchHashTable.getElementValue(bucketBit + state.bitsPerMatchHashKey, state.bitsPerSelectTableSize);
+            change.priorSelectTablePointer = state.matchHashTable.getElementValue(bucketBit + state.bitsPerMatchHashKey + state.bitsPerSelectTableSize, state.bitsPerSelectTablePointer);
+        }
+
+        for(Map.Entry<Integer, Integer> entry : change.selectCountDeltas.entrySet()) {
+            int selectOrdinal = entry.getKey().intValue();
+            long priorCount = 0;
+
+            if(change.priorBucket != -1) {
+                long selectBucket = findSelectBucket(state, state.selectHashArray, change.priorSelectTablePointer, change.priorSize, selectOrdinal);
+                if(selectBucket != -1)
+                    priorCount = state.selectCountArray.getElementValue(selectBucket * state.bitsPerSelectCount, state.bitsPerSelectCount);
+            }
+
+            long newCount = priorCount + entry.getValue().intValue();
+            if(newCount < 0)
+                return false;
+
+            if(priorCount == 0 && newCount > 0)
+                sizeDelta++;
+            else if(priorCount > 0 && newCount == 0)
+                sizeDelta--;
+
+            if(newCount > maxCount)
+                maxCount = newCount;
+        }
+
+        change.newSize = change.priorSize + sizeDelta;
+
+        if(bitsRequiredToRepresentValue(change.newSize) > state.bitsPerSelectTableSize)
+            return false;
+        if(bitsRequiredToRepresentValue(maxCount) > state.bitsPerSelectCount)
+            return false;
+
+        if(change.newSize == 0)
+            return true;
+
+        change.relocateSelectTable = change.priorBucket == -1 || HashCodes.hashTableSize(change.newSize) != HashCodes.hashTableSize(change.priorSize);
+
+        if(change.priorBucket == -1) {
+            change.newTuple = change.currentTuple;
+        } else {
+            change.newTuple = readMatchTuple(state, state.matchHashTable, change.priorBucket);
+            if(!tupleIsPopulated(change.newTuple))
+                change.newTuple = findReplacementTuple(state, change);
+        }
+
+        return change.newTuple != null;
+    }
+
+    /**
+     * The ordinals representing a match were removed, but records still select it.  Find a populated representative.
+     */
+    private int[] findReplacementTuple(HollowHashIndexState state, MatchChange change) {
+        if(change.currentTuple != null)
+            return change.currentTuple;
+
+        /// if the match fields and select field are all rooted at the same traversal field, then any selected ordinal represents the match.
+        /// otherwise, if the indexed records themselves are selected, then any of them may be traversed to find a representative.
+        if((numMatchTraverserFields == 1 && selectFieldIdx == 0) || selectsTraversedRecords) {
+            long selectTableBuckets = HashCodes.hashTableSize(change.priorSize);
+            for(long i=0;i<selectTableBuckets;i++) {
+                long selectBucket = change.priorSelectTablePointer + i;
+                int selectOrdinal = (int)state.selectHashArray.getElementValue(selectBucket * state.bitsPerSelectHashEntry, state.bitsPerSelectHashEntry) - 1;
+                if(selectOrdinal != -1) {
+                    long count = state.selectCountArray.getElementValue(selectBucket * state.bitsPerSelectCount, state.bitsPerSelectCount);
+                    Integer countDelta = change.selectCountDeltas.get(selectOrdinal);
+                    if(countDelta != null)
+                        count += countDelta.intValue();
+                    if(count > 0)
+                        return representativeTuple(change, selectOrdinal);
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private int[] representativeTuple(MatchChange change, int selectOrdinal) {
+        if(numMatchTraverserFields == 1 && selectFieldIdx == 0)
+            return new int[] { selectOrdinal };
+
+        traverser.traverse(selectOrdinal);
+        for(int i=0;i<traverser.getNumMatches();i++) {
+            int tuple[] = new int[numMatchTraverserFields];
+            for(int j=0;j<numMatchTraverserFields;j++)
+                tuple[j] = traverser.getMatchOrdinal(i, j);
+
+            if(matchesAreEqual(change.tuple, tuple))
+                return tuple;
+        }
+
+        return null;
+    }
+
+    private boolean tupleIsPopulated(int[] tuple) {
+        for(int i=0;i<tuple.length;i++) {
+            BitSet populatedOrdinals = traverserFieldTypeStates[i].getListener(PopulatedOrdinalListener.class).getPopulatedOrdinals();
+            if(!populatedOrdinals.get(tuple[i]))
+                return false;
+        }
+        return true;
+    }
+
+    private long findMatchBucket(HollowHashIndexState state, FixedLengthElementArray matchHashTable, int hash, int[] tuple) {
+        long bucket = hash & state.matchHashMask;
+        while(!matchBucketIsEmpty(state, matchHashTable, bucket)) {
+            if(matchesAreEqual(tuple, readMatchTuple(state, matchHashTable, bucket)))
+                return bucket;
+            bucket = (bucket + 1) & state.matchHashMask;
+        }
+        return -1;
+    }
+
+    private boolean matchBucketIsEmpty(HollowHashIndexState state, FixedLengthElementArray matchHashTable, long bucket) {
+        return matchHashTable.getElementValue(bucket * state.bitsPerMatchHashEntry, state.bitsPerTraverserField[0]) == 0;
+    }
+
+    private int[] readMatchTuple(HollowHashIndexState state, FixedLengthElementArray matchHashTable, long bucket) {
+        long bucketBit = bucket * state.bitsPerMatchHashEntry;
+        int tuple[] = new int[numMatchTraverserFields];
+        for(int i=0;i<numMatchTraverserFields;i++)
+            tuple[i] = (int)matchHashTable.getElementValue(bucketBit + state.offsetPerTraverserField[i], state.bitsPerTraverserField[i]) - 1;
+        return tuple;
+    }
+
+    private void writeMatch(HollowHashIndexState state, FixedLengthElementArray matchHashTable, long bucket, int[] tuple, long selectTableSize, long selectTablePointer) {
+        long bucketBit = bucket * state.bitsPerMatchHashEntry;
+        for(int i=0;i<numMatchTraverserFields;i++)
+            writeValue(matchHashTable, bucketBit + state.offsetPerTraverserField[i], state.bitsPerTraverserField[i], tuple[i] + 1);
+        writeValue(matchHashTable, bucketBit + state.bitsPerMatchHashKey, state.bitsPerSelectTableSize, selectTableSize);
+        writeValue(matchHashTable, bucketBit + state.bitsPerMatchHashKey + state.bitsPerSelectTableSize, state.bitsPerSelectTablePointer, selectTablePointer);
+    }
+
+    private void clearMatch(HollowHashIndexState state, FixedLengthElementArray matchHashTable, long bucket) {
+        long bucketBit = bucket * state.bitsPerMatchHashEntry;
+        for(int i=0;i<numMatchTraverserFields;i++)
+            matchHashTable.clearElementValue(bucketBit + state.offsetPerTraverserField[i], state.bitsPerTraverserField[i]);
+        matchHashTable.clearElementValue(bucketBit + state.bitsPerMatchHashKey, state.bitsPerSelectTableSize);
+        matchHashTable.clearElementValue(bucketBit + state.bitsPerMatchHashKey + state.bitsPerSelectTableSize, state.bitsPerSelectTablePointer);
+    }
+
+    /**
+     * Remove the match in the specified bucket, shifting subsequent matches in the probe sequence back as necessary.
+     */
+    private void removeMatch(HollowHashIndexState state, FixedLengthElementArray matchHashTable, long bucket) {
+        long emptyBucket = bucket;
+        clearMatch(state, matchHashTable, emptyBucket);
+
+        bucket = (bucket + 1) & state.matchHashMask;
+        while(!matchBucketIsEmpty(state, matchHashTable, bucket)) {
+            int tuple[] = readMatchTuple(state, matchHashTable, bucket);
+            long naturalBucket = matchHash(tuple) & state.matchHashMask;
+
+            if(!bucketInRange(emptyBucket, bucket, naturalBucket)) {
+                long bucketBit = bucket * state.bitsPerMatchHashEntry;
+                long selectTableSize = matchHashTable.getElementValue(bucketBit + state.bitsPerMatchHashKey, state.bitsPerSelectTableSize);
+                long selectTablePointer = matchHashTable.getElementValue(bucketBit + state.bitsPerMatchHashKey + state.bitsPerSelectTableSize, state.bitsPerSelectTablePointer);
+                writeMatch(state, matchHashTable, emptyBucket, tuple, selectTableSize, selectTablePointer);
+                clearMatch(state, matchHashTable, bucket);
+                emptyBucket = bucket;
+            }
+
+            bucket = (bucket + 1) & state.matchHashMask;
+        }
+    }
+
+    /**
+     * @return the absolute bucket containing the selectOrdinal in the select table, or -1 if not present.
+     */
+    private long findSelectBucket(HollowHashIndexState state, FixedLengthElementArray selectHashArray, long selectTablePointer, int selectTableSize, int selectOrdinal) {
+        int selectBucketMask = HashCodes.hashTableSize(selectTableSize) - 1;
+        int bucket = HashCodes.hashInt(selectOrdinal) & selectBucketMask;
+
+        int bucketOrdinal = (int)selectHashArray.getElementValue((selectTablePointer + bucket) * state.bitsPerSelectHashEntry, state.bitsPerSelectHashEntry) - 1;
+        while(bucketOrdinal != -1) {
+            if(bucketOrdinal == selectOrdinal)
+                return selectTablePointer + bucket;
+            bucket = (bucket + 1) & selectBucketMask;
+            bucketOrdinal = (int)selectHashArray.getElementValue((selectTablePointer + bucket) * state.bitsPerSelectHashEntry, state.bitsPerSelectHashEntry) - 1;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Write a new select table containing the prior table's ordinals, adjusted by the change's select count deltas.
+     */
+    private void writeSelectTable(HollowHashIndexState state, FixedLengthElementArray selectHashArray, FixedLengthElementArray selectCountArray, long selectTablePointer, MatchChange change) {
+        int selectBucketMask = HashCodes.hashTableSize(change.newSize) - 1;
+
+        if(change.priorBucket != -1) {
+            long priorTableBuckets = HashCodes.hashTableSize(change.priorSize);
+            for(long i=0;i<priorTableBuckets;i++) {
+                long priorBucket = change.priorSelectTablePointer + i;
+                int selectOrdinal = (int)state.selectHashArray.getElementValue(priorBucket * state.bitsPerSelectHashEntry, state.bitsPerSelectHashEntry) - 1;
+                if(selectOrdinal != -1 && !change.selectCountDeltas.containsKey(selectOrdinal)) {
+                    long count = state.selectCountArray.getElementValue(priorBucket * state.bitsPerSelectCount, state.bitsPerSelectCount);
+                    insertSelectOrdinal(state, selectHashArray, selectCountArray, selectTablePointer, selectBucketMask, selectOrdinal, count);
+                }
+            }
+        }
+
+        for(Map.Entry<Integer, Integer> entry : change.selectCountDeltas.entrySet()) {
+            int selectOrdinal = entry.getKey().intValue();
+            long count = entry.getValue().intValue();
+
+            if(change.priorBucket != -1) {
+                long priorBucket = findSelectBucket(state, state.selectHashArray, change.priorSelectTablePointer, change.priorSize, selectOrdinal);
+                if(priorBucket != -1)
+                    count += state.selectCountArray.getElementValue(priorBucket * state.bitsPerSelectCount, state.bitsPerSelectCount);
+            }
+
+            if(count > 0)
+                insertSelectOrdinal(state, selectHashArray, selectCountArray, selectTablePointer, selectBucketMask, selectOrdinal, count);
+        }
+    }
+
+    /**
+     * Apply the change's select count deltas to a (copied) select table in place.  Removals are applied before additions, so
+     * that the table never exceeds its load factor.
+     */
+    private void updateSelectTable(HollowHashIndexState state, FixedLengthElementArray selectHashArray, FixedLengthElementArray selectCountArray, long selectTablePointer, MatchChange change) {
+        int selectBucketMask = HashCodes.hashTableSize(change.priorSize) - 1;
+
+        for(Map.Entry<Integer, Integer> entry : change.selectCountDeltas.entrySet()) {
+            int countDelta = entry.getValue().intValue();
+            if(countDelta < 0) {
+                long bucket = findSelectBucket(state, selectHashArray, selectTablePointer, change.priorSize, entry.getKey().intValue());
+                long count = selectCountArray.getElementValue(bucket * state.bitsPerSelectCount, state.bitsPerSelectCount) + countDelta;
+                if(count == 0)
+                    removeSelectOrdinal(state, selectHashArray, selectCountArray, selectTablePointer, selectBucketMask, bucket - selectTablePointer);
+                else
+                    writeValue(selectCountArray, bucket * state.bitsPerSelectCount, state.bitsPerSelectCount, count);
+            }
+        }
+
+        for(Map.Entry<Integer, Integer> entry : change.selectCountDeltas.entrySet()) {
+            int countDelta = entry.getValue().intValue();
+            if(countDelta > 0) {
+                int selectOrdinal = entry.getKey().intValue();
+                long bucket = findSelectBucket(state, selectHashArray, selectTablePointer, change.priorSize, selectOrdinal);
+                if(bucket == -1) {
+                    insertSelectOrdinal(state, selectHashArray, selectCountArray, selectTablePointer, selectBucketMask, selectOrdinal, countDelta);
+                } else {
+                    long count = selectCountArray.getElementValue(bucket * state.bitsPerSelectCount, state.bitsPerSelectCount) + countDelta;
+                    writeValue(selectCountArray, bucket * state.bitsPerSelectCount, state.bitsPerSelectCount, count);
+                }
+            }
+        }
+    }
+
+    private void insertSelectOrdinal(HollowHashIndexState state, FixedLengthElementArray selectHashArray, FixedLengthElementArray selectCountArray, long selectTablePointer, int selectBucketMask, int selectOrdinal, long count) {
+        int bucket = HashCodes.hashInt(selectOrdinal) & selectBucketMask;
+        while(selectHashArray.getElementValue((selectTablePointer + bucket) * state.bitsPerSelectHashEntry, state.bitsPerSelectHashEntry) != 0)
+            bucket = (bucket + 1) & selectBucketMask;
+
+        writeValue(selectHashArray, (selectTablePointer + bucket) * state.bitsPerSelectHashEntry, state.bitsPerSelectHashEntry, selectOrdinal + 1);
+        writeValue(selectCountArray, (selectTablePointer + bucket) * state.bitsPerSelectCount, state.bitsPerSelectCount, count);
+    }
+
+    /**
+     * Remove the select ordinal in the specified bucket (relative to the start of the select table), shifting subsequent 
+     * ordinals in the probe sequence back as necessary.
+     */
+    private void removeSelectOrdinal(HollowHashIndexState state, FixedLengthElementArray selectHashArray, FixedLengthElementArray selectCountArray, long selectTablePointer, int selectBucketMask, long bucket) {
+        int bitsPerSelectHashEntry = state.bitsPerSelectHashEntry;
+        int bitsPerSelectCount = state.bitsPerSelectCount;
+
+        long emptyBucket = bucket;
+        selectHashArray.clearElementValue((selectTablePointer + emptyBucket) * bitsPerSelectHashEntry, bitsPerSelectHashEntry);
+        selectCountArray.clearElementValue((selectTablePointer + emptyBucket) * bitsPerSelectCount, bitsPerSelectCount);
+
+        bucket = (bucket + 1) & selectBucketMask;
+        int moveOrdinal = (int)selectHashArray.getElementValue((selectTablePointer + bucket) * bitsPerSelectHashEntry, bitsPerSelectHashEntry) - 1;
+
+        while(moveOrdinal != -1) {
+            long naturalBucket = HashCodes.hashInt(moveOrdinal) & selectBucketMask;
+
+            if(!bucketInRange(emptyBucket, bucket, naturalBucket)) {
+                long count = selectCountArray.getElementValue((selectTablePointer + bucket) * bitsPerSelectCount, bitsPerSelectCount);
+                selectHashArray.setElementValue((selectTablePointer + emptyBucket) * bitsPerSelectHashEntry, bitsPerSelectHashEntry, moveOrdinal + 1);
+                selectCountArray.setElementValue((selectTablePointer + emptyBucket) * bitsPerSelectCount, bitsPerSelectCount, count);
+                selectHashArray.clearElementValue((selectTablePointer + bucket) * bitsPerSelectHashEntry, bitsPerSelectHashEntry);
+                selectCountArray.clearElementValue((selectTablePointer + bucket) * bitsPerSelectCount, bitsPerSelectCount);
+                emptyBucket = bucket;
+            }
+
+            bucket = (bucket + 1) & selectBucketMask;
+            moveOrdinal = (int)selectHashArray.getElementValue((selectTablePointer + bucket) * bitsPerSelectHashEntry, bitsPerSelectHashEntry) - 1;
+        }
+    }
+
+    private static void writeValue(FixedLengthElementArray array, long index, int bitsPerElement, long value) {
+        array.clearElementValue(index, bitsPerElement);
+        array.setElementValue(index, bitsPerElement, value);
+    }
+
+    private static boolean bucketInRange(long fromBucket, long toBucket, long testBucket) {
+        if(toBucket > fromBucket) {
+            return testBucket > fromBucket && testBucket <= toBucket;
+        } else {
+            return testBucket > fromBucket || testBucket <= toBucket;
+        }
+    }
+
+    /**
+     * Equivalent to the match hash calculated by the {@link HollowHashIndexBuilder}.
+     */
+    private int matchHash(int[] tuple) {
+        int matchHash = 0;
+
+        for(int i=0;i<matchFieldSpecs.length;i++) {
+            HollowHashIndexField field = matchFieldSpecs[i];
+            int ordinal = tuple[field.getBaseIteratorFieldIdx()];
+            HollowTypeReadState readState = field.getBaseDataAccess();
+            int fieldPath[] = field.getSchemaFieldPositionPath();
+
+            if(fieldPath.length == 0) {
+                matchHash ^= HashCodes.hashInt(ordinal);
+            } else {
+                for(int j=0;j<fieldPath.length-1;j++) {
+                    HollowObjectTypeReadState objectAccess = (HollowObjectTypeReadState)readState;
+                    readState = objectAccess.getSchema().getReferencedTypeState(fieldPath[j]);
+                    ordinal = objectAccess.readOrdinal(ordinal, fieldPath[j]);
+                }
+
+                int fieldHashCode = HollowReadFieldUtils.fieldHashCode((HollowObjectTypeDataAccess) readState, ordinal, fieldPath[fieldPath.length-1]);
+                matchHash ^= HashCodes.hashInt(fieldHashCode);
+            }
+        }
+
+        return matchHash;
+    }
+
+    private boolean matchesAreEqual(int[] tuple1, int[] tuple2) {
+        for(int i=0;i<matchFieldSpecs.length;i++) {
+            HollowHashIndexField field = matchFieldSpecs[i];
+            int ordinal1 = tuple1[field.getBaseIteratorFieldIdx()];
+            int ordinal2 = tuple2[field.getBaseIteratorFieldIdx()];
+
+            HollowTypeReadState readState = field.getBaseDataAccess();
+            int fieldPath[] = field.getSchemaFieldPositionPath();
+
+            if(fieldPath.length == 0) {
+                if(ordinal1 != ordinal2)
+                    return false;
+            } else {
+                for(int j=0;j<fieldPath.length - 1;j++) {
+                    HollowObjectTypeReadState objectAccess = (HollowObjectTypeReadState)readState;
+                    readState = objectAccess.getSchema().getReferencedTypeState(fieldPath[j]);
+                    ordinal1 = objectAccess.readOrdinal(ordinal1, fieldPath[j]);
+                    ordinal2 = objectAccess.readOrdinal(ordinal2, fieldPath[j]);
+                }
+
+                if(ordinal1 != ordinal2) {
+                    HollowObjectTypeReadState objectAccess = (HollowObjectTypeReadState)readState;
+                    int fieldIdx = fieldPath[fieldPath.length-1];
+                    if(!HollowReadFieldUtils.fieldsAreEqual(objectAccess, ordinal1, fieldIdx, objectAccess, ordinal2, fieldIdx))
+                        return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    private static class MatchChange {
+        private final int hash;
+        /// the ordinals of the first traversal match encountered for this change, which may have been removed.
+        private final int[] tuple;
+        /// the ordinals of a traversal match from an added record, if any.
+        private int[] currentTuple;
+        private final Map<Integer, Integer> selectCountDeltas;
+
+        private long priorBucket = -1;
+        private int priorSize;
+        private long priorSelectTablePointer;
+
+        private int newSize;
+        private int[] newTuple;
+        private boolean relocateSelectTable;
+
+        MatchChange(int hash, int[] tuple) {
+            this.hash = hash;
+            this.tuple = tuple;
+            this.selectCountDeltas = new HashMap<Integer, Integer>();
+        }
+
+        void adjustSelectCount(int selectOrdinal, int countDelta) {
+            Integer priorDelta = selectCountDeltas.get(selectOrdinal);
+            int delta = priorDelta == null ? countDelta : priorDelta.intValue() + countDelta;
+            selectCountDeltas.put(selectOrdinal, delta);
+        }
+    }
+
+}
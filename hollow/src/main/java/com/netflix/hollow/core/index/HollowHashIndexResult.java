@@ -27,14 +27,14 @@ import com.netflix.hollow.core.read.iterator.HollowOrdinalIterator;
  */
 public class HollowHashIndexResult {
 
-    private final HollowHashIndex idx;
+    private final HollowHashIndexState hashState;
     private final long selectTableStartPointer;
     private final int selectTableSize;
     private final int selectTableBuckets;
     private final int selectBucketMask;
 
-    HollowHashIndexResult(HollowHashIndex idx, long selectTableStartPointer, int selectTableSize) {
-        this.idx = idx;
+    HollowHashIndexResult(HollowHashIndexState hashState, long selectTableStartPointer, int selectTableSize) {
+        this.hashState = hashState;
         this.selectTableStartPointer = selectTableStartPointer;
         this.selectTableSize = selectTableSize;
         this.selectTableBuckets = HashCodes.hashTableSize(selectTableSize);
@@ -55,13 +55,13 @@ public class HollowHashIndexResult {
         int hash = HashCodes.hashInt(value);
         int bucket = hash & selectBucketMask;
 
-        int selectOrdinal = (int)idx.selectHashArray.getElementValue((selectTableStartPointer + bucket) * idx.bitsPerSelectHashEntry, idx.bitsPerSelectHashEntry) - 1;
+        int selectOrdinal = (int)hashState.selectHashArray.getElementValue((selectTableStartPointer + bucket) * hashState.bitsPerSelectHashEntry, hashState.bitsPerSelectHashEntry) - 1;
         while(selectOrdinal != -1) {
             if(selectOrdinal == value)
                 return true;
 
             bucket = (bucket + 1) & selectBucketMask;
-            selectOrdinal = (int)idx.selectHashArray.getElementValue((selectTableStartPointer + bucket) * idx.bitsPerSelectHashEntry, idx.bitsPerSelectHashEntry) - 1;
+            selectOrdinal = (int)hashState.selectHashArray.getElementValue((selectTableStartPointer + bucket) * hashState.bitsPerSelectHashEntry, hashState.bitsPerSelectHashEntry) - 1;
         }
 
         return false;
@@ -79,7 +79,7 @@ public class HollowHashIndexResult {
             @Override
             public int next() {
                 while(currentBucket < endBucket) {
-                    int selectOrdinal = (int)idx.selectHashArray.getElementValue((currentBucket++) * idx.bitsPerSelectHashEntry, idx.bitsPerSelectHashEntry) - 1;
+                    int selectOrdinal = (int)hashState.selectHashArray.getElementValue((currentBucket++) * hashState.bitsPerSelectHashEntry, hashState.bitsPerSelectHashEntry) - 1;
                     if(selectOrdinal != -1)
                         return selectOrdinal;
                 }
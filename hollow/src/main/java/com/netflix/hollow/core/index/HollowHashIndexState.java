@@ -0,0 +1,93 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.index;
+
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+
+/**
+ * The immutable data structures backing a {@link HollowHashIndex} at a single point in time.
+ * <p>
+ * A {@link HollowHashIndex} which is listening for delta updates will atomically replace its HollowHashIndexState after each
+ * delta, so that queries (and the {@link HollowHashIndexResult}s they return) always observe a consistent index.
+ */
+class HollowHashIndexState {
+
+    final FixedLengthElementArray matchHashTable;
+    final FixedLengthElementArray selectHashArray;
+    /// null unless the index was built to be kept up-to-date with deltas.
+    final FixedLengthElementArray selectCountArray;
+
+    final HollowHashIndexField[] matchFields;
+    final int matchHashMask;
+    final int bitsPerMatchHashKey;
+    final int bitsPerMatchHashEntry;
+
+    final int[] bitsPerTraverserField;
+    final int[] offsetPerTraverserField;
+    final int bitsPerSelectTableSize;
+    final int bitsPerSelectTablePointer;
+
+    final int bitsPerSelectHashEntry;
+    final int bitsPerSelectCount;
+
+    final int matchCount;
+    final long totalSelectBuckets;
+    final long garbageSelectBuckets;
+
+    HollowHashIndexState(HollowHashIndexBuilder builder) {
+        this(builder.getFinalMatchHashTable(),
+             builder.getFinalSelectHashArray(),
+             builder.getFinalSelectCountArray(),
+             builder.getMatchFields(),
+             (int)builder.getFinalMatchHashMask(),
+             builder.getBitsPerMatchHashKey(),
+             builder.getFinalBitsPerMatchHashEntry(),
+             builder.getBitsPerTraverserField(),
+             builder.getOffsetPerTraverserField(),
+             builder.getFinalBitsPerSelectTableSize(),
+             builder.getFinalBitsPerSelectTablePointer(),
+             builder.getBitsPerSelectHashEntry(),
+             builder.getFinalBitsPerSelectCount(),
+             builder.getMatchCount(),
+             builder.getTotalSelectBuckets(),
+             0);
+    }
+
+    HollowHashIndexState(FixedLengthElementArray matchHashTable, FixedLengthElementArray selectHashArray, FixedLengthElementArray selectCountArray,
+            HollowHashIndexField[] matchFields, int matchHashMask, int bitsPerMatchHashKey, int bitsPerMatchHashEntry,
+            int[] bitsPerTraverserField, int[] offsetPerTraverserField, int bitsPerSelectTableSize, int bitsPerSelectTablePointer,
+            int bitsPerSelectHashEntry, int bitsPerSelectCount, int matchCount, long totalSelectBuckets, long garbageSelectBuckets) {
+        this.matchHashTable = matchHashTable;
+        this.selectHashArray = selectHashArray;
+        this.selectCountArray = selectCountArray;
+        this.matchFields = matchFields;
+        this.matchHashMask = matchHashMask;
+        this.bitsPerMatchHashKey = bitsPerMatchHashKey;
+        this.bitsPerMatchHashEntry = bitsPerMatchHashEntry;
+        this.bitsPerTraverserField = bitsPerTraverserField;
+        this.offsetPerTraverserField = offsetPerTraverserField;
+        this.bitsPerSelectTableSize = bitsPerSelectTableSize;
+        this.bitsPerSelectTablePointer = bitsPerSelectTablePointer;
+        this.bitsPerSelectHashEntry = bitsPerSelectHashEntry;
+        this.bitsPerSelectCount = bitsPerSelectCount;
+        this.matchCount = matchCount;
+        this.totalSelectBuckets = totalSelectBuckets;
+        this.garbageSelectBuckets = garbageSelectBuckets;
+    }
+
+}
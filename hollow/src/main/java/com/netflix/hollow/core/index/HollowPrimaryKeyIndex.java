@@ -28,10 +28,13 @@ import com.netflix.hollow.core.memory.pool.WastefulRecycler;
 import com.netflix.hollow.core.index.key.HollowPrimaryKeyValueDeriver;
 import com.netflix.hollow.core.index.key.PrimaryKey;
 import com.netflix.hollow.core.read.HollowReadFieldUtils;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.IndexMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.IndexMemoryReporter;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeStateListener;
 import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
 import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.util.IntList;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
@@ -47,7 +50,7 @@ import java.util.List;
  * <p>
  *
  */
-public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
+public class HollowPrimaryKeyIndex implements HollowTypeStateListener, IndexMemoryReporter {
 
     private final HollowObjectTypeReadState typeState;
     private final int[][] fieldPathIndexes;
@@ -59,6 +62,11 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
 
     private final BitSet specificOrdinalsToIndex;
 
+    private final IntList addedOrdinals;
+    private final IntList removedOrdinals;
+
+    private static final int TOMBSTONE_ORDINAL = -2;
+
     private PrimaryKeyIndexHashTable hashTable;
     private volatile PrimaryKeyIndexHashTable hashTableVolatile;
 
@@ -98,6 +106,8 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
 
         this.keyDeriver = new HollowPrimaryKeyValueDeriver(typeState, fieldPathIndexes, fieldTypes);
         this.specificOrdinalsToIndex = specificOrdinalsToIndex;
+        this.addedOrdinals = new IntList();
+        this.removedOrdinals = new IntList();
 
         reindex();
     }
@@ -117,6 +127,9 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
     /**
      * Once called, this HollowPrimaryKeyIndex will be kept up-to-date when deltas are applied to the indexed state engine.
      * <p>
+     * Each listener callback is synchronized on this index, so that the ordinals recorded during a delta are visible when the
+     * update is applied regardless of which thread delivers them.  Queries do not lock, and read the most recently published hash table.
+     * <p>
      * This method should be called <b>before</b> any subsequent deltas occur after the index is created.
      * <p>
      * In order to prevent memory leaks, if this method is called and the index is no longer needed, call detachFromDeltaUpdates() before
@@ -169,7 +182,7 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
             int bucket = hashCode & hashTable.hashMask;
             ordinal = readOrdinal(hashTable, bucket);
             while(ordinal != -1) {
-                if(keyDeriver.keyMatches(key, ordinal, 0))
+                if(ordinal != TOMBSTONE_ORDINAL && keyDeriver.keyMatches(key, ordinal, 0))
                     break;
 
                 bucket++;
@@ -201,7 +214,7 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
             int bucket = hashCode & hashTable.hashMask;
             ordinal = readOrdinal(hashTable, bucket);
             while(ordinal != -1) {
-                if(keyDeriver.keyMatches(key1, ordinal, 0) && keyDeriver.keyMatches(key2, ordinal, 1))
+                if(ordinal != TOMBSTONE_ORDINAL && keyDeriver.keyMatches(key1, ordinal, 0) && keyDeriver.keyMatches(key2, ordinal, 1))
                     break;
 
                 bucket++;
@@ -234,7 +247,7 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
             int bucket = hashCode & hashTable.hashMask;
             ordinal = readOrdinal(hashTable, bucket);
             while(ordinal != -1) {
-                if(keyDeriver.keyMatches(key1, ordinal, 0) && keyDeriver.keyMatches(key2, ordinal, 1) && keyDeriver.keyMatches(key3, ordinal, 2))
+                if(ordinal != TOMBSTONE_ORDINAL && keyDeriver.keyMatches(key1, ordinal, 0) && keyDeriver.keyMatches(key2, ordinal, 1) && keyDeriver.keyMatches(key3, ordinal, 2))
                     break;
 
                 bucket++;
@@ -267,7 +280,7 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
             int bucket = hashCode & hashTable.hashMask;
             ordinal = readOrdinal(hashTable, bucket);
             while(ordinal != -1) {
-                if(keyDeriver.keyMatches(ordinal, keys))
+                if(ordinal != TOMBSTONE_ORDINAL && keyDeriver.keyMatches(ordinal, keys))
                     break;
 
                 bucket++;
@@ -279,8 +292,13 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
         return ordinal;
     }
 
+    /**
+     * @return the ordinal in the specified bucket, -1 if the bucket is empty, or TOMBSTONE_ORDINAL if the bucket 
+     * contains a tombstone.
+     */
     private int readOrdinal(PrimaryKeyIndexHashTable hashTable, int bucket) {
-        return (int)hashTable.hashTable.getElementValue((long)hashTable.bitsPerElement * (long)bucket, hashTable.bitsPerElement) - 1;
+        long bucketValue = hashTable.hashTable.getElementValue((long)hashTable.bitsPerElement * (long)bucket, hashTable.bitsPerElement);
+        return bucketValue == hashTable.tombstone ? TOMBSTONE_ORDINAL : (int)bucketValue - 1;
     }
 
     private int keyHashCode(Object key, int fieldIdx) {
@@ -328,17 +346,17 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
         List<Object[]> duplicateKeys = new ArrayList<Object[]>();
 
         for(int i=0;i<hashTable.hashTableSize;i++) {
-            int ordinal = (int)hashTable.hashTable.getElementValue((long)i * (long)hashTable.bitsPerElement, hashTable.bitsPerElement) - 1;
+            int ordinal = readOrdinal(hashTable, i);
 
-            if(ordinal != -1) {
+            if(ordinal >= 0) {
                 int compareBucket = (i+1) & hashTable.hashMask;
-                int compareOrdinal = (int)hashTable.hashTable.getElementValue((long)compareBucket * (long)hashTable.bitsPerElement, hashTable.bitsPerElement) - 1;
+                int compareOrdinal = readOrdinal(hashTable, compareBucket);
                 while(compareOrdinal != -1) {
-                    if(recordsHaveEqualKeys(ordinal, compareOrdinal))
+                    if(compareOrdinal != TOMBSTONE_ORDINAL && recordsHaveEqualKeys(ordinal, compareOrdinal))
                         duplicateKeys.add(keyDeriver.getRecordKey(ordinal));
 
                     compareBucket = (compareBucket + 1) & hashTable.hashMask;
-                    compareOrdinal = (int)hashTable.hashTable.getElementValue((long)compareBucket * (long)hashTable.bitsPerElement, hashTable.bitsPerElement) - 1;
+                    compareOrdinal = readOrdinal(hashTable, compareBucket);
                 }
             }
         }
@@ -347,30 +365,56 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
     }
 
     @Override
-    public void beginUpdate() { }
+    public synchronized void beginUpdate() {
+        addedOrdinals.clear();
+        removedOrdinals.clear();
+    }
 
     @Override
-    public void addedOrdinal(int ordinal) { }
+    public synchronized void addedOrdinal(int ordinal) {
+        addedOrdinals.add(ordinal);
+    }
 
     @Override
-    public void removedOrdinal(int ordinal) { }
+    public synchronized void removedOrdinal(int ordinal) {
+        removedOrdinals.add(ordinal);
+    }
 
+    /**
+     * Applies the ordinals added and removed during the delta to a copy of the current hash table, which is then published
+     * in its place.  Removed ordinals are replaced with tombstones, and added ordinals take the first empty or tombstoned 
+     * bucket in their probe sequence.  Copying the table is much cheaper than rebuilding it, which requires hashing the key 
+     * of every record.
+     * <p>
+     * The hash table is only rebuilt if the new ordinals cannot be represented with the current bits per element, if the
+     * table would exceed its load factor, or if the table has become much larger than its contents require.
+     */
     @Override
     public synchronized void endUpdate() {
-        BitSet ordinals = typeState.getListener(PopulatedOrdinalListener.class).getPopulatedOrdinals();
+        PrimaryKeyIndexHashTable hashTable = this.hashTable;
 
-        int hashTableSize = HashCodes.hashTableSize(ordinals.cardinality());
-        int bitsPerElement = (32 - Integer.numberOfLeadingZeros(typeState.maxOrdinal() + 1));
+        int maxOrdinal = typeState.maxOrdinal();
+        int newSize = hashTable.size - removedOrdinals.size() + addedOrdinals.size();
+        int occupiedBuckets = hashTable.size + hashTable.tombstones + addedOrdinals.size();
 
-        if(hashTableSize == hashTable.hashTableSize
-                && bitsPerElement == hashTable.bitsPerElement
-                && shouldPerformDeltaUpdate()) {
-            deltaUpdate(hashTableSize, bitsPerElement);
-        } else {
+        if(bitsPerElement(maxOrdinal) > hashTable.bitsPerElement
+                || HashCodes.hashTableSize(occupiedBuckets) > hashTable.hashTableSize
+                || HashCodes.hashTableSize(newSize) < hashTable.hashTableSize / 4
+                || !applyDeltaUpdate(hashTable)) {
             reindex();
         }
     }
 
+    /**
+     * @return the bytes allocated for this index's hash table.
+     */
+    @Override
+    public IndexMemory getIndexMemory() {
+        PrimaryKeyIndexHashTable hashTable = hashTableVolatile;
+        long bytes = hashTable == null ? 0 : hashTable.hashTable.sizeInBytes();
+        return new IndexMemory("HollowPrimaryKeyIndex" + Arrays.toString(primaryKey.getFieldPaths()), bytes);
+    }
+
     public void destroy() {
         if(hashTable != null)
             hashTable.hashTable.destroy(memoryRecycler);
@@ -388,8 +432,10 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
             ordinals = listener.getPopulatedOrdinals();
         }
 
-        int hashTableSize = HashCodes.hashTableSize(ordinals.cardinality());
-        int bitsPerElement = (32 - Integer.numberOfLeadingZeros(typeState.maxOrdinal() + 1));
+        int size = ordinals.cardinality();
+        int hashTableSize = HashCodes.hashTableSize(size);
+        int maxOrdinal = typeState.maxOrdinal();
+        int bitsPerElement = bitsPerElement(maxOrdinal);
 
         FixedLengthElementArray hashedArray = new FixedLengthElementArray(memoryRecycler, (long)hashTableSize * (long)bitsPerElement);
 
@@ -408,89 +454,83 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
             ordinal = ordinals.nextSetBit(ordinal + 1);
         }
 
-        setHashTable(new PrimaryKeyIndexHashTable(hashedArray, hashTableSize, hashMask, bitsPerElement));
+        setHashTable(new PrimaryKeyIndexHashTable(hashedArray, hashTableSize, hashMask, bitsPerElement, size, 0));
 
         memoryRecycler.swap();
     }
 
-    private void deltaUpdate(int hashTableSize, int bitsPerElement) {
-        if(hashTable != null) {
-            hashTable.hashTable.destroy(memoryRecycler);
-        }
-
-        PopulatedOrdinalListener listener = typeState.getListener(PopulatedOrdinalListener.class);
-        BitSet prevOrdinals = listener.getPreviousOrdinals();
-        BitSet ordinals = listener.getPopulatedOrdinals();
-
-        long totalBitsInHashTable = (long)hashTableSize * (long)bitsPerElement;
-        FixedLengthElementArray hashedArray = new FixedLengthElementArray(memoryRecycler, totalBitsInHashTable);
-        hashedArray.copyBits(hashTable.hashTable, 0, 0, totalBitsInHashTable);
-
-        int hashMask = hashTableSize - 1;
-
-        int prevOrdinal = prevOrdinals.nextSetBit(0);
-        while(prevOrdinal != -1) {
-            if(!ordinals.get(prevOrdinal)) {
-                /// remove this ordinal
-                int hashCode = recordHash(prevOrdinal);
-                int bucket = hashCode & hashMask;
-
-                while(hashedArray.getElementValue((long)bucket * (long)bitsPerElement, bitsPerElement) != prevOrdinal + 1)
-                    bucket = (bucket + 1) & hashMask;
-
-                hashedArray.clearElementValue((long)bucket * (long)bitsPerElement, bitsPerElement);
-                int emptyBucket = bucket;
-                bucket = (bucket + 1) & hashMask;
-                int moveOrdinal = (int)hashedArray.getElementValue((long)bucket * (long)bitsPerElement, bitsPerElement) - 1;
-
-                while(moveOrdinal != -1) {
-                    int naturalHash = recordHash(moveOrdinal);
-                    int naturalBucket = naturalHash & hashMask;
-
-                    if(!bucketInRange(emptyBucket, bucket, naturalBucket)) {
-                        hashedArray.setElementValue((long)emptyBucket * (long)bitsPerElement, bitsPerElement, moveOrdinal + 1);
-                        hashedArray.clearElementValue((long)bucket * (long)bitsPerElement, bitsPerElement);
-                        emptyBucket = bucket;
-                    }
-
-
-                    bucket = (bucket + 1) & hashMask;
-                    moveOrdinal = (int)hashedArray.getElementValue((long)bucket * (long)bitsPerElement, bitsPerElement) - 1;
+    /**
+     * Copy the current hash table, replace each removed ordinal with a tombstone in the copy, then place each added ordinal, 
+     * and publish the copy.  Readers of the current table are unaffected until the copy is published.
+     *
+     * @return false if a removed ordinal could not be located, in which case the copy is discarded and the table must be rebuilt.
+     */
+    private boolean applyDeltaUpdate(PrimaryKeyIndexHashTable hashTable) {
+        int bitsPerElement = hashTable.bitsPerElement;
+        int hashMask = hashTable.hashMask;
+        long tombstone = hashTable.tombstone;
+        int size = hashTable.size;
+        int tombstones = hashTable.tombstones;
+
+        long numBits = (long)hashTable.hashTableSize * (long)bitsPerElement;
+        FixedLengthElementArray hashedArray = new FixedLengthElementArray(memoryRecycler, numBits);
+        hashedArray.copyBits(hashTable.hashTable, 0, 0, numBits);
+
+        for(int i=0;i<removedOrdinals.size();i++) {
+            int removedOrdinal = removedOrdinals.get(i);
+            int bucket = recordHash(removedOrdinal) & hashMask;
+
+            long bucketValue = hashedArray.getElementValue((long)bucket * (long)bitsPerElement, bitsPerElement);
+            while(bucketValue != removedOrdinal + 1) {
+                if(bucketValue == 0) {
+                    hashedArray.destroy(memoryRecycler);
+                    return false;
                 }
-
+                bucket = (bucket + 1) & hashMask;
+                bucketValue = hashedArray.getElementValue((long)bucket * (long)bitsPerElement, bitsPerElement);
             }
 
-            prevOrdinal = prevOrdinals.nextSetBit(prevOrdinal + 1);
-        }
-
+            hashedArray.setElementValue((long)bucket * (long)bitsPerElement, bitsPerElement, tombstone);
 
-        int ordinal = ordinals.nextSetBit(0);
-        while(ordinal != -1) {
-            if(!prevOrdinals.get(ordinal)) {
-                int hashCode = recordHash(ordinal);
-                int bucket = hashCode & hashMask;
+            size--;
+            tombstones++;
+        }
 
-                while(hashedArray.getElementValue((long)bucket * (long)bitsPerElement, bitsPerElement) != 0) {
-                    bucket = (bucket + 1) & hashMask;
-                }
+        for(int i=0;i<addedOrdinals.size();i++) {
+            int addedOrdinal = addedOrdinals.get(i);
+            int bucket = recordHash(addedOrdinal) & hashMask;
 
-                hashedArray.setElementValue((long)bucket * (long)bitsPerElement, bitsPerElement, ordinal + 1);
+            long bucketValue = hashedArray.getElementValue((long)bucket * (long)bitsPerElement, bitsPerElement);
+            while(bucketValue != 0 && bucketValue != tombstone) {
+                bucket = (bucket + 1) & hashMask;
+                bucketValue = hashedArray.getElementValue((long)bucket * (long)bitsPerElement, bitsPerElement);
             }
 
-            ordinal = ordinals.nextSetBit(ordinal + 1);
+            hashedArray.clearElementValue((long)bucket * (long)bitsPerElement, bitsPerElement);
+            hashedArray.setElementValue((long)bucket * (long)bitsPerElement, bitsPerElement, addedOrdinal + 1);
+
+            size++;
+            if(bucketValue != 0)
+                tombstones--;
         }
 
-        setHashTable(new PrimaryKeyIndexHashTable(hashedArray, hashTableSize, hashMask, bitsPerElement));
+        hashTable.hashTable.destroy(memoryRecycler);
+
+        setHashTable(new PrimaryKeyIndexHashTable(hashedArray, hashTable.hashTableSize, hashMask, bitsPerElement, size, tombstones));
 
         memoryRecycler.swap();
+
+        return true;
     }
 
-    private boolean bucketInRange(int fromBucket, int toBucket, int testBucket) {
-        if(toBucket > fromBucket) {
-            return testBucket > fromBucket && testBucket <= toBucket;
-        } else {
-            return testBucket > fromBucket || testBucket <= toBucket;
-        }
+    /**
+     * Elements must be able to represent each ordinal + 1 (0 is reserved for empty buckets), as well as the tombstone
+     * value (all bits set), which is therefore never a valid ordinal + 1.
+     */
+    private static int bitsPerElement(int maxOrdinal) {
+        if(maxOrdinal == -1)
+            return 0;
+        return 32 - Integer.numberOfLeadingZeros(maxOrdinal + 2);
     }
 
     private int recordHash(int ordinal) {
@@ -557,38 +597,23 @@ public class HollowPrimaryKeyIndex implements HollowTypeStateListener {
         return HollowReadFieldUtils.fieldsAreEqual(typeState, ordinal1, fieldPathIndexes[fieldIdx][lastFieldPath], typeState, ordinal2, fieldPathIndexes[fieldIdx][lastFieldPath]);
     }
 
-    private boolean shouldPerformDeltaUpdate() {
-        BitSet previousOrdinals = typeState.getListener(PopulatedOrdinalListener.class).getPopulatedOrdinals();
-        BitSet ordinals = typeState.getListener(PopulatedOrdinalListener.class).getPopulatedOrdinals();
-
-        int prevCardinality = 0;
-        int removedRecords = 0;
-
-        int prevOrdinal = previousOrdinals.nextSetBit(0);
-        while(prevOrdinal != -1) {
-            prevCardinality++;
-            if(!ordinals.get(prevOrdinal))
-                removedRecords++;
-
-            prevOrdinal = previousOrdinals.nextSetBit(prevOrdinal + 1);
-        }
-
-        if(removedRecords > prevCardinality * 0.1d)
-            return false;
-        return true;
-    }
-
     private static class PrimaryKeyIndexHashTable {
         private final FixedLengthElementArray hashTable;
         private final int hashTableSize;
         private final int hashMask;
         private final int bitsPerElement;
+        private final long tombstone;
+        private final int size;
+        private final int tombstones;
 
-        public PrimaryKeyIndexHashTable(FixedLengthElementArray hashTable, int hashTableSize, int hashMask, int bitsPerElement) {
+        public PrimaryKeyIndexHashTable(FixedLengthElementArray hashTable, int hashTableSize, int hashMask, int bitsPerElement, int size, int tombstones) {
             this.hashTable = hashTable;
             this.hashTableSize = hashTableSize;
             this.hashMask = hashMask;
             this.bitsPerElement = bitsPerElement;
+            this.tombstone = (1L << bitsPerElement) - 1;
+            this.size = size;
+            this.tombstones = tombstones;
         }
     }
 }
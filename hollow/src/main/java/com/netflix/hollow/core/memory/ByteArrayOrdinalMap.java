@@ -41,6 +41,8 @@ import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.WastefulRecycler;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicLongArray;
 
 /**
@@ -54,28 +56,44 @@ import java.util.concurrent.atomic.AtomicLongArray;
 * of the byte sequence in the ByteDataBuffer.  Each byte sequence is preceded by a variable-length integer 
 * (see {@link VarInt}), indicating the length of the sequence.<p>
 *
+* New keys are published to the hash table with a compare-and-swap.  Concurrent additions take ordinals from the 
+* {@link FreeOrdinalTracker} or claim their preferred ordinals without locking, and reserve space for their byte sequences 
+* by atomically advancing the length of the data, so that they only serialize while a new segment of the ByteDataBuffer is 
+* allocated.  When the table grows, each empty bucket in the old table is replaced with a marker which redirects concurrent 
+* readers and writers to the new table.<p>
+*
 * @author dkoszewnik
 *
 */
 public class ByteArrayOrdinalMap {
 
    private static final long EMPTY_BUCKET_VALUE = -1L;
+   /// replaces empty buckets in a key array which has been superseded by a larger array.
+   private static final long MOVED_BUCKET_VALUE = -2L;
    
    private static final int BITS_PER_ORDINAL = 29;
    private static final int BITS_PER_POINTER = Long.SIZE - BITS_PER_ORDINAL;
    private static final long POINTER_MASK = (1L << BITS_PER_POINTER) - 1;
    private static final long ORDINAL_MASK = (1L << BITS_PER_ORDINAL) - 1;
+   /// the number of bytes allocated beyond the end of an append which requires a new segment, so that allocation is infrequent.
+   private static final int BYTE_DATA_ALLOCATION_AHEAD = 1 << 16;
 
    /// Thread safety:  We need volatile access semantics to the individual elements in the
    /// pointersAndOrdinals array.
    /// Ordinal is the high 29 bits.  Pointer to byte data is the low 35 bits.
-   private AtomicLongArray pointersAndOrdinals;
+   private volatile AtomicLongArray pointersAndOrdinals;
    private final ByteDataBuffer byteData;
+   /// the length of the data appended to the byteData, which is advanced atomically to reserve space for each append.
+   private final AtomicLong byteDataLength;
+   /// the number of bytes for which segments of the byteData have been allocated.
+   private volatile long byteDataCapacity;
    private final FreeOrdinalTracker freeOrdinalTracker;
-   private int size;
-   private int sizeBeforeGrow;
+   private final AtomicInteger size;
+   private volatile int sizeBeforeGrow;
+   /// threads which encounter a moved bucket wait on this monitor until the growing thread has published the new key array.
+   private final Object growthMonitor = new Object();
 
-   private BitSet unusedPreviousOrdinals;
+   private ThreadSafeBitSet unusedPreviousOrdinals;
 
    private long pointersByOrdinal[];
 
@@ -83,9 +101,10 @@ public class ByteArrayOrdinalMap {
    public ByteArrayOrdinalMap() {
        this.freeOrdinalTracker = new FreeOrdinalTracker();
        this.byteData = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
+       this.byteDataLength = new AtomicLong();
        this.pointersAndOrdinals = emptyKeyArray(256);
        this.sizeBeforeGrow = 179; /// 70% load factor
-       this.size = 0;
+       this.size = new AtomicInteger();
    }
 
    public int getOrAssignOrdinal(ByteDataBuffer serializedRepresentation) {
@@ -99,74 +118,153 @@ public class ByteArrayOrdinalMap {
    public int getOrAssignOrdinal(ByteDataBuffer serializedRepresentation, int preferredOrdinal) {
        int hash = HashCodes.hashCode(serializedRepresentation);
 
+       int ordinal = findOrdinal(serializedRepresentation, hash);
+       if(ordinal != -1)
+           return ordinal;
+
+       return assignOrdinal(serializedRepresentation, hash, preferredOrdinal);
+   }
+
+   /**
+    * Find the ordinal for a previously added byte sequence, following the current key array if it is superseded during the search.
+    */
+   private int findOrdinal(ByteDataBuffer serializedRepresentation, int hash) {
+       AtomicLongArray pointersAndOrdinals = this.pointersAndOrdinals;
        int modBitmask = pointersAndOrdinals.length() - 1;
        int bucket = hash & modBitmask;
        long key = pointersAndOrdinals.get(bucket);
 
        /// linear probing to resolve collisions.
        while(key != EMPTY_BUCKET_VALUE) {
-           if(compare(serializedRepresentation, key)) {
-               return (int)(key >>> BITS_PER_POINTER);
+           if(key == MOVED_BUCKET_VALUE) {
+               pointersAndOrdinals = awaitGrowth(pointersAndOrdinals);
+               modBitmask = pointersAndOrdinals.length() - 1;
+               bucket = hash & modBitmask;
+           } else {
+               if(compare(serializedRepresentation, key)) {
+                   return (int)(key >>> BITS_PER_POINTER);
+               }
+
+               bucket = (bucket + 1) & modBitmask;
            }
 
-           bucket = (bucket + 1) & modBitmask;
            key = pointersAndOrdinals.get(bucket);
        }
 
-       return assignOrdinal(serializedRepresentation, hash, preferredOrdinal);
+       return -1;
    }
 
-   /// acquire the lock before writing.
-   private synchronized int assignOrdinal(ByteDataBuffer serializedRepresentation, int hash, int preferredOrdinal) {
-       if(size > sizeBeforeGrow)
-           growKeyArray();
+   private int assignOrdinal(ByteDataBuffer serializedRepresentation, int hash, int preferredOrdinal) {
+       boolean isPreferredOrdinal = claimPreferredOrdinal(preferredOrdinal);
+       int ordinal = isPreferredOrdinal ? preferredOrdinal : freeOrdinalTracker.getFreeOrdinal();
+       long key = ((long)ordinal << BITS_PER_POINTER) | appendData(serializedRepresentation);
 
-       /// check to make sure that after acquiring the lock, the element still does not exist.
-       /// this operation is akin to double-checked locking which is 'fixed' with the JSR 133 memory model in JVM >= 1.5.
+       AtomicLongArray pointersAndOrdinals = this.pointersAndOrdinals;
        int modBitmask = pointersAndOrdinals.length() - 1;
        int bucket = hash & modBitmask;
-       long key = pointersAndOrdinals.get(bucket);
 
-       while(key != EMPTY_BUCKET_VALUE) {
-           if(compare(serializedRepresentation, key)) {
-               return (int)(key >>> BITS_PER_POINTER);
+       while(true) {
+           long existingKey = pointersAndOrdinals.get(bucket);
+
+           if(existingKey == EMPTY_BUCKET_VALUE) {
+               /// the compareAndSet on the AtomicLongArray has volatile semantics (i.e. behaves like a monitor release).
+               /// Any other thread reading this element in the AtomicLongArray will have visibility to all memory writes this thread has made up to this point.
+               /// This means the entire byte sequence is guaranteed to be visible to any thread which reads the pointer to that data.
+               if(pointersAndOrdinals.compareAndSet(bucket, EMPTY_BUCKET_VALUE, key)) {
+                   if(size.incrementAndGet() > sizeBeforeGrow)
+                       growKeyArray();
+                   return (int)(key >>> BITS_PER_POINTER);
+               }
+
+               /// another thread claimed this bucket first, examine what it placed there.
+           } else if(existingKey == MOVED_BUCKET_VALUE) {
+               pointersAndOrdinals = awaitGrowth(pointersAndOrdinals);
+               modBitmask = pointersAndOrdinals.length() - 1;
+               bucket = hash & modBitmask;
+           } else if(compare(serializedRepresentation, existingKey)) {
+               /// another thread added the same byte sequence concurrently.  The appended copy will be reclaimed during compaction.
+               releaseOrdinal(ordinal, isPreferredOrdinal);
+               return (int)(existingKey >>> BITS_PER_POINTER);
+           } else {
+               bucket = (bucket + 1) & modBitmask;
            }
-
-           bucket = (bucket + 1) & modBitmask;
-           key = pointersAndOrdinals.get(bucket);
        }
+   }
 
-       /// the ordinal for this object still does not exist in the list, even after the lock has been acquired.
-       /// it is up to this thread to add it at the current bucket position.
-       int ordinal = findFreeOrdinal(preferredOrdinal);
-       long pointer = byteData.length();
+   /**
+    * Append the byte sequence, preceded by its length, to the ByteDataBuffer.  Space is reserved by atomically advancing the
+    * length of the data, so concurrent appends write to distinct ranges and only serialize when a new segment must be allocated.
+    * 
+    * @return the pointer to the appended data.
+    */
+   private long appendData(ByteDataBuffer serializedRepresentation) {
+       int length = (int)serializedRepresentation.length();
+       int totalLength = VarInt.sizeOfVInt(length) + length;
+       long pointer = byteDataLength.getAndAdd(totalLength);
 
-       VarInt.writeVInt(byteData, (int)serializedRepresentation.length());
-       serializedRepresentation.copyTo(byteData);
+       /// the volatile read of the capacity makes the segments allocated by another thread visible to this one.
+       if(pointer + totalLength > byteDataCapacity)
+           allocateByteData(pointer + totalLength);
 
-       key = ((long)ordinal << BITS_PER_POINTER) | pointer;
+       SegmentedByteArray arr = byteData.getUnderlyingArray();
+       long dataPointer = VarInt.writeVInt(arr, pointer, length);
+       arr.copy(serializedRepresentation.getUnderlyingArray(), 0, dataPointer, length);
 
-       size++;
+       return pointer;
+   }
 
-       /// this set on the AtomicLongArray has volatile semantics (i.e. behaves like a monitor release).
-       /// Any other thread reading this element in the AtomicLongArray will have visibility to all memory writes this thread has made up to this point.
-       /// This means the entire byte sequence is guaranteed to be visible to any thread which reads the pointer to that data.
-       pointersAndOrdinals.set(bucket, key);
+   private void allocateByteData(long length) {
+       synchronized(byteData) {
+           if(length > byteDataCapacity)
+               byteDataCapacity = byteData.getUnderlyingArray().allocate(length + BYTE_DATA_ALLOCATION_AHEAD);
+       }
+   }
 
-       return ordinal;
+   /**
+    * Return an ordinal which was reserved, but not used, to the source from which it was reserved.
+    */
+   private void releaseOrdinal(int ordinal, boolean isPreferredOrdinal) {
+       if(isPreferredOrdinal)
+           unusedPreviousOrdinals.set(ordinal);
+       else
+           freeOrdinalTracker.returnUnusedOrdinal(ordinal);
    }
 
    /**
-    * If the preferredOrdinal has not already been used, mark it and use it.  Otherwise,
-    * delegate to the FreeOrdinalTracker.
+    * Wait for a thread which is growing the key array to complete.
+    * 
+    * @return the new key array
     */
-   private int findFreeOrdinal(int preferredOrdinal) {
-       if(preferredOrdinal != -1 && unusedPreviousOrdinals.get(preferredOrdinal)) {
-           unusedPreviousOrdinals.clear(preferredOrdinal);
-           return preferredOrdinal;
+   private AtomicLongArray awaitGrowth(AtomicLongArray supersededKeyArray) {
+       if(pointersAndOrdinals == supersededKeyArray) {
+           boolean interrupted = false;
+
+           synchronized(growthMonitor) {
+               /// the growing thread publishes the new key array before notifying, so the wakeup cannot be missed.
+               while(pointersAndOrdinals == supersededKeyArray) {
+                   try {
+                       growthMonitor.wait();
+                   } catch(InterruptedException e) {
+                       interrupted = true;
+                   }
+               }
+           }
+
+           if(interrupted)
+               Thread.currentThread().interrupt();
        }
 
-       return freeOrdinalTracker.getFreeOrdinal();
+       return pointersAndOrdinals;
+   }
+
+   /**
+    * If the preferredOrdinal has not already been used, mark it as used.  Only one of any number of threads
+    * racing to claim the same preferredOrdinal succeeds; the others must delegate to the FreeOrdinalTracker.
+    * 
+    * @return whether the preferredOrdinal was claimed.
+    */
+   private boolean claimPreferredOrdinal(int preferredOrdinal) {
+       return preferredOrdinal != -1 && unusedPreviousOrdinals.clearIfSet(preferredOrdinal);
    }
 
    /**
@@ -176,7 +274,7 @@ public class ByteArrayOrdinalMap {
     * WARNING: THIS OPERATION WILL NOT UPDATE THE FreeOrdinalTracker.<p>
     */
    public void put(ByteDataBuffer serializedRepresentation, int ordinal) {
-       if(size > sizeBeforeGrow)
+       if(size.get() > sizeBeforeGrow)
            growKeyArray();
 
        int hash = HashCodes.hashCode(serializedRepresentation);
@@ -190,14 +288,9 @@ public class ByteArrayOrdinalMap {
            key = pointersAndOrdinals.get(bucket);
        }
 
-       long pointer = byteData.length();
-
-       VarInt.writeVInt(byteData, (int)serializedRepresentation.length());
-       serializedRepresentation.copyTo(byteData);
-
-       key = ((long)ordinal << BITS_PER_POINTER) | pointer;
+       key = ((long)ordinal << BITS_PER_POINTER) | appendData(serializedRepresentation);
 
-       size++;
+       size.incrementAndGet();
 
        pointersAndOrdinals.set(bucket, key);
    }
@@ -217,7 +310,12 @@ public class ByteArrayOrdinalMap {
    }
    
    public void reservePreviouslyPopulatedOrdinals(BitSet populatedOrdinals) {
-       unusedPreviousOrdinals = BitSet.valueOf(populatedOrdinals.toLongArray());
+       unusedPreviousOrdinals = new ThreadSafeBitSet();
+       int ordinal = populatedOrdinals.nextSetBit(0);
+       while(ordinal != -1) {
+           unusedPreviousOrdinals.set(ordinal);
+           ordinal = populatedOrdinals.nextSetBit(ordinal + 1);
+       }
        
        recalculateFreeOrdinals(populatedOrdinals);
    }
@@ -236,7 +334,7 @@ public class ByteArrayOrdinalMap {
        freeOrdinalTracker.setNextEmptyOrdinal(length);
    }
    
-   public BitSet getUnusedPreviousOrdinals() {
+   public ThreadSafeBitSet getUnusedPreviousOrdinals() {
        return unusedPreviousOrdinals;
    }
 
@@ -249,23 +347,7 @@ public class ByteArrayOrdinalMap {
     * @return The ordinal for this serialized representation, or -1.
     */
    public int get(ByteDataBuffer serializedRepresentation) {
-       int hash = HashCodes.hashCode(serializedRepresentation);
-
-       int modBitmask = pointersAndOrdinals.length() - 1;
-       int bucket = hash & modBitmask;
-       long key = pointersAndOrdinals.get(bucket);
-
-       /// linear probing to resolve collisions.
-       while(key != EMPTY_BUCKET_VALUE) {
-           if(compare(serializedRepresentation, key)) {
-               return (int)(key >>> BITS_PER_POINTER);
-           }
-
-           bucket = (bucket + 1) & modBitmask;
-           key = pointersAndOrdinals.get(bucket);
-       }
-
-       return -1;
+       return findOrdinal(serializedRepresentation, HashCodes.hashCode(serializedRepresentation));
    }
 
    /**
@@ -274,6 +356,9 @@ public class ByteArrayOrdinalMap {
     *
     */
    public void prepareForWrite() {
+       /// keep the position of the ByteDataBuffer consistent with the data appended to it.
+       byteData.setPosition(byteDataLength.get());
+
        int maxOrdinal = 0;
 
        for(int i=0;i<pointersAndOrdinals.length();i++) {
@@ -307,7 +392,7 @@ public class ByteArrayOrdinalMap {
     * @param usedOrdinals a bit set representing the ordinals which are currently referenced by any image.
     */
    public void compact(ThreadSafeBitSet usedOrdinals) {
-       long populatedReverseKeys[] = new long[size];
+       long populatedReverseKeys[] = new long[size.get()];
 
        int counter = 0;
 
@@ -343,6 +428,7 @@ public class ByteArrayOrdinalMap {
            }
        }
 
+       byteDataLength.set(currentCopyPointer);
        byteData.setPosition(currentCopyPointer);
        freeOrdinalTracker.sort();
 
@@ -351,7 +437,7 @@ public class ByteArrayOrdinalMap {
        }
 
        populateNewHashArray(pointersAndOrdinals, populatedReverseKeys);
-       size = usedOrdinals.cardinality();
+       size.set(usedOrdinals.cardinality());
 
        pointersByOrdinal = null;
        unusedPreviousOrdinals = null;
@@ -371,7 +457,7 @@ public class ByteArrayOrdinalMap {
    }
 
    public long getDataSize() {
-       return byteData.length();
+       return byteDataLength.get();
    }
 
    public int maxOrdinal() {
@@ -410,12 +496,19 @@ public class ByteArrayOrdinalMap {
    }
 
    /**
-    * Grow the key array.  All of the values in the current array must be re-hashed and added to the new array.
+    * Grow the key array.  All of the values in the current array must be re-hashed and added to the new array.<p>
+    * 
+    * Each empty bucket in the current array is replaced with a marker, so that any thread concurrently adding to or searching 
+    * the current array will wait for and then use the new array.
     */
-   private void growKeyArray() {
+   private synchronized void growKeyArray() {
+       if(size.get() <= sizeBeforeGrow)
+           return; /// another thread has already grown the array.
+
+       AtomicLongArray pointersAndOrdinals = this.pointersAndOrdinals;
        AtomicLongArray newKeys = emptyKeyArray(pointersAndOrdinals.length() * 2);
 
-       long valuesToAdd[] = new long[size];
+       long valuesToAdd[] = new long[pointersAndOrdinals.length()];
 
        int counter = 0;
 
@@ -423,18 +516,29 @@ public class ByteArrayOrdinalMap {
        /// if we do so, we cause large clusters of collisions to appear (because we resolve collisions with linear probing).
        for(int i=0;i<pointersAndOrdinals.length();i++) {
            long key = pointersAndOrdinals.get(i);
+           while(key == EMPTY_BUCKET_VALUE) {
+               if(pointersAndOrdinals.compareAndSet(i, EMPTY_BUCKET_VALUE, MOVED_BUCKET_VALUE))
+                   break;
+               key = pointersAndOrdinals.get(i);
+           }
+
            if(key != EMPTY_BUCKET_VALUE) {
                valuesToAdd[counter++] = key;
            }
        }
 
+       valuesToAdd = Arrays.copyOf(valuesToAdd, counter);
        Arrays.sort(valuesToAdd);
 
        populateNewHashArray(newKeys, valuesToAdd);
 
        /// 70% load factor
        sizeBeforeGrow = (newKeys.length() * 7) / 10;
-       pointersAndOrdinals = newKeys;
+       this.pointersAndOrdinals = newKeys;
+
+       synchronized(growthMonitor) {
+           growthMonitor.notifyAll();
+       }
    }
 
    /**
@@ -18,6 +18,8 @@
 package com.netflix.hollow.core.memory;
 
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A stack of unused ordinals.<p>
@@ -25,7 +27,11 @@ import java.util.Arrays;
  * This data structure is used by the {@link ByteArrayOrdinalMap} to track and assign unused ordinals to new records.
  * 
  * The goal is to ensure the "holes" generated by removing unused ordinals during server processing are reused in subsequent cycles,
- * instead of growing the "ordinal space" indefinitely.
+ * instead of growing the "ordinal space" indefinitely.<p>
+ *
+ * Ordinals may be taken from the pool by concurrent threads with {@link #getFreeOrdinal()}, and ordinals which were taken but
+ * never assigned may be concurrently given back with {@link #returnUnusedOrdinal(int)}.  All other operations must not be
+ * concurrent with any other operation.
  *
  * @author dkoszewnik
  *
@@ -33,8 +39,10 @@ import java.util.Arrays;
 public class FreeOrdinalTracker {
 
     private int freeOrdinals[];
-    private int size;
-    private int nextEmptyOrdinal;
+    private final AtomicInteger size;
+    private final AtomicInteger nextEmptyOrdinal;
+    /// ordinals which were taken from the pool but never assigned, which are reused before the stack.
+    private final ConcurrentLinkedQueue<Integer> unusedOrdinals;
 
     public FreeOrdinalTracker() {
         this(0);
@@ -42,18 +50,28 @@ public class FreeOrdinalTracker {
 
     private FreeOrdinalTracker(int nextEmptyOrdinal) {
         this.freeOrdinals = new int[64];
-        this.nextEmptyOrdinal = nextEmptyOrdinal;
-        this.size = 0;
+        this.nextEmptyOrdinal = new AtomicInteger(nextEmptyOrdinal);
+        this.size = new AtomicInteger();
+        this.unusedOrdinals = new ConcurrentLinkedQueue<Integer>();
     }
 
     /**
      * @return either an ordinal which was previously deallocated, or the next empty, previously unallocated ordinal in the sequence 0-n
      */
     public int getFreeOrdinal() {
-        if(size == 0)
-            return nextEmptyOrdinal++;
+        Integer unusedOrdinal = unusedOrdinals.poll();
+        if(unusedOrdinal != null)
+            return unusedOrdinal.intValue();
+
+        while(true) {
+            int currentSize = size.get();
+            if(currentSize == 0)
+                return nextEmptyOrdinal.getAndIncrement();
 
-        return freeOrdinals[--size];
+            /// the stack is only pushed to while no ordinals are being taken, so a successful decrement claims the top element.
+            if(size.compareAndSet(currentSize, currentSize - 1))
+                return freeOrdinals[currentSize - 1];
+        }
     }
 
     /**
@@ -62,25 +80,39 @@ public class FreeOrdinalTracker {
      * @param ordinal
      */
     public void returnOrdinalToPool(int ordinal) {
-        if(size == freeOrdinals.length) {
+        int currentSize = size.get();
+        if(currentSize == freeOrdinals.length) {
             freeOrdinals = Arrays.copyOf(freeOrdinals, freeOrdinals.length * 3 / 2);
         }
 
-        freeOrdinals[size] = ordinal;
-        size++;
+        freeOrdinals[currentSize] = ordinal;
+        size.set(currentSize + 1);
+    }
+
+    /**
+     * Give back an ordinal which was returned by {@link #getFreeOrdinal()}, but was never assigned.  This may be called
+     * concurrently with {@link #getFreeOrdinal()}.
+     */
+    public void returnUnusedOrdinal(int ordinal) {
+        unusedOrdinals.offer(Integer.valueOf(ordinal));
     }
 
     /**
      * Specify the next ordinal to return after the reusable pool is exhausted
      */
     public void setNextEmptyOrdinal(int nextEmptyOrdinal) {
-        this.nextEmptyOrdinal = nextEmptyOrdinal;
+        this.nextEmptyOrdinal.set(nextEmptyOrdinal);
     }
 
     /**
      * Ensure that all future ordinals are returned in ascending order.
      */
     public void sort() {
+        Integer unusedOrdinal;
+        while((unusedOrdinal = unusedOrdinals.poll()) != null)
+            returnOrdinalToPool(unusedOrdinal.intValue());
+
+        int size = this.size.get();
         Arrays.sort(freeOrdinals, 0, size);
 
         /// reverse the ordering
@@ -96,8 +128,9 @@ public class FreeOrdinalTracker {
      * Resets the FreeOrdinalTracker to its initial state.
      */
     public void reset() {
-        size = 0;
-        nextEmptyOrdinal = 0;
+        size.set(0);
+        nextEmptyOrdinal.set(0);
+        unusedOrdinals.clear();
     }
 
 }
@@ -18,12 +18,16 @@
 package com.netflix.hollow.core.memory;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 import sun.misc.Unsafe;
 
 @SuppressWarnings("restriction")
 public class HollowUnsafeHandle {
 
     private static Unsafe unsafe;
+    private static long bufferAddressFieldOffset;
 
     static {
         Field theUnsafe;
@@ -31,6 +35,7 @@ public class HollowUnsafeHandle {
             theUnsafe = Unsafe.class.getDeclaredField("theUnsafe");
             theUnsafe.setAccessible(true);
             unsafe = (Unsafe) theUnsafe.get(null);
+            bufferAddressFieldOffset = unsafe.objectFieldOffset(Buffer.class.getDeclaredField("address"));
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -40,4 +45,44 @@ public class HollowUnsafeHandle {
         return unsafe;
     }
 
+    /**
+     * @return the native address of the first byte of a direct or memory-mapped buffer.
+     */
+    public static long getAddress(Buffer directBuffer) {
+        return unsafe.getLong(directBuffer, bufferAddressFieldOffset);
+    }
+
+    /**
+     * Immediately release the native memory (or mapping) of a direct or memory-mapped buffer, rather than waiting for it
+     * to be garbage collected.  The buffer must not be accessed afterwards.
+     * 
+     * @return whether the memory was released.  If not, it will be released once the buffer is garbage collected.
+     */
+    public static boolean freeDirectBuffer(ByteBuffer directBuffer) {
+        try {
+            /// Java 9+
+            Method invokeCleaner = Unsafe.class.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(unsafe, directBuffer);
+            return true;
+        } catch(NoSuchMethodException e) {
+            /// prior to Java 9, fall through to the buffer's own cleaner.
+        } catch(Exception e) {
+            return false;
+        }
+
+        try {
+            Method cleanerMethod = directBuffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(directBuffer);
+            if(cleaner == null)
+                return false;
+            Method cleanMethod = cleaner.getClass().getMethod("clean");
+            cleanMethod.setAccessible(true);
+            cleanMethod.invoke(cleaner);
+            return true;
+        } catch(Exception e) {
+            return false;
+        }
+    }
+
 }
@@ -0,0 +1,153 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory;
+
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import sun.misc.Unsafe;
+
+/**
+ * A MappedDataInputStream reads a blob from a file which has been mapped into memory, rather than streaming its contents.
+ * <p>
+ * When a snapshot is read from a MappedDataInputStream, each {@link FixedLengthElementArray} and {@link SegmentedByteArray} 
+ * refers to its section of the mapped file in place, instead of copying the data into pooled memory.  Loading a snapshot
+ * this way requires only that the file's pages are faulted in as they are accessed, and the page cache may be shared by 
+ * multiple processes which map the same file.
+ * <p>
+ * The file is mapped read-only in overlapping windows, so that files larger than 2GB may be mapped, and so that every
+ * segment of an array falls within a single window.  The file must not be modified or truncated while any data read from
+ * it is in use.
+ */
+@SuppressWarnings("restriction")
+public class MappedDataInputStream extends DataInputStream {
+
+    private static final Unsafe unsafe = HollowUnsafeHandle.getUnsafe();
+
+    private static final long WINDOW_STEP = 1L << 30;
+    private static final long WINDOW_OVERLAP = 1L << 24;
+
+    private final MappedFileInput input;
+
+    public MappedDataInputStream(File file) throws IOException {
+        this(new MappedFileInput(file));
+    }
+
+    private MappedDataInputStream(MappedFileInput input) {
+        super(input);
+        this.input = input;
+    }
+
+    /**
+     * @return whether a range of data of the specified length beginning at the current position may be referred to in place
+     * in segments of the specified length.
+     */
+    public boolean canMapInPlace(long length, int segmentLength) {
+        return segmentLength <= WINDOW_OVERLAP && input.position + length <= input.length;
+    }
+
+    /**
+     * @return the address at which the data at the specified offset from the current position is mapped.  The mapping is 
+     * guaranteed to be contiguous for at least as many bytes as any segment length accepted by {@link #canMapInPlace(long, int)}.
+     */
+    public long addressOf(long offsetFromPosition) {
+        return input.addressOf(input.position + offsetFromPosition);
+    }
+
+    /**
+     * @return the mapped buffers, which must be retained while any address returned from this stream is in use.
+     */
+    public MappedByteBuffer[] getMappedBuffers() {
+        return input.windows;
+    }
+
+    private static class MappedFileInput extends InputStream {
+
+        private final MappedByteBuffer[] windows;
+        private final long[] windowAddresses;
+        private final long length;
+        private long position;
+
+        public MappedFileInput(File file) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+            try {
+                this.length = raf.length();
+                int numWindows = length == 0 ? 0 : (int)((length - 1) / WINDOW_STEP) + 1;
+                this.windows = new MappedByteBuffer[numWindows];
+                this.windowAddresses = new long[numWindows];
+
+                for(int i=0;i<numWindows;i++) {
+                    long windowStart = i * WINDOW_STEP;
+                    long windowLength = Math.min(WINDOW_STEP + WINDOW_OVERLAP, length - windowStart);
+                    windows[i] = raf.getChannel().map(MapMode.READ_ONLY, windowStart, windowLength);
+                    windowAddresses[i] = HollowUnsafeHandle.getAddress(windows[i]);
+                }
+            } finally {
+                raf.close();
+            }
+        }
+
+        private long addressOf(long filePosition) {
+            int window = (int)(filePosition / WINDOW_STEP);
+            return windowAddresses[window] + (filePosition - (window * WINDOW_STEP));
+        }
+
+        @Override
+        public int read() throws IOException {
+            if(position >= length)
+                return -1;
+            return unsafe.getByte(addressOf(position++)) & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(off < 0 || len < 0 || off + len > b.length)
+                throw new IndexOutOfBoundsException();
+            if(position >= length)
+                return len == 0 ? 0 : -1;
+
+            /// stay within the current window
+            len = (int)Math.min(len, Math.min(length - position, WINDOW_STEP - (position % WINDOW_STEP)));
+            unsafe.copyMemory(null, addressOf(position), b, (long)Unsafe.ARRAY_BYTE_BASE_OFFSET + off, len);
+            position += len;
+            return len;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if(n <= 0)
+                return 0;
+            n = Math.min(n, length - position);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int)Math.min(Integer.MAX_VALUE, length - position);
+        }
+
+    }
+
+}
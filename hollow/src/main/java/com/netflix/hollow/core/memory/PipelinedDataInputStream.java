@@ -0,0 +1,344 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory;
+
+import com.netflix.hollow.core.memory.encoding.VarInt;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * A PipelinedDataInputStream reads a blob from a stream in large chunks into reusable buffers.
+ * <p>
+ * If an Executor is provided, a background task reads ahead into the buffers, so that reading from the source stream (including 
+ * any decompression it performs) happens concurrently with decoding the blob.  Otherwise, the buffers are filled on demand 
+ * by the reading thread.
+ * <p>
+ * Variable length integers are decoded directly from the current buffer via {@link #readVInt()} and {@link #readVLong()}, which 
+ * {@link VarInt#readVInt(InputStream)} and {@link VarInt#readVLong(InputStream)} use when passed a PipelinedDataInputStream.
+ * <p>
+ * Data is read ahead from the source stream, so the source should contain nothing beyond the data to be read from this stream.  
+ * Closing this stream stops reading ahead, but does not close the source stream, which remains the responsibility of its opener.
+ */
+public class PipelinedDataInputStream extends DataInputStream {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 18;
+    public static final int DEFAULT_NUM_READ_AHEAD_BUFFERS = 4;
+
+    private final PipelinedInput input;
+
+    /**
+     * @param source the stream from which to read
+     * @param readAheadExecutor the Executor used to read ahead from the source stream, or null to read from the source stream 
+     * on the calling thread.
+     */
+    public PipelinedDataInputStream(InputStream source, Executor readAheadExecutor) {
+        this(source, readAheadExecutor, DEFAULT_BUFFER_SIZE, DEFAULT_NUM_READ_AHEAD_BUFFERS);
+    }
+
+    public PipelinedDataInputStream(InputStream source, Executor readAheadExecutor, int bufferSize, int numReadAheadBuffers) {
+        this(new PipelinedInput(source, readAheadExecutor, bufferSize, numReadAheadBuffers));
+    }
+
+    private PipelinedDataInputStream(PipelinedInput input) {
+        super(input);
+        this.input = input;
+    }
+
+    /**
+     * Read a variable length integer.
+     */
+    public int readVInt() throws IOException {
+        return input.readVInt();
+    }
+
+    /**
+     * Read a variable length long.
+     */
+    public long readVLong() throws IOException {
+        return input.readVLong();
+    }
+
+    private static class PipelinedInput extends InputStream {
+
+        private final InputStream source;
+        private final BlockingQueue<Buffer> filledBuffers;
+        private final BlockingQueue<Buffer> emptyBuffers;
+        private final CountDownLatch readAheadComplete;
+
+        private volatile boolean closed;
+
+        private Buffer current;
+        private byte buf[];
+        private int position;
+        private int limit;
+        private boolean endOfStream;
+
+        PipelinedInput(InputStream source, Executor readAheadExecutor, int bufferSize, int numReadAheadBuffers) {
+            this.source = source;
+
+            if(readAheadExecutor == null) {
+                this.filledBuffers = null;
+                this.emptyBuffers = null;
+                this.readAheadComplete = null;
+                this.current = new Buffer(bufferSize);
+            } else {
+                /// room for each buffer, plus a notification of failure which is not backed by a buffer.
+                this.filledBuffers = new ArrayBlockingQueue<Buffer>(numReadAheadBuffers + 1);
+                this.emptyBuffers = new ArrayBlockingQueue<Buffer>(numReadAheadBuffers);
+                this.readAheadComplete = new CountDownLatch(1);
+                for(int i=0;i<numReadAheadBuffers;i++)
+                    emptyBuffers.add(new Buffer(bufferSize));
+
+                readAheadExecutor.execute(new Runnable() {
+                    public void run() {
+                        readAhead();
+                    }
+                });
+            }
+        }
+
+        /**
+         * Fill each empty buffer in turn, until the end of the source stream is reached, reading fails, or this stream is closed.
+         * <p>
+         * If this task fails for any reason, a notification of the failure is always queued, so that the reading thread is never 
+         * left waiting for a buffer which will not arrive.
+         */
+        private void readAhead() {
+            try {
+                while(!closed) {
+                    Buffer buffer = emptyBuffers.take();
+                    if(closed)
+                        return;
+                    buffer.fill(source);
+                    filledBuffers.add(buffer);
+                    if(buffer.length == -1 || buffer.failure != null)
+                        return;
+                }
+            } catch(InterruptedException e) {
+                readAheadFailed(new InterruptedIOException("Interrupted while reading ahead"));
+            } catch(Throwable th) {
+                readAheadFailed(new IOException("Failed while reading ahead", th));
+            } finally {
+                readAheadComplete.countDown();
+            }
+        }
+
+        private void readAheadFailed(IOException failure) {
+            Buffer failed = new Buffer(0);
+            failed.failure = failure;
+            filledBuffers.offer(failed);
+        }
+
+        /**
+         * @return whether any bytes remain to be read.
+         */
+        private boolean nextBuffer() throws IOException {
+            if(endOfStream)
+                return false;
+
+            if(filledBuffers == null) {
+                current.fill(source);
+            } else {
+                if(current != null)
+                    emptyBuffers.add(current);
+                try {
+                    current = filledBuffers.take();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for data");
+                }
+            }
+
+            if(current.failure != null)
+                throw current.failure;
+
+            buf = current.data;
+            position = 0;
+            limit = Math.max(current.length, 0);
+            endOfStream = current.length == -1;
+            return !endOfStream;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while(position == limit) {
+                if(!nextBuffer())
+                    return -1;
+            }
+            return buf[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(off < 0 || len < 0 || off + len > b.length)
+                throw new IndexOutOfBoundsException();
+            if(len == 0)
+                return 0;
+
+            while(position == limit) {
+                if(!nextBuffer())
+                    return -1;
+            }
+
+            int bytesToCopy = Math.min(len, limit - position);
+            System.arraycopy(buf, position, b, off, bytesToCopy);
+            position += bytesToCopy;
+            return bytesToCopy;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = 0;
+
+            while(skipped < n) {
+                if(position == limit && !nextBuffer())
+                    break;
+                int bytesToSkip = (int)Math.min(n - skipped, limit - position);
+                position += bytesToSkip;
+                skipped += bytesToSkip;
+            }
+
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return limit - position;
+        }
+
+        int readVInt() throws IOException {
+            if(position == limit)
+                return VarInt.readVInt(this);
+
+            int startPosition = position;
+            byte b = buf[position++];
+
+            if(b == (byte) 0x80)
+                throw new RuntimeException("Attempting to read null value as int");
+
+            int value = b & 0x7F;
+            while ((b & 0x80) != 0) {
+              if(position == limit) {
+                  /// the value spans buffers
+                  position = startPosition;
+                  return VarInt.readVInt(this);
+              }
+              b = buf[position++];
+              value <<= 7;
+              value |= (b & 0x7F);
+            }
+
+            return value;
+        }
+
+        long readVLong() throws IOException {
+            if(position == limit)
+                return VarInt.readVLong(this);
+
+            int startPosition = position;
+            byte b = buf[position++];
+
+            if(b == (byte) 0x80)
+                throw new RuntimeException("Attempting to read null value as long");
+
+            long value = b & 0x7F;
+            while ((b & 0x80) != 0) {
+              if(position == limit) {
+                  /// the value spans buffers
+                  position = startPosition;
+                  return VarInt.readVLong(this);
+              }
+              b = buf[position++];
+              value <<= 7;
+              value |= (b & 0x7F);
+            }
+
+            return value;
+        }
+
+        /**
+         * Stop reading ahead, and wait for any read from the source stream in progress to complete.
+         */
+        @Override
+        public void close() throws IOException {
+            if(closed)
+                return;
+            closed = true;
+
+            if(filledBuffers != null) {
+                /// make sure the read ahead task is not blocked waiting for an empty buffer.
+                if(current != null)
+                    emptyBuffers.offer(current);
+                Buffer buffer;
+                while((buffer = filledBuffers.poll()) != null)
+                    emptyBuffers.offer(buffer);
+
+                try {
+                    readAheadComplete.await();
+                } catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while stopping read ahead");
+                }
+            }
+
+            current = null;
+            buf = null;
+            position = limit = 0;
+            endOfStream = true;
+        }
+    }
+
+    private static class Buffer {
+        private final byte data[];
+        private int length;
+        private IOException failure;
+
+        Buffer(int size) {
+            this.data = new byte[size];
+        }
+
+        /**
+         * Fill this buffer from the source stream.  The length is -1 if the end of the stream has been reached.
+         */
+        void fill(InputStream source) {
+            length = 0;
+            try {
+                while(length < data.length) {
+                    int bytesRead = source.read(data, length, data.length - length);
+                    if(bytesRead == -1) {
+                        if(length == 0)
+                            length = -1;
+                        return;
+                    }
+                    length += bytesRead;
+                }
+            } catch(IOException e) {
+                failure = e;
+            } catch(RuntimeException e) {
+                failure = new IOException(e);
+            }
+        }
+    }
+
+}
@@ -18,9 +18,11 @@
 package com.netflix.hollow.core.memory;
 
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.OffHeapSegmentRecycler;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
 import java.util.Arrays;
 import sun.misc.Unsafe;
 
@@ -33,7 +35,11 @@ import sun.misc.Unsafe;
  *
  * Conceptually this can be thought of as a single byte array of undefined length.  The currently allocated buffer will always be
  * a multiple of the size of the segments.  The buffer will grow automatically when a byte is written to an index greater than the
- * currently allocated buffer.
+ * currently allocated buffer.<p>
+ *
+ * If created with an {@link OffHeapSegmentRecycler}, the segments are held outside of the Java heap, and only their addresses are retained.
+ * If read from a {@link MappedDataInputStream}, the segments refer in place to the data in the mapped file.  If such an array is
+ * subsequently written to, its data is first copied to segments obtained from its recycler.
  *
  * @see ArraySegmentRecycler
  *
@@ -45,16 +51,31 @@ public class SegmentedByteArray implements ByteData {
 
     private static final Unsafe unsafe = HollowUnsafeHandle.getUnsafe();
 
+    /// exactly one of segments or segmentAddresses is populated, depending on whether the memory is on or off heap (once mapped data is copied
+    /// onto the heap, the mapped addresses are left in place for concurrent readers, but segments takes precedence).
     private byte[][] segments;
+    private long[] segmentAddresses;
+    /// if the segments were mapped from a file, the mapping is retained here, even once the data has been copied, for any concurrent readers of the mapped segments.
+    private MappedByteBuffer[] mappedBuffers;
+    /// the number of bytes which refer in place to a mapped file, or -1 if the segments are owned by this array.
+    private long mappedLength = -1;
     private final int log2OfSegmentSize;
     private final int bitmask;
     private final ArraySegmentRecycler memoryRecycler;
+    private final OffHeapSegmentRecycler offHeapRecycler;
 
     public SegmentedByteArray(ArraySegmentRecycler memoryRecycler) {
-        this.segments = new byte[2][];
         this.log2OfSegmentSize = memoryRecycler.getLog2OfByteSegmentSize();
         this.bitmask = (1 << log2OfSegmentSize) - 1;
         this.memoryRecycler = memoryRecycler;
+
+        if(memoryRecycler instanceof OffHeapSegmentRecycler) {
+            this.offHeapRecycler = (OffHeapSegmentRecycler)memoryRecycler;
+            this.segmentAddresses = new long[2];
+        } else {
+            this.offHeapRecycler = null;
+            this.segments = new byte[2][];
+        }
     }
 
     /**
@@ -63,14 +84,19 @@ public class SegmentedByteArray implements ByteData {
     public void set(long index, byte value) {
         int segmentIndex = (int)(index >> log2OfSegmentSize);
         ensureCapacity(segmentIndex);
-        segments[segmentIndex][(int)(index & bitmask)] = value;
+        if(segments != null)
+            segments[segmentIndex][(int)(index & bitmask)] = value;
+        else
+            unsafe.putByte(segmentAddresses[segmentIndex] + (index & bitmask), value);
     }
 
     /**
      * Get the value of the byte at the specified index.
      */
     public byte get(long index) {
-        return segments[(int)(index >>> log2OfSegmentSize)][(int)(index & bitmask)];
+        if(segments != null)
+            return segments[(int)(index >>> log2OfSegmentSize)][(int)(index & bitmask)];
+        return unsafe.getByte(segmentAddresses[(int)(index >>> log2OfSegmentSize)] + (index & bitmask));
     }
 
     /**
@@ -96,22 +122,7 @@ public class SegmentedByteArray implements ByteData {
      * @param length
      */
     public void copy(SegmentedByteArray src, long srcPos, long destPos, long length) {
-        int segmentLength = 1 << log2OfSegmentSize;
-        int currentSegment = (int)(destPos >>> log2OfSegmentSize);
-        int segmentStartPos = (int)(destPos & bitmask);
-        int remainingBytesInSegment = segmentLength - segmentStartPos;
-
-        while(length > 0) {
-            int bytesToCopyFromSegment = (int)Math.min(remainingBytesInSegment, length);
-            ensureCapacity(currentSegment);
-            int copiedBytes = src.copy(srcPos, segments[currentSegment], segmentStartPos, bytesToCopyFromSegment);
-
-            srcPos += copiedBytes;
-            length -= copiedBytes;
-            segmentStartPos = 0;
-            remainingBytesInSegment = segmentLength;
-            currentSegment++;
-        }
+        copy(src, srcPos, destPos, length, false);
     }
 
     /**
@@ -120,24 +131,9 @@ public class SegmentedByteArray implements ByteData {
      * @return the number of bytes copied
      */
     public int copy(long srcPos, byte[] data, int destPos, int length) {
-        int segmentSize = 1 << log2OfSegmentSize;
-        int remainingBytesInSegment = (int)(segmentSize - (srcPos & bitmask));
-        int dataPosition = destPos;
-
-        while(length > 0) {
-            byte[] segment = segments[(int)(srcPos >>> log2OfSegmentSize)];
-
-            int bytesToCopyFromSegment = Math.min(remainingBytesInSegment, length);
-
-            System.arraycopy(segment, (int)(srcPos & bitmask), data, dataPosition, bytesToCopyFromSegment);
-
-            dataPosition += bytesToCopyFromSegment;
-            srcPos += bytesToCopyFromSegment;
-            remainingBytesInSegment = segmentSize - (int)(srcPos & bitmask);
-            length -= bytesToCopyFromSegment;
-        }
-
-        return dataPosition - destPos;
+        if(destPos + length > data.length)
+            throw new ArrayIndexOutOfBoundsException(destPos + length);
+        return copy(srcPos, data, (long)Unsafe.ARRAY_BYTE_BASE_OFFSET + destPos, length, false);
     }
 
     /**
@@ -151,6 +147,23 @@ public class SegmentedByteArray implements ByteData {
      * @param length
      */
     public void orderedCopy(SegmentedByteArray src, long srcPos, long destPos, long length) {
+        copy(src, srcPos, destPos, length, true);
+    }
+
+    /**
+     * copies exactly data.length bytes from this SegmentedByteArray into the provided byte array,
+     * guaranteeing that if the update is seen by another thread, then all other writes prior to
+     * this call are also visible to that thread.
+     *
+     * @return the number of bytes copied
+     */
+    public int orderedCopy(long srcPos, byte[] data, int destPos, int length) {
+        if(destPos + length > data.length)
+            throw new ArrayIndexOutOfBoundsException(destPos + length);
+        return copy(srcPos, data, (long)Unsafe.ARRAY_BYTE_BASE_OFFSET + destPos, length, true);
+    }
+
+    private void copy(SegmentedByteArray src, long srcPos, long destPos, long length, boolean ordered) {
         int segmentLength = 1 << log2OfSegmentSize;
         int currentSegment = (int)(destPos >>> log2OfSegmentSize);
         int segmentStartPos = (int)(destPos & bitmask);
@@ -159,7 +172,7 @@ public class SegmentedByteArray implements ByteData {
         while(length > 0) {
             int bytesToCopyFromSegment = (int)Math.min(remainingBytesInSegment, length);
             ensureCapacity(currentSegment);
-            int copiedBytes = src.orderedCopy(srcPos, segments[currentSegment], segmentStartPos, bytesToCopyFromSegment);
+            int copiedBytes = src.copy(srcPos, segmentBase(currentSegment), segmentOffset(currentSegment) + segmentStartPos, bytesToCopyFromSegment, ordered);
 
             srcPos += copiedBytes;
             length -= copiedBytes;
@@ -170,31 +183,33 @@ public class SegmentedByteArray implements ByteData {
     }
 
     /**
-     * copies exactly data.length bytes from this SegmentedByteArray into the provided byte array,
-     * guaranteeing that if the update is seen by another thread, then all other writes prior to
-     * this call are also visible to that thread.
-     *
-     * @return the number of bytes copied
+     * copies exactly length bytes from this SegmentedByteArray to the destination, which is either an array or (if destBase is null) native memory.
      */
-    public int orderedCopy(long srcPos, byte[] data, int destPos, int length) {
+    private int copy(long srcPos, Object destBase, long destOffset, int length, boolean ordered) {
         int segmentSize = 1 << log2OfSegmentSize;
         int remainingBytesInSegment = (int)(segmentSize - (srcPos & bitmask));
-        int dataPosition = destPos;
+        int copiedBytes = 0;
 
         while(length > 0) {
-            byte[] segment = segments[(int)(srcPos >>> log2OfSegmentSize)];
+            int segmentIndex = (int)(srcPos >>> log2OfSegmentSize);
 
             int bytesToCopyFromSegment = Math.min(remainingBytesInSegment, length);
 
-            orderedCopy(segment, (int)(srcPos & bitmask), data, dataPosition, bytesToCopyFromSegment);
+            Object srcBase = segmentBase(segmentIndex);
+            long srcOffset = segmentOffset(segmentIndex) + (srcPos & bitmask);
+
+            if(ordered)
+                orderedCopy(srcBase, srcOffset, destBase, destOffset + copiedBytes, bytesToCopyFromSegment);
+            else
+                unsafe.copyMemory(srcBase, srcOffset, destBase, destOffset + copiedBytes, bytesToCopyFromSegment);
 
-            dataPosition += bytesToCopyFromSegment;
+            copiedBytes += bytesToCopyFromSegment;
             srcPos += bytesToCopyFromSegment;
             remainingBytesInSegment = segmentSize - (int)(srcPos & bitmask);
             length -= bytesToCopyFromSegment;
         }
 
-        return dataPosition - destPos;
+        return copiedBytes;
     }
 
     /**
@@ -204,6 +219,11 @@ public class SegmentedByteArray implements ByteData {
         int segmentSize = 1 << log2OfSegmentSize;
         int segment = 0;
 
+        if(is instanceof MappedDataInputStream && ((MappedDataInputStream)is).canMapInPlace(length, segmentSize)) {
+            mapFrom((MappedDataInputStream)is, length);
+            return;
+        }
+
         byte scratch[] = new byte[segmentSize];
 
         while(length > 0) {
@@ -213,11 +233,30 @@ public class SegmentedByteArray implements ByteData {
             while(bytesCopied < bytesToCopy) {
                 bytesCopied += is.read(scratch, (int)bytesCopied, (int)(bytesToCopy - bytesCopied));
             }
-            orderedCopy(scratch, 0, segments[segment++], 0, (int)bytesCopied);
+            orderedCopy(scratch, Unsafe.ARRAY_BYTE_BASE_OFFSET, segmentBase(segment), segmentOffset(segment), (int)bytesCopied);
+            segment++;
             length -= bytesCopied;
         }
     }
 
+    private void mapFrom(MappedDataInputStream is, long length) throws IOException {
+        int numSegments = (int)((length - 1) >>> log2OfSegmentSize) + 1;
+        long[] segmentAddresses = new long[numSegments];
+
+        for(int i=0;i<numSegments;i++) {
+            segmentAddresses[i] = is.addressOf((long)i << log2OfSegmentSize);
+        }
+
+        this.mappedBuffers = is.getMappedBuffers();
+        this.mappedLength = length;
+        this.segmentAddresses = segmentAddresses;
+        this.segments = null;
+
+        while(length > 0) {
+            length -= is.skip(length);
+        }
+    }
+
     /**
      * Write a portion of this data to an OutputStream.
      */
@@ -225,11 +264,17 @@ public class SegmentedByteArray implements ByteData {
         int segmentSize = 1 << log2OfSegmentSize;
         int remainingBytesInSegment = segmentSize - (int)(startPosition & bitmask);
         long remainingBytesInCopy = len;
+        byte scratch[] = segments == null ? new byte[segmentSize] : null;
 
         while(remainingBytesInCopy > 0) {
             long bytesToCopyFromSegment = Math.min(remainingBytesInSegment, remainingBytesInCopy);
 
-            os.write(segments[(int)(startPosition >>> log2OfSegmentSize)], (int)(startPosition & bitmask), (int)bytesToCopyFromSegment);
+            if(segments != null) {
+                os.write(segments[(int)(startPosition >>> log2OfSegmentSize)], (int)(startPosition & bitmask), (int)bytesToCopyFromSegment);
+            } else {
+                copy(startPosition, scratch, Unsafe.ARRAY_BYTE_BASE_OFFSET, (int)bytesToCopyFromSegment, false);
+                os.write(scratch, 0, (int)bytesToCopyFromSegment);
+            }
 
             startPosition += bytesToCopyFromSegment;
             remainingBytesInSegment = segmentSize - (int)(startPosition & bitmask);
@@ -237,12 +282,11 @@ public class SegmentedByteArray implements ByteData {
         }
     }
 
-    private void orderedCopy(byte[] src, int srcPos, byte[] dest, int destPos, int length) {
-        int endSrcPos = srcPos + length;
-        destPos += Unsafe.ARRAY_BYTE_BASE_OFFSET;
+    private void orderedCopy(Object srcBase, long srcOffset, Object destBase, long destOffset, int length) {
+        long endSrcOffset = srcOffset + length;
 
-        while(srcPos < endSrcPos) {
-            unsafe.putByteVolatile(dest, destPos++, src[srcPos++]);
+        while(srcOffset < endSrcOffset) {
+            unsafe.putByteVolatile(destBase, destOffset++, unsafe.getByte(srcBase, srcOffset++));
         }
     }
 
@@ -252,27 +296,128 @@ public class SegmentedByteArray implements ByteData {
      * @param segmentIndex
      */
     private void ensureCapacity(int segmentIndex) {
-        while(segmentIndex >= segments.length) {
-            segments = Arrays.copyOf(segments, segments.length * 3 / 2);
+        if(mappedLength != -1)
+            copyMappedSegments();
+
+        if(segments != null) {
+            while(segmentIndex >= segments.length) {
+                segments = Arrays.copyOf(segments, segments.length * 3 / 2);
+            }
+
+            if(segments[segmentIndex] == null) {
+                segments[segmentIndex] = memoryRecycler.getByteArray();
+            }
+        } else {
+            while(segmentIndex >= segmentAddresses.length) {
+                segmentAddresses = Arrays.copyOf(segmentAddresses, segmentAddresses.length * 3 / 2);
+            }
+
+            if(segmentAddresses[segmentIndex] == 0) {
+                segmentAddresses[segmentIndex] = offHeapRecycler.getByteSegment();
+            }
         }
+    }
 
-        if(segments[segmentIndex] == null) {
-            segments[segmentIndex] = memoryRecycler.getByteArray();
+    /**
+     * Copy the segments which refer in place to a mapped file into segments owned by this array, so that they may be written.
+     * Each new segment is fully populated before it is published, so concurrent readers see the same data throughout.
+     */
+    private void copyMappedSegments() {
+        int segmentSize = 1 << log2OfSegmentSize;
+        long[] mappedAddresses = segmentAddresses;
+
+        if(offHeapRecycler != null) {
+            long[] ownedAddresses = new long[Math.max(mappedAddresses.length, 2)];
+            for(int i=0;i<mappedAddresses.length;i++) {
+                ownedAddresses[i] = offHeapRecycler.getByteSegment();
+                unsafe.copyMemory(null, mappedAddresses[i], null, ownedAddresses[i], mappedBytesInSegment(i, segmentSize));
+            }
+            this.segmentAddresses = ownedAddresses;
+        } else {
+            byte[][] ownedSegments = new byte[Math.max(mappedAddresses.length, 2)][];
+            for(int i=0;i<mappedAddresses.length;i++) {
+                ownedSegments[i] = memoryRecycler.getByteArray();
+                unsafe.copyMemory(null, mappedAddresses[i], ownedSegments[i], Unsafe.ARRAY_BYTE_BASE_OFFSET, mappedBytesInSegment(i, segmentSize));
+            }
+            this.segments = ownedSegments;
         }
+
+        this.mappedLength = -1;
+    }
+
+    /**
+     * The final mapped segment may extend beyond the end of the mapping, so only the mapped bytes are copied.
+     */
+    private long mappedBytesInSegment(int segmentIndex, int segmentSize) {
+        return Math.min(segmentSize, mappedLength - ((long)segmentIndex << log2OfSegmentSize));
+    }
+
+    /**
+     * @return the array holding the specified segment, or null if the segment is off-heap.
+     */
+    private Object segmentBase(int segmentIndex) {
+        return segments != null ? segments[segmentIndex] : null;
+    }
+
+    /**
+     * @return the offset of the specified segment within its {@link #segmentBase(int)}, or its absolute address if the segment is off-heap.
+     */
+    private long segmentOffset(int segmentIndex) {
+        return segments != null ? Unsafe.ARRAY_BYTE_BASE_OFFSET : segmentAddresses[segmentIndex];
+    }
+
+    /**
+     * Allocate every segment required to hold the specified number of bytes.<p>
+     *
+     * Once the segments are allocated, distinct ranges below the returned length may be written concurrently, provided that
+     * the allocating thread publishes the returned length to each writer through a volatile write.  Calls to this method
+     * must not be concurrent with each other.
+     *
+     * @return the number of bytes which the allocated segments hold, which is at least the specified length.
+     */
+    public long allocate(long length) {
+        int lastSegment = (int)((length - 1) >>> log2OfSegmentSize);
+        for(int i=lastSegment;i>=0 && !isAllocated(i);i--)
+            ensureCapacity(i);
+
+        return (long)(lastSegment + 1) << log2OfSegmentSize;
+    }
+
+    private boolean isAllocated(int segmentIndex) {
+        if(segments != null)
+            return segmentIndex < segments.length && segments[segmentIndex] != null;
+        return segmentIndex < segmentAddresses.length && segmentAddresses[segmentIndex] != 0;
     }
 
     public void destroy() {
-        for(int i=0;i<segments.length;i++) {
-            if(segments[i] != null)
-                memoryRecycler.recycleByteArray(segments[i]);
+        if(mappedLength != -1)
+            return;
+
+        if(segments != null) {
+            for(int i=0;i<segments.length;i++) {
+                if(segments[i] != null)
+                    memoryRecycler.recycleByteArray(segments[i]);
+            }
+        } else {
+            for(int i=0;i<segmentAddresses.length;i++) {
+                if(segmentAddresses[i] != 0)
+                    offHeapRecycler.recycleByteSegment(segmentAddresses[i]);
+            }
         }
     }
 
     public long size() {
         long size = 0;
-        for(int i=0;i<segments.length;i++) {
-            if(segments[i] != null)
-                size += segments[i].length;
+        if(segments != null) {
+            for(int i=0;i<segments.length;i++) {
+                if(segments[i] != null)
+                    size += segments[i].length;
+            }
+        } else {
+            for(int i=0;i<segmentAddresses.length;i++) {
+                if(segmentAddresses[i] != 0)
+                    size += 1 << log2OfSegmentSize;
+            }
         }
 
         return size;
@@ -20,9 +20,11 @@ package com.netflix.hollow.core.memory;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.OffHeapSegmentRecycler;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
 import sun.misc.Unsafe;
 
 /**
@@ -32,7 +34,12 @@ import sun.misc.Unsafe;
  *
  * Conceptually this can be thought of as a single long array of undefined length.  The currently allocated buffer will always be
  * a multiple of the size of the segments.  The buffer will grow automatically when a byte is written to an index greater than the
- * currently allocated buffer.
+ * currently allocated buffer.<p>
+ * 
+ * If created with an {@link OffHeapSegmentRecycler}, the segments are held outside of the Java heap, and only their addresses are retained.<p>
+ * 
+ * If deserialized from a {@link MappedDataInputStream}, the segments refer in place to the serialized data in the mapped file.  The 
+ * serialized longs are big-endian, so they are byte-swapped as they are read.  Such an array is read-only.
  *
  * @author dkoszewnik
  *
@@ -42,27 +49,76 @@ public class SegmentedLongArray {
 
     private static final Unsafe unsafe = HollowUnsafeHandle.getUnsafe();
 
+    /// exactly one of segments or segmentAddresses is populated, depending on whether the memory is on or off heap.
     protected final long[][] segments;
+    protected final long[] segmentAddresses;
+    /// if the segments refer to a mapped file, the mapping is retained here.
+    protected final MappedByteBuffer[] mappedBuffers;
     protected final int log2OfSegmentSize;
     protected final int bitmask;
+    /// off-heap segments are returned to the recycler which supplied them, whichever recycler is passed to destroy.
+    private final OffHeapSegmentRecycler offHeapRecycler;
 
     public SegmentedLongArray(ArraySegmentRecycler memoryRecycler, long numLongs) {
         this.log2OfSegmentSize = memoryRecycler.getLog2OfLongSegmentSize();
         int numSegments = (int)((numLongs - 1) >>> log2OfSegmentSize) + 1;
-        long[][] segments = new long[numSegments][];
         this.bitmask = (1 << log2OfSegmentSize) - 1;
 
-        for(int i=0;i<segments.length;i++) {
-            segments[i] = memoryRecycler.getLongArray();
+        if(memoryRecycler instanceof OffHeapSegmentRecycler) {
+            this.offHeapRecycler = (OffHeapSegmentRecycler)memoryRecycler;
+            long[] segmentAddresses = new long[numSegments];
+
+            for(int i=0;i<segmentAddresses.length;i++) {
+                segmentAddresses[i] = offHeapRecycler.getLongSegment();
+            }
+
+            /// see the comment below, the same applies to off-heap addresses.
+            this.segmentAddresses = segmentAddresses;
+            this.segments = null;
+        } else {
+            this.offHeapRecycler = null;
+            long[][] segments = new long[numSegments][];
+
+            for(int i=0;i<segments.length;i++) {
+                segments[i] = memoryRecycler.getLongArray();
+            }
+
+            /// The following assignment is purposefully placed *after* the population of all segments.
+            /// The final assignment after the initialization of the array guarantees that no thread
+            /// will see any of the array elements before assignment.
+            /// We can't risk the segment values being visible as null to any thread, because
+            /// FixedLengthElementArray uses Unsafe to access these values, which would cause the
+            /// JVM to crash with a segmentation fault.
+            this.segments = segments;
+            this.segmentAddresses = null;
         }
 
-        /// The following assignment is purposefully placed *after* the population of all segments.
-        /// The final assignment after the initialization of the array guarantees that no thread
-        /// will see any of the array elements before assignment.
-        /// We can't risk the segment values being visible as null to any thread, because
-        /// FixedLengthElementArray uses Unsafe to access these values, which would cause the
-        /// JVM to crash with a segmentation fault.
-        this.segments = segments;
+        this.mappedBuffers = null;
+    }
+
+    /**
+     * Create a read-only SegmentedLongArray which refers in place to the specified number of serialized longs, beginning at 
+     * the current position of the MappedDataInputStream.
+     */
+    protected SegmentedLongArray(MappedDataInputStream is, int log2OfSegmentSize, long numLongs) throws IOException {
+        this.log2OfSegmentSize = log2OfSegmentSize;
+        this.bitmask = (1 << log2OfSegmentSize) - 1;
+        int numSegments = (int)((numLongs - 1) >>> log2OfSegmentSize) + 1;
+        long[] segmentAddresses = new long[numSegments];
+
+        for(int i=0;i<numSegments;i++) {
+            segmentAddresses[i] = is.addressOf((long)i << (log2OfSegmentSize + 3));
+        }
+
+        this.segments = null;
+        this.segmentAddresses = segmentAddresses;
+        this.mappedBuffers = is.getMappedBuffers();
+        this.offHeapRecycler = null;
+
+        long bytesToSkip = numLongs * 8;
+        while(bytesToSkip > 0) {
+            bytesToSkip -= is.skip(bytesToSkip);
+        }
     }
 
     /**
@@ -71,11 +127,11 @@ public class SegmentedLongArray {
     public void set(long index, long value) {
         int segmentIndex = (int)(index >> log2OfSegmentSize);
         int longInSegment = (int)(index & bitmask);
-        unsafe.putOrderedLong(segments[segmentIndex], (long)Unsafe.ARRAY_LONG_BASE_OFFSET + (8 * longInSegment), value);
+        unsafe.putOrderedLong(segmentBase(segmentIndex), segmentOffset(segmentIndex) + (8 * longInSegment), value);
 
         /// duplicate the longs here so that we can read faster.
         if(longInSegment == 0 && segmentIndex != 0)
-            unsafe.putOrderedLong(segments[segmentIndex - 1], (long)Unsafe.ARRAY_LONG_BASE_OFFSET + (8 * (1 << log2OfSegmentSize)), value);
+            unsafe.putOrderedLong(segmentBase(segmentIndex - 1), segmentOffset(segmentIndex - 1) + (8 * (1 << log2OfSegmentSize)), value);
     }
 
     /**
@@ -83,19 +139,32 @@ public class SegmentedLongArray {
      */
     public long get(long index) {
         int segmentIndex = (int)(index >>> log2OfSegmentSize);
-        return segments[segmentIndex][(int)(index & bitmask)];
+        if(segments != null)
+            return segments[segmentIndex][(int)(index & bitmask)];
+        long l = unsafe.getLong(segmentAddresses[segmentIndex] + (8 * (index & bitmask)));
+        return mappedBuffers == null ? l : Long.reverseBytes(l);
     }
 
     public void fill(long value) {
-        for(int i=0;i<segments.length;i++) {
-            long offset = Unsafe.ARRAY_LONG_BASE_OFFSET;
-            for(int j=0;j<segments[i].length;j++) {
-                unsafe.putOrderedLong(segments[i], offset, value);
+        int longsPerSegment = (1 << log2OfSegmentSize) + 1;
+        for(int i=0;i<numSegments();i++) {
+            Object base = segmentBase(i);
+            long offset = segmentOffset(i);
+            for(int j=0;j<longsPerSegment;j++) {
+                unsafe.putOrderedLong(base, offset, value);
                 offset += 8;
             }
         }
     }
 
+    /**
+     * @return the number of bytes occupied by the segments of this array, including the duplicated long at the end of each segment.
+     */
+    public long sizeInBytes() {
+        long longsPerSegment = mappedBuffers != null ? (1 << log2OfSegmentSize) : (1 << log2OfSegmentSize) + 1;
+        return numSegments() * longsPerSegment * 8;
+    }
+
     public void writeTo(DataOutputStream dos, long numLongs) throws IOException {
         VarInt.writeVLong(dos, numLongs);
 
@@ -105,15 +174,27 @@ public class SegmentedLongArray {
     }
 
     public void destroy(ArraySegmentRecycler memoryRecycler) {
-        for(int i=0;i<segments.length;i++) {
-            if(segments[i] != null)
-                memoryRecycler.recycleLongArray(segments[i]);
+        if(mappedBuffers != null)
+            return;
+
+        if(segments != null) {
+            for(int i=0;i<segments.length;i++) {
+                if(segments[i] != null)
+                    memoryRecycler.recycleLongArray(segments[i]);
+            }
+        } else {
+            for(int i=0;i<segmentAddresses.length;i++) {
+                offHeapRecycler.recycleLongSegment(segmentAddresses[i]);
+            }
         }
     }
 
     public static SegmentedLongArray deserializeFrom(DataInputStream dis, ArraySegmentRecycler memoryRecycler) throws IOException {
         long numLongs = VarInt.readVLong(dis);
 
+        if(canMapInPlace(dis, memoryRecycler, numLongs))
+            return new SegmentedLongArray((MappedDataInputStream)dis, memoryRecycler.getLog2OfLongSegmentSize(), numLongs);
+
         SegmentedLongArray arr = new SegmentedLongArray(memoryRecycler, numLongs);
 
         arr.readFrom(dis, memoryRecycler, numLongs);
@@ -132,23 +213,48 @@ public class SegmentedLongArray {
 
         while(numLongs > 0) {
             long longsToCopy = Math.min(segmentSize, numLongs);
+            Object base = segmentBase(segment);
+            long offset = segmentOffset(segment);
 
-            unsafe.putOrderedLong(segments[segment], (long)Unsafe.ARRAY_LONG_BASE_OFFSET, fencepostLong);
+            unsafe.putOrderedLong(base, offset, fencepostLong);
 
             int longsCopied = 1;
 
             while(longsCopied < longsToCopy) {
                 long l = dis.readLong();
-                unsafe.putOrderedLong(segments[segment], (long)Unsafe.ARRAY_LONG_BASE_OFFSET + (8 * longsCopied++), l);
+                unsafe.putOrderedLong(base, offset + (8 * longsCopied++), l);
             }
 
             if(numLongs > longsCopied) {
-                unsafe.putOrderedLong(segments[segment], (long)Unsafe.ARRAY_LONG_BASE_OFFSET + (8 * longsCopied), dis.readLong());
-                fencepostLong = segments[segment][longsCopied];
+                fencepostLong = dis.readLong();
+                unsafe.putOrderedLong(base, offset + (8 * longsCopied), fencepostLong);
             }
 
             segment++;
             numLongs -= longsCopied;
         }
     }
+
+    protected static boolean canMapInPlace(DataInputStream dis, ArraySegmentRecycler memoryRecycler, long numLongs) {
+        return dis instanceof MappedDataInputStream 
+                && ((MappedDataInputStream)dis).canMapInPlace(numLongs * 8, 8 << memoryRecycler.getLog2OfLongSegmentSize());
+    }
+
+    protected final int numSegments() {
+        return segments != null ? segments.length : segmentAddresses.length;
+    }
+
+    /**
+     * @return the array holding the specified segment, or null if the segment is off-heap.
+     */
+    protected final Object segmentBase(int segmentIndex) {
+        return segments != null ? segments[segmentIndex] : null;
+    }
+
+    /**
+     * @return the offset of the specified segment within its {@link #segmentBase(int)}, or its absolute address if the segment is off-heap.
+     */
+    protected final long segmentOffset(int segmentIndex) {
+        return segments != null ? Unsafe.ARRAY_LONG_BASE_OFFSET : segmentAddresses[segmentIndex];
+    }
 }
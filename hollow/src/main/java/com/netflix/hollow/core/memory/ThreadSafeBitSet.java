@@ -103,6 +103,31 @@ public class ThreadSafeBitSet {
         }
     }
 
+    /**
+     * Clear the bit at the specified position, if it is set.
+     *
+     * @return true if this call cleared the bit, or false if it was already clear.
+     */
+    public boolean clearIfSet(int position) {
+        int segmentPosition = position >>> log2SegmentSize; /// which segment -- div by num bits per segment
+        int longPosition = (position >>> 6) & segmentMask; /// which long in the segment -- remainder of div by num bits per segment
+        int bitPosition = position & 0x3F; /// which bit in the long -- remainder of div by num bits in long (64)
+
+        AtomicLongArray segment = getSegment(segmentPosition);
+
+        long mask = 1L << bitPosition;
+
+        while(true) {
+            long currentLongValue = segment.get(longPosition);
+            if((currentLongValue & mask) == 0)
+                return false;
+
+            // only one of any number of racing threads observes the bit as set and wins the race to clear it.
+            if(segment.compareAndSet(longPosition, currentLongValue, currentLongValue & ~mask))
+                return true;
+        }
+    }
+
     public boolean get(int position) {
         int segmentPosition = position >>> log2SegmentSize; /// which segment -- div by num bits per segment
         int longPosition = (position >>> 6) & segmentMask; /// which long in the segment -- remainder of div by num bits per segment
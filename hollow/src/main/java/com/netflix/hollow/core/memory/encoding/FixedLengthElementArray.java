@@ -18,6 +18,7 @@
 package com.netflix.hollow.core.memory.encoding;
 
 import com.netflix.hollow.core.memory.HollowUnsafeHandle;
+import com.netflix.hollow.core.memory.MappedDataInputStream;
 import com.netflix.hollow.core.memory.SegmentedLongArray;
 
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
@@ -40,6 +41,11 @@ import sun.misc.Unsafe;
  * Note that for performance reasons, this class makes use of sun.misc.Unsafe to perform unaligned
  * memory reads.  This is designed exclusively for little-endian architectures, and has only been 
  * fully battle-tested on x86-64. 
+ * <p>
+ * The same unaligned reads are performed against native memory when the array is backed by an 
+ * {@link com.netflix.hollow.core.memory.pool.OffHeapSegmentRecycler}.  When the array refers in place to a 
+ * {@link MappedDataInputStream}, the longs are big-endian, so elements are instead read from the two aligned 
+ * longs which contain them.
  */
 @SuppressWarnings("restriction")
 public class FixedLengthElementArray extends SegmentedLongArray {
@@ -55,6 +61,12 @@ public class FixedLengthElementArray extends SegmentedLongArray {
         this.byteBitmask = (1 << log2OfSegmentSizeInBytes) - 1;
     }
 
+    private FixedLengthElementArray(MappedDataInputStream is, int log2OfSegmentSize, long numLongs) throws IOException {
+        super(is, log2OfSegmentSize, numLongs);
+        this.log2OfSegmentSizeInBytes = log2OfSegmentSize + 3;
+        this.byteBitmask = (1 << log2OfSegmentSizeInBytes) - 1;
+    }
+
     public void clearElementValue(long index, int bitsPerElement) {
         long whichLong = index >>> 6;
         int whichBit = (int) (index & 0x3F);
@@ -91,9 +103,26 @@ public class FixedLengthElementArray extends SegmentedLongArray {
 
         int whichSegment = (int) (whichByte >>> log2OfSegmentSizeInBytes);
 
-        long[] segment = segments[whichSegment];
-        long elementByteOffset = (long)Unsafe.ARRAY_LONG_BASE_OFFSET + (whichByte & byteBitmask);
-        long l = unsafe.getLong(segment, elementByteOffset) >>> whichBit;
+        long l;
+        if(segments != null) {
+            long[] segment = segments[whichSegment];
+            long elementByteOffset = (long)Unsafe.ARRAY_LONG_BASE_OFFSET + (whichByte & byteBitmask);
+            l = unsafe.getLong(segment, elementByteOffset) >>> whichBit;
+        } else if(mappedBuffers == null) {
+            l = unsafe.getLong(segmentAddresses[whichSegment] + (whichByte & byteBitmask)) >>> whichBit;
+        } else {
+            /// mapped longs are big-endian and have no duplicated fencepost long, so read the aligned long(s) containing the element.
+            long whichLong = index >>> 6;
+            int whichBitInLong = (int) (index & 0x3F);
+            int whichLongSegment = (int) (whichLong >>> log2OfSegmentSize);
+            long address = segmentAddresses[whichLongSegment] + (8 * (whichLong & bitmask));
+            l = Long.reverseBytes(unsafe.getLong(address)) >>> whichBitInLong;
+
+            if(whichBitInLong + bitsPerElement > 64) {
+                long nextAddress = (whichLong & bitmask) == bitmask ? segmentAddresses[whichLongSegment + 1] : address + 8;
+                l |= Long.reverseBytes(unsafe.getLong(nextAddress)) << (64 - whichBitInLong);
+            }
+        }
 
         return l & mask;
     }
@@ -164,23 +193,27 @@ public class FixedLengthElementArray extends SegmentedLongArray {
 
         int whichSegment = (int) (whichByte >>> log2OfSegmentSizeInBytes);
 
-        long[] segment = segments[whichSegment];
-        long elementByteOffset = (long)Unsafe.ARRAY_LONG_BASE_OFFSET + (whichByte & byteBitmask);
-        long l = unsafe.getLong(segment, elementByteOffset);
+        Object segmentBase = segmentBase(whichSegment);
+        long segmentOffset = segmentOffset(whichSegment);
+        long elementByteOffset = segmentOffset + (whichByte & byteBitmask);
+        long l = unsafe.getLong(segmentBase, elementByteOffset);
 
-        unsafe.putOrderedLong(segment, elementByteOffset, l + (increment << whichBit));
+        unsafe.putOrderedLong(segmentBase, elementByteOffset, l + (increment << whichBit));
 
         /// update the fencepost longs
-        if((whichByte & byteBitmask) > bitmask * 8 && (whichSegment + 1) < segments.length)
-            unsafe.putOrderedLong(segments[whichSegment + 1], (long)Unsafe.ARRAY_LONG_BASE_OFFSET, segments[whichSegment][bitmask + 1]);
+        if((whichByte & byteBitmask) > bitmask * 8 && (whichSegment + 1) < numSegments())
+            unsafe.putOrderedLong(segmentBase(whichSegment + 1), segmentOffset(whichSegment + 1), unsafe.getLong(segmentBase, segmentOffset + (8 * (bitmask + 1))));
         if((whichByte & byteBitmask) < 8 && whichSegment > 0)
-            unsafe.putOrderedLong(segments[whichSegment - 1], (long)Unsafe.ARRAY_LONG_BASE_OFFSET + (8 * (bitmask + 1)), segments[whichSegment][0]);
+            unsafe.putOrderedLong(segmentBase(whichSegment - 1), segmentOffset(whichSegment - 1) + (8 * (bitmask + 1)), unsafe.getLong(segmentBase, segmentOffset));
     }
 
 
     public static FixedLengthElementArray deserializeFrom(DataInputStream dis, ArraySegmentRecycler memoryRecycler) throws IOException {
         long numLongs = VarInt.readVLong(dis);
 
+        if(canMapInPlace(dis, memoryRecycler, numLongs))
+            return new FixedLengthElementArray((MappedDataInputStream)dis, memoryRecycler.getLog2OfLongSegmentSize(), numLongs);
+
         FixedLengthElementArray arr = new FixedLengthElementArray(memoryRecycler, numLongs * 64);
 
         arr.readFrom(dis, memoryRecycler, numLongs);
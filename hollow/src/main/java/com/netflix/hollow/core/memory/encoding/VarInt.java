@@ -19,6 +19,8 @@ package com.netflix.hollow.core.memory.encoding;
 
 import com.netflix.hollow.core.memory.ByteData;
 import com.netflix.hollow.core.memory.ByteDataBuffer;
+import com.netflix.hollow.core.memory.PipelinedDataInputStream;
+import com.netflix.hollow.core.memory.SegmentedByteArray;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -114,6 +116,22 @@ public class VarInt {
         return pos;
     }
 
+    /**
+     * Write the value as a VarInt into the {@link SegmentedByteArray}, starting at the specified position.
+     * 
+     * Returns the next position after the VarInt has been written.
+     */
+    public static long writeVInt(SegmentedByteArray arr, long pos, int value) {
+        if(value > 0x0FFFFFFF || value < 0) arr.set(pos++, (byte)(0x80 | ((value >>> 28))));
+        if(value > 0x1FFFFF || value < 0)   arr.set(pos++, (byte)(0x80 | ((value >>> 21) & 0x7F)));
+        if(value > 0x3FFF || value < 0)     arr.set(pos++, (byte)(0x80 | ((value >>> 14) & 0x7F)));
+        if(value > 0x7F || value < 0)       arr.set(pos++, (byte)(0x80 | ((value >>>  7) & 0x7F)));
+
+        arr.set(pos++, (byte)(value & 0x7F));
+
+        return pos;
+    }
+
     /**
      * Determine whether or not the value at the specified position in the supplied {@link ByteData} is 
      * a 'null' variable length integer.
@@ -145,6 +163,9 @@ public class VarInt {
      * Read a variable length integer from the supplied InputStream
      */
     public static int readVInt(InputStream in) throws IOException {
+        if(in instanceof PipelinedDataInputStream)
+            return ((PipelinedDataInputStream)in).readVInt();
+
         byte b = (byte)in.read();
 
         if(b == (byte) 0x80)
@@ -202,6 +223,9 @@ public class VarInt {
      * Read a variable length long from the supplied InputStream.
      */
     public static long readVLong(InputStream in) throws IOException {
+        if(in instanceof PipelinedDataInputStream)
+            return ((PipelinedDataInputStream)in).readVLong();
+
         byte b = (byte)in.read();
 
         if(b == (byte) 0x80)
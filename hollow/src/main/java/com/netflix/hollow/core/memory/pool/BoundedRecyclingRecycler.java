@@ -0,0 +1,238 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory.pool;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A BoundedRecyclingRecycler is an {@link ArraySegmentRecycler} which, like the {@link RecyclingRecycler}, pools arrays, but 
+ * caps the total number of bytes retained in its pools.
+ * <p>
+ * The {@link RecyclingRecycler} retains every recycled segment.  When a large delta is applied, the segments released by the
+ * prior state are retained in addition to the segments allocated for the new state, so the peak memory footprint during a
+ * refresh may approach double the size of the data.  With a BoundedRecyclingRecycler, once the pools reach the configured 
+ * maximum, recycled segments are left for the garbage collector according to the {@link EvictionPolicy}.
+ * <p>
+ * Segments of each size class (long segments and byte segments) are pooled separately, but count against the same maximum.
+ * Counters of pool hits, misses, evictions, and retained bytes are maintained so that the effect of the maximum can be measured.
+ * <p>
+ * This class is not thread-safe.  Wrap it with a {@link SynchronizedRecycler} if it will be used by multiple threads.
+ */
+public class BoundedRecyclingRecycler implements ArraySegmentRecycler {
+
+    public enum EvictionPolicy {
+        /**
+         * When the pools are full, a recycled segment is discarded.  Segments already pooled are retained.
+         */
+        DISCARD_RECYCLED,
+        /**
+         * When the pools are full, segments already pooled are discarded, oldest first, to make room for a recycled segment.
+         * Segments of the same size class are evicted before segments of the other size class.
+         */
+        EVICT_OLDEST
+    }
+
+    private final int log2OfByteSegmentSize;
+    private final int log2OfLongSegmentSize;
+    private final long maxPooledBytes;
+    private final EvictionPolicy evictionPolicy;
+
+    private final Pool<long[]> longSegmentPool;
+    private final Pool<byte[]> byteSegmentPool;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private volatile long retainedBytes;
+    private volatile long peakRetainedBytes;
+
+    public BoundedRecyclingRecycler(long maxPooledBytes) {
+        this(11, 8, maxPooledBytes, EvictionPolicy.DISCARD_RECYCLED);
+    }
+
+    public BoundedRecyclingRecycler(int log2ByteArraySize, int log2LongArraySize, long maxPooledBytes, EvictionPolicy evictionPolicy) {
+        this.log2OfByteSegmentSize = log2ByteArraySize;
+        this.log2OfLongSegmentSize = log2LongArraySize;
+        this.maxPooledBytes = maxPooledBytes;
+        this.evictionPolicy = evictionPolicy;
+        this.longSegmentPool = new Pool<long[]>(((1L << log2LongArraySize) + 1) * 8);
+        this.byteSegmentPool = new Pool<byte[]>(1L << log2ByteArraySize);
+    }
+
+    @Override
+    public int getLog2OfByteSegmentSize() {
+        return log2OfByteSegmentSize;
+    }
+
+    @Override
+    public int getLog2OfLongSegmentSize() {
+        return log2OfLongSegmentSize;
+    }
+
+    @Override
+    public long[] getLongArray() {
+        long[] arr = longSegmentPool.get();
+        if(arr == null)
+            return new long[(1 << log2OfLongSegmentSize) + 1];
+
+        Arrays.fill(arr, 0);
+        return arr;
+    }
+
+    @Override
+    public void recycleLongArray(long[] arr) {
+        if(arr.length == (1 << log2OfLongSegmentSize) + 1)
+            recycle(longSegmentPool, byteSegmentPool, arr);
+    }
+
+    @Override
+    public byte[] getByteArray() {
+        byte[] arr = byteSegmentPool.get();
+        if(arr == null)
+            return new byte[1 << log2OfByteSegmentSize];
+        return arr;
+    }
+
+    @Override
+    public void recycleByteArray(byte[] arr) {
+        if(arr.length == 1 << log2OfByteSegmentSize)
+            recycle(byteSegmentPool, longSegmentPool, arr);
+    }
+
+    @Override
+    public void swap() {
+        longSegmentPool.swap();
+        byteSegmentPool.swap();
+    }
+
+    private <T> void recycle(Pool<T> pool, Pool<?> otherPool, T arr) {
+        if(retainedBytes + pool.segmentBytes > maxPooledBytes) {
+            if(evictionPolicy == EvictionPolicy.DISCARD_RECYCLED || pool.segmentBytes > maxPooledBytes) {
+                evictions.incrementAndGet();
+                return;
+            }
+
+            while(retainedBytes + pool.segmentBytes > maxPooledBytes) {
+                if(!pool.evictOldest() && !otherPool.evictOldest())
+                    break;
+            }
+        }
+
+        pool.recycle(arr);
+    }
+
+    /**
+     * @return the number of segments which were served from the pools.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of segments which had to be allocated because the pools held none available.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of recycled segments which were discarded, or evicted from the pools, because the pools were full.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the number of bytes currently held in the pools.
+     */
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * @return the maximum number of bytes held in the pools at any one time.
+     */
+    public long getPeakRetainedBytes() {
+        return peakRetainedBytes;
+    }
+
+    public long getMaxPooledBytes() {
+        return maxPooledBytes;
+    }
+
+    public EvictionPolicy getEvictionPolicy() {
+        return evictionPolicy;
+    }
+
+    /**
+     * A pool of segments of a single size.  Recycled segments become available for reuse after the next swap.
+     */
+    private class Pool<T> {
+        private final long segmentBytes;
+        private final ArrayDeque<T> currentSegments;
+        private final ArrayDeque<T> nextSegments;
+
+        Pool(long segmentBytes) {
+            this.segmentBytes = segmentBytes;
+            this.currentSegments = new ArrayDeque<T>();
+            this.nextSegments = new ArrayDeque<T>();
+        }
+
+        T get() {
+            T segment = currentSegments.pollFirst();
+            if(segment == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            hits.incrementAndGet();
+            retainedBytes -= segmentBytes;
+            return segment;
+        }
+
+        void recycle(T segment) {
+            nextSegments.addLast(segment);
+            retainedBytes += segmentBytes;
+            if(retainedBytes > peakRetainedBytes)
+                peakRetainedBytes = retainedBytes;
+        }
+
+        /**
+         * Segments available for reuse are older than those awaiting the next swap, so are evicted first.
+         */
+        boolean evictOldest() {
+            T evicted = currentSegments.pollFirst();
+            if(evicted == null)
+                evicted = nextSegments.pollFirst();
+            if(evicted == null)
+                return false;
+
+            evictions.incrementAndGet();
+            retainedBytes -= segmentBytes;
+            return true;
+        }
+
+        void swap() {
+            currentSegments.addAll(nextSegments);
+            nextSegments.clear();
+        }
+    }
+
+}
@@ -0,0 +1,327 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory.pool;
+
+import com.netflix.hollow.core.memory.HollowUnsafeHandle;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import sun.misc.Unsafe;
+
+/**
+ * A ByteBufferRecycler is an {@link OffHeapSegmentRecycler} which carves segments out of large direct or memory-mapped 
+ * {@link ByteBuffer}s, and pools them in the same way as a {@link RecyclingRecycler}.
+ * <p>
+ * When constructed with a directory, each slab of memory is mapped from a temporary file in that directory, so the 
+ * operating system may page the data out to disk rather than requiring it to be resident.  Otherwise, slabs are 
+ * allocated with {@link ByteBuffer#allocateDirect(int)}.
+ * <p>
+ * Slabs are retained until {@link #trim()} is called, which releases each slab of which every segment is pooled and
+ * available for reuse.  Like the {@link RecyclingRecycler}, this class is not thread-safe.
+ */
+@SuppressWarnings("restriction")
+public class ByteBufferRecycler implements OffHeapSegmentRecycler {
+
+    private static final Unsafe unsafe = HollowUnsafeHandle.getUnsafe();
+
+    private static final int DEFAULT_SLAB_SIZE = 1 << 26;
+
+    private final int log2OfByteSegmentSize;
+    private final int log2OfLongSegmentSize;
+    private final int byteSegmentSizeInBytes;
+    private final int longSegmentSizeInBytes;
+    private final File mappedFileDirectory;
+
+    private final RecyclingRecycler heapRecycler;
+    private final AddressPool longSegments;
+    private final AddressPool byteSegments;
+
+    /// slabs, keyed by the address of their first byte.
+    private final TreeMap<Long, Slab> slabs;
+    private Slab currentSlab;
+    private long currentSlabAddress;
+    private long currentSlabRemainingBytes;
+
+    public ByteBufferRecycler() {
+        this(11, 8);
+    }
+
+    /**
+     * Create a ByteBufferRecycler which allocates direct memory.
+     */
+    public ByteBufferRecycler(int log2OfByteSegmentSize, int log2OfLongSegmentSize) {
+        this(log2OfByteSegmentSize, log2OfLongSegmentSize, null);
+    }
+
+    /**
+     * Create a ByteBufferRecycler which maps memory from temporary files created in the specified directory.  
+     * The files are deleted as soon as they are mapped.
+     */
+    public ByteBufferRecycler(int log2OfByteSegmentSize, int log2OfLongSegmentSize, File mappedFileDirectory) {
+        this.log2OfByteSegmentSize = log2OfByteSegmentSize;
+        this.log2OfLongSegmentSize = log2OfLongSegmentSize;
+        this.byteSegmentSizeInBytes = 1 << log2OfByteSegmentSize;
+        this.longSegmentSizeInBytes = ((1 << log2OfLongSegmentSize) + 1) * 8;
+        this.mappedFileDirectory = mappedFileDirectory;
+        this.heapRecycler = new RecyclingRecycler(log2OfByteSegmentSize, log2OfLongSegmentSize);
+        this.longSegments = new AddressPool();
+        this.byteSegments = new AddressPool();
+        this.slabs = new TreeMap<Long, Slab>();
+    }
+
+    @Override
+    public int getLog2OfByteSegmentSize() {
+        return log2OfByteSegmentSize;
+    }
+
+    @Override
+    public int getLog2OfLongSegmentSize() {
+        return log2OfLongSegmentSize;
+    }
+
+    @Override
+    public long getLongSegment() {
+        if(longSegments.isEmpty())
+            return allocate(longSegmentSizeInBytes);
+
+        long address = longSegments.get();
+        unsafe.setMemory(address, longSegmentSizeInBytes, (byte)0);
+        return address;
+    }
+
+    @Override
+    public void recycleLongSegment(long address) {
+        longSegments.recycle(address);
+    }
+
+    @Override
+    public long getByteSegment() {
+        if(byteSegments.isEmpty())
+            return allocate(byteSegmentSizeInBytes);
+        return byteSegments.get();
+    }
+
+    @Override
+    public void recycleByteSegment(long address) {
+        byteSegments.recycle(address);
+    }
+
+    @Override
+    public long[] getLongArray() {
+        return heapRecycler.getLongArray();
+    }
+
+    @Override
+    public void recycleLongArray(long[] arr) {
+        heapRecycler.recycleLongArray(arr);
+    }
+
+    @Override
+    public byte[] getByteArray() {
+        return heapRecycler.getByteArray();
+    }
+
+    @Override
+    public void recycleByteArray(byte[] arr) {
+        heapRecycler.recycleByteArray(arr);
+    }
+
+    @Override
+    public void swap() {
+        heapRecycler.swap();
+        longSegments.swap();
+        byteSegments.swap();
+    }
+
+    /**
+     * @return the total number of bytes of off-heap memory allocated by this recycler.
+     */
+    public long getAllocatedOffHeapBytes() {
+        long total = 0;
+        for(Slab slab : slabs.values())
+            total += slab.buffer.capacity();
+        return total;
+    }
+
+    /**
+     * Release each slab whose segments have all been recycled and made available for reuse by a {@link #swap()}.
+     * <p>
+     * Segments recycled since the most recent swap may still be in use by readers, so slabs holding them are retained.
+     * This is intended to be called between refreshes, after memory has been recycled, to return memory which is no longer 
+     * needed (e.g. after the dataset shrinks) to the operating system.
+     * 
+     * @return the number of bytes of off-heap memory released.
+     */
+    public long trim() {
+        for(Slab slab : slabs.values())
+            slab.numAvailableSegments = 0;
+
+        longSegments.countAvailable(slabs);
+        byteSegments.countAvailable(slabs);
+
+        List<Slab> releasedSlabs = new ArrayList<Slab>();
+        Iterator<Map.Entry<Long, Slab>> iter = slabs.entrySet().iterator();
+        while(iter.hasNext()) {
+            Slab slab = iter.next().getValue();
+            if(slab.numAvailableSegments == slab.numSegments) {
+                slab.released = true;
+                releasedSlabs.add(slab);
+                iter.remove();
+            }
+        }
+
+        if(releasedSlabs.isEmpty())
+            return 0;
+
+        longSegments.removeReleased(slabs);
+        byteSegments.removeReleased(slabs);
+
+        if(currentSlab != null && currentSlab.released) {
+            currentSlab = null;
+            currentSlabRemainingBytes = 0;
+        }
+
+        long releasedBytes = 0;
+        for(Slab slab : releasedSlabs) {
+            releasedBytes += slab.buffer.capacity();
+            HollowUnsafeHandle.freeDirectBuffer(slab.buffer);
+        }
+
+        return releasedBytes;
+    }
+
+    /**
+     * @return the number of bytes of off-heap memory held in pooled segments which are not currently in use.
+     */
+    public long getPooledOffHeapBytes() {
+        return (long)longSegments.size() * longSegmentSizeInBytes + (long)byteSegments.size() * byteSegmentSizeInBytes;
+    }
+
+    private long allocate(int numBytes) {
+        if(numBytes > currentSlabRemainingBytes) {
+            ByteBuffer buffer = newSlab(Math.max(DEFAULT_SLAB_SIZE, numBytes));
+            currentSlabAddress = HollowUnsafeHandle.getAddress(buffer);
+            currentSlabRemainingBytes = buffer.capacity();
+            currentSlab = new Slab(buffer);
+            slabs.put(currentSlabAddress, currentSlab);
+        }
+
+        currentSlab.numSegments++;
+        long address = currentSlabAddress;
+        currentSlabAddress += numBytes;
+        currentSlabRemainingBytes -= numBytes;
+        return address;
+    }
+
+    private ByteBuffer newSlab(int numBytes) {
+        if(mappedFileDirectory == null)
+            return ByteBuffer.allocateDirect(numBytes);
+
+        try {
+            File slabFile = File.createTempFile("hollow-", ".slab", mappedFileDirectory);
+            RandomAccessFile raf = new RandomAccessFile(slabFile, "rw");
+            try {
+                raf.setLength(numBytes);
+                return raf.getChannel().map(MapMode.READ_WRITE, 0, numBytes);
+            } finally {
+                raf.close();
+                if(!slabFile.delete())
+                    slabFile.deleteOnExit();
+            }
+        } catch(IOException e) {
+            throw new RuntimeException("Unable to map memory from " + mappedFileDirectory, e);
+        }
+    }
+
+    private static class Slab {
+        private final ByteBuffer buffer;
+        private int numSegments;
+        private int numAvailableSegments;
+        private boolean released;
+
+        Slab(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * A pool of segment addresses, which become available for reuse after the next swap.
+     */
+    private static class AddressPool {
+        private long[] currentAddresses = new long[256];
+        private int numCurrentAddresses;
+        private long[] nextAddresses = new long[256];
+        private int numNextAddresses;
+
+        public boolean isEmpty() {
+            return numCurrentAddresses == 0;
+        }
+
+        public int size() {
+            return numCurrentAddresses + numNextAddresses;
+        }
+
+        public long get() {
+            return currentAddresses[--numCurrentAddresses];
+        }
+
+        public void recycle(long address) {
+            if(numNextAddresses == nextAddresses.length)
+                nextAddresses = Arrays.copyOf(nextAddresses, nextAddresses.length * 2);
+            nextAddresses[numNextAddresses++] = address;
+        }
+
+        /**
+         * Count the addresses available for reuse in each slab.
+         */
+        public void countAvailable(TreeMap<Long, Slab> slabs) {
+            for(int i=0;i<numCurrentAddresses;i++)
+                slabs.floorEntry(currentAddresses[i]).getValue().numAvailableSegments++;
+        }
+
+        /**
+         * Remove the available addresses which are no longer in any of the remaining slabs, and release those slabs.
+         */
+        public void removeReleased(TreeMap<Long, Slab> remainingSlabs) {
+            int numRetained = 0;
+            for(int i=0;i<numCurrentAddresses;i++) {
+                Map.Entry<Long, Slab> entry = remainingSlabs.floorEntry(currentAddresses[i]);
+                if(entry != null && currentAddresses[i] < entry.getKey() + entry.getValue().buffer.capacity())
+                    currentAddresses[numRetained++] = currentAddresses[i];
+            }
+            numCurrentAddresses = numRetained;
+        }
+
+        public void swap() {
+            if(numCurrentAddresses + numNextAddresses > currentAddresses.length)
+                currentAddresses = Arrays.copyOf(currentAddresses, Math.max(currentAddresses.length * 2, numCurrentAddresses + numNextAddresses));
+            System.arraycopy(nextAddresses, 0, currentAddresses, numCurrentAddresses, numNextAddresses);
+            numCurrentAddresses += numNextAddresses;
+            numNextAddresses = 0;
+        }
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory.pool;
+
+import com.netflix.hollow.core.memory.SegmentedByteArray;
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+
+/**
+ * An OffHeapSegmentRecycler is an {@link ArraySegmentRecycler} which is additionally able to supply segments 
+ * of memory outside of the Java heap.
+ * <p>
+ * When a {@link SegmentedByteArray} or {@link FixedLengthElementArray} is created with an OffHeapSegmentRecycler, its 
+ * segments are obtained from this pool as native memory addresses rather than as arrays, so that the heap footprint of 
+ * a read state is independent of the size of the dataset.  Heap arrays are still supplied for transient and 
+ * growable structures which request them directly.
+ * <p>
+ * A long segment must be able to hold <code>(1 &lt;&lt; getLog2OfLongSegmentSize()) + 1</code> longs, and a byte 
+ * segment must be able to hold <code>1 &lt;&lt; getLog2OfByteSegmentSize()</code> bytes.
+ * 
+ * @see ByteBufferRecycler
+ */
+public interface OffHeapSegmentRecycler extends ArraySegmentRecycler {
+
+    /**
+     * @return the address of a zeroed long segment.
+     */
+    public long getLongSegment();
+
+    public void recycleLongSegment(long address);
+
+    /**
+     * @return the address of a byte segment.  The contents are not guaranteed to be zeroed.
+     */
+    public long getByteSegment();
+
+    public void recycleByteSegment(long address);
+
+}
@@ -83,6 +83,15 @@ public class RecyclingRecycler implements ArraySegmentRecycler {
         byteSegmentRecycler.swap();
     }
 
+    /**
+     * @return the number of bytes held in pooled segments which are not currently in use.
+     */
+    public long getPooledBytes() {
+        long longSegmentBytes = ((1L << log2OfLongSegmentSize) + 1) * 8;
+        long byteSegmentBytes = 1L << log2OfByteSegmentSize;
+        return longSegmentRecycler.numPooledSegments() * longSegmentBytes + byteSegmentRecycler.numPooledSegments() * byteSegmentBytes;
+    }
+
 
     private class Recycler<T> {
 
@@ -112,6 +121,10 @@ public class RecyclingRecycler implements ArraySegmentRecycler {
             currentSegments.addAll(nextSegments);
             nextSegments.clear();
         }
+
+        public int numPooledSegments() {
+            return currentSegments.size() + nextSegments.size();
+        }
     }
 
     private interface Creator<T> {
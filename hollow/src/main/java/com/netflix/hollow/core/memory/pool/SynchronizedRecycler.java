@@ -0,0 +1,109 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory.pool;
+
+/**
+ * A SynchronizedRecycler wraps another {@link ArraySegmentRecycler}, serializing access to it so that
+ * array segments may be safely obtained and recycled by multiple threads at once.
+ * <p>
+ * This is used when type states are decoded concurrently, since the {@link RecyclingRecycler} is not thread-safe.
+ */
+public class SynchronizedRecycler implements ArraySegmentRecycler {
+
+    private final ArraySegmentRecycler delegate;
+
+    /**
+     * @return a SynchronizedRecycler wrapping the delegate, which is also an {@link OffHeapSegmentRecycler} if the delegate is.
+     */
+    public static SynchronizedRecycler wrap(ArraySegmentRecycler delegate) {
+        if(delegate instanceof OffHeapSegmentRecycler)
+            return new SynchronizedOffHeapRecycler((OffHeapSegmentRecycler)delegate);
+        return new SynchronizedRecycler(delegate);
+    }
+
+    public SynchronizedRecycler(ArraySegmentRecycler delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public int getLog2OfByteSegmentSize() {
+        return delegate.getLog2OfByteSegmentSize();
+    }
+
+    @Override
+    public int getLog2OfLongSegmentSize() {
+        return delegate.getLog2OfLongSegmentSize();
+    }
+
+    @Override
+    public synchronized long[] getLongArray() {
+        return delegate.getLongArray();
+    }
+
+    @Override
+    public synchronized void recycleLongArray(long[] arr) {
+        delegate.recycleLongArray(arr);
+    }
+
+    @Override
+    public synchronized byte[] getByteArray() {
+        return delegate.getByteArray();
+    }
+
+    @Override
+    public synchronized void recycleByteArray(byte[] arr) {
+        delegate.recycleByteArray(arr);
+    }
+
+    @Override
+    public synchronized void swap() {
+        delegate.swap();
+    }
+
+    private static class SynchronizedOffHeapRecycler extends SynchronizedRecycler implements OffHeapSegmentRecycler {
+
+        private final OffHeapSegmentRecycler delegate;
+
+        public SynchronizedOffHeapRecycler(OffHeapSegmentRecycler delegate) {
+            super(delegate);
+            this.delegate = delegate;
+        }
+
+        @Override
+        public synchronized long getLongSegment() {
+            return delegate.getLongSegment();
+        }
+
+        @Override
+        public synchronized void recycleLongSegment(long address) {
+            delegate.recycleLongSegment(address);
+        }
+
+        @Override
+        public synchronized long getByteSegment() {
+            return delegate.getByteSegment();
+        }
+
+        @Override
+        public synchronized void recycleByteSegment(long address) {
+            delegate.recycleByteSegment(address);
+        }
+
+    }
+
+}
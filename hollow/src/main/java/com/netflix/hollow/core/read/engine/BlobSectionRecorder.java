@@ -0,0 +1,448 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+
+/**
+ * An InputStream which retains a copy of every byte read from (or skipped over in) an underlying stream.
+ * <p>
+ * This allows a section of a blob to be walked once by the thread reading the blob, then decoded, possibly by a different 
+ * thread, via the InputStream for the section.  The stream for the section currently being recorded is available from 
+ * {@link #currentSection()}, and may be read concurrently while the section is recorded:  the recorded bytes are handed 
+ * to it in chunks which begin small and double in size up to 1MB, as each chunk is filled.  Once a section is complete, 
+ * {@link #endSection()} returns its stream, and subsequently read bytes are recorded in a new section.
+ * <p>
+ * The chunks which have been recorded but not yet read are held on the heap, up to the maximum of a {@link HeapBudget}, 
+ * which may be shared by several recorders.  Once the budget is exhausted, the recording thread waits while a stream which 
+ * is being read still has chunks to read.  Otherwise, no reader can make progress, and the remainder of the section is 
+ * spilled to a temporary file, which is unlinked once the section has ended (where the platform allows) and otherwise 
+ * deleted when the section's stream is closed.  Streams for sections should be closed once they are no longer needed.
+ */
+class BlobSectionRecorder extends InputStream {
+
+    static final long DEFAULT_MAX_HEAP_BYTES_PER_SECTION = 1 << 22;
+
+    private static final int MIN_CHUNK_SIZE = 1 << 12;
+    private static final int MAX_CHUNK_SIZE = 1 << 20;
+
+    private final InputStream is;
+    private final HeapBudget budget;
+    private final File spillDirectory;
+    private final Thread recordingThread;
+
+    private SectionStream section;
+    private byte[] currentChunk;
+    private int currentChunkPosition;
+    private int nextChunkSize;
+
+    private File spillFile;
+    private OutputStream spillOutput;
+
+    private byte[] skipBuffer;
+
+    BlobSectionRecorder(InputStream is) {
+        this(is, DEFAULT_MAX_HEAP_BYTES_PER_SECTION, null);
+    }
+
+    /**
+     * @param maxHeapBytesPerSection the number of recorded bytes to hold on the heap, but not yet read, before spilling to a file
+     * @param spillDirectory the directory in which to create spill files, or null for the default temporary-file directory
+     */
+    BlobSectionRecorder(InputStream is, long maxHeapBytesPerSection, File spillDirectory) {
+        this(is, new HeapBudget(maxHeapBytesPerSection), spillDirectory);
+    }
+
+    /**
+     * @param budget the bound on the recorded bytes held on the heap but not yet read, which may be shared with other recorders
+     * @param spillDirectory the directory in which to create spill files, or null for the default temporary-file directory
+     */
+    BlobSectionRecorder(InputStream is, HeapBudget budget, File spillDirectory) {
+        this.is = is;
+        this.budget = budget;
+        this.spillDirectory = spillDirectory;
+        this.recordingThread = Thread.currentThread();
+        startSection();
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = is.read();
+        if(b != -1) {
+            if(spillOutput == null && ensureChunk()) {
+                currentChunk[currentChunkPosition++] = (byte)b;
+                if(currentChunkPosition == currentChunk.length)
+                    handOffChunk();
+            } else {
+                spillOutput().write(b);
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int bytesRead = is.read(b, off, len);
+        if(bytesRead > 0)
+            record(b, off, bytesRead);
+        return bytesRead;
+    }
+
+    /**
+     * Skipped bytes must be retained, so they are read from the underlying stream and recorded.
+     */
+    @Override
+    public long skip(long n) throws IOException {
+        if(skipBuffer == null)
+            skipBuffer = new byte[MIN_CHUNK_SIZE];
+
+        long skippedBytes = 0;
+        while(skippedBytes < n) {
+            int bytesRead = is.read(skipBuffer, 0, (int)Math.min(n - skippedBytes, skipBuffer.length));
+            if(bytesRead < 0) {
+                if(skippedBytes == 0)
+                    throw new EOFException();
+                break;
+            }
+            record(skipBuffer, 0, bytesRead);
+            skippedBytes += bytesRead;
+        }
+        return skippedBytes;
+    }
+
+    /**
+     * @return an InputStream over all of the bytes which are recorded until the next call to {@link #endSection()}.  Reads 
+     * from the stream on a thread other than the recording thread wait for the bytes to be recorded.
+     */
+    InputStream currentSection() {
+        return section;
+    }
+
+    /**
+     * @return an InputStream over all of the bytes recorded since the prior call to this method.
+     * Subsequently read bytes will be recorded in a new section.
+     */
+    InputStream endSection() throws IOException {
+        if(currentChunkPosition > 0)
+            handOffChunk();
+
+        SectionStream endedSection = section;
+        endedSection.end(spillOutput != null ? spilledSection() : null);
+
+        startSection();
+        return endedSection;
+    }
+
+    /**
+     * End the current section without any bytes which have not yet been handed to its stream, so that a concurrent reader of
+     * the section does not wait for bytes which will never be recorded.  If the section was incomplete, its reader reaches the
+     * end of the stream prematurely.
+     */
+    void abandonCurrentSection() {
+        section.end(null);
+        currentChunk = null;
+        currentChunkPosition = 0;
+
+        if(spillOutput != null) {
+            try {
+                spillOutput.close();
+            } catch(IOException ignore) { }
+            spillFile.delete();
+            spillOutput = null;
+            spillFile = null;
+        }
+    }
+
+    private void startSection() {
+        section = new SectionStream(budget, recordingThread);
+        currentChunk = null;
+        currentChunkPosition = 0;
+        nextChunkSize = MIN_CHUNK_SIZE;
+    }
+
+    private void record(byte[] b, int off, int len) throws IOException {
+        while(len > 0) {
+            if(spillOutput != null || !ensureChunk()) {
+                spillOutput().write(b, off, len);
+                return;
+            }
+
+            int bytesToRecord = Math.min(len, currentChunk.length - currentChunkPosition);
+            System.arraycopy(b, off, currentChunk, currentChunkPosition, bytesToRecord);
+            currentChunkPosition += bytesToRecord;
+            off += bytesToRecord;
+            len -= bytesToRecord;
+
+            if(currentChunkPosition == currentChunk.length)
+                handOffChunk();
+        }
+    }
+
+    /**
+     * Chunks are not allocated beyond the heap budget, so a chunk can always be handed off once the budget is free.
+     * 
+     * @return false if the heap budget does not allow any chunk to be recorded.
+     */
+    private boolean ensureChunk() {
+        if(currentChunk == null) {
+            int chunkSize = (int)Math.min(nextChunkSize, budget.maxBytes);
+            if(chunkSize == 0)
+                return false;
+            currentChunk = new byte[chunkSize];
+            nextChunkSize = Math.min(nextChunkSize << 1, MAX_CHUNK_SIZE);
+        }
+        return true;
+    }
+
+    /**
+     * Hand the current chunk to the section's stream.  If that would exceed the heap budget, and no stream 
+     * which is being read can release any of the budget, then the chunk and the remainder of the section are spilled.
+     */
+    private void handOffChunk() throws IOException {
+        if(!section.offer(currentChunk, currentChunkPosition))
+            spillOutput().write(currentChunk, 0, currentChunkPosition);
+        currentChunk = null;
+        currentChunkPosition = 0;
+    }
+
+    private OutputStream spillOutput() throws IOException {
+        if(spillOutput == null) {
+            spillFile = File.createTempFile("hollow-section-", ".tmp", spillDirectory);
+            spillOutput = new BufferedOutputStream(new FileOutputStream(spillFile));
+        }
+        return spillOutput;
+    }
+
+    private InputStream spilledSection() throws IOException {
+        final File file = spillFile;
+        spillOutput.close();
+        spillOutput = null;
+        spillFile = null;
+
+        InputStream spilled = new FileInputStream(file);
+        final boolean unlinked = file.delete();
+
+        return new BufferedInputStream(spilled) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                if(!unlinked)
+                    file.delete();
+            }
+        };
+    }
+
+    /**
+     * Bounds the number of recorded bytes held on the heap, but not yet read, by one or more recorders.
+     * <p>
+     * All of the state of the sections recorded against a budget is guarded by the budget's monitor.
+     */
+    static class HeapBudget {
+        private final long maxBytes;
+        /// the bytes held in chunks which have been handed to a section's stream, but not yet read.
+        private long pendingBytes;
+        /// the pending bytes which belong to sections whose streams are being read, which will therefore be released.
+        private long readablePendingBytes;
+
+        HeapBudget(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    /**
+     * The stream of one section.  Recorded chunks are queued as they are handed off, followed by the spilled remainder of
+     * the section, if any, once the section has ended.
+     */
+    private static class SectionStream extends InputStream {
+        private final HeapBudget budget;
+        private final Thread recordingThread;
+
+        private final ArrayDeque<byte[]> chunks;
+        private final ArrayDeque<Integer> chunkLengths;
+        private long pendingBytes;
+        private boolean reading;
+        private boolean ended;
+        private boolean closed;
+        private InputStream spilled;
+
+        /// accessed only by the reading thread.
+        private byte[] chunk;
+        private int chunkPosition;
+        private int chunkLength;
+
+        SectionStream(HeapBudget budget, Thread recordingThread) {
+            this.budget = budget;
+            this.recordingThread = recordingThread;
+            this.chunks = new ArrayDeque<byte[]>();
+            this.chunkLengths = new ArrayDeque<Integer>();
+        }
+
+        /**
+         * @return false if the chunk would exceed the heap budget, and no stream which is being read can release any of the 
+         * budget, in which case the chunk was not accepted.
+         */
+        boolean offer(byte[] chunk, int length) throws InterruptedIOException {
+            synchronized(budget) {
+                while(budget.pendingBytes + length > budget.maxBytes && budget.readablePendingBytes > 0 && !closed)
+                    await();
+
+                if(closed)
+                    return true;  /// the bytes will never be read.
+                if(budget.pendingBytes + length > budget.maxBytes)
+                    return false;
+
+                chunks.add(chunk);
+                chunkLengths.add(length);
+                pendingBytes += length;
+                budget.pendingBytes += length;
+                if(reading)
+                    budget.readablePendingBytes += length;
+                budget.notifyAll();
+                return true;
+            }
+        }
+
+        void end(InputStream spilled) {
+            synchronized(budget) {
+                ended = true;
+                budget.notifyAll();
+
+                if(!closed) {
+                    this.spilled = spilled;
+                    return;
+                }
+            }
+
+            if(spilled != null) {
+                try {
+                    spilled.close();
+                } catch(IOException ignore) { }
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int bytesRead = read(b, 0, 1);
+            return bytesRead == -1 ? -1 : (b[0] & 0xFF);
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if(len == 0)
+                return 0;
+
+            while(chunkPosition == chunkLength) {
+                if(!nextChunk())
+                    return spilled == null ? -1 : spilled.read(b, off, len);
+            }
+
+            int bytesToRead = Math.min(len, chunkLength - chunkPosition);
+            System.arraycopy(chunk, chunkPosition, b, off, bytesToRead);
+            chunkPosition += bytesToRead;
+            return bytesToRead;
+        }
+
+        /**
+         * Release the chunk which has been read, and wait for the next chunk.
+         * 
+         * @return false if the section has ended and all of its chunks have been read.
+         */
+        private boolean nextChunk() throws IOException {
+            synchronized(budget) {
+                if(closed)
+                    throw new IOException("Stream closed");
+
+                if(chunk != null) {
+                    release(chunkLength);
+                    chunk = null;
+                    chunkPosition = chunkLength = 0;
+                }
+
+                if(!reading && Thread.currentThread() != recordingThread) {
+                    reading = true;
+                    budget.readablePendingBytes += pendingBytes;
+                }
+
+                while(chunks.isEmpty() && !ended) {
+                    if(Thread.currentThread() == recordingThread)
+                        throw new IllegalStateException("A section may only be read on the recording thread once it has ended");
+                    await();
+                }
+
+                if(chunks.isEmpty())
+                    return false;
+
+                chunk = chunks.poll();
+                chunkLength = chunkLengths.poll();
+                return true;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            InputStream spilled;
+
+            synchronized(budget) {
+                if(closed)
+                    return;
+                closed = true;
+
+                chunk = null;
+                chunks.clear();
+                chunkLengths.clear();
+                release(pendingBytes);
+
+                spilled = this.spilled;
+                this.spilled = null;
+                budget.notifyAll();
+            }
+
+            if(spilled != null)
+                spilled.close();
+        }
+
+        private void release(long bytes) {
+            pendingBytes -= bytes;
+            budget.pendingBytes -= bytes;
+            if(reading)
+                budget.readablePendingBytes -= bytes;
+            budget.notifyAll();
+        }
+
+        private void await() throws InterruptedIOException {
+            try {
+                budget.wait();
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+    }
+
+}
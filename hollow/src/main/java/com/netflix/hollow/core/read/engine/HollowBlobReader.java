@@ -17,6 +17,8 @@
  */
 package com.netflix.hollow.core.read.engine;
 
+import com.netflix.hollow.core.memory.MappedDataInputStream;
+import com.netflix.hollow.core.memory.PipelinedDataInputStream;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 
 import com.netflix.hollow.core.schema.HollowListSchema;
@@ -36,25 +38,71 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.TreeSet;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 
 /**
  * A HollowBlobReader is used to populate and update data in a {@link HollowReadStateEngine}, via the consumption
  * of snapshot and delta blobs. 
+ * <p>
+ * If a snapshot Executor is provided, the type states and shards of a snapshot will be decoded concurrently by tasks submitted
+ * to that Executor, while the calling thread continues to read the blob.
+ * <p>
+ * If a delta Executor is provided, the type states and shards of a delta will be updated concurrently by tasks submitted
+ * to that Executor.  The updated data for every shard is made visible to readers together, once all shards have been updated.
+ * <p>
+ * If a snapshot is read from a {@link MappedDataInputStream}, the fixed-length and variable-length data for each type refers
+ * to the mapped file in place, rather than being copied.
  */
 public class HollowBlobReader {
 
     private final Logger log = Logger.getLogger(HollowBlobReader.class.getName());
     private final HollowReadStateEngine stateEngine;
     private final HollowBlobHeaderReader headerReader;
+    private final Executor snapshotExecutor;
+    private final Executor deltaExecutor;
+    private final Executor readAheadExecutor;
 
     public HollowBlobReader(HollowReadStateEngine stateEngine) {
         this(stateEngine, new HollowBlobHeaderReader());
     }
 
     public HollowBlobReader(HollowReadStateEngine stateEngine, HollowBlobHeaderReader headerReader) {
+        this(stateEngine, headerReader, null);
+    }
+
+    /**
+     * @param snapshotExecutor the Executor used to decode snapshot type states and shards concurrently, or null to decode them
+     * serially on the calling thread.
+     */
+    public HollowBlobReader(HollowReadStateEngine stateEngine, HollowBlobHeaderReader headerReader, Executor snapshotExecutor) {
+        this(stateEngine, headerReader, snapshotExecutor, null);
+    }
+
+    /**
+     * @param snapshotExecutor the Executor used to decode snapshot type states and shards concurrently, or null to decode them
+     * serially on the calling thread.
+     * @param deltaExecutor the Executor used to apply delta type states and shards concurrently, or null to apply them
+     * serially on the calling thread.
+     */
+    public HollowBlobReader(HollowReadStateEngine stateEngine, HollowBlobHeaderReader headerReader, Executor snapshotExecutor, Executor deltaExecutor) {
+        this(stateEngine, headerReader, snapshotExecutor, deltaExecutor, null);
+    }
+
+    /**
+     * @param snapshotExecutor the Executor used to decode snapshot type states and shards concurrently, or null to decode them
+     * serially on the calling thread.
+     * @param deltaExecutor the Executor used to apply delta type states and shards concurrently, or null to apply them
+     * serially on the calling thread.
+     * @param readAheadExecutor the Executor used to read ahead from blob streams while they are decoded, or null to read from 
+     * blob streams on the calling thread.  See {@link PipelinedDataInputStream}.
+     */
+    public HollowBlobReader(HollowReadStateEngine stateEngine, HollowBlobHeaderReader headerReader, Executor snapshotExecutor, Executor deltaExecutor, Executor readAheadExecutor) {
         this.stateEngine = stateEngine;
         this.headerReader = headerReader;
+        this.snapshotExecutor = snapshotExecutor;
+        this.deltaExecutor = deltaExecutor;
+        this.readAheadExecutor = readAheadExecutor;
     }
 
     /**
@@ -70,22 +118,51 @@ public class HollowBlobReader {
      * Apply the provided {@link HollowFilterConfig} to the state.
      */
     public void readSnapshot(InputStream is, HollowFilterConfig filter) throws IOException {
-        HollowBlobHeader header = readHeader(is, false);
+        if(is instanceof MappedDataInputStream) {
+            /// the data will be referred to in place, so there is nothing to gain from buffering or decoding concurrently.
+            readSnapshot((MappedDataInputStream)is, filter, null);
+            return;
+        }
+
+        PipelinedDataInputStream dis = new PipelinedDataInputStream(is, readAheadExecutor);
+        try {
+            ParallelSnapshotReader parallelReader = snapshotExecutor == null ? null : new ParallelSnapshotReader(snapshotExecutor, stateEngine.getMemoryRecycler());
+            readSnapshot(dis, filter, parallelReader);
+        } finally {
+            dis.close();
+        }
+    }
+
+    private void readSnapshot(DataInputStream dis, HollowFilterConfig filter, ParallelSnapshotReader parallelReader) throws IOException {
+        if(!stateEngine.isMaterializationLockRequired()) {
+            readSnapshotContents(dis, filter, parallelReader);
+            return;
+        }
+
+        /// types must not be lazily materialized while the memory recycler is in use by this thread.
+        synchronized(stateEngine.getMaterializationLock()) {
+            readSnapshotContents(dis, filter, parallelReader);
+        }
+    }
+
+    private void readSnapshotContents(DataInputStream dis, HollowFilterConfig filter, ParallelSnapshotReader parallelReader) throws IOException {
+        HollowBlobHeader header = readHeader(dis, false);
 
         notifyBeginUpdate();
 
         long startTime = System.currentTimeMillis();
 
-        DataInputStream dis = new DataInputStream(is);
-
         int numStates = VarInt.readVInt(dis);
 
         Collection<String> typeNames = new TreeSet<String>();
         for(int i=0;i<numStates;i++) {
-            String typeName = readTypeStateSnapshot(dis, header, filter);
+            String typeName = readTypeStateSnapshot(dis, header, filter, parallelReader);
             typeNames.add(typeName);
         }
 
+        if(parallelReader != null)
+            parallelReader.awaitCompletion();
+
         stateEngine.wireTypeStatesToSchemas();
 
         long endTime = System.currentTimeMillis();
@@ -105,19 +182,45 @@ public class HollowBlobReader {
      * with a snapshot, it will continue to be in effect after the state is updated.
      */
     public void applyDelta(InputStream is) throws IOException {
-        HollowBlobHeader header = readHeader(is, true);
+        PipelinedDataInputStream dis = new PipelinedDataInputStream(is, readAheadExecutor);
+        try {
+            if(!stateEngine.isMaterializationLockRequired()) {
+                applyDelta(dis);
+            } else {
+                /// types must not be lazily materialized while a delta is partially applied.
+                synchronized(stateEngine.getMaterializationLock()) {
+                    applyDelta(dis);
+                }
+            }
+        } finally {
+            dis.close();
+        }
+    }
+
+    private void applyDelta(DataInputStream dis) throws IOException {
+        HollowBlobHeader header = readHeader(dis, true);
+
+        /// rather than retain more deltas for a type which has not been materialized, materialize it on this thread.
+        stateEngine.materializeTypesWithFullDeltaQueues();
+
         notifyBeginUpdate();
 
         long startTime = System.currentTimeMillis();
 
-        DataInputStream dis = new DataInputStream(is);
-
         int numStates = VarInt.readVInt(dis);
 
+        ParallelDeltaApplicator parallelApplicator = deltaExecutor == null ? null : new ParallelDeltaApplicator(deltaExecutor, stateEngine.getMemoryRecycler());
+
         Collection<String> typeNames = new TreeSet<String>();
         for(int i=0;i<numStates;i++) {
-            String typeName = readTypeStateDelta(dis, header);
+            String typeName = readTypeStateDelta(dis, header, parallelApplicator);
             typeNames.add(typeName);
+            if(parallelApplicator == null)
+                stateEngine.getMemoryRecycler().swap();
+        }
+
+        if(parallelApplicator != null) {
+            parallelApplicator.awaitCompletionAndPublish();
             stateEngine.getMemoryRecycler().swap();
         }
 
@@ -142,7 +245,7 @@ public class HollowBlobReader {
     }
 
     private void notifyBeginUpdate() {
-        for(HollowTypeReadState typeState : stateEngine.getTypeStates()) {
+        for(HollowTypeReadState typeState : stateEngine.getMaterializedTypeStates()) {
             for(HollowTypeStateListener listener : typeState.getListeners()) {
                 listener.beginUpdate();
             }
@@ -150,14 +253,14 @@ public class HollowBlobReader {
     }
 
     private void notifyEndUpdate() {
-        for(HollowTypeReadState typeState : stateEngine.getTypeStates()) {
+        for(HollowTypeReadState typeState : stateEngine.getMaterializedTypeStates()) {
             for(HollowTypeStateListener listener : typeState.getListeners()) {
                 listener.endUpdate();
             }
         }
     }
 
-    private String readTypeStateSnapshot(DataInputStream is, HollowBlobHeader header, HollowFilterConfig filter) throws IOException {
+    private String readTypeStateSnapshot(DataInputStream is, HollowBlobHeader header, HollowFilterConfig filter, ParallelSnapshotReader parallelReader) throws IOException {
         HollowSchema schema = HollowSchema.readFrom(is);
 
         int numShards = readNumShards(is);
@@ -168,44 +271,62 @@ public class HollowBlobReader {
             } else {
                 HollowObjectSchema unfilteredSchema = (HollowObjectSchema)schema;
                 HollowObjectSchema filteredSchema = unfilteredSchema.filterSchema(filter);
-                populateTypeStateSnapshot(is, new HollowObjectTypeReadState(stateEngine, filteredSchema, unfilteredSchema, numShards));
+                populateTypeStateSnapshot(is, new HollowObjectTypeReadState(stateEngine, filteredSchema, unfilteredSchema, numShards), schema, numShards, parallelReader);
             }
         } else if (schema instanceof HollowListSchema) {
             if(!filter.doesIncludeType(schema.getName())) {
                 HollowListTypeReadState.discardSnapshot(is, numShards);
             } else {
-                populateTypeStateSnapshot(is, new HollowListTypeReadState(stateEngine, (HollowListSchema)schema, numShards));
+                populateTypeStateSnapshot(is, new HollowListTypeReadState(stateEngine, (HollowListSchema)schema, numShards), schema, numShards, parallelReader);
             }
         } else if(schema instanceof HollowSetSchema) {
             if(!filter.doesIncludeType(schema.getName())) {
                 HollowSetTypeReadState.discardSnapshot(is, numShards);
             } else {
-                populateTypeStateSnapshot(is, new HollowSetTypeReadState(stateEngine, (HollowSetSchema)schema, numShards));
+                populateTypeStateSnapshot(is, new HollowSetTypeReadState(stateEngine, (HollowSetSchema)schema, numShards), schema, numShards, parallelReader);
             }
         } else if(schema instanceof HollowMapSchema) {
             if(!filter.doesIncludeType(schema.getName())) {
                 HollowMapTypeReadState.discardSnapshot(is, numShards);
             } else {
-                populateTypeStateSnapshot(is, new HollowMapTypeReadState(stateEngine, (HollowMapSchema)schema, numShards));
+                populateTypeStateSnapshot(is, new HollowMapTypeReadState(stateEngine, (HollowMapSchema)schema, numShards), schema, numShards, parallelReader);
             }
         }
         
         return schema.getName();
     }
 
-    private void populateTypeStateSnapshot(DataInputStream is, HollowTypeReadState typeState) throws IOException {
+    private void populateTypeStateSnapshot(DataInputStream is, HollowTypeReadState typeState, HollowSchema unfilteredSchema, int numShards, ParallelSnapshotReader parallelReader) throws IOException {
+        if(stateEngine.isLazyTypeMaterialization()) {
+            /// retain the encoded data, to be decoded when the type is first retrieved.
+            BlobSectionRecorder recorder = new BlobSectionRecorder(is);
+            discardSnapshot(new DataInputStream(recorder), unfilteredSchema, numShards);
+            stateEngine.addLazyTypeState(typeState, recorder.endSection());
+            return;
+        }
+
         stateEngine.addTypeState(typeState);
-        typeState.readSnapshot(is, stateEngine.getMemoryRecycler());
+        if(parallelReader != null)
+            parallelReader.readSnapshot(is, typeState);
+        else
+            typeState.readSnapshot(is, stateEngine.getMemoryRecycler());
     }
 
-    private String readTypeStateDelta(DataInputStream is, HollowBlobHeader header) throws IOException {
+    private String readTypeStateDelta(DataInputStream is, HollowBlobHeader header, ParallelDeltaApplicator parallelApplicator) throws IOException {
         HollowSchema schema = HollowSchema.readFrom(is);
 
         int numShards = readNumShards(is);
 
-        HollowTypeReadState typeState = stateEngine.getTypeState(schema.getName());
+        HollowTypeReadState typeState = stateEngine.getMaterializedTypeState(schema.getName());
         if(typeState != null) {
-            typeState.applyDelta(is, schema, stateEngine.getMemoryRecycler());
+            if(parallelApplicator != null)
+                parallelApplicator.applyDelta(is, typeState, schema);
+            else
+                typeState.applyDelta(is, schema, stateEngine.getMemoryRecycler());
+        } else if(stateEngine.isMaterializationPending(schema.getName())) {
+            BlobSectionRecorder recorder = new BlobSectionRecorder(is);
+            discardDelta(new DataInputStream(recorder), schema, numShards);
+            stateEngine.queueDelta(schema.getName(), schema, recorder.endSection());
         } else {
             discardDelta(is, schema, numShards);
         }
@@ -235,6 +356,17 @@ public class HollowBlobReader {
     }
 
 
+    private void discardSnapshot(DataInputStream dis, HollowSchema schema, int numShards) throws IOException {
+        if(schema instanceof HollowObjectSchema)
+            HollowObjectTypeReadState.discardSnapshot(dis, (HollowObjectSchema)schema, numShards);
+        else if(schema instanceof HollowListSchema)
+            HollowListTypeReadState.discardSnapshot(dis, numShards);
+        else if(schema instanceof HollowSetSchema)
+            HollowSetTypeReadState.discardSnapshot(dis, numShards);
+        else if(schema instanceof HollowMapSchema)
+            HollowMapTypeReadState.discardSnapshot(dis, numShards);
+    }
+
     private void discardDelta(DataInputStream dis, HollowSchema schema, int numShards) throws IOException {
         if(schema instanceof HollowObjectSchema)
             HollowObjectTypeReadState.discardDelta(dis, (HollowObjectSchema)schema, numShards);
@@ -0,0 +1,47 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine;
+
+import java.util.Map;
+
+/**
+ * The JMX attributes exposed by a {@link HollowMemoryMonitor}.  Types are keyed by name, and fields by <i>Type.field</i>.
+ */
+public interface HollowMemoryMXBean {
+
+    public long getTotalBytes();
+
+    public long getRecyclerPoolBytes();
+
+    public Map<String, Long> getTypeTotalBytes();
+
+    public Map<String, Long> getTypeFixedLengthBytes();
+
+    public Map<String, Long> getTypeVarLengthBytes();
+
+    public Map<String, Long> getTypeHashTableOverheadBytes();
+
+    public Map<String, Long> getTypeIndexBytes();
+
+    public Map<String, Long> getFieldBytes();
+
+    public Map<String, Integer> getFieldBits();
+
+    public String getReport();
+
+}
@@ -0,0 +1,170 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine;
+
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.FieldMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.ShardMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.TypeMemory;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Exposes the {@link HollowMemoryReport} of a {@link HollowReadStateEngine} as JMX attributes.
+ * <p>
+ * Each attribute is calculated from a new report when it is read.  When a consumer replaces its state engine (e.g. after a 
+ * double snapshot), call {@link #setStateEngine(HollowReadStateEngine)}, for example from 
+ * {@link com.netflix.hollow.api.consumer.HollowConsumer.RefreshListener#snapshotUpdateOccurred}.
+ */
+public class HollowMemoryMonitor implements HollowMemoryMXBean {
+
+    private volatile HollowReadStateEngine stateEngine;
+    private ObjectName registeredName;
+
+    public HollowMemoryMonitor(HollowReadStateEngine stateEngine) {
+        this.stateEngine = stateEngine;
+    }
+
+    public void setStateEngine(HollowReadStateEngine stateEngine) {
+        this.stateEngine = stateEngine;
+    }
+
+    /**
+     * Register this monitor with the platform MBean server as <i>com.netflix.hollow:type=HollowMemory,name=&lt;name&gt;</i>.
+     */
+    public synchronized void register(String name) {
+        try {
+            ObjectName objectName = new ObjectName("com.netflix.hollow:type=HollowMemory,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            registeredName = objectName;
+        } catch(JMException e) {
+            throw new RuntimeException("Unable to register HollowMemoryMonitor " + name, e);
+        }
+    }
+
+    public synchronized void unregister() {
+        if(registeredName == null)
+            return;
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if(server.isRegistered(registeredName))
+                server.unregisterMBean(registeredName);
+            registeredName = null;
+        } catch(JMException e) {
+            throw new RuntimeException("Unable to unregister HollowMemoryMonitor " + registeredName, e);
+        }
+    }
+
+    public HollowMemoryReport getMemoryReport() {
+        return stateEngine.getMemoryReport();
+    }
+
+    @Override
+    public long getTotalBytes() {
+        return getMemoryReport().getTotalBytes();
+    }
+
+    @Override
+    public long getRecyclerPoolBytes() {
+        return getMemoryReport().getRecyclerPoolBytes();
+    }
+
+    @Override
+    public Map<String, Long> getTypeTotalBytes() {
+        Map<String, Long> bytes = new TreeMap<String, Long>();
+        for(TypeMemory type : getMemoryReport().getTypes())
+            bytes.put(type.getTypeName(), type.getTotalBytes());
+        return bytes;
+    }
+
+    @Override
+    public Map<String, Long> getTypeFixedLengthBytes() {
+        Map<String, Long> bytes = new TreeMap<String, Long>();
+        for(TypeMemory type : getMemoryReport().getTypes())
+            bytes.put(type.getTypeName(), type.getFixedLengthBytes());
+        return bytes;
+    }
+
+    @Override
+    public Map<String, Long> getTypeVarLengthBytes() {
+        Map<String, Long> bytes = new TreeMap<String, Long>();
+        for(TypeMemory type : getMemoryReport().getTypes())
+            bytes.put(type.getTypeName(), type.getVarLengthBytes());
+        return bytes;
+    }
+
+    @Override
+    public Map<String, Long> getTypeHashTableOverheadBytes() {
+        Map<String, Long> bytes = new TreeMap<String, Long>();
+        for(TypeMemory type : getMemoryReport().getTypes())
+            bytes.put(type.getTypeName(), type.getHashTableOverheadBytes());
+        return bytes;
+    }
+
+    @Override
+    public Map<String, Long> getTypeIndexBytes() {
+        Map<String, Long> bytes = new TreeMap<String, Long>();
+        for(TypeMemory type : getMemoryReport().getTypes())
+            bytes.put(type.getTypeName(), type.getIndexBytes());
+        return bytes;
+    }
+
+    @Override
+    public Map<String, Long> getFieldBytes() {
+        Map<String, Long> bytes = new TreeMap<String, Long>();
+        for(TypeMemory type : getMemoryReport().getTypes()) {
+            for(ShardMemory shard : type.getShards()) {
+                for(FieldMemory field : shard.getFields()) {
+                    String identifier = type.getTypeName() + "." + field.getFieldName();
+                    Long current = bytes.get(identifier);
+                    bytes.put(identifier, (current == null ? 0 : current.longValue()) + field.getTotalBytes());
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * The bits per field may differ between shards.  The maximum over all shards is reported.
+     */
+    @Override
+    public Map<String, Integer> getFieldBits() {
+        Map<String, Integer> bits = new TreeMap<String, Integer>();
+        for(TypeMemory type : getMemoryReport().getTypes()) {
+            for(ShardMemory shard : type.getShards()) {
+                for(FieldMemory field : shard.getFields()) {
+                    String identifier = type.getTypeName() + "." + field.getFieldName();
+                    Integer current = bits.get(identifier);
+                    if(current == null || current.intValue() < field.getBitsPerField())
+                        bits.put(identifier, field.getBitsPerField());
+                }
+            }
+        }
+        return bits;
+    }
+
+    @Override
+    public String getReport() {
+        return getMemoryReport().toString();
+    }
+
+}
@@ -0,0 +1,329 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine;
+
+import com.netflix.hollow.core.schema.HollowSchema.SchemaType;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A detailed account of the memory occupied by the data in a {@link HollowReadStateEngine}, broken down by type, shard, and field.
+ * <p>
+ * Fixed-length and var-length byte counts are the sizes of the allocated segments, rather than estimates derived from the
+ * number of records.  The fields of an OBJECT record are interleaved in a single fixed-length allocation, which is divided
+ * between the fields in proportion to their bits per field.  STRING and BYTES fields are also attributed their allocated
+ * var-length data.
+ * <p>
+ * For LIST, SET, and MAP types, the "fields" are the components of the encoding, each of which is a separate allocation: the 
+ * fixed-length pointer (and size) for each ordinal, and the elements, buckets, or entries.
+ * <p>
+ * Indexes which implement {@link IndexMemoryReporter}, such as {@link com.netflix.hollow.core.index.HollowPrimaryKeyIndex} and
+ * {@link com.netflix.hollow.core.index.HollowHashIndex}, are included in the report of the type they index while they listen 
+ * for delta updates.  Other indexes are held only by their callers, which may measure them directly.
+ * 
+ * @see HollowReadStateEngine#getMemoryReport()
+ */
+public class HollowMemoryReport {
+
+    private final List<TypeMemory> types;
+    private final long recyclerPoolBytes;
+
+    public HollowMemoryReport(List<TypeMemory> types, long recyclerPoolBytes) {
+        this.types = Collections.unmodifiableList(types);
+        this.recyclerPoolBytes = recyclerPoolBytes;
+    }
+
+    public List<TypeMemory> getTypes() {
+        return types;
+    }
+
+    public TypeMemory getType(String typeName) {
+        for(TypeMemory type : types) {
+            if(type.getTypeName().equals(typeName))
+                return type;
+        }
+        return null;
+    }
+
+    /**
+     * @return the number of bytes held by the engine's memory recycler in pooled segments which are not currently in use, or -1 
+     * if the recycler does not report its pool size.
+     */
+    public long getRecyclerPoolBytes() {
+        return recyclerPoolBytes;
+    }
+
+    /**
+     * @return the bytes occupied by all types, plus the recycler pool.
+     */
+    public long getTotalBytes() {
+        long total = Math.max(recyclerPoolBytes, 0);
+        for(TypeMemory type : types)
+            total += type.getTotalBytes();
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+
+        for(TypeMemory type : types) {
+            builder.append(type.getTypeName()).append(" (").append(type.getSchemaType()).append("): ")
+                   .append(type.getTotalBytes()).append(" bytes\n");
+
+            for(ShardMemory shard : type.getShards()) {
+                builder.append("  shard ").append(shard.getShardNumber())
+                       .append(": maxOrdinal=").append(shard.getMaxOrdinal())
+                       .append(", fixedLength=").append(shard.getFixedLengthBytes())
+                       .append(", varLength=").append(shard.getVarLengthBytes())
+                       .append(", hashTableOverhead=").append(shard.getHashTableOverheadBytes()).append('\n');
+
+                for(FieldMemory field : shard.getFields()) {
+                    builder.append("    ").append(field.getFieldName())
+                           .append(": bits=").append(field.getBitsPerField())
+                           .append(", fixedLength=").append(field.getFixedLengthBytes())
+                           .append(", varLength=").append(field.getVarLengthBytes()).append('\n');
+                }
+            }
+
+            builder.append("  ordinal tracking: ").append(type.getOrdinalTrackingBytes()).append(" bytes\n");
+
+            for(IndexMemory index : type.getIndexes())
+                builder.append("  index ").append(index.getDescription()).append(": ").append(index.getBytes()).append(" bytes\n");
+        }
+
+        builder.append("recycler pool: ").append(recyclerPoolBytes).append(" bytes\n");
+        builder.append("total: ").append(getTotalBytes()).append(" bytes\n");
+
+        return builder.toString();
+    }
+
+    public static class TypeMemory {
+        private final String typeName;
+        private final SchemaType schemaType;
+        private final List<ShardMemory> shards;
+        private final long ordinalTrackingBytes;
+        private final List<IndexMemory> indexes;
+
+        public TypeMemory(String typeName, SchemaType schemaType, List<ShardMemory> shards, long ordinalTrackingBytes, List<IndexMemory> indexes) {
+            this.typeName = typeName;
+            this.schemaType = schemaType;
+            this.shards = Collections.unmodifiableList(shards);
+            this.ordinalTrackingBytes = ordinalTrackingBytes;
+            this.indexes = Collections.unmodifiableList(indexes);
+        }
+
+        public String getTypeName() {
+            return typeName;
+        }
+
+        public SchemaType getSchemaType() {
+            return schemaType;
+        }
+
+        public List<ShardMemory> getShards() {
+            return shards;
+        }
+
+        /**
+         * @return the bytes occupied by the bit sets which track the populated and previously populated ordinals of this type.
+         */
+        public long getOrdinalTrackingBytes() {
+            return ordinalTrackingBytes;
+        }
+
+        /**
+         * @return the indexes of this type which are listening for delta updates.
+         */
+        public List<IndexMemory> getIndexes() {
+            return indexes;
+        }
+
+        public long getIndexBytes() {
+            long total = 0;
+            for(IndexMemory index : indexes)
+                total += index.getBytes();
+            return total;
+        }
+
+        public long getFixedLengthBytes() {
+            long total = 0;
+            for(ShardMemory shard : shards)
+                total += shard.getFixedLengthBytes();
+            return total;
+        }
+
+        public long getVarLengthBytes() {
+            long total = 0;
+            for(ShardMemory shard : shards)
+                total += shard.getVarLengthBytes();
+            return total;
+        }
+
+        public long getHashTableOverheadBytes() {
+            long total = 0;
+            for(ShardMemory shard : shards)
+                total += shard.getHashTableOverheadBytes();
+            return total;
+        }
+
+        /**
+         * @return the total bytes attributed to the named field across all shards.
+         */
+        public long getFieldBytes(String fieldName) {
+            long total = 0;
+            for(ShardMemory shard : shards) {
+                FieldMemory field = shard.getField(fieldName);
+                if(field != null)
+                    total += field.getTotalBytes();
+            }
+            return total;
+        }
+
+        public long getTotalBytes() {
+            return getFixedLengthBytes() + getVarLengthBytes() + ordinalTrackingBytes + getIndexBytes();
+        }
+    }
+
+    public static class ShardMemory {
+        private final int shardNumber;
+        private final int maxOrdinal;
+        private final long fixedLengthBytes;
+        private final long varLengthBytes;
+        private final long hashTableOverheadBytes;
+        private final List<FieldMemory> fields;
+
+        public ShardMemory(int shardNumber, int maxOrdinal, long fixedLengthBytes, long varLengthBytes, long hashTableOverheadBytes, List<FieldMemory> fields) {
+            this.shardNumber = shardNumber;
+            this.maxOrdinal = maxOrdinal;
+            this.fixedLengthBytes = fixedLengthBytes;
+            this.varLengthBytes = varLengthBytes;
+            this.hashTableOverheadBytes = hashTableOverheadBytes;
+            this.fields = Collections.unmodifiableList(fields);
+        }
+
+        public int getShardNumber() {
+            return shardNumber;
+        }
+
+        public int getMaxOrdinal() {
+            return maxOrdinal;
+        }
+
+        /**
+         * @return the bytes allocated for the fixed-length data of this shard.
+         */
+        public long getFixedLengthBytes() {
+            return fixedLengthBytes;
+        }
+
+        /**
+         * @return the bytes allocated for the var-length data of this shard.
+         */
+        public long getVarLengthBytes() {
+            return varLengthBytes;
+        }
+
+        /**
+         * @return for SET and MAP types, the bytes occupied by empty hash table buckets, which are included in the fixed-length bytes.
+         */
+        public long getHashTableOverheadBytes() {
+            return hashTableOverheadBytes;
+        }
+
+        public List<FieldMemory> getFields() {
+            return fields;
+        }
+
+        public FieldMemory getField(String fieldName) {
+            for(FieldMemory field : fields) {
+                if(field.getFieldName().equals(fieldName))
+                    return field;
+            }
+            return null;
+        }
+
+        public long getTotalBytes() {
+            return fixedLengthBytes + varLengthBytes;
+        }
+    }
+
+    public static class FieldMemory {
+        private final String fieldName;
+        private final int bitsPerField;
+        private final long fixedLengthBytes;
+        private final long varLengthBytes;
+
+        public FieldMemory(String fieldName, int bitsPerField, long fixedLengthBytes, long varLengthBytes) {
+            this.fieldName = fieldName;
+            this.bitsPerField = bitsPerField;
+            this.fixedLengthBytes = fixedLengthBytes;
+            this.varLengthBytes = varLengthBytes;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public int getBitsPerField() {
+            return bitsPerField;
+        }
+
+        public long getFixedLengthBytes() {
+            return fixedLengthBytes;
+        }
+
+        public long getVarLengthBytes() {
+            return varLengthBytes;
+        }
+
+        public long getTotalBytes() {
+            return fixedLengthBytes + varLengthBytes;
+        }
+    }
+
+    public static class IndexMemory {
+        private final String description;
+        private final long bytes;
+
+        public IndexMemory(String description, long bytes) {
+            this.description = description;
+            this.bytes = bytes;
+        }
+
+        public String getDescription() {
+            return description;
+        }
+
+        /**
+         * @return the bytes allocated for the index's hash tables.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+    }
+
+    /**
+     * Implemented by indexes whose memory is included in the report of the type they index while they are registered as
+     * one of its {@link HollowTypeStateListener}s.
+     */
+    public interface IndexMemoryReporter {
+        IndexMemory getIndexMemory();
+    }
+
+}
@@ -17,6 +17,7 @@
  */
 package com.netflix.hollow.core.read.engine;
 
+import com.netflix.hollow.api.sampling.HollowFieldAccessCounter;
 import com.netflix.hollow.core.util.HollowObjectHashCodeFinder;
 
 import com.netflix.hollow.core.util.DefaultHashCodeFinder;
@@ -27,16 +28,22 @@ import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.core.schema.HollowSetSchema;
 import com.netflix.hollow.core.HollowStateEngine;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.BoundedRecyclingRecycler;
+import com.netflix.hollow.core.memory.pool.ByteBufferRecycler;
 import com.netflix.hollow.core.memory.pool.RecyclingRecycler;
 import com.netflix.hollow.core.read.dataaccess.HollowDataAccess;
 import com.netflix.hollow.core.read.dataaccess.HollowTypeDataAccess;
 import com.netflix.hollow.core.read.engine.map.HollowMapTypeReadState;
 import com.netflix.hollow.core.read.engine.set.HollowSetTypeReadState;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
 import com.netflix.hollow.core.read.missing.DefaultMissingDataHandler;
 import com.netflix.hollow.core.read.missing.MissingDataHandler;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -49,10 +56,20 @@ import java.util.Set;
  * A dataset changes over time.  A core concept in Hollow is that the timeline for a changing dataset can be 
  * broken down into discrete data states, each of which is a complete snapshot of the data at a particular point in time.
  * Data consumers handle data states with a HollowReadStateEngine.
+ * <p>
+ * The data for each state is held in memory supplied by the engine's {@link ArraySegmentRecycler}.  To hold the data
+ * outside of the Java heap, construct the engine with an {@link com.netflix.hollow.core.memory.pool.OffHeapSegmentRecycler},
+ * such as a {@link com.netflix.hollow.core.memory.pool.ByteBufferRecycler}.
+ * <p>
+ * If {@link #setLazyTypeMaterialization(boolean) lazy type materialization} is enabled, each type's data is retained in its encoded 
+ * form when a snapshot is read, and is only decoded once the type is first retrieved via {@link #getTypeState(String)} or 
+ * {@link #getTypeDataAccess(String)}.
  */
 public class HollowReadStateEngine implements HollowStateEngine, HollowDataAccess {
 
-    private final Map<String, HollowTypeReadState> typeStates;
+    private volatile Map<String, HollowTypeReadState> typeStates;
+    private final Map<String, LazyTypeState> lazyTypeStates;
+    private final Object materializationLock;
     private final Map<String, List<HollowTypeStateListener>> listeners;
     private final HollowObjectHashCodeFinder hashCodeFinder;
     private final boolean listenToAllPopulatedOrdinals;
@@ -61,6 +78,8 @@ public class HollowReadStateEngine implements HollowStateEngine, HollowDataAcces
     private Set<String> typesWithDefinedHashCodes = new HashSet<String>();
 
     private long currentRandomizedTag;
+    private boolean lazyTypeMaterialization;
+    private boolean fieldAccessCounting;
 
     private MissingDataHandler missingDataHandler = new DefaultMissingDataHandler();
 
@@ -82,6 +101,8 @@ public class HollowReadStateEngine implements HollowStateEngine, HollowDataAcces
 
     public HollowReadStateEngine(HollowObjectHashCodeFinder hashCodeFinder, boolean listenToAllPopulatedOrdinals, ArraySegmentRecycler recycler) {
         this.typeStates = new HashMap<String, HollowTypeReadState>();
+        this.lazyTypeStates = new HashMap<String, LazyTypeState>();
+        this.materializationLock = new Object();
         this.listeners = new HashMap<String, List<HollowTypeStateListener>>();
         this.hashCodeFinder = hashCodeFinder;
         this.memoryRecycler = recycler;
@@ -95,7 +116,134 @@ public class HollowReadStateEngine implements HollowStateEngine, HollowDataAcces
 
     protected void addTypeState(HollowTypeReadState typeState) {
         typeStates.put(typeState.getSchema().getName(), typeState);
+        attachListeners(typeState);
+        applyFieldAccessCounting(typeState);
+    }
+
+    /**
+     * Add a type whose snapshot data will be decoded from the provided stream when the type is first retrieved.
+     */
+    void addLazyTypeState(HollowTypeReadState typeState, InputStream snapshot) {
+        synchronized(materializationLock) {
+            lazyTypeStates.put(typeState.getSchema().getName(), new LazyTypeState(typeState, snapshot));
+        }
+        applyFieldAccessCounting(typeState);
+    }
+
+    /**
+     * Retain a delta for a type which has not yet been materialized.  Must be called while holding the materialization lock.
+     */
+    void queueDelta(String type, HollowSchema deltaSchema, InputStream delta) {
+        lazyTypeStates.get(type).queueDelta(deltaSchema, delta);
+    }
+
+    /**
+     * Must be called while holding the materialization lock.
+     */
+    boolean isMaterializationPending(String type) {
+        return lazyTypeStates.containsKey(type);
+    }
+
+    /**
+     * Materialize each type for which the maximum number of deltas has already been retained, so that the next delta is
+     * applied to it directly.  Must be called while holding the materialization lock, by the thread which applies deltas.
+     */
+    void materializeTypesWithFullDeltaQueues() {
+        for(String type : new ArrayList<String>(lazyTypeStates.keySet())) {
+            LazyTypeState lazyTypeState = lazyTypeStates.get(type);
+            if(lazyTypeState != null && lazyTypeState.isDeltaQueueFull())
+                materialize(type);
+        }
+    }
+
+    /**
+     * Types are not materialized while this lock is held.  It is held while each snapshot is read and each delta is applied,
+     * so that types are never materialized concurrently with the update thread's use of the memory recycler.
+     */
+    Object getMaterializationLock() {
+        return materializationLock;
+    }
+
+    /**
+     * @return whether any type may be materialized concurrently with an update.  If not, updates need not hold the materialization lock.
+     */
+    boolean isMaterializationLockRequired() {
+        if(lazyTypeMaterialization)
+            return true;
 
+        synchronized(materializationLock) {
+            return !lazyTypeStates.isEmpty();
+        }
+    }
+
+    /**
+     * @return the type state, only if it has already been materialized.
+     */
+    HollowTypeReadState getMaterializedTypeState(String type) {
+        return typeStates.get(type);
+    }
+
+    private HollowTypeReadState materialize(String type) {
+        synchronized(materializationLock) {
+            HollowTypeReadState typeState = typeStates.get(type);
+            if(typeState != null)
+                return typeState;
+
+            LazyTypeState lazyTypeState = lazyTypeStates.get(type);
+            if(lazyTypeState == null)
+                return null;
+
+            typeState = lazyTypeState.getTypeState();
+            attachListeners(typeState);
+
+            try {
+                lazyTypeState.materialize(memoryRecycler);
+            } catch(IOException e) {
+                throw new RuntimeException("Unable to materialize type " + type, e);
+            }
+
+            lazyTypeStates.remove(type);
+            Map<String, HollowTypeReadState> updatedTypeStates = new HashMap<String, HollowTypeReadState>(typeStates);
+            updatedTypeStates.put(type, typeState);
+            typeStates = updatedTypeStates;
+
+            /// referenced types are materialized as well, so that this type's schema is fully wired to its referenced type states.
+            for(String referencedType : referencedTypes(typeState.getSchema()))
+                materialize(referencedType);
+
+            wireTypeStatesToSchemas();
+
+            return typeState;
+        }
+    }
+
+    private List<String> referencedTypes(HollowSchema schema) {
+        List<String> referencedTypes = new ArrayList<String>();
+
+        switch(schema.getSchemaType()) {
+        case OBJECT:
+            HollowObjectSchema objSchema = (HollowObjectSchema)schema;
+            for(int i=0;i<objSchema.numFields();i++) {
+                if(objSchema.getReferencedType(i) != null)
+                    referencedTypes.add(objSchema.getReferencedType(i));
+            }
+            break;
+        case LIST:
+            referencedTypes.add(((HollowListSchema)schema).getElementType());
+            break;
+        case SET:
+            referencedTypes.add(((HollowSetSchema)schema).getElementType());
+            break;
+        case MAP:
+            referencedTypes.add(((HollowMapSchema)schema).getKeyType());
+            referencedTypes.add(((HollowMapSchema)schema).getValueType());
+            break;
+        }
+
+        return referencedTypes;
+    }
+
+    private void attachListeners(HollowTypeReadState typeState) {
         if(listenToAllPopulatedOrdinals) {
             typeState.addListener(new PopulatedOrdinalListener());
         }
@@ -155,37 +303,195 @@ public class HollowReadStateEngine implements HollowStateEngine, HollowDataAcces
 
     @Override
     public HollowTypeDataAccess getTypeDataAccess(String type) {
-        return typeStates.get(type);
+        return getTypeState(type);
     }
 
     @Override
     public HollowTypeDataAccess getTypeDataAccess(String type, int ordinal) {
-        return typeStates.get(type);
+        return getTypeState(type);
     }
 
     @Override
     public Collection<String> getAllTypes() {
-        return typeStates.keySet();
+        if(!lazyTypeMaterialization)
+            return typeStates.keySet();
+
+        synchronized(materializationLock) {
+            Set<String> allTypes = new HashSet<String>(typeStates.keySet());
+            allTypes.addAll(lazyTypeStates.keySet());
+            return allTypes;
+        }
     }
 
+    /**
+     * If lazy type materialization is enabled and the type has not yet been materialized, it is materialized by this call.
+     */
     public HollowTypeReadState getTypeState(String type) {
-        return typeStates.get(type);
+        HollowTypeReadState typeState = typeStates.get(type);
+        if(typeState == null && lazyTypeMaterialization)
+            typeState = materialize(type);
+        return typeState;
     }
 
+    /**
+     * If lazy type materialization is enabled, each type which has not yet been materialized is materialized by this call.
+     * Use {@link #getMaterializedTypeStates()} to inspect the engine without materializing any type.
+     */
     public Collection<HollowTypeReadState> getTypeStates() {
+        if(lazyTypeMaterialization) {
+            for(String type : getAllTypes())
+                getTypeState(type);
+        }
         return typeStates.values();
     }
 
+    /**
+     * @return each type which has been materialized.  Unless lazy type materialization is enabled, this is every type.
+     */
+    public Collection<HollowTypeReadState> getMaterializedTypeStates() {
+        return typeStates.values();
+    }
+
+    /**
+     * Enable or disable lazy type materialization.  This must be set before a snapshot is read.
+     * <p>
+     * When enabled, each type's data is retained in its encoded form when a snapshot is read, and decoded once the type
+     * is first retrieved via {@link #getTypeState(String)} or {@link #getTypeDataAccess(String)}.  The types it references
+     * are materialized at the same time.  Deltas for types which have not yet been materialized are retained, and applied
+     * in turn when the type is materialized.  Once a bounded number of deltas has been retained for a type, the type is
+     * materialized by the thread applying the next delta.
+     * <p>
+     * {@link #getTypeStates()} materializes every type, so tools which inspect the whole engine, such as
+     * {@link com.netflix.hollow.tools.checksum.HollowChecksum}, see the same data as with eager materialization.
+     * <p>
+     * This reduces the time and memory required to load a dataset of which only some types are used, without needing to
+     * specify those types in a {@link com.netflix.hollow.core.read.filter.HollowFilterConfig}.  However, the encoded data for
+     * each unused type, including each of its deltas, is retained until the next snapshot is loaded into a new engine.
+     * <p>
+     * <b>Materialization is serialized with updates.</b>  Types are materialized with the same memory recycler the update thread
+     * uses, so a lock is held while each snapshot is read and each delta is applied, for the entire blob.  A thread which first
+     * retrieves a type while an update is in progress blocks until the update completes, which may take as long as the update
+     * itself, and an update waits for any type being materialized.  Latency sensitive consumers should retrieve the types they
+     * use before the first update after the snapshot, or leave this disabled.
+     */
+    public void setLazyTypeMaterialization(boolean lazyTypeMaterialization) {
+        this.lazyTypeMaterialization = lazyTypeMaterialization;
+    }
+
+    public boolean isLazyTypeMaterialization() {
+        return lazyTypeMaterialization;
+    }
+
+    /**
+     * Enable or disable counting of every access to each field of each OBJECT type, including types added after this call.
+     * <p>
+     * Counting is cheap enough to be left enabled in production.  The counts may be captured with 
+     * {@link com.netflix.hollow.api.sampling.HollowFieldAccessSnapshot#capture(HollowReadStateEngine)} to find frequently read
+     * fields and fields which are never read.  As with sampling, accesses from the thread passed to 
+     * {@link com.netflix.hollow.api.custom.HollowAPI#ignoreUpdateThreadForSampling(Thread)} (e.g. by delta-aware indexes while a delta is applied) 
+     * are not counted.
+     * 
+     * @see HollowFieldAccessCounter
+     */
+    public void setFieldAccessCounting(boolean fieldAccessCounting) {
+        this.fieldAccessCounting = fieldAccessCounting;
+
+        for(HollowTypeReadState typeState : typeStates.values())
+            applyFieldAccessCounting(typeState);
+
+        synchronized(materializationLock) {
+            for(LazyTypeState lazyTypeState : lazyTypeStates.values())
+                applyFieldAccessCounting(lazyTypeState.getTypeState());
+        }
+    }
+
+    public boolean isFieldAccessCounting() {
+        return fieldAccessCounting;
+    }
+
+    /**
+     * @return the {@link HollowFieldAccessCounter} of each OBJECT type for which field access counting is enabled, including
+     * types which have not yet been materialized.
+     */
+    public List<HollowFieldAccessCounter> getFieldAccessCounters() {
+        List<HollowFieldAccessCounter> counters = new ArrayList<HollowFieldAccessCounter>();
+        for(HollowTypeReadState typeState : typeStates.values())
+            addFieldAccessCounter(typeState, counters);
+
+        if(lazyTypeMaterialization) {
+            synchronized(materializationLock) {
+                for(LazyTypeState lazyTypeState : lazyTypeStates.values())
+                    addFieldAccessCounter(lazyTypeState.getTypeState(), counters);
+            }
+        }
+
+        return counters;
+    }
+
+    private void addFieldAccessCounter(HollowTypeReadState typeState, List<HollowFieldAccessCounter> counters) {
+        if(typeState instanceof HollowObjectTypeReadState) {
+            HollowFieldAccessCounter counter = ((HollowObjectTypeReadState)typeState).getFieldAccessCounter();
+            if(counter != null)
+                counters.add(counter);
+        }
+    }
+
+    private void applyFieldAccessCounting(HollowTypeReadState typeState) {
+        if(typeState instanceof HollowObjectTypeReadState)
+            ((HollowObjectTypeReadState)typeState).setFieldAccessCounting(fieldAccessCounting);
+    }
+
     public ArraySegmentRecycler getMemoryRecycler() {
         return memoryRecycler;
     }
 
+    /**
+     * @return a detailed accounting of the memory currently occupied by each materialized type in this engine, and of the
+     * memory pooled by its {@link ArraySegmentRecycler}.
+     */
+    public HollowMemoryReport getMemoryReport() {
+        List<HollowMemoryReport.TypeMemory> types = new ArrayList<HollowMemoryReport.TypeMemory>();
+        for(HollowTypeReadState typeState : typeStates.values())
+            types.add(typeState.getMemoryReport());
+
+        Collections.sort(types, new Comparator<HollowMemoryReport.TypeMemory>() {
+            public int compare(HollowMemoryReport.TypeMemory o1, HollowMemoryReport.TypeMemory o2) {
+                return o1.getTypeName().compareTo(o2.getTypeName());
+            }
+        });
+
+        return new HollowMemoryReport(types, recyclerPoolBytes());
+    }
+
+    private long recyclerPoolBytes() {
+        if(memoryRecycler instanceof RecyclingRecycler)
+            return ((RecyclingRecycler)memoryRecycler).getPooledBytes();
+        if(memoryRecycler instanceof BoundedRecyclingRecycler)
+            return ((BoundedRecyclingRecycler)memoryRecycler).getRetainedBytes();
+        if(memoryRecycler instanceof ByteBufferRecycler)
+            return ((ByteBufferRecycler)memoryRecycler).getPooledOffHeapBytes();
+        return -1;
+    }
+
     public boolean isListenToAllPopulatedOrdinals() {
         return listenToAllPopulatedOrdinals;
     }
 
     @Override
     public List<HollowSchema> getSchemas() {
+        if(lazyTypeMaterialization) {
+            synchronized(materializationLock) {
+                List<HollowSchema> schemas = materializedSchemas();
+                for(Map.Entry<String, LazyTypeState> entry : lazyTypeStates.entrySet())
+                    schemas.add(entry.getValue().getTypeState().getSchema());
+                return schemas;
+            }
+        }
+
+        return materializedSchemas();
+    }
+
+    private List<HollowSchema> materializedSchemas() {
         List<HollowSchema> schemas = new ArrayList<HollowSchema>();
 
         for(Map.Entry<String, HollowTypeReadState> entry : typeStates.entrySet()) {
@@ -197,7 +503,15 @@ public class HollowReadStateEngine implements HollowStateEngine, HollowDataAcces
     
     @Override
     public HollowSchema getSchema(String type) {
-        HollowTypeReadState typeState = getTypeState(type);
+        HollowTypeReadState typeState = typeStates.get(type);
+        if(typeState == null && lazyTypeMaterialization) {
+            synchronized(materializationLock) {
+                LazyTypeState lazyTypeState = lazyTypeStates.get(type);
+                if(lazyTypeState != null)
+                    return lazyTypeState.getTypeState().getSchema();
+                typeState = typeStates.get(type);
+            }
+        }
         return typeState == null ? null : typeState.getSchema();
     }
 
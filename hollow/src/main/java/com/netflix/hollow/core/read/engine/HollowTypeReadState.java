@@ -27,8 +27,14 @@ import com.netflix.hollow.core.read.dataaccess.HollowDataAccess;
 import com.netflix.hollow.core.read.dataaccess.HollowTypeDataAccess;
 import java.io.DataInputStream;
 import java.io.IOException;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.IndexMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.IndexMemoryReporter;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.ShardMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.TypeMemory;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.BitSet;
+import java.util.List;
 
 /**
  * A HollowTypeReadState contains and is the root handle to all of the records of a specific type in
@@ -69,11 +75,12 @@ public abstract class HollowTypeReadState implements HollowTypeDataAccess {
         HollowTypeStateListener newListeners[] = new HollowTypeStateListener[stateListeners.length - 1];
         int newListenerIdx = 0;
         for(int i=0;i<oldListeners.length;i++) {
-            if(newListenerIdx == newListeners.length)
-                return;
+            if(oldListeners[i] != listener) {
+                if(newListenerIdx == newListeners.length)
+                    return;  /// the listener is not registered with this type
 
-            if(oldListeners[i] != listener)
                 newListeners[newListenerIdx++] = oldListeners[i];
+            }
         }
 
         if(newListenerIdx < newListeners.length)
@@ -131,6 +138,59 @@ public abstract class HollowTypeReadState implements HollowTypeDataAccess {
     public abstract void readSnapshot(DataInputStream dis, ArraySegmentRecycler recycler) throws IOException;
     public abstract void applyDelta(DataInputStream dis, HollowSchema schema, ArraySegmentRecycler memoryRecycler) throws IOException;
 
+    /**
+     * Read the snapshot data for a single shard of this type.  The stream is expected to begin at the start of the shard's data.
+     * <p>
+     * Shards may be read concurrently by the {@link HollowBlobReader}, in which case {@link #shardsUpdated(int)} will be
+     * called once all shards have been read.
+     */
+    protected abstract void readSnapshotShard(DataInputStream dis, int shardNumber, ArraySegmentRecycler memoryRecycler) throws IOException;
+
+    /**
+     * Skip over the snapshot data for a single shard of this type.
+     */
+    protected abstract void discardSnapshotShard(DataInputStream dis) throws IOException;
+
+    /**
+     * Read a delta for a single shard of this type and apply it to the shard's current data, without making the result visible 
+     * to readers.  The stream is expected to begin at the start of the shard's data.
+     * <p>
+     * Shards may be updated concurrently by the {@link HollowBlobReader}.  The returned {@link ShardDelta} must then be published
+     * and completed by the update thread.
+     */
+    protected abstract ShardDelta applyDeltaShard(DataInputStream dis, int shardNumber, HollowSchema deltaSchema, ArraySegmentRecycler memoryRecycler) throws IOException;
+
+    /**
+     * Skip over the delta data for a single shard of this type.
+     */
+    protected abstract void discardDeltaShard(DataInputStream dis, HollowSchema deltaSchema) throws IOException;
+
+    /**
+     * Called after all shards of this type have been populated from a snapshot, or updated from a delta.
+     *
+     * @param maxOrdinal the max ordinal read from the blob prior to the shard data.  This is only present, and only used, if
+     * this type has more than one shard.
+     */
+    protected abstract void shardsUpdated(int maxOrdinal);
+
+    /**
+     * A delta which has been applied to a single shard of a type, but which is not yet visible to readers.
+     */
+    protected interface ShardDelta {
+
+        /**
+         * Make the updated data visible to readers of the shard.
+         */
+        public void publish();
+
+        /**
+         * Notify the type's listeners about the ordinals removed from and added to the shard, then destroy the delta 
+         * and the shard's prior data.  Must only be called after {@link #publish()}.
+         */
+        public void complete();
+
+    }
+
     public HollowSchema getSchema() {
         return schema;
     }
@@ -194,6 +254,30 @@ public abstract class HollowTypeReadState implements HollowTypeDataAccess {
      */
     public abstract long getApproximateHoleCostInBytes();
     
+    /**
+     * @return a detailed accounting of the memory currently occupied by this type state, broken down by shard and field.
+     */
+    public TypeMemory getMemoryReport() {
+        List<ShardMemory> shards = new ArrayList<ShardMemory>(numShards());
+        for(int i=0;i<numShards();i++)
+            shards.add(getShardMemoryReport(i));
+
+        long ordinalTrackingBytes = 0;
+        PopulatedOrdinalListener listener = getListener(PopulatedOrdinalListener.class);
+        if(listener != null)
+            ordinalTrackingBytes = (listener.getPopulatedOrdinals().size() + listener.getPreviousOrdinals().size()) / 8;
+
+        List<IndexMemory> indexes = new ArrayList<IndexMemory>();
+        for(HollowTypeStateListener stateListener : getListeners()) {
+            if(stateListener instanceof IndexMemoryReporter)
+                indexes.add(((IndexMemoryReporter)stateListener).getIndexMemory());
+        }
+
+        return new TypeMemory(getSchema().getName(), getSchema().getSchemaType(), shards, ordinalTrackingBytes, indexes);
+    }
+
+    protected abstract ShardMemory getShardMemoryReport(int shardNumber);
+
     /**
      * @return The number of shards into which this type is split.  Sharding is transparent, so this has no effect on normal usage.
      */
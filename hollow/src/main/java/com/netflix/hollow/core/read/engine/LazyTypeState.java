@@ -0,0 +1,94 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine;
+
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.schema.HollowSchema;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A type in a {@link HollowReadStateEngine} which has not yet been materialized.
+ * <p>
+ * The type's snapshot data, and the data from each subsequent delta for the type, is retained in its encoded form 
+ * until the type is first accessed.  At most {@link #MAX_QUEUED_DELTAS} deltas are retained; the thread which applies
+ * deltas materializes the type rather than retaining more.
+ */
+class LazyTypeState {
+
+    static final int MAX_QUEUED_DELTAS = 8;
+
+    private final HollowTypeReadState typeState;
+    private final InputStream snapshot;
+    private final List<HollowSchema> deltaSchemas;
+    private final List<InputStream> deltas;
+
+    LazyTypeState(HollowTypeReadState typeState, InputStream snapshot) {
+        this.typeState = typeState;
+        this.snapshot = snapshot;
+        this.deltaSchemas = new ArrayList<HollowSchema>();
+        this.deltas = new ArrayList<InputStream>();
+    }
+
+    HollowTypeReadState getTypeState() {
+        return typeState;
+    }
+
+    boolean isDeltaQueueFull() {
+        return deltas.size() >= MAX_QUEUED_DELTAS;
+    }
+
+    void queueDelta(HollowSchema deltaSchema, InputStream delta) {
+        deltaSchemas.add(deltaSchema);
+        deltas.add(delta);
+    }
+
+    /**
+     * Decode the snapshot, then apply each queued delta in turn.  The type's listeners are notified of each update.
+     * <p>
+     * The memory recycler is not swapped here.  Segments released while the queued deltas are applied are reused only
+     * after the next swap by the thread which applies deltas to the engine.
+     */
+    HollowTypeReadState materialize(ArraySegmentRecycler memoryRecycler) throws IOException {
+        notifyBeginUpdate();
+        typeState.readSnapshot(new DataInputStream(snapshot), memoryRecycler);
+        notifyEndUpdate();
+
+        for(int i=0;i<deltas.size();i++) {
+            notifyBeginUpdate();
+            typeState.applyDelta(new DataInputStream(deltas.get(i)), deltaSchemas.get(i), memoryRecycler);
+            notifyEndUpdate();
+        }
+
+        return typeState;
+    }
+
+    private void notifyBeginUpdate() {
+        for(HollowTypeStateListener listener : typeState.getListeners())
+            listener.beginUpdate();
+    }
+
+    private void notifyEndUpdate() {
+        for(HollowTypeStateListener listener : typeState.getListeners())
+            listener.endUpdate();
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine;
+
+import com.netflix.hollow.core.memory.encoding.VarInt;
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.SynchronizedRecycler;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState.ShardDelta;
+import com.netflix.hollow.core.schema.HollowSchema;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Applies the type states of a delta concurrently.
+ * <p>
+ * As with the {@link ParallelSnapshotReader}, the thread reading the blob hands the bytes for each shard of each type, 
+ * as they are read, to tasks submitted to the provided Executor, which decode these and apply them to the shards' current data.  None of the 
+ * results are visible to readers until all shards of all types have been updated, at which point the new data for every 
+ * shard is published.  Only after all shards are published are listeners notified and the prior data destroyed.
+ * <p>
+ * Because prior data is not destroyed (and its memory is not recycled) until every type has been updated, the peak 
+ * memory required to apply a delta in this way is greater than when types are updated one shard at a time.
+ */
+class ParallelDeltaApplicator {
+
+    private final Executor executor;
+    private final ArraySegmentRecycler memoryRecycler;
+    private final BlobSectionRecorder.HeapBudget heapBudget;
+    private final List<HollowTypeReadState> typeStates;
+    private final List<Integer> typeStateMaxOrdinals;
+    private final List<List<FutureTask<ShardDelta>>> typeStateShardDeltas;
+    private final List<List<InputStream>> typeStateShardSections;
+
+    ParallelDeltaApplicator(Executor executor, ArraySegmentRecycler memoryRecycler) {
+        this.executor = executor;
+        this.memoryRecycler = SynchronizedRecycler.wrap(memoryRecycler);
+        this.heapBudget = new BlobSectionRecorder.HeapBudget(ParallelSnapshotReader.MAX_PENDING_HEAP_BYTES);
+        this.typeStates = new ArrayList<HollowTypeReadState>();
+        this.typeStateMaxOrdinals = new ArrayList<Integer>();
+        this.typeStateShardDeltas = new ArrayList<List<FutureTask<ShardDelta>>>();
+        this.typeStateShardSections = new ArrayList<List<InputStream>>();
+    }
+
+    /**
+     * Read past the delta data for the provided type state in the stream, and submit tasks to apply it.
+     */
+    void applyDelta(DataInputStream dis, final HollowTypeReadState typeState, final HollowSchema deltaSchema) throws IOException {
+        int maxOrdinal = typeState.numShards() > 1 ? VarInt.readVInt(dis) : -1;
+
+        List<FutureTask<ShardDelta>> shardDeltas = new ArrayList<FutureTask<ShardDelta>>(typeState.numShards());
+        List<InputStream> shardSections = new ArrayList<InputStream>(typeState.numShards());
+
+        BlobSectionRecorder recorder = new BlobSectionRecorder(dis, heapBudget, null);
+        try {
+            applySections(recorder, typeState, deltaSchema, shardDeltas, shardSections);
+        } finally {
+            /// if the blob could not be read, the task applying the incomplete section must not wait for it forever.
+            recorder.abandonCurrentSection();
+        }
+
+        typeStates.add(typeState);
+        typeStateMaxOrdinals.add(maxOrdinal);
+        typeStateShardDeltas.add(shardDeltas);
+        typeStateShardSections.add(shardSections);
+    }
+
+    private void applySections(BlobSectionRecorder recorder, final HollowTypeReadState typeState, final HollowSchema deltaSchema, List<FutureTask<ShardDelta>> shardDeltas, List<InputStream> shardSections) throws IOException {
+        DataInputStream recordingDis = new DataInputStream(recorder);
+
+        for(int i=0;i<typeState.numShards();i++) {
+            final DataInputStream shardData = new DataInputStream(recorder.currentSection());
+            final int shardNumber = i;
+
+            FutureTask<ShardDelta> task = new FutureTask<ShardDelta>(new Callable<ShardDelta>() {
+                public ShardDelta call() throws Exception {
+                    try {
+                        return typeState.applyDeltaShard(shardData, shardNumber, deltaSchema, memoryRecycler);
+                    } finally {
+                        shardData.close();
+                    }
+                }
+            });
+
+            shardDeltas.add(task);
+            shardSections.add(shardData);
+            boolean executed = ParallelSnapshotReader.executeUnlessOnCallingThread(executor, task);
+
+            typeState.discardDeltaShard(recordingDis, deltaSchema);
+            ParallelSnapshotReader.endSection(recorder, executed ? null : task);
+        }
+    }
+
+    /**
+     * Wait for all submitted tasks to complete, then publish the updated data for all shards, notify listeners,
+     * and destroy the prior data.
+     * <p>
+     * If any task failed, the remaining tasks are cancelled, the failure is rethrown, and no updated data is published.
+     */
+    void awaitCompletionAndPublish() throws IOException {
+        List<List<ShardDelta>> results = new ArrayList<List<ShardDelta>>(typeStates.size());
+
+        try {
+            for(List<FutureTask<ShardDelta>> shardDeltas : typeStateShardDeltas) {
+                List<ShardDelta> typeResults = new ArrayList<ShardDelta>(shardDeltas.size());
+                for(FutureTask<ShardDelta> task : shardDeltas)
+                    typeResults.add(task.get());
+                results.add(typeResults);
+            }
+        } catch(ExecutionException e) {
+            cancelAll();
+            if(e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            throw new RuntimeException(e.getCause());
+        } catch(InterruptedException e) {
+            cancelAll();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        for(int i=0;i<typeStates.size();i++) {
+            for(ShardDelta shardDelta : results.get(i))
+                shardDelta.publish();
+            typeStates.get(i).shardsUpdated(typeStateMaxOrdinals.get(i));
+        }
+
+        for(List<ShardDelta> typeResults : results) {
+            for(ShardDelta shardDelta : typeResults)
+                shardDelta.complete();
+        }
+    }
+
+    /**
+     * Cancel each task which has not yet begun, and release the section it would have applied.
+     */
+    private void cancelAll() {
+        for(int i=0;i<typeStateShardDeltas.size();i++) {
+            List<FutureTask<ShardDelta>> shardDeltas = typeStateShardDeltas.get(i);
+            for(int j=0;j<shardDeltas.size();j++) {
+                if(shardDeltas.get(j).cancel(false))
+                    ParallelSnapshotReader.closeQuietly(typeStateShardSections.get(i).get(j));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,210 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine;
+
+import com.netflix.hollow.core.memory.encoding.VarInt;
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.SynchronizedRecycler;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Decodes the type states of a snapshot concurrently.
+ * <p>
+ * The thread reading the blob walks past each shard (and the populated ordinals) of each type state exactly as if 
+ * the type were being discarded, but retains the bytes it reads.  Each of these sections is decoded by a task 
+ * submitted to the provided Executor when the walk of the section begins, which receives the bytes of the section 
+ * from a {@link BlobSectionRecorder} as they are read.  Because each section is decoded with the same code which 
+ * decodes the type state serially, the resulting state is identical.
+ * <p>
+ * The bytes which have been read but not yet decoded are held on the heap up to {@link #MAX_PENDING_HEAP_BYTES} for 
+ * the entire blob.  Beyond that, the thread reading the blob waits for the tasks which are decoding to catch up, and 
+ * only spills to a temporary file if none of the tasks holding those bytes has started (e.g. if the Executor is busy).  
+ * If the Executor runs a task on the thread reading the blob, that task is instead run once its section has been read.
+ */
+class ParallelSnapshotReader {
+
+    static final long MAX_PENDING_HEAP_BYTES = 1 << 26;
+
+    private final Executor executor;
+    private final ArraySegmentRecycler memoryRecycler;
+    private final BlobSectionRecorder.HeapBudget heapBudget;
+    private final List<FutureTask<Void>> tasks;
+    private final List<InputStream> taskSections;
+    private final List<HollowTypeReadState> typeStates;
+    private final List<Integer> typeStateMaxOrdinals;
+
+    ParallelSnapshotReader(Executor executor, ArraySegmentRecycler memoryRecycler) {
+        this.executor = executor;
+        this.memoryRecycler = SynchronizedRecycler.wrap(memoryRecycler);
+        this.heapBudget = new BlobSectionRecorder.HeapBudget(MAX_PENDING_HEAP_BYTES);
+        this.tasks = new ArrayList<FutureTask<Void>>();
+        this.taskSections = new ArrayList<InputStream>();
+        this.typeStates = new ArrayList<HollowTypeReadState>();
+        this.typeStateMaxOrdinals = new ArrayList<Integer>();
+    }
+
+    /**
+     * Read past the snapshot data for the provided type state in the stream, and submit tasks to decode it.
+     */
+    void readSnapshot(DataInputStream dis, final HollowTypeReadState typeState) throws IOException {
+        int maxOrdinal = typeState.numShards() > 1 ? VarInt.readVInt(dis) : -1;
+
+        BlobSectionRecorder recorder = new BlobSectionRecorder(dis, heapBudget, null);
+        try {
+            readSections(recorder, typeState);
+        } finally {
+            /// if the blob could not be read, the task decoding the incomplete section must not wait for it forever.
+            recorder.abandonCurrentSection();
+        }
+
+        typeStates.add(typeState);
+        typeStateMaxOrdinals.add(maxOrdinal);
+    }
+
+    private void readSections(BlobSectionRecorder recorder, final HollowTypeReadState typeState) throws IOException {
+        DataInputStream recordingDis = new DataInputStream(recorder);
+
+        for(int i=0;i<typeState.numShards();i++) {
+            final DataInputStream shardData = new DataInputStream(recorder.currentSection());
+            final int shardNumber = i;
+
+            FutureTask<Void> unexecutedTask = submit(shardData, new Callable<Void>() {
+                public Void call() throws Exception {
+                    try {
+                        typeState.readSnapshotShard(shardData, shardNumber, memoryRecycler);
+                    } finally {
+                        shardData.close();
+                    }
+                    return null;
+                }
+            });
+
+            typeState.discardSnapshotShard(recordingDis);
+            endSection(recorder, unexecutedTask);
+        }
+
+        final DataInputStream populatedOrdinalsData = new DataInputStream(recorder.currentSection());
+
+        FutureTask<Void> unexecutedTask = submit(populatedOrdinalsData, new Callable<Void>() {
+            public Void call() throws Exception {
+                try {
+                    SnapshotPopulatedOrdinalsReader.readOrdinals(populatedOrdinalsData, typeState.getListeners());
+                } finally {
+                    populatedOrdinalsData.close();
+                }
+                return null;
+            }
+        });
+
+        SnapshotPopulatedOrdinalsReader.discardOrdinals(recordingDis);
+        endSection(recorder, unexecutedTask);
+    }
+
+    /**
+     * Wait for all submitted tasks to complete.  If any task failed, the remaining tasks are cancelled and the
+     * failure is rethrown.
+     */
+    void awaitCompletion() throws IOException {
+        try {
+            for(FutureTask<Void> task : tasks)
+                task.get();
+        } catch(ExecutionException e) {
+            cancelAll();
+            if(e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            throw new RuntimeException(e.getCause());
+        } catch(InterruptedException e) {
+            cancelAll();
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+
+        for(int i=0;i<typeStates.size();i++)
+            typeStates.get(i).shardsUpdated(typeStateMaxOrdinals.get(i));
+    }
+
+    /**
+     * @return the task, if it was executed by the Executor, or null if it must be run once its section has been read.
+     */
+    private FutureTask<Void> submit(InputStream section, Callable<Void> callable) {
+        FutureTask<Void> task = new FutureTask<Void>(callable);
+        tasks.add(task);
+        taskSections.add(section);
+        return executeUnlessOnCallingThread(executor, task) ? null : task;
+    }
+
+    /**
+     * End the section which the task decodes, then run the task if it was not executed by the Executor.
+     */
+    static void endSection(BlobSectionRecorder recorder, FutureTask<?> unexecutedTask) throws IOException {
+        recorder.endSection();
+        if(unexecutedTask != null)
+            unexecutedTask.run();
+    }
+
+    /**
+     * A task which decodes a section as it is read must not run on the thread which reads the section, or it would wait
+     * forever for bytes which that thread cannot read.  If the Executor runs the task on the calling thread from within 
+     * {@link Executor#execute(Runnable)}, the task is not run, and must be run once its section has been read.
+     * 
+     * @return false if the task was not run.
+     */
+    static boolean executeUnlessOnCallingThread(Executor executor, final FutureTask<?> task) {
+        final Thread callingThread = Thread.currentThread();
+        final AtomicBoolean executing = new AtomicBoolean(true);
+        final AtomicBoolean declined = new AtomicBoolean(false);
+
+        executor.execute(new Runnable() {
+            public void run() {
+                if(executing.get() && Thread.currentThread() == callingThread)
+                    declined.set(true);
+                else
+                    task.run();
+            }
+        });
+
+        executing.set(false);
+        return !declined.get();
+    }
+
+    /**
+     * Cancel each task which has not yet begun, and release the section it would have decoded.
+     */
+    private void cancelAll() {
+        for(int i=0;i<tasks.size();i++) {
+            if(tasks.get(i).cancel(false))
+                closeQuietly(taskSections.get(i));
+        }
+    }
+
+    static void closeQuietly(InputStream section) {
+        try {
+            section.close();
+        } catch(IOException ignore) { }
+    }
+
+}
@@ -17,8 +17,12 @@
  */
 package com.netflix.hollow.core.read.engine.list;
 
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.FieldMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.ShardMemory;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.List;
 
 class HollowListTypeReadStateShard {
 
@@ -119,6 +123,17 @@ class HollowListTypeReadStateShard {
         return requiredBits / 8;
     }
     
+    public ShardMemory getMemoryReport(int shardNumber) {
+        HollowListTypeDataElements currentData = currentDataVolatile;
+
+        List<FieldMemory> components = new ArrayList<FieldMemory>(2);
+        components.add(new FieldMemory("pointers", currentData.bitsPerListPointer, currentData.listPointerArray.sizeInBytes(), 0));
+        components.add(new FieldMemory("elements", currentData.bitsPerElement, currentData.elementArray.sizeInBytes(), 0));
+
+        long fixedLengthBytes = currentData.listPointerArray.sizeInBytes() + currentData.elementArray.sizeInBytes();
+        return new ShardMemory(shardNumber, currentData.maxOrdinal, fixedLengthBytes, 0, 0, components);
+    }
+    
     public long getApproximateHoleCostInBytes(BitSet populatedOrdinals, int shardNumber, int numShards) {
         long holeBits = 0;
         
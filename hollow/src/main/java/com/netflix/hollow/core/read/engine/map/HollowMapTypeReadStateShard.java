@@ -19,9 +19,13 @@ package com.netflix.hollow.core.read.engine.map;
 
 import com.netflix.hollow.core.index.key.HollowPrimaryKeyValueDeriver;
 import com.netflix.hollow.core.memory.encoding.HashCodes;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.FieldMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.ShardMemory;
 import com.netflix.hollow.core.read.engine.SetMapKeyHasher;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.List;
 
 class HollowMapTypeReadStateShard {
     
@@ -237,6 +241,22 @@ class HollowMapTypeReadStateShard {
         return requiredBits / 8;
     }
     
+    public ShardMemory getMemoryReport(int shardNumber) {
+        HollowMapTypeDataElements currentData = currentDataVolatile;
+
+        long totalNumberOfEntries = 0;
+        for(int ordinal=0;ordinal<=currentData.maxOrdinal;ordinal++)
+            totalNumberOfEntries += currentData.mapPointerAndSizeArray.getElementValue(((long)ordinal * currentData.bitsPerFixedLengthMapPortion) + currentData.bitsPerMapPointer, currentData.bitsPerMapSizeValue);
+        long hashTableOverheadBytes = ((currentData.totalNumberOfBuckets - totalNumberOfEntries) * currentData.bitsPerMapEntry) / 8;
+
+        List<FieldMemory> components = new ArrayList<FieldMemory>(2);
+        components.add(new FieldMemory("pointersAndSizes", currentData.bitsPerFixedLengthMapPortion, currentData.mapPointerAndSizeArray.sizeInBytes(), 0));
+        components.add(new FieldMemory("entries", currentData.bitsPerMapEntry, currentData.entryArray.sizeInBytes(), 0));
+
+        long fixedLengthBytes = currentData.mapPointerAndSizeArray.sizeInBytes() + currentData.entryArray.sizeInBytes();
+        return new ShardMemory(shardNumber, currentData.maxOrdinal, fixedLengthBytes, 0, hashTableOverheadBytes, components);
+    }
+    
     public long getApproximateHoleCostInBytes(BitSet populatedOrdinals, int shardNumber, int numShards) {
         long holeBits = 0;
         
@@ -0,0 +1,216 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine.object;
+
+import com.netflix.hollow.api.sampling.HollowObjectSampler;
+import com.netflix.hollow.api.sampling.HollowSampler;
+import com.netflix.hollow.api.sampling.HollowSamplingDirector;
+import com.netflix.hollow.core.memory.encoding.HashCodes;
+import com.netflix.hollow.core.read.dataaccess.HollowDataAccess;
+import com.netflix.hollow.core.read.dataaccess.HollowObjectTypeDataAccess;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.read.filter.HollowFilterConfig;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import java.io.Closeable;
+
+/**
+ * A read session pins the data for each shard of a {@link HollowObjectTypeReadState} as it was when the session was opened.
+ * <p>
+ * Reads through a session do not need to be re-validated against concurrent delta application, so many fields may be read
+ * from the same records more cheaply than via the {@link HollowObjectTypeReadState} directly.  All reads through a session
+ * observe the same version of the data, even if deltas are applied while it is open.
+ * <p>
+ * Because a session implements {@link HollowObjectTypeDataAccess}, it may be used anywhere the type's data access is, e.g. 
+ * to construct a {@link com.netflix.hollow.api.objects.generic.GenericHollowObject}.
+ * <p>
+ * A session must be closed once it is no longer needed.  Data replaced by a delta is retained rather than recycled until every 
+ * session opened before the delta has been closed.  Sessions are intended to be short-lived, and may be used by only one 
+ * thread at a time.
+ * 
+ * @see HollowObjectTypeReadState#openReadSession()
+ */
+public class HollowObjectTypeReadSession implements HollowObjectTypeDataAccess, Closeable {
+
+    private final HollowObjectTypeReadState typeState;
+    private final HollowObjectTypeReadState.ReadEpoch epoch;
+    private final HollowObjectSchema schema;
+    private final HollowObjectSampler sampler;
+    private final HollowObjectTypeDataElements data[];
+    private final int shardNumberMask;
+    private final int shardOrdinalShift;
+
+    private boolean closed;
+
+    HollowObjectTypeReadSession(HollowObjectTypeReadState typeState, HollowObjectTypeReadState.ReadEpoch epoch, HollowObjectSampler sampler, HollowObjectTypeDataElements data[], int shardNumberMask, int shardOrdinalShift) {
+        this.typeState = typeState;
+        this.epoch = epoch;
+        this.schema = typeState.getSchema();
+        this.sampler = sampler;
+        this.data = data;
+        this.shardNumberMask = shardNumberMask;
+        this.shardOrdinalShift = shardOrdinalShift;
+    }
+
+    @Override
+    public boolean isNull(int ordinal, int fieldIndex) {
+        sampler.recordFieldAccess(fieldIndex);
+        return HollowObjectTypeReadStateShard.isNull(data[ordinal & shardNumberMask], ordinal >> shardOrdinalShift, fieldIndex);
+    }
+
+    @Override
+    public int readOrdinal(int ordinal, int fieldIndex) {
+        sampler.recordFieldAccess(fieldIndex);
+        return HollowObjectTypeReadStateShard.readOrdinal(data[ordinal & shardNumberMask], ordinal >> shardOrdinalShift, fieldIndex);
+    }
+
+    @Override
+    public int readInt(int ordinal, int fieldIndex) {
+        sampler.recordFieldAccess(fieldIndex);
+        return HollowObjectTypeReadStateShard.readInt(data[ordinal & shardNumberMask], ordinal >> shardOrdinalShift, fieldIndex);
+    }
+
+    @Override
+    public float readFloat(int ordinal, int fieldIndex) {
+        sampler.recordFieldAccess(fieldIndex);
+        return HollowObjectTypeReadStateShard.readFloat(data[ordinal & shardNumberMask], ordinal >> shardOrdinalShift, fieldIndex);
+    }
+
+    @Override
+    public double readDouble(int ordinal, int fieldIndex) {
+        sampler.recordFieldAccess(fieldIndex);
+        return HollowObjectTypeReadStateShard.readDouble(data[ordinal & shardNumberMask], ordinal >> shardOrdinalShift, fieldIndex);
+    }
+
+    @Override
+    public long readLong(int ordinal, int fieldIndex) {
+        sampler.recordFieldAccess(fieldIndex);
+        return HollowObjectTypeReadStateShard.readLong(data[ordinal & shardNumberMask], ordinal >> shardOrdinalShift, fieldIndex);
+    }
+
+    @Override
+    public Boolean readBoolean(int ordinal, int fieldIndex) {
+        sampler.recordFieldAccess(fieldIndex);
+        return HollowObjectTypeReadStateShard.readBoolean(data[ordinal & shardNumberMask], ordinal >> shardOrdinalShift, fieldIndex);
+    }
+
+    @Override
+    public byte[] readBytes(int ordinal, int fieldIndex) {
+        sampler.recordFieldAccess(fieldIndex);
+        HollowObjectTypeDataElements data = this.data[ordinal & shardNumberMask];
+        ordinal >>= shardOrdinalShift;
+
+        long endByte = HollowObjectTypeReadStateShard.varLengthEndByte(data, ordinal, fieldIndex);
+        if(HollowObjectTypeReadStateShard.isNullVarLength(data, fieldIndex, endByte))
+            return null;
+        long startByte = HollowObjectTypeReadStateShard.varLengthStartByte(data, ordinal, fieldIndex);
+
+        return HollowObjectTypeReadStateShard.readBytes(data.varLengthData[fieldIndex], startByte, (int)(endByte - startByte));
+    }
+
+    @Override
+    public String readString(int ordinal, int fieldIndex) {
+        sampler.recordFieldAccess(fieldIndex);
+        HollowObjectTypeDataElements data = this.data[ordinal & shardNumberMask];
+        ordinal >>= shardOrdinalShift;
+
+        long endByte = HollowObjectTypeReadStateShard.varLengthEndByte(data, ordinal, fieldIndex);
+        if(HollowObjectTypeReadStateShard.isNullVarLength(data, fieldIndex, endByte))
+            return null;
+        long startByte = HollowObjectTypeReadStateShard.varLengthStartByte(data, ordinal, fieldIndex);
+
+        return HollowObjectTypeReadStateShard.readString(data.varLengthData[fieldIndex], startByte, (int)(endByte - startByte));
+    }
+
+    @Override
+    public boolean isStringFieldEqual(int ordinal, int fieldIndex, String testValue) {
+        sampler.recordFieldAccess(fieldIndex);
+        HollowObjectTypeDataElements data = this.data[ordinal & shardNumberMask];
+        ordinal >>= shardOrdinalShift;
+
+        long endByte = HollowObjectTypeReadStateShard.varLengthEndByte(data, ordinal, fieldIndex);
+        if(HollowObjectTypeReadStateShard.isNullVarLength(data, fieldIndex, endByte))
+            return testValue == null;
+        if(testValue == null)
+            return false;
+        long startByte = HollowObjectTypeReadStateShard.varLengthStartByte(data, ordinal, fieldIndex);
+
+        return HollowObjectTypeReadStateShard.testStringEquality(data.varLengthData[fieldIndex], startByte, (int)(endByte - startByte), testValue);
+    }
+
+    @Override
+    public int findVarLengthFieldHashCode(int ordinal, int fieldIndex) {
+        sampler.recordFieldAccess(fieldIndex);
+        HollowObjectTypeDataElements data = this.data[ordinal & shardNumberMask];
+        ordinal >>= shardOrdinalShift;
+
+        long endByte = HollowObjectTypeReadStateShard.varLengthEndByte(data, ordinal, fieldIndex);
+        if(HollowObjectTypeReadStateShard.isNullVarLength(data, fieldIndex, endByte))
+            return -1;
+        long startByte = HollowObjectTypeReadStateShard.varLengthStartByte(data, ordinal, fieldIndex);
+
+        return HashCodes.hashCode(data.varLengthData[fieldIndex], startByte, (int)(endByte - startByte));
+    }
+
+    /**
+     * Release this session.  Data which was replaced by deltas while this session was open may be recycled once every session
+     * opened before it was replaced has been closed.  Records must not be read through this session after it is closed.
+     */
+    @Override
+    public void close() {
+        if(!closed) {
+            closed = true;
+            epoch.sessionClosed();
+        }
+    }
+
+    @Override
+    public HollowObjectSchema getSchema() {
+        return schema;
+    }
+
+    @Override
+    public HollowDataAccess getDataAccess() {
+        return typeState.getDataAccess();
+    }
+
+    @Override
+    public HollowTypeReadState getTypeState() {
+        return typeState;
+    }
+
+    @Override
+    public HollowSampler getSampler() {
+        return sampler;
+    }
+
+    @Override
+    public void setSamplingDirector(HollowSamplingDirector director) {
+        typeState.setSamplingDirector(director);
+    }
+
+    @Override
+    public void setFieldSpecificSamplingDirector(HollowFilterConfig fieldSpec, HollowSamplingDirector director) {
+        typeState.setFieldSpecificSamplingDirector(fieldSpec, director);
+    }
+
+    @Override
+    public void ignoreUpdateThreadForSampling(Thread t) {
+        typeState.ignoreUpdateThreadForSampling(t);
+    }
+
+}
@@ -18,13 +18,16 @@
 package com.netflix.hollow.core.read.engine.object;
 
 import com.netflix.hollow.core.memory.encoding.VarInt;
+import com.netflix.hollow.core.memory.encoding.ZigZag;
 
 import com.netflix.hollow.api.sampling.DisabledSamplingDirector;
+import com.netflix.hollow.api.sampling.HollowFieldAccessCounter;
 import com.netflix.hollow.api.sampling.HollowObjectSampler;
 import com.netflix.hollow.api.sampling.HollowSampler;
 import com.netflix.hollow.api.sampling.HollowSamplingDirector;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.dataaccess.HollowObjectTypeDataAccess;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.ShardMemory;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
 import com.netflix.hollow.core.read.engine.SnapshotPopulatedOrdinalsReader;
@@ -34,7 +37,12 @@ import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A {@link HollowTypeReadState} for OBJECT type records. 
@@ -47,6 +55,12 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
     private final int shardNumberMask;
     private final int shardOrdinalShift;
     private final HollowObjectTypeReadStateShard shards[];
+
+    /// the epoch which read sessions currently join.  Only older epochs, which sessions can no longer join, are in liveEpochs.
+    private volatile ReadEpoch currentEpoch;
+    /// epochs which may still have open sessions, oldest first.  Only accessed by the update thread.
+    private final LinkedList<ReadEpoch> liveEpochs;
+    private final List<RetiredDataElements> retiredDataElements;
     
     private int maxOrdinal;
 
@@ -69,6 +83,9 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
             shards[i] = new HollowObjectTypeReadStateShard(schema);
         
         this.shards = shards;
+        this.currentEpoch = new ReadEpoch(0);
+        this.liveEpochs = new LinkedList<ReadEpoch>();
+        this.retiredDataElements = new ArrayList<RetiredDataElements>();
     }
 
     @Override
@@ -86,17 +103,33 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
         if(shards.length > 1)
             maxOrdinal = VarInt.readVInt(dis);
         
-        for(int i=0;i<shards.length;i++) {
-            HollowObjectTypeDataElements snapshotData = new HollowObjectTypeDataElements(getSchema(), memoryRecycler);
-            snapshotData.readSnapshot(dis, unfilteredSchema);
-            shards[i].setCurrentData(snapshotData);
-        }
+        for(int i=0;i<shards.length;i++)
+            readSnapshotShard(dis, i, memoryRecycler);
         
-        if(shards.length == 1)
-            maxOrdinal = shards[0].currentDataElements().maxOrdinal;
+        shardsUpdated(maxOrdinal);
         
         SnapshotPopulatedOrdinalsReader.readOrdinals(dis, stateListeners);
     }
+
+    @Override
+    protected void readSnapshotShard(DataInputStream dis, int shardNumber, ArraySegmentRecycler memoryRecycler) throws IOException {
+        HollowObjectTypeDataElements snapshotData = new HollowObjectTypeDataElements(getSchema(), memoryRecycler);
+        snapshotData.readSnapshot(dis, unfilteredSchema);
+        shards[shardNumber].setCurrentData(snapshotData);
+    }
+
+    @Override
+    protected void discardSnapshotShard(DataInputStream dis) throws IOException {
+        HollowObjectTypeDataElements.discardFromStream(dis, unfilteredSchema, 1, false);
+    }
+
+    @Override
+    protected void shardsUpdated(int maxOrdinal) {
+        if(shards.length == 1)
+            this.maxOrdinal = shards[0].currentDataElements().maxOrdinal;
+        else
+            this.maxOrdinal = maxOrdinal;
+    }
     
     @Override
     public void applyDelta(DataInputStream dis, HollowSchema deltaSchema, ArraySegmentRecycler memoryRecycler) throws IOException {
@@ -104,20 +137,130 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
             maxOrdinal = VarInt.readVInt(dis);
 
         for(int i=0;i<shards.length;i++) {
-            HollowObjectTypeDataElements deltaData = new HollowObjectTypeDataElements((HollowObjectSchema)deltaSchema, memoryRecycler);
-            HollowObjectTypeDataElements nextData = new HollowObjectTypeDataElements(getSchema(), memoryRecycler);
-            deltaData.readDelta(dis);
-            HollowObjectTypeDataElements oldData = shards[i].currentDataElements();
-            nextData.applyDelta(oldData, deltaData);
-            shards[i].setCurrentData(nextData);
-            notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, i, shards.length);
-            deltaData.destroy();
-            oldData.destroy();
+            ShardDelta shardDelta = applyDeltaShard(dis, i, deltaSchema, memoryRecycler);
+            shardDelta.publish();
+            shardDelta.complete();
             stateEngine.getMemoryRecycler().swap();
         }
         
-        if(shards.length == 1)
-            maxOrdinal = shards[0].currentDataElements().maxOrdinal;
+        shardsUpdated(maxOrdinal);
+    }
+
+    @Override
+    protected ShardDelta applyDeltaShard(DataInputStream dis, final int shardNumber, HollowSchema deltaSchema, ArraySegmentRecycler memoryRecycler) throws IOException {
+        final HollowObjectTypeDataElements deltaData = new HollowObjectTypeDataElements((HollowObjectSchema)deltaSchema, memoryRecycler);
+        final HollowObjectTypeDataElements nextData = new HollowObjectTypeDataElements(getSchema(), memoryRecycler);
+        deltaData.readDelta(dis);
+        final HollowObjectTypeDataElements oldData = shards[shardNumber].currentDataElements();
+        nextData.applyDelta(oldData, deltaData);
+
+        return new ShardDelta() {
+            public void publish() {
+                shards[shardNumber].setCurrentData(nextData);
+            }
+
+            public void complete() {
+                notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, shardNumber, shards.length);
+                deltaData.destroy();
+                destroyWhenUnpinned(oldData);
+            }
+        };
+    }
+
+    /**
+     * Destroy data which has been replaced by a delta, unless a read session which may still reference it is open.
+     * <p>
+     * The replaced data is tagged with the current read epoch, and a new epoch is begun, which sessions opened from now on
+     * will join.  Only sessions in the tagged epoch or earlier may reference the replaced data, so it is destroyed once all
+     * of those sessions have been closed, during this or a subsequent delta application.  Sessions opened later do not 
+     * delay its destruction.
+     * <p>
+     * Only called from the update thread.
+     */
+    private void destroyWhenUnpinned(HollowObjectTypeDataElements oldData) {
+        ReadEpoch retiredEpoch = currentEpoch;
+        liveEpochs.add(retiredEpoch);
+        currentEpoch = new ReadEpoch(retiredEpoch.epoch + 1);
+
+        retiredDataElements.add(new RetiredDataElements(oldData, retiredEpoch.epoch));
+
+        while(!liveEpochs.isEmpty() && liveEpochs.getFirst().openSessions.get() == 0)
+            liveEpochs.removeFirst();
+
+        long oldestPinnedEpoch = liveEpochs.isEmpty() ? currentEpoch.epoch : liveEpochs.getFirst().epoch;
+
+        Iterator<RetiredDataElements> iter = retiredDataElements.iterator();
+        while(iter.hasNext()) {
+            RetiredDataElements retired = iter.next();
+            if(retired.retiredEpoch < oldestPinnedEpoch) {
+                retired.data.destroy();
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * @return the number of replaced data elements which are retained because a read session may still reference them.
+     */
+    int numRetiredDataElements() {
+        return retiredDataElements.size();
+    }
+
+    /**
+     * Open a {@link HollowObjectTypeReadSession}, which pins the current data for this type so that many fields may be read
+     * without re-validating each read against concurrent delta application.
+     * <p>
+     * The returned session must be closed once it is no longer needed.
+     */
+    public HollowObjectTypeReadSession openReadSession() {
+        /// the session joins the current epoch before the data is captured.  If the epoch is still current once joined, 
+        /// any data captured here will not be destroyed by a concurrent delta until the session is closed.
+        ReadEpoch epoch = currentEpoch;
+        epoch.openSessions.incrementAndGet();
+        while(epoch != currentEpoch) {
+            epoch.sessionClosed();
+            epoch = currentEpoch;
+            epoch.openSessions.incrementAndGet();
+        }
+
+        HollowObjectTypeDataElements data[] = new HollowObjectTypeDataElements[shards.length];
+        for(int i=0;i<shards.length;i++)
+            data[i] = shards[i].currentDataElementsVolatile();
+
+        return new HollowObjectTypeReadSession(this, epoch, sampler, data, shardNumberMask, shardOrdinalShift);
+    }
+
+    /**
+     * The read sessions opened between two consecutive replacements of this type's data.
+     */
+    static class ReadEpoch {
+        private final long epoch;
+        private final AtomicInteger openSessions;
+
+        ReadEpoch(long epoch) {
+            this.epoch = epoch;
+            this.openSessions = new AtomicInteger();
+        }
+
+        void sessionClosed() {
+            openSessions.decrementAndGet();
+        }
+    }
+
+    private static class RetiredDataElements {
+        private final HollowObjectTypeDataElements data;
+        /// sessions in this epoch or earlier may still reference the data.
+        private final long retiredEpoch;
+
+        RetiredDataElements(HollowObjectTypeDataElements data, long retiredEpoch) {
+            this.data = data;
+            this.retiredEpoch = retiredEpoch;
+        }
+    }
+
+    @Override
+    protected void discardDeltaShard(DataInputStream dis, HollowSchema deltaSchema) throws IOException {
+        HollowObjectTypeDataElements.discardFromStream(dis, (HollowObjectSchema)deltaSchema, 1, true);
     }
 
     public static void discardSnapshot(DataInputStream dis, HollowObjectSchema schema, int numShards) throws IOException {
@@ -152,6 +295,128 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
         return shards[ordinal & shardNumberMask].readInt(ordinal >> shardOrdinalShift, fieldIndex);
     }
 
+    /**
+     * Read the values of an INT field for many records at once.  This is considerably cheaper than calling {@link #readInt(int, int)} 
+     * for each record when scanning a column.
+     * <p>
+     * The ordinals are iterated once, and all values are read under a single consistency check, so they are all from the same state.
+     *
+     * @param fieldIndex the position of the INT field in this type's schema
+     * @param ordinals the ordinals of the records to read, which should all be populated
+     * @param out the array into which each value is read, indexed by ordinal.  Must be longer than the greatest ordinal to read.
+     * Null values are read as Integer.MIN_VALUE.
+     */
+    public void readIntColumn(int fieldIndex, BitSet ordinals, int[] out) {
+        HollowObjectTypeDataElements shardData[] = new HollowObjectTypeDataElements[shards.length];
+        int numBits[] = new int[shards.length];
+        long nullValue[] = new long[shards.length];
+
+        do {
+            readColumnData(fieldIndex, shardData, numBits, nullValue);
+
+            for(int ordinal = ordinals.nextSetBit(0); ordinal != -1; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+                int shard = ordinal & shardNumberMask;
+                HollowObjectTypeDataElements data = shardData[shard];
+                long value = data.fixedLengthData.getElementValue(HollowObjectTypeReadStateShard.fieldOffset(data, ordinal >> shardOrdinalShift, fieldIndex), numBits[shard]);
+                out[ordinal] = value == nullValue[shard] ? Integer.MIN_VALUE : ZigZag.decodeInt((int)value);
+            }
+        } while(readWasUnsafe(shardData));
+
+        recordColumnAccess(fieldIndex, ordinals);
+    }
+
+    /**
+     * Read the values of a LONG field for many records at once.  This is considerably cheaper than calling {@link #readLong(int, int)} 
+     * for each record when scanning a column.
+     * <p>
+     * The ordinals are iterated once, and all values are read under a single consistency check, so they are all from the same state.
+     *
+     * @param fieldIndex the position of the LONG field in this type's schema
+     * @param ordinals the ordinals of the records to read, which should all be populated
+     * @param out the array into which each value is read, indexed by ordinal.  Must be longer than the greatest ordinal to read.
+     * Null values are read as Long.MIN_VALUE.
+     */
+    public void readLongColumn(int fieldIndex, BitSet ordinals, long[] out) {
+        HollowObjectTypeDataElements shardData[] = new HollowObjectTypeDataElements[shards.length];
+        int numBits[] = new int[shards.length];
+        long nullValue[] = new long[shards.length];
+
+        do {
+            readColumnData(fieldIndex, shardData, numBits, nullValue);
+
+            for(int ordinal = ordinals.nextSetBit(0); ordinal != -1; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+                int shard = ordinal & shardNumberMask;
+                HollowObjectTypeDataElements data = shardData[shard];
+                long value = data.fixedLengthData.getLargeElementValue(HollowObjectTypeReadStateShard.fieldOffset(data, ordinal >> shardOrdinalShift, fieldIndex), numBits[shard]);
+                out[ordinal] = value == nullValue[shard] ? Long.MIN_VALUE : ZigZag.decodeLong(value);
+            }
+        } while(readWasUnsafe(shardData));
+
+        recordColumnAccess(fieldIndex, ordinals);
+    }
+
+    /**
+     * Read the referenced ordinals of a REFERENCE field for many records at once.  This is considerably cheaper than calling 
+     * {@link #readOrdinal(int, int)} for each record when scanning a column.
+     * <p>
+     * The ordinals are iterated once, and all values are read under a single consistency check, so they are all from the same state.
+     *
+     * @param fieldIndex the position of the REFERENCE field in this type's schema
+     * @param ordinals the ordinals of the records to read, which should all be populated
+     * @param out the array into which each referenced ordinal is read, indexed by ordinal.  Must be longer than the greatest ordinal to read.
+     * Null references are read as -1.
+     */
+    public void readOrdinalColumn(int fieldIndex, BitSet ordinals, int[] out) {
+        HollowObjectTypeDataElements shardData[] = new HollowObjectTypeDataElements[shards.length];
+        int numBits[] = new int[shards.length];
+        long nullValue[] = new long[shards.length];
+
+        do {
+            readColumnData(fieldIndex, shardData, numBits, nullValue);
+
+            for(int ordinal = ordinals.nextSetBit(0); ordinal != -1; ordinal = ordinals.nextSetBit(ordinal + 1)) {
+                int shard = ordinal & shardNumberMask;
+                HollowObjectTypeDataElements data = shardData[shard];
+                long refOrdinal = data.fixedLengthData.getElementValue(HollowObjectTypeReadStateShard.fieldOffset(data, ordinal >> shardOrdinalShift, fieldIndex), numBits[shard]);
+                out[ordinal] = refOrdinal == nullValue[shard] ? -1 : (int)refOrdinal;
+            }
+        } while(readWasUnsafe(shardData));
+
+        recordColumnAccess(fieldIndex, ordinals);
+    }
+
+    /**
+     * Read each shard's current data, along with the width and null value of the specified field in that data, so that 
+     * these need not be looked up for each value in a column.
+     */
+    private void readColumnData(int fieldIndex, HollowObjectTypeDataElements shardData[], int numBits[], long nullValue[]) {
+        for(int i=0;i<shards.length;i++) {
+            shardData[i] = shards[i].currentDataElements();
+            numBits[i] = shardData[i].bitsPerField[fieldIndex];
+            nullValue[i] = shardData[i].nullValueForField[fieldIndex];
+        }
+    }
+
+    /**
+     * Record an access of the specified field for each value read in a column, as if each had been read individually.
+     */
+    private void recordColumnAccess(int fieldIndex, BitSet ordinals) {
+        int numValues = ordinals.cardinality();
+        for(int i=0;i<numValues;i++)
+            sampler.recordFieldAccess(fieldIndex);
+    }
+
+    /**
+     * @return whether any shard's data was replaced while the column was read from the specified data.
+     */
+    private boolean readWasUnsafe(HollowObjectTypeDataElements shardData[]) {
+        for(int i=0;i<shards.length;i++) {
+            if(shards[i].readWasUnsafe(shardData[i]))
+                return true;
+        }
+        return false;
+    }
+
     @Override
     public float readFloat(int ordinal, int fieldIndex) {
         sampler.recordFieldAccess(fieldIndex);
@@ -241,6 +506,25 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
     public void ignoreUpdateThreadForSampling(Thread t) {
         sampler.setUpdateThread(t);
     }
+
+    /**
+     * Enable or disable counting of every access to each field of this type.  Counts are retained if counting is already enabled.
+     * 
+     * @see HollowFieldAccessCounter
+     */
+    public void setFieldAccessCounting(boolean fieldAccessCounting) {
+        if(!fieldAccessCounting)
+            sampler.setFieldAccessCounter(null);
+        else if(sampler.getFieldAccessCounter() == null)
+            sampler.setFieldAccessCounter(new HollowFieldAccessCounter(getSchema()));
+    }
+
+    /**
+     * @return the counter of field accesses, or null if field access counting is not enabled.
+     */
+    public HollowFieldAccessCounter getFieldAccessCounter() {
+        return sampler.getFieldAccessCounter();
+    }
     
     HollowObjectTypeDataElements[] currentDataElements() {
         HollowObjectTypeDataElements currentDataElements[] = new HollowObjectTypeDataElements[shards.length];
@@ -262,6 +546,11 @@ public class HollowObjectTypeReadState extends HollowTypeReadState implements Ho
             shards[i].applyToChecksum(checksum, withSchema, populatedOrdinals, i, shards.length);
     }
 
+    @Override
+    protected ShardMemory getShardMemoryReport(int shardNumber) {
+        return shards[shardNumber].getMemoryReport(shardNumber);
+    }
+
 	@Override
 	public long getApproximateHeapFootprintInBytes() {
 	    long totalApproximateHeapFootprintInBytes = 0;
@@ -21,6 +21,8 @@ import com.netflix.hollow.core.memory.ByteData;
 import com.netflix.hollow.core.memory.encoding.HashCodes;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.encoding.ZigZag;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.FieldMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.ShardMemory;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
 import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.core.write.HollowObjectWriteRecord;
@@ -43,88 +45,62 @@ class HollowObjectTypeReadStateShard {
 
     public boolean isNull(int ordinal, int fieldIndex) {
         HollowObjectTypeDataElements currentData;
-        long fixedLengthValue;
+        boolean isNull;
 
         do {
             currentData = this.currentData;
-
-            long bitOffset = fieldOffset(currentData, ordinal, fieldIndex);
-            int numBitsForField = currentData.bitsPerField[fieldIndex];
-
-            fixedLengthValue = numBitsForField <= 56 ?
-                    currentData.fixedLengthData.getElementValue(bitOffset, numBitsForField)
-                    : currentData.fixedLengthData.getLargeElementValue(bitOffset, numBitsForField);
+            isNull = isNull(currentData, ordinal, fieldIndex);
         } while(readWasUnsafe(currentData));
 
-        switch(schema.getFieldType(fieldIndex)) {
-        case BYTES:
-        case STRING:
-            int numBits = currentData.bitsPerField[fieldIndex];
-            return (fixedLengthValue & (1 << (numBits - 1))) != 0;
-        case FLOAT:
-            return (int)fixedLengthValue == HollowObjectWriteRecord.NULL_FLOAT_BITS;
-        case DOUBLE:
-            return fixedLengthValue == HollowObjectWriteRecord.NULL_DOUBLE_BITS;
-        default:
-            return fixedLengthValue == currentData.nullValueForField[fieldIndex];
-        }
+        return isNull;
     }
 
     public int readOrdinal(int ordinal, int fieldIndex) {
         HollowObjectTypeDataElements currentData;
-        long refOrdinal;
+        int refOrdinal;
 
         do {
             currentData = this.currentData;
-            refOrdinal = readFixedLengthFieldValue(currentData, ordinal, fieldIndex);
+            refOrdinal = readOrdinal(currentData, ordinal, fieldIndex);
         } while(readWasUnsafe(currentData));
 
-        if(refOrdinal == currentData.nullValueForField[fieldIndex])
-            return -1;
-        return (int)refOrdinal;
+        return refOrdinal;
     }
 
     public int readInt(int ordinal, int fieldIndex) {
         HollowObjectTypeDataElements currentData;
-        long value;
+        int value;
 
         do {
             currentData = this.currentData;
-            value = readFixedLengthFieldValue(currentData, ordinal, fieldIndex);
+            value = readInt(currentData, ordinal, fieldIndex);
         } while(readWasUnsafe(currentData));
 
-        if(value == currentData.nullValueForField[fieldIndex])
-            return Integer.MIN_VALUE;
-        return ZigZag.decodeInt((int)value);
+        return value;
     }
 
     public float readFloat(int ordinal, int fieldIndex) {
         HollowObjectTypeDataElements currentData;
-        int value;
+        float value;
 
         do {
             currentData = this.currentData;
-            value = (int)readFixedLengthFieldValue(currentData, ordinal, fieldIndex);
+            value = readFloat(currentData, ordinal, fieldIndex);
         } while(readWasUnsafe(currentData));
 
-        if(value == HollowObjectWriteRecord.NULL_FLOAT_BITS)
-            return Float.NaN;
-        return Float.intBitsToFloat(value);
+        return value;
     }
 
     public double readDouble(int ordinal, int fieldIndex) {
         HollowObjectTypeDataElements currentData;
-        long value;
+        double value;
 
         do {
             currentData = this.currentData;
-            long bitOffset = fieldOffset(currentData, ordinal, fieldIndex);
-            value = currentData.fixedLengthData.getLargeElementValue(bitOffset, 64, -1L);
+            value = readDouble(currentData, ordinal, fieldIndex);
         } while(readWasUnsafe(currentData));
 
-        if(value == HollowObjectWriteRecord.NULL_DOUBLE_BITS)
-            return Double.NaN;
-        return Double.longBitsToDouble(value);
+        return value;
     }
 
     public long readLong(int ordinal, int fieldIndex) {
@@ -133,36 +109,21 @@ class HollowObjectTypeReadStateShard {
 
         do {
             currentData = this.currentData;
-            long bitOffset = fieldOffset(currentData, ordinal, fieldIndex);
-            int numBitsForField = currentData.bitsPerField[fieldIndex];
-            value = currentData.fixedLengthData.getLargeElementValue(bitOffset, numBitsForField);
+            value = readLong(currentData, ordinal, fieldIndex);
         } while(readWasUnsafe(currentData));
 
-        if(value == currentData.nullValueForField[fieldIndex])
-            return Long.MIN_VALUE;
-        return ZigZag.decodeLong(value);
+        return value;
     }
 
     public Boolean readBoolean(int ordinal, int fieldIndex) {
         HollowObjectTypeDataElements currentData;
-        long value;
+        Boolean value;
 
         do {
             currentData = this.currentData;
-            value = readFixedLengthFieldValue(currentData, ordinal, fieldIndex);
+            value = readBoolean(currentData, ordinal, fieldIndex);
         } while(readWasUnsafe(currentData));
 
-        if(value == currentData.nullValueForField[fieldIndex])
-            return null;
-        return value == 1 ? Boolean.TRUE : Boolean.FALSE;
-    }
-
-    private long readFixedLengthFieldValue(HollowObjectTypeDataElements currentData, int ordinal, int fieldIndex) {
-        long bitOffset = fieldOffset(currentData, ordinal, fieldIndex);
-        int numBitsForField = currentData.bitsPerField[fieldIndex];
-
-        long value = currentData.fixedLengthData.getElementValue(bitOffset, numBitsForField);
-
         return value;
     }
 
@@ -171,29 +132,19 @@ class HollowObjectTypeReadStateShard {
         byte[] result;
 
         do {
-            int numBitsForField;
             long endByte;
             long startByte;
 
             do {
                 currentData = this.currentData;
-
-                numBitsForField = currentData.bitsPerField[fieldIndex];
-                long currentBitOffset = fieldOffset(currentData, ordinal, fieldIndex);
-                endByte = currentData.fixedLengthData.getElementValue(currentBitOffset, numBitsForField);
-                startByte = ordinal != 0 ? currentData.fixedLengthData.getElementValue(currentBitOffset - currentData.bitsPerRecord, numBitsForField) : 0;
+                endByte = varLengthEndByte(currentData, ordinal, fieldIndex);
+                startByte = varLengthStartByte(currentData, ordinal, fieldIndex);
             } while(readWasUnsafe(currentData));
 
-            if((endByte & (1L << numBitsForField - 1)) != 0)
+            if(isNullVarLength(currentData, fieldIndex, endByte))
                 return null;
 
-            startByte &= (1L << numBitsForField - 1) - 1;
-
-            int length = (int)(endByte - startByte);
-            result = new byte[length];
-            for(int i=0;i<length;i++)
-                result[i] = currentData.varLengthData[fieldIndex].get(startByte + i);
-
+            result = readBytes(currentData.varLengthData[fieldIndex], startByte, (int)(endByte - startByte));
         } while(readWasUnsafe(currentData));
 
         return result;
@@ -204,27 +155,19 @@ class HollowObjectTypeReadStateShard {
         String result;
 
         do {
-            int numBitsForField;
             long endByte;
             long startByte;
 
             do {
                 currentData = this.currentData;
-
-                numBitsForField = currentData.bitsPerField[fieldIndex];
-                long currentBitOffset = fieldOffset(currentData, ordinal, fieldIndex);
-                endByte = currentData.fixedLengthData.getElementValue(currentBitOffset, numBitsForField);
-                startByte = ordinal != 0 ? currentData.fixedLengthData.getElementValue(currentBitOffset - currentData.bitsPerRecord, numBitsForField) : 0;
+                endByte = varLengthEndByte(currentData, ordinal, fieldIndex);
+                startByte = varLengthStartByte(currentData, ordinal, fieldIndex);
             } while(readWasUnsafe(currentData));
 
-            if((endByte & (1L << numBitsForField - 1)) != 0)
+            if(isNullVarLength(currentData, fieldIndex, endByte))
                 return null;
 
-            startByte &= (1L << numBitsForField - 1) - 1;
-
-            int length = (int)(endByte - startByte);
-
-            result = readString(currentData.varLengthData[fieldIndex], startByte, length);
+            result = readString(currentData.varLengthData[fieldIndex], startByte, (int)(endByte - startByte));
         } while(readWasUnsafe(currentData));
 
         return result;
@@ -235,30 +178,21 @@ class HollowObjectTypeReadStateShard {
         boolean result;
 
         do {
-            int numBitsForField;
             long endByte;
             long startByte;
 
             do {
                 currentData = this.currentData;
-
-                numBitsForField = currentData.bitsPerField[fieldIndex];
-
-                long currentBitOffset = fieldOffset(currentData, ordinal, fieldIndex);
-                endByte = currentData.fixedLengthData.getElementValue(currentBitOffset, numBitsForField);
-                startByte = ordinal != 0 ? currentData.fixedLengthData.getElementValue(currentBitOffset - currentData.bitsPerRecord, numBitsForField) : 0;
+                endByte = varLengthEndByte(currentData, ordinal, fieldIndex);
+                startByte = varLengthStartByte(currentData, ordinal, fieldIndex);
             } while(readWasUnsafe(currentData));
 
-            if((endByte & (1L << numBitsForField - 1)) != 0)
+            if(isNullVarLength(currentData, fieldIndex, endByte))
                 return testValue == null;
             if(testValue == null)
                 return false;
 
-            startByte &= (1L << numBitsForField - 1) - 1;
-
-            int length = (int)(endByte - startByte);
-
-            result = testStringEquality(currentData.varLengthData[fieldIndex], startByte, length, testValue);
+            result = testStringEquality(currentData.varLengthData[fieldIndex], startByte, (int)(endByte - startByte), testValue);
         } while(readWasUnsafe(currentData));
 
         return result;
@@ -267,33 +201,138 @@ class HollowObjectTypeReadStateShard {
     public int findVarLengthFieldHashCode(int ordinal, int fieldIndex) {
         HollowObjectTypeDataElements currentData;
         int hashCode;
+
         do {
-            int numBitsForField;
             long endByte;
             long startByte;
 
             do {
                 currentData = this.currentData;
-
-                numBitsForField = currentData.bitsPerField[fieldIndex];
-                long currentBitOffset = fieldOffset(currentData, ordinal, fieldIndex);
-                endByte = currentData.fixedLengthData.getElementValue(currentBitOffset, numBitsForField);
-                startByte = ordinal != 0 ? currentData.fixedLengthData.getElementValue(currentBitOffset - currentData.bitsPerRecord, numBitsForField) : 0;
+                endByte = varLengthEndByte(currentData, ordinal, fieldIndex);
+                startByte = varLengthStartByte(currentData, ordinal, fieldIndex);
             } while(readWasUnsafe(currentData));
 
-            if((endByte & (1L << numBitsForField - 1)) != 0)
+            if(isNullVarLength(currentData, fieldIndex, endByte))
                 return -1;
 
-            startByte &= (1L << numBitsForField - 1) - 1;
-
-            int length = (int)(endByte - startByte);
-
-            hashCode = HashCodes.hashCode(currentData.varLengthData[fieldIndex], startByte, length);
+            hashCode = HashCodes.hashCode(currentData.varLengthData[fieldIndex], startByte, (int)(endByte - startByte));
         } while(readWasUnsafe(currentData));
 
         return hashCode;
     }
 
+    /*
+     * The following static methods decode a field of a record from the specified data elements.  They are shared by the
+     * shard, which validates each read against concurrent delta application, and by HollowObjectTypeReadSession, which reads
+     * from pinned data.  The ordinal is the ordinal of the record within the shard.
+     */
+
+    static boolean isNull(HollowObjectTypeDataElements data, int ordinal, int fieldIndex) {
+        long bitOffset = fieldOffset(data, ordinal, fieldIndex);
+        int numBitsForField = data.bitsPerField[fieldIndex];
+
+        long fixedLengthValue = numBitsForField <= 56 ?
+                data.fixedLengthData.getElementValue(bitOffset, numBitsForField)
+                : data.fixedLengthData.getLargeElementValue(bitOffset, numBitsForField);
+
+        switch(data.schema.getFieldType(fieldIndex)) {
+        case BYTES:
+        case STRING:
+            return (fixedLengthValue & (1 << (numBitsForField - 1))) != 0;
+        case FLOAT:
+            return (int)fixedLengthValue == HollowObjectWriteRecord.NULL_FLOAT_BITS;
+        case DOUBLE:
+            return fixedLengthValue == HollowObjectWriteRecord.NULL_DOUBLE_BITS;
+        default:
+            return fixedLengthValue == data.nullValueForField[fieldIndex];
+        }
+    }
+
+    static int readOrdinal(HollowObjectTypeDataElements data, int ordinal, int fieldIndex) {
+        long refOrdinal = readFixedLengthFieldValue(data, ordinal, fieldIndex);
+
+        if(refOrdinal == data.nullValueForField[fieldIndex])
+            return -1;
+        return (int)refOrdinal;
+    }
+
+    static int readInt(HollowObjectTypeDataElements data, int ordinal, int fieldIndex) {
+        long value = readFixedLengthFieldValue(data, ordinal, fieldIndex);
+
+        if(value == data.nullValueForField[fieldIndex])
+            return Integer.MIN_VALUE;
+        return ZigZag.decodeInt((int)value);
+    }
+
+    static float readFloat(HollowObjectTypeDataElements data, int ordinal, int fieldIndex) {
+        int value = (int)readFixedLengthFieldValue(data, ordinal, fieldIndex);
+
+        if(value == HollowObjectWriteRecord.NULL_FLOAT_BITS)
+            return Float.NaN;
+        return Float.intBitsToFloat(value);
+    }
+
+    static double readDouble(HollowObjectTypeDataElements data, int ordinal, int fieldIndex) {
+        long bitOffset = fieldOffset(data, ordinal, fieldIndex);
+        long value = data.fixedLengthData.getLargeElementValue(bitOffset, 64, -1L);
+
+        if(value == HollowObjectWriteRecord.NULL_DOUBLE_BITS)
+            return Double.NaN;
+        return Double.longBitsToDouble(value);
+    }
+
+    static long readLong(HollowObjectTypeDataElements data, int ordinal, int fieldIndex) {
+        long bitOffset = fieldOffset(data, ordinal, fieldIndex);
+        long value = data.fixedLengthData.getLargeElementValue(bitOffset, data.bitsPerField[fieldIndex]);
+
+        if(value == data.nullValueForField[fieldIndex])
+            return Long.MIN_VALUE;
+        return ZigZag.decodeLong(value);
+    }
+
+    static Boolean readBoolean(HollowObjectTypeDataElements data, int ordinal, int fieldIndex) {
+        long value = readFixedLengthFieldValue(data, ordinal, fieldIndex);
+
+        if(value == data.nullValueForField[fieldIndex])
+            return null;
+        return value == 1 ? Boolean.TRUE : Boolean.FALSE;
+    }
+
+    private static long readFixedLengthFieldValue(HollowObjectTypeDataElements data, int ordinal, int fieldIndex) {
+        long bitOffset = fieldOffset(data, ordinal, fieldIndex);
+        return data.fixedLengthData.getElementValue(bitOffset, data.bitsPerField[fieldIndex]);
+    }
+
+    /**
+     * @return the end byte of a BYTES or STRING field in its var length data, with the null bit set if the field is null.
+     */
+    static long varLengthEndByte(HollowObjectTypeDataElements data, int ordinal, int fieldIndex) {
+        return readFixedLengthFieldValue(data, ordinal, fieldIndex);
+    }
+
+    /**
+     * @return the start byte of a BYTES or STRING field in its var length data, which is the end byte of the previous record.
+     */
+    static long varLengthStartByte(HollowObjectTypeDataElements data, int ordinal, int fieldIndex) {
+        if(ordinal == 0)
+            return 0;
+
+        int numBitsForField = data.bitsPerField[fieldIndex];
+        long bitOffset = fieldOffset(data, ordinal, fieldIndex) - data.bitsPerRecord;
+        return data.fixedLengthData.getElementValue(bitOffset, numBitsForField) & ((1L << numBitsForField - 1) - 1);
+    }
+
+    static boolean isNullVarLength(HollowObjectTypeDataElements data, int fieldIndex, long endByte) {
+        return (endByte & (1L << data.bitsPerField[fieldIndex] - 1)) != 0;
+    }
+
+    static byte[] readBytes(ByteData data, long position, int length) {
+        byte result[] = new byte[length];
+        for(int i=0;i<length;i++)
+            result[i] = data.get(position + i);
+        return result;
+    }
+
     /**
      * Warning:  Not thread-safe.  Should only be called within the update thread.
      */
@@ -302,7 +341,7 @@ class HollowObjectTypeReadStateShard {
         return fieldIndex == -1 ? 0 : currentData.bitsPerField[fieldIndex];
     }
 
-    private long fieldOffset(HollowObjectTypeDataElements currentData, int ordinal, int fieldIndex) {
+    static long fieldOffset(HollowObjectTypeDataElements currentData, int ordinal, int fieldIndex) {
         return ((long)currentData.bitsPerRecord * ordinal) + currentData.bitOffsetPerField[fieldIndex];
     }
 
@@ -315,7 +354,7 @@ class HollowObjectTypeReadStateShard {
      */
     private static final ThreadLocal<char[]> chararr = new ThreadLocal<char[]>();
 
-    private String readString(ByteData data, long position, int length) {
+    static String readString(ByteData data, long position, int length) {
         long endPosition = position + length;
 
         char chararr[] = getCharArray();
@@ -335,7 +374,7 @@ class HollowObjectTypeReadStateShard {
         return new String(chararr, 0, count);
     }
 
-    private boolean testStringEquality(ByteData data, long position, int length, String testValue) {
+    static boolean testStringEquality(ByteData data, long position, int length, String testValue) {
         if(length < testValue.length()) // can't check exact length here; the length argument is in bytes, which is equal to or greater than the number of characters.
             return false;
 
@@ -354,7 +393,7 @@ class HollowObjectTypeReadStateShard {
         return position == endPosition && count == testValue.length();
     }
 
-    private char[] getCharArray() {
+    private static char[] getCharArray() {
         char ch[] = chararr.get();
         if(ch == null) {
             ch = new char[100];
@@ -371,7 +410,11 @@ class HollowObjectTypeReadStateShard {
         return currentData;
     }
 
-    private boolean readWasUnsafe(HollowObjectTypeDataElements data) {
+    HollowObjectTypeDataElements currentDataElementsVolatile() {
+        return currentDataVolatile;
+    }
+
+    boolean readWasUnsafe(HollowObjectTypeDataElements data) {
         return data != currentDataVolatile;
     }
 
@@ -437,6 +480,23 @@ class HollowObjectTypeReadStateShard {
         return requiredBytes;
     }
     
+    public ShardMemory getMemoryReport(int shardNumber) {
+        HollowObjectTypeDataElements currentData = currentDataVolatile;
+        long fixedLengthBytes = currentData.fixedLengthData.sizeInBytes();
+        long varLengthBytes = 0;
+
+        List<FieldMemory> fields = new ArrayList<FieldMemory>(currentData.bitsPerField.length);
+        for(int i=0;i<currentData.bitsPerField.length;i++) {
+            long fieldVarLengthBytes = currentData.varLengthData[i] == null ? 0 : currentData.varLengthData[i].size();
+            /// the fields of each record are interleaved in the fixed-length data, so each field is attributed its share of the allocation.
+            long fieldFixedLengthBytes = currentData.bitsPerRecord == 0 ? 0 : fixedLengthBytes * currentData.bitsPerField[i] / currentData.bitsPerRecord;
+            fields.add(new FieldMemory(currentData.schema.getFieldName(i), currentData.bitsPerField[i], fieldFixedLengthBytes, fieldVarLengthBytes));
+            varLengthBytes += fieldVarLengthBytes;
+        }
+
+        return new ShardMemory(shardNumber, currentData.maxOrdinal, fixedLengthBytes, varLengthBytes, 0, fields);
+    }
+    
     public long getApproximateHoleCostInBytes(BitSet populatedOrdinals, int shardNumber, int numShards) {
         long holeBits = 0;
         
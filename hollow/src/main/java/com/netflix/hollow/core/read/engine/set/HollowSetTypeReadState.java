@@ -26,6 +26,7 @@ import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
 import com.netflix.hollow.core.read.dataaccess.HollowSetTypeDataAccess;
 import com.netflix.hollow.core.read.engine.HollowCollectionTypeReadState;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.ShardMemory;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
 import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
@@ -79,38 +80,73 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
         if(shards.length > 1)
             maxOrdinal = VarInt.readVInt(dis);
         
-        for(int i=0;i<shards.length;i++) {
-            HollowSetTypeDataElements snapshotData = new HollowSetTypeDataElements(memoryRecycler);
-            snapshotData.readSnapshot(dis);
-            shards[i].setCurrentData(snapshotData);
-        }
+        for(int i=0;i<shards.length;i++)
+            readSnapshotShard(dis, i, memoryRecycler);
         
-        if(shards.length == 1)
-            maxOrdinal = shards[0].currentDataElements().maxOrdinal;
+        shardsUpdated(maxOrdinal);
         
         SnapshotPopulatedOrdinalsReader.readOrdinals(dis, stateListeners);
     }
 
     @Override
-    public void applyDelta(DataInputStream dis, HollowSchema schema, ArraySegmentRecycler memoryRecycler) throws IOException {
+    protected void readSnapshotShard(DataInputStream dis, int shardNumber, ArraySegmentRecycler memoryRecycler) throws IOException {
+        HollowSetTypeDataElements snapshotData = new HollowSetTypeDataElements(memoryRecycler);
+        snapshotData.readSnapshot(dis);
+        shards[shardNumber].setCurrentData(snapshotData);
+    }
+
+    @Override
+    protected void discardSnapshotShard(DataInputStream dis) throws IOException {
+        HollowSetTypeDataElements.discardFromStream(dis, 1, false);
+    }
+
+    @Override
+    protected void shardsUpdated(int maxOrdinal) {
+        if(shards.length == 1)
+            this.maxOrdinal = shards[0].currentDataElements().maxOrdinal;
+        else
+            this.maxOrdinal = maxOrdinal;
+    }
+
+    @Override
+    public void applyDelta(DataInputStream dis, HollowSchema deltaSchema, ArraySegmentRecycler memoryRecycler) throws IOException {
         if(shards.length > 1)
             maxOrdinal = VarInt.readVInt(dis);
 
         for(int i=0;i<shards.length;i++) {
-            HollowSetTypeDataElements deltaData = new HollowSetTypeDataElements(memoryRecycler);
-            HollowSetTypeDataElements nextData = new HollowSetTypeDataElements(memoryRecycler);
-            deltaData.readDelta(dis);
-            HollowSetTypeDataElements oldData = shards[i].currentDataElements();
-            nextData.applyDelta(oldData, deltaData);
-            shards[i].setCurrentData(nextData);
-            notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, i, shards.length);
-            deltaData.destroy();
-            oldData.destroy();
+            ShardDelta shardDelta = applyDeltaShard(dis, i, deltaSchema, memoryRecycler);
+            shardDelta.publish();
+            shardDelta.complete();
             stateEngine.getMemoryRecycler().swap();
         }
         
-        if(shards.length == 1)
-            maxOrdinal = shards[0].currentDataElements().maxOrdinal;
+        shardsUpdated(maxOrdinal);
+    }
+
+    @Override
+    protected ShardDelta applyDeltaShard(DataInputStream dis, final int shardNumber, HollowSchema deltaSchema, ArraySegmentRecycler memoryRecycler) throws IOException {
+        final HollowSetTypeDataElements deltaData = new HollowSetTypeDataElements(memoryRecycler);
+        final HollowSetTypeDataElements nextData = new HollowSetTypeDataElements(memoryRecycler);
+        deltaData.readDelta(dis);
+        final HollowSetTypeDataElements oldData = shards[shardNumber].currentDataElements();
+        nextData.applyDelta(oldData, deltaData);
+
+        return new ShardDelta() {
+            public void publish() {
+                shards[shardNumber].setCurrentData(nextData);
+            }
+
+            public void complete() {
+                notifyListenerAboutDeltaChanges(deltaData.encodedRemovals, deltaData.encodedAdditions, shardNumber, shards.length);
+                deltaData.destroy();
+                oldData.destroy();
+            }
+        };
+    }
+
+    @Override
+    protected void discardDeltaShard(DataInputStream dis, HollowSchema deltaSchema) throws IOException {
+        HollowSetTypeDataElements.discardFromStream(dis, 1, true);
     }
 
     public static void discardSnapshot(DataInputStream dis, int numShards) throws IOException {
@@ -245,6 +281,11 @@ public class HollowSetTypeReadState extends HollowCollectionTypeReadState implem
             shards[i].applyToChecksum(checksum, populatedOrdinals, i, shards.length);
     }
 
+    @Override
+    protected ShardMemory getShardMemoryReport(int shardNumber) {
+        return shards[shardNumber].getMemoryReport(shardNumber);
+    }
+
 	@Override
 	public long getApproximateHeapFootprintInBytes() {
         long totalApproximateHeapFootprintInBytes = 0;
@@ -19,9 +19,13 @@ package com.netflix.hollow.core.read.engine.set;
 
 import com.netflix.hollow.core.index.key.HollowPrimaryKeyValueDeriver;
 import com.netflix.hollow.core.memory.encoding.HashCodes;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.FieldMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.ShardMemory;
 import com.netflix.hollow.core.read.engine.SetMapKeyHasher;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.List;
 
 class HollowSetTypeReadStateShard {
 
@@ -193,6 +197,22 @@ class HollowSetTypeReadStateShard {
         return requiredBits / 8;
     }
     
+    public ShardMemory getMemoryReport(int shardNumber) {
+        HollowSetTypeDataElements currentData = currentDataVolatile;
+
+        long totalNumberOfElements = 0;
+        for(int ordinal=0;ordinal<=currentData.maxOrdinal;ordinal++)
+            totalNumberOfElements += currentData.setPointerAndSizeArray.getElementValue(((long)ordinal * currentData.bitsPerFixedLengthSetPortion) + currentData.bitsPerSetPointer, currentData.bitsPerSetSizeValue);
+        long hashTableOverheadBytes = ((currentData.totalNumberOfBuckets - totalNumberOfElements) * currentData.bitsPerElement) / 8;
+
+        List<FieldMemory> components = new ArrayList<FieldMemory>(2);
+        components.add(new FieldMemory("pointersAndSizes", currentData.bitsPerFixedLengthSetPortion, currentData.setPointerAndSizeArray.sizeInBytes(), 0));
+        components.add(new FieldMemory("buckets", currentData.bitsPerElement, currentData.elementArray.sizeInBytes(), 0));
+
+        long fixedLengthBytes = currentData.setPointerAndSizeArray.sizeInBytes() + currentData.elementArray.sizeInBytes();
+        return new ShardMemory(shardNumber, currentData.maxOrdinal, fixedLengthBytes, 0, hashTableOverheadBytes, components);
+    }
+    
     public long getApproximateHoleCostInBytes(BitSet populatedOrdinals, int shardNumber, int numShards) {
         long holeBits = 0;
         
@@ -20,28 +20,60 @@ package com.netflix.hollow.core.write;
 import java.util.ArrayList;
 
 import com.netflix.hollow.core.memory.encoding.VarInt;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
 import com.netflix.hollow.core.util.SimultaneousExecutor;
 import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.core.HollowBlobHeader;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A {@link HollowBlobWriter} is used to serialize snapshot, delta, and reversedelta blobs based on the data state
  * contained in a {@link HollowWriteStateEngine}. 
+ * <p>
+ * A snapshot, delta, and reverse delta may each be written from the same state engine concurrently, by separate threads.
  */
 public class HollowBlobWriter {
 
     private final HollowWriteStateEngine stateEngine;
     private final HollowBlobHeaderWriter headerWriter;
 
+    private boolean calculateSnapshotChecksum;
+    private HollowReadStateEngine snapshotChecksumCommonSchemasWith;
+    private HollowChecksum snapshotChecksum;
+
     public HollowBlobWriter(HollowWriteStateEngine stateEngine) {
         this.stateEngine = stateEngine;
         this.headerWriter = new HollowBlobHeaderWriter();
     }
 
+    /**
+     * Calculate a checksum of the data while the next snapshot is written with this HollowBlobWriter.  The checksum will be identical to
+     * {@link HollowChecksum#forStateEngineWithCommonSchemas(HollowReadStateEngine, HollowReadStateEngine)} for a state engine which has read 
+     * that snapshot, which avoids having to read the snapshot back in order to verify it.
+     * 
+     * @param commonSchemasWith if not null, only the types and fields in common with this state engine are included in the checksum.
+     */
+    public void calculateSnapshotChecksum(HollowReadStateEngine commonSchemasWith) {
+        this.calculateSnapshotChecksum = true;
+        this.snapshotChecksumCommonSchemasWith = commonSchemasWith;
+    }
+
+    /**
+     * @return the checksum calculated while the last snapshot was written, or null if {@link #calculateSnapshotChecksum(HollowReadStateEngine)}
+     * was not called before it was written.
+     */
+    public HollowChecksum getSnapshotChecksum() {
+        return snapshotChecksum;
+    }
+
     /**
      * Write the current state as a snapshot blob.  
      */
@@ -55,10 +87,21 @@ public class HollowBlobWriter {
 
         SimultaneousExecutor executor = new SimultaneousExecutor();
 
+        final Map<String, HollowChecksum> typeChecksums = new ConcurrentHashMap<String, HollowChecksum>();
+
         for(final HollowTypeWriteState typeState : stateEngine.getOrderedTypeStates()) {
             executor.execute(new Runnable() {
                 public void run() {
                     typeState.calculateSnapshot();
+
+                    if(calculateSnapshotChecksum) {
+                        HollowSchema withSchema = commonSchema(typeState);
+                        if(withSchema != null) {
+                            HollowChecksum checksum = new HollowChecksum();
+                            typeState.applySnapshotToChecksum(checksum, withSchema);
+                            typeChecksums.put(typeState.getSchema().getName(), checksum);
+                        }
+                    }
                 }
             });
         }
@@ -69,6 +112,14 @@ public class HollowBlobWriter {
             throw new RuntimeException(e);
         }
 
+        if(calculateSnapshotChecksum) {
+            /// combined in order of type name, as in HollowChecksum.forStateEngineWithCommonSchemas()
+            snapshotChecksum = new HollowChecksum();
+            for(HollowChecksum typeChecksum : new TreeMap<String, HollowChecksum>(typeChecksums).values())
+                snapshotChecksum.applyInt(typeChecksum.intValue());
+            calculateSnapshotChecksum = false;
+        }
+
         for(HollowTypeWriteState typeState : stateEngine.getOrderedTypeStates()) {
             HollowSchema schema = typeState.getSchema();
             schema.writeTo(dos);
@@ -174,6 +225,13 @@ public class HollowBlobWriter {
         os.flush();
     }
 
+    private HollowSchema commonSchema(HollowTypeWriteState typeState) {
+        if(snapshotChecksumCommonSchemasWith == null)
+            return typeState.getSchema();
+        HollowTypeReadState commonSchemasWithType = snapshotChecksumCommonSchemasWith.getTypeState(typeState.getSchema().getName());
+        return commonSchemasWithType == null ? null : commonSchemasWithType.getSchema();
+    }
+
     private List<HollowSchema> changedTypes() {
         List<HollowSchema> changedTypes = new ArrayList<HollowSchema>();
         
@@ -24,6 +24,8 @@ import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.WastefulRecycler;
 import com.netflix.hollow.core.schema.HollowListSchema;
+import com.netflix.hollow.core.schema.HollowSchema;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
@@ -34,17 +36,13 @@ public class HollowListTypeWriteState extends HollowTypeWriteState {
     private int bitsPerElement;
     private long totalOfListSizes[];
 
-    /// data required for writing snapshot or delta
-    private int maxOrdinal;
+    /// shard layout, shared by snapshots and deltas
     private int maxShardOrdinal[];
-    private FixedLengthElementArray listPointerArray[];
-    private FixedLengthElementArray elementArray[];
 
-    /// additional data required for writing delta
-    private int numListsInDelta[];
-    private long numElementsInDelta[];
-    private ByteDataBuffer deltaAddedOrdinals[];
-    private ByteDataBuffer deltaRemovedOrdinals[];
+    /// data calculated for each blob currently being written
+    private BlobData snapshotData;
+    private BlobData deltaData;
+    private BlobData reverseDeltaData;
 
     public HollowListTypeWriteState(HollowListSchema schema) {
         this(schema, -1);
@@ -149,223 +147,282 @@ public class HollowListTypeWriteState extends HollowTypeWriteState {
     
     @Override
     public void calculateSnapshot() {
-        maxOrdinal = ordinalMap.maxOrdinal();
-        
-        listPointerArray = new FixedLengthElementArray[numShards];
-        elementArray = new FixedLengthElementArray[numShards];
-
-        for(int i=0;i<numShards;i++) {
-            listPointerArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerListPointer * (maxShardOrdinal[i] + 1));
-            elementArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerElement * totalOfListSizes[i]);
-        }
-
-        ByteData data = ordinalMap.getByteData().getUnderlyingArray();
-
-        int elementCounter[] = new int[numShards];
-        int shardMask = numShards - 1;
-
-        for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
-            int shardNumber = ordinal & shardMask;
-            int shardOrdinal = ordinal / numShards;
-            
-            if(currentCyclePopulated.get(ordinal)) {
-                long readPointer = ordinalMap.getPointerForData(ordinal);
-
-                int size = VarInt.readVInt(data, readPointer);
-                readPointer += VarInt.sizeOfVInt(size);
-
-                for(int j=0;j<size;j++) {
-                    int elementOrdinal = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(elementOrdinal);
-                    elementArray[shardNumber].setElementValue((long)bitsPerElement * elementCounter[shardNumber], bitsPerElement, elementOrdinal);
-                    elementCounter[shardNumber]++;
-                }
-            }
-
-            listPointerArray[shardNumber].setElementValue((long)bitsPerListPointer * shardOrdinal, bitsPerListPointer, elementCounter[shardNumber]);
-        }
+        snapshotData = new BlobData();
+        snapshotData.calculateSnapshot();
     }
 
     @Override
     public void writeSnapshot(DataOutputStream os) throws IOException {
-        /// for unsharded blobs, support pre v2.1.0 clients
-        if(numShards == 1) {
-            writeSnapshotShard(os, 0);
-        } else {
-            /// overall max ordinal
-            VarInt.writeVInt(os, maxOrdinal);
-            
-            for(int i=0;i<numShards;i++) {
-                writeSnapshotShard(os, i);
-            }
-        }
-        
-        /// Populated bits
-        currentCyclePopulated.serializeBitsTo(os);
-
-        listPointerArray = null;
-        elementArray = null;
+        snapshotData.writeSnapshot(os);
+        snapshotData = null;
     }
-        
-    private void writeSnapshotShard(DataOutputStream os, int shardNumber) throws IOException {
-        /// 1) shard max ordinal
-        VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
-
-        /// 2) statistics
-        VarInt.writeVInt(os, bitsPerListPointer);
-        VarInt.writeVInt(os, bitsPerElement);
-        VarInt.writeVLong(os, totalOfListSizes[shardNumber]);
-
-        /// 3) list pointer array
-        int numListPointerLongs = maxShardOrdinal[shardNumber] == -1 ? 0 : (int)((((long)(maxShardOrdinal[shardNumber] + 1) * bitsPerListPointer) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numListPointerLongs);
-        for(int i=0;i<numListPointerLongs;i++) {
-            os.writeLong(listPointerArray[shardNumber].get(i));
-        }
 
-        /// 4) element array
-        int numElementLongs = totalOfListSizes[shardNumber] == 0 ? 0 : (int)(((totalOfListSizes[shardNumber] * bitsPerElement) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numElementLongs);
-        for(int i=0;i<numElementLongs;i++) {
-            os.writeLong(elementArray[shardNumber].get(i));
-        }
+    @Override
+    public void applySnapshotToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+        snapshotData.applySnapshotToChecksum(checksum, withSchema);
     }
 
     @Override
     public void calculateDelta() {
-        calculateDelta(previousCyclePopulated, currentCyclePopulated);
+        deltaData = new BlobData();
+        deltaData.calculateDelta(previousCyclePopulated, currentCyclePopulated);
     }
 
     @Override
     public void writeDelta(DataOutputStream dos) throws IOException {
-        writeCalculatedDelta(dos);
+        deltaData.writeCalculatedDelta(dos);
+        deltaData = null;
     }
 
     @Override
     public void calculateReverseDelta() {
-        calculateDelta(currentCyclePopulated, previousCyclePopulated);
+        reverseDeltaData = new BlobData();
+        reverseDeltaData.calculateDelta(currentCyclePopulated, previousCyclePopulated);
     }
 
     @Override
     public void writeReverseDelta(DataOutputStream dos) throws IOException {
-        writeCalculatedDelta(dos);
+        reverseDeltaData.writeCalculatedDelta(dos);
+        reverseDeltaData = null;
     }
 
-    private void calculateDelta(ThreadSafeBitSet fromCyclePopulated, ThreadSafeBitSet toCyclePopulated) {
-        maxOrdinal = ordinalMap.maxOrdinal();
+    /**
+     * The data calculated for a single snapshot, delta, or reverse delta blob.  Each blob is calculated into its own
+     * BlobData, so that all three may be written from the same prepared state concurrently.
+     */
+    private class BlobData {
 
-        numListsInDelta = new int[numShards];
-        numElementsInDelta = new long[numShards];
-        
-        listPointerArray = new FixedLengthElementArray[numShards];
-        elementArray = new FixedLengthElementArray[numShards];
-        deltaAddedOrdinals = new ByteDataBuffer[numShards];
-        deltaRemovedOrdinals = new ByteDataBuffer[numShards];
-        
-        ThreadSafeBitSet deltaAdditions = toCyclePopulated.andNot(fromCyclePopulated);
-        
-        int shardMask = numShards - 1;
-        
-        int addedOrdinal = deltaAdditions.nextSetBit(0);
-        while(addedOrdinal != -1) {
-            numListsInDelta[addedOrdinal & shardMask]++;
-            long readPointer = ordinalMap.getPointerForData(addedOrdinal);
-            numElementsInDelta[addedOrdinal & shardMask] += VarInt.readVInt(ordinalMap.getByteData().getUnderlyingArray(), readPointer);
-            
-            addedOrdinal = deltaAdditions.nextSetBit(addedOrdinal + 1);
+        /// data required for writing snapshot or delta
+        private int maxOrdinal;
+        private FixedLengthElementArray listPointerArray[];
+        private FixedLengthElementArray elementArray[];
+
+        /// additional data required for writing delta
+        private int numListsInDelta[];
+        private long numElementsInDelta[];
+        private ByteDataBuffer deltaAddedOrdinals[];
+        private ByteDataBuffer deltaRemovedOrdinals[];
+
+        void calculateSnapshot() {
+            maxOrdinal = ordinalMap.maxOrdinal();
+
+            listPointerArray = new FixedLengthElementArray[numShards];
+            elementArray = new FixedLengthElementArray[numShards];
+
+            for(int i=0;i<numShards;i++) {
+                listPointerArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerListPointer * (maxShardOrdinal[i] + 1));
+                elementArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerElement * totalOfListSizes[i]);
+            }
+
+            ByteData data = ordinalMap.getByteData().getUnderlyingArray();
+
+            int elementCounter[] = new int[numShards];
+            int shardMask = numShards - 1;
+
+            for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
+                int shardNumber = ordinal & shardMask;
+                int shardOrdinal = ordinal / numShards;
+
+                if(currentCyclePopulated.get(ordinal)) {
+                    long readPointer = ordinalMap.getPointerForData(ordinal);
+
+                    int size = VarInt.readVInt(data, readPointer);
+                    readPointer += VarInt.sizeOfVInt(size);
+
+                    for(int j=0;j<size;j++) {
+                        int elementOrdinal = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(elementOrdinal);
+                        elementArray[shardNumber].setElementValue((long)bitsPerElement * elementCounter[shardNumber], bitsPerElement, elementOrdinal);
+                        elementCounter[shardNumber]++;
+                    }
+                }
+
+                listPointerArray[shardNumber].setElementValue((long)bitsPerListPointer * shardOrdinal, bitsPerListPointer, elementCounter[shardNumber]);
+            }
         }
-        
-        for(int i=0;i<numShards;i++) {
-            listPointerArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numListsInDelta[i] * bitsPerListPointer);
-            elementArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, numElementsInDelta[i] * bitsPerElement);
-            deltaAddedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
-            deltaRemovedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
+
+        /**
+         * Calculates the checksum which a HollowListTypeReadState will have once it has read this snapshot.
+         */
+        void applySnapshotToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+            for(int shardNumber=0;shardNumber<numShards;shardNumber++) {
+                int ordinal = currentCyclePopulated.nextSetBit(0);
+                while(ordinal != -1) {
+                    if((ordinal & (numShards - 1)) == shardNumber) {
+                        int shardOrdinal = ordinal / numShards;
+                        long startElement = shardOrdinal == 0 ? 0 : listPointerArray[shardNumber].getElementValue((long)bitsPerListPointer * (shardOrdinal - 1), bitsPerListPointer);
+                        long endElement = listPointerArray[shardNumber].getElementValue((long)bitsPerListPointer * shardOrdinal, bitsPerListPointer);
+
+                        checksum.applyInt(ordinal);
+                        for(long i=startElement;i<endElement;i++)
+                            checksum.applyInt((int)elementArray[shardNumber].getElementValue((long)bitsPerElement * i, bitsPerElement));
+                    }
+
+                    ordinal = currentCyclePopulated.nextSetBit(ordinal + 1);
+                }
+            }
         }
 
-        ByteData data = ordinalMap.getByteData().getUnderlyingArray();
+        void writeSnapshot(DataOutputStream os) throws IOException {
+            /// for unsharded blobs, support pre v2.1.0 clients
+            if(numShards == 1) {
+                writeSnapshotShard(os, 0);
+            } else {
+                /// overall max ordinal
+                VarInt.writeVInt(os, maxOrdinal);
 
-        int listCounter[] = new int[numShards];
-        long elementCounter[] = new long[numShards];
-        int previousRemovedOrdinal[] = new int[numShards];
-        int previousAddedOrdinal[] = new int[numShards];
+                for(int i=0;i<numShards;i++) {
+                    writeSnapshotShard(os, i);
+                }
+            }
 
-        for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
-            int shardNumber = ordinal & shardMask;
-            if(deltaAdditions.get(ordinal)) {
-                long readPointer = ordinalMap.getPointerForData(ordinal);
+            /// Populated bits
+            currentCyclePopulated.serializeBitsTo(os);
 
-                int size = VarInt.readVInt(data, readPointer);
-                readPointer += VarInt.sizeOfVInt(size);
+            listPointerArray = null;
+            elementArray = null;
+        }
 
-                listPointerArray[shardNumber].setElementValue((long)bitsPerListPointer * listCounter[shardNumber], bitsPerListPointer, elementCounter[shardNumber] + size);
+        private void writeSnapshotShard(DataOutputStream os, int shardNumber) throws IOException {
+            /// 1) shard max ordinal
+            VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
 
-                for(int j=0;j<size;j++) {
-                    int elementOrdinal = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(elementOrdinal);
-                    elementArray[shardNumber].setElementValue((long)bitsPerElement * elementCounter[shardNumber], bitsPerElement, elementOrdinal);
-                    elementCounter[shardNumber]++;
-                }
+            /// 2) statistics
+            VarInt.writeVInt(os, bitsPerListPointer);
+            VarInt.writeVInt(os, bitsPerElement);
+            VarInt.writeVLong(os, totalOfListSizes[shardNumber]);
 
-                listCounter[shardNumber]++;
+            /// 3) list pointer array
+            int numListPointerLongs = maxShardOrdinal[shardNumber] == -1 ? 0 : (int)((((long)(maxShardOrdinal[shardNumber] + 1) * bitsPerListPointer) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numListPointerLongs);
+            for(int i=0;i<numListPointerLongs;i++) {
+                os.writeLong(listPointerArray[shardNumber].get(i));
+            }
 
-                int shardOrdinal = ordinal / numShards;
-                VarInt.writeVInt(deltaAddedOrdinals[shardNumber], shardOrdinal - previousAddedOrdinal[shardNumber]);
-                previousAddedOrdinal[shardNumber] = shardOrdinal;
-            } else if(fromCyclePopulated.get(ordinal) && !toCyclePopulated.get(ordinal)) {
-                int shardOrdinal = ordinal / numShards;
-                VarInt.writeVInt(deltaRemovedOrdinals[shardNumber], shardOrdinal - previousRemovedOrdinal[shardNumber]);
-                previousRemovedOrdinal[shardNumber] = shardOrdinal;
+            /// 4) element array
+            int numElementLongs = totalOfListSizes[shardNumber] == 0 ? 0 : (int)(((totalOfListSizes[shardNumber] * bitsPerElement) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numElementLongs);
+            for(int i=0;i<numElementLongs;i++) {
+                os.writeLong(elementArray[shardNumber].get(i));
             }
         }
-    }
 
-    private void writeCalculatedDelta(DataOutputStream os) throws IOException {
-        /// for unsharded blobs, support pre v2.1.0 clients
-        if(numShards == 1) {
-            writeCalculatedDeltaShard(os, 0);
-        } else {
-            /// overall max ordinal
-            VarInt.writeVInt(os, maxOrdinal);
-            
+        void calculateDelta(ThreadSafeBitSet fromCyclePopulated, ThreadSafeBitSet toCyclePopulated) {
+            maxOrdinal = ordinalMap.maxOrdinal();
+
+            numListsInDelta = new int[numShards];
+            numElementsInDelta = new long[numShards];
+
+            listPointerArray = new FixedLengthElementArray[numShards];
+            elementArray = new FixedLengthElementArray[numShards];
+            deltaAddedOrdinals = new ByteDataBuffer[numShards];
+            deltaRemovedOrdinals = new ByteDataBuffer[numShards];
+
+            ThreadSafeBitSet deltaAdditions = toCyclePopulated.andNot(fromCyclePopulated);
+
+            int shardMask = numShards - 1;
+
+            int addedOrdinal = deltaAdditions.nextSetBit(0);
+            while(addedOrdinal != -1) {
+                numListsInDelta[addedOrdinal & shardMask]++;
+                long readPointer = ordinalMap.getPointerForData(addedOrdinal);
+                numElementsInDelta[addedOrdinal & shardMask] += VarInt.readVInt(ordinalMap.getByteData().getUnderlyingArray(), readPointer);
+
+                addedOrdinal = deltaAdditions.nextSetBit(addedOrdinal + 1);
+            }
+
             for(int i=0;i<numShards;i++) {
-                writeCalculatedDeltaShard(os, i);
+                listPointerArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numListsInDelta[i] * bitsPerListPointer);
+                elementArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, numElementsInDelta[i] * bitsPerElement);
+                deltaAddedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
+                deltaRemovedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
             }
-        }
 
-        listPointerArray = null;
-        elementArray = null;
-        deltaAddedOrdinals = null;
-        deltaRemovedOrdinals = null;
-    }
+            ByteData data = ordinalMap.getByteData().getUnderlyingArray();
+
+            int listCounter[] = new int[numShards];
+            long elementCounter[] = new long[numShards];
+            int previousRemovedOrdinal[] = new int[numShards];
+            int previousAddedOrdinal[] = new int[numShards];
+
+            for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
+                int shardNumber = ordinal & shardMask;
+                if(deltaAdditions.get(ordinal)) {
+                    long readPointer = ordinalMap.getPointerForData(ordinal);
 
+                    int size = VarInt.readVInt(data, readPointer);
+                    readPointer += VarInt.sizeOfVInt(size);
 
-    private void writeCalculatedDeltaShard(DataOutputStream os, int shardNumber) throws IOException {
-        /// 1) max shard ordinal
-        VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
+                    listPointerArray[shardNumber].setElementValue((long)bitsPerListPointer * listCounter[shardNumber], bitsPerListPointer, elementCounter[shardNumber] + size);
 
-        /// 2) removal / addition ordinals.
-        VarInt.writeVLong(os, deltaRemovedOrdinals[shardNumber].length());
-        deltaRemovedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaRemovedOrdinals[shardNumber].length());
-        VarInt.writeVLong(os, deltaAddedOrdinals[shardNumber].length());
-        deltaAddedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaAddedOrdinals[shardNumber].length());
+                    for(int j=0;j<size;j++) {
+                        int elementOrdinal = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(elementOrdinal);
+                        elementArray[shardNumber].setElementValue((long)bitsPerElement * elementCounter[shardNumber], bitsPerElement, elementOrdinal);
+                        elementCounter[shardNumber]++;
+                    }
 
-        /// 3) statistics
-        VarInt.writeVInt(os, bitsPerListPointer);
-        VarInt.writeVInt(os, bitsPerElement);
-        VarInt.writeVLong(os, totalOfListSizes[shardNumber]);
+                    listCounter[shardNumber]++;
 
-        /// 4) list pointer array
-        int numListPointerLongs = numListsInDelta[shardNumber] == 0 ? 0 : (int)((((long)numListsInDelta[shardNumber] * bitsPerListPointer) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numListPointerLongs);
-        for(int i=0;i<numListPointerLongs;i++) {
-            os.writeLong(listPointerArray[shardNumber].get(i));
+                    int shardOrdinal = ordinal / numShards;
+                    VarInt.writeVInt(deltaAddedOrdinals[shardNumber], shardOrdinal - previousAddedOrdinal[shardNumber]);
+                    previousAddedOrdinal[shardNumber] = shardOrdinal;
+                } else if(fromCyclePopulated.get(ordinal) && !toCyclePopulated.get(ordinal)) {
+                    int shardOrdinal = ordinal / numShards;
+                    VarInt.writeVInt(deltaRemovedOrdinals[shardNumber], shardOrdinal - previousRemovedOrdinal[shardNumber]);
+                    previousRemovedOrdinal[shardNumber] = shardOrdinal;
+                }
+            }
         }
 
-        /// 5) element array
-        int numElementLongs = numElementsInDelta[shardNumber] == 0 ? 0 : (int)(((numElementsInDelta[shardNumber] * bitsPerElement) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numElementLongs);
-        for(int i=0;i<numElementLongs;i++) {
-            os.writeLong(elementArray[shardNumber].get(i));
+        void writeCalculatedDelta(DataOutputStream os) throws IOException {
+            /// for unsharded blobs, support pre v2.1.0 clients
+            if(numShards == 1) {
+                writeCalculatedDeltaShard(os, 0);
+            } else {
+                /// overall max ordinal
+                VarInt.writeVInt(os, maxOrdinal);
+
+                for(int i=0;i<numShards;i++) {
+                    writeCalculatedDeltaShard(os, i);
+                }
+            }
+
+            listPointerArray = null;
+            elementArray = null;
+            deltaAddedOrdinals = null;
+            deltaRemovedOrdinals = null;
+        }
+
+
+        private void writeCalculatedDeltaShard(DataOutputStream os, int shardNumber) throws IOException {
+            /// 1) max shard ordinal
+            VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
+
+            /// 2) removal / addition ordinals.
+            VarInt.writeVLong(os, deltaRemovedOrdinals[shardNumber].length());
+            deltaRemovedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaRemovedOrdinals[shardNumber].length());
+            VarInt.writeVLong(os, deltaAddedOrdinals[shardNumber].length());
+            deltaAddedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaAddedOrdinals[shardNumber].length());
+
+            /// 3) statistics
+            VarInt.writeVInt(os, bitsPerListPointer);
+            VarInt.writeVInt(os, bitsPerElement);
+            VarInt.writeVLong(os, totalOfListSizes[shardNumber]);
+
+            /// 4) list pointer array
+            int numListPointerLongs = numListsInDelta[shardNumber] == 0 ? 0 : (int)((((long)numListsInDelta[shardNumber] * bitsPerListPointer) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numListPointerLongs);
+            for(int i=0;i<numListPointerLongs;i++) {
+                os.writeLong(listPointerArray[shardNumber].get(i));
+            }
+
+            /// 5) element array
+            int numElementLongs = numElementsInDelta[shardNumber] == 0 ? 0 : (int)(((numElementsInDelta[shardNumber] * bitsPerElement) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numElementLongs);
+            for(int i=0;i<numElementLongs;i++) {
+                os.writeLong(elementArray[shardNumber].get(i));
+            }
         }
     }
 
@@ -25,6 +25,8 @@ import com.netflix.hollow.core.memory.encoding.HashCodes;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.WastefulRecycler;
 import com.netflix.hollow.core.schema.HollowMapSchema;
+import com.netflix.hollow.core.schema.HollowSchema;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
@@ -37,17 +39,13 @@ public class HollowMapTypeWriteState extends HollowTypeWriteState {
     private int bitsPerValueElement;
     private long totalOfMapBuckets[];
 
-    /// data required for writing snapshot or delta
-    private int maxOrdinal;
+    /// shard layout, shared by snapshots and deltas
     private int maxShardOrdinal[];
-    private FixedLengthElementArray mapPointersAndSizesArray[];
-    private FixedLengthElementArray entryArray[];
 
-    /// additional data required for writing delta
-    private int numMapsInDelta[];
-    private long numBucketsInDelta[];
-    private ByteDataBuffer deltaAddedOrdinals[];
-    private ByteDataBuffer deltaRemovedOrdinals[];
+    /// data calculated for each blob currently being written
+    private BlobData snapshotData;
+    private BlobData deltaData;
+    private BlobData reverseDeltaData;
 
     public HollowMapTypeWriteState(HollowMapSchema schema) {
         this(schema, -1);
@@ -193,305 +191,377 @@ public class HollowMapTypeWriteState extends HollowTypeWriteState {
 
     @Override
     public void calculateSnapshot() {
-        maxOrdinal = ordinalMap.maxOrdinal();
-        int bitsPerMapFixedLengthPortion = bitsPerMapSizeValue + bitsPerMapPointer;
-        int bitsPerMapEntry = bitsPerKeyElement + bitsPerValueElement;
-        
-        mapPointersAndSizesArray = new FixedLengthElementArray[numShards];
-        entryArray = new FixedLengthElementArray[numShards];
+        snapshotData = new BlobData();
+        snapshotData.calculateSnapshot();
+    }
 
-        for(int i=0;i<numShards;i++) {
-            mapPointersAndSizesArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerMapFixedLengthPortion * (maxShardOrdinal[i] + 1));
-            entryArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerMapEntry * totalOfMapBuckets[i]);
-        }
+    @Override
+    public void writeSnapshot(DataOutputStream os) throws IOException {
+        snapshotData.writeSnapshot(os);
+        snapshotData = null;
+    }
 
-        ByteData data = ordinalMap.getByteData().getUnderlyingArray();
+    @Override
+    public void applySnapshotToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+        snapshotData.applySnapshotToChecksum(checksum, withSchema);
+    }
 
-        int bucketCounter[] = new int[numShards];
-        int shardMask = numShards - 1;
+    @Override
+    public void calculateDelta() {
+        deltaData = new BlobData();
+        deltaData.calculateDelta(previousCyclePopulated, currentCyclePopulated);
+    }
 
-        HollowWriteStateEnginePrimaryKeyHasher primaryKeyHasher = null;
+    @Override
+    public void writeDelta(DataOutputStream dos) throws IOException {
+        deltaData.writeCalculatedDelta(dos);
+        deltaData = null;
+    }
 
-        if(getSchema().getHashKey() != null)
-            primaryKeyHasher = new HollowWriteStateEnginePrimaryKeyHasher(getSchema().getHashKey(), getStateEngine());
-        
-        for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
-            int shardNumber = ordinal & shardMask;
-            int shardOrdinal = ordinal / numShards;
-            
-            if(currentCyclePopulated.get(ordinal)) {
-                long readPointer = ordinalMap.getPointerForData(ordinal);
+    @Override
+    public void calculateReverseDelta() {
+        reverseDeltaData = new BlobData();
+        reverseDeltaData.calculateDelta(currentCyclePopulated, previousCyclePopulated);
+    }
+
+    @Override
+    public void writeReverseDelta(DataOutputStream dos) throws IOException {
+        reverseDeltaData.writeCalculatedDelta(dos);
+        reverseDeltaData = null;
+    }
 
-                int size = VarInt.readVInt(data, readPointer);
-                readPointer += VarInt.sizeOfVInt(size);
+    /**
+     * The data calculated for a single snapshot, delta, or reverse delta blob.  Each blob is calculated into its own
+     * BlobData, so that all three may be written from the same prepared state concurrently.
+     */
+    private class BlobData {
 
-                int numBuckets = HashCodes.hashTableSize(size);
+        /// data required for writing snapshot or delta
+        private int maxOrdinal;
+        private FixedLengthElementArray mapPointersAndSizesArray[];
+        private FixedLengthElementArray entryArray[];
 
-                mapPointersAndSizesArray[shardNumber].setElementValue(((long)bitsPerMapFixedLengthPortion * shardOrdinal) + bitsPerMapPointer, bitsPerMapSizeValue, size);
+        /// additional data required for writing delta
+        private int numMapsInDelta[];
+        private long numBucketsInDelta[];
+        private ByteDataBuffer deltaAddedOrdinals[];
+        private ByteDataBuffer deltaRemovedOrdinals[];
 
-                int keyElementOrdinal = 0;
+        void calculateSnapshot() {
+            maxOrdinal = ordinalMap.maxOrdinal();
+            int bitsPerMapFixedLengthPortion = bitsPerMapSizeValue + bitsPerMapPointer;
+            int bitsPerMapEntry = bitsPerKeyElement + bitsPerValueElement;
 
-                for(int j=0;j<numBuckets;j++) {
-                    entryArray[shardNumber].setElementValue((long)bitsPerMapEntry * (bucketCounter[shardNumber] + j), bitsPerKeyElement, (1L << bitsPerKeyElement) - 1);
-                }
+            mapPointersAndSizesArray = new FixedLengthElementArray[numShards];
+            entryArray = new FixedLengthElementArray[numShards];
 
-                for(int j=0;j<size;j++) {
-                    int keyElementOrdinalDelta = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(keyElementOrdinalDelta);
-                    int valueElementOrdinal = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(valueElementOrdinal);
-                    int hashedBucket = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(hashedBucket);
+            for(int i=0;i<numShards;i++) {
+                mapPointersAndSizesArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerMapFixedLengthPortion * (maxShardOrdinal[i] + 1));
+                entryArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerMapEntry * totalOfMapBuckets[i]);
+            }
 
-                    keyElementOrdinal += keyElementOrdinalDelta;
+            ByteData data = ordinalMap.getByteData().getUnderlyingArray();
 
-                    if(primaryKeyHasher != null)
-                        hashedBucket = primaryKeyHasher.getRecordHash(keyElementOrdinal) & (numBuckets - 1);
+            int bucketCounter[] = new int[numShards];
+            int shardMask = numShards - 1;
 
-                    while(entryArray[shardNumber].getElementValue((long)bitsPerMapEntry * (bucketCounter[shardNumber] + hashedBucket), bitsPerKeyElement) != ((1L << bitsPerKeyElement) - 1)) {
-                        hashedBucket++;
-                        hashedBucket &= (numBuckets - 1);
+            HollowWriteStateEnginePrimaryKeyHasher primaryKeyHasher = null;
+
+            if(getSchema().getHashKey() != null)
+                primaryKeyHasher = new HollowWriteStateEnginePrimaryKeyHasher(getSchema().getHashKey(), getStateEngine());
+
+            for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
+                int shardNumber = ordinal & shardMask;
+                int shardOrdinal = ordinal / numShards;
+
+                if(currentCyclePopulated.get(ordinal)) {
+                    long readPointer = ordinalMap.getPointerForData(ordinal);
+
+                    int size = VarInt.readVInt(data, readPointer);
+                    readPointer += VarInt.sizeOfVInt(size);
+
+                    int numBuckets = HashCodes.hashTableSize(size);
+
+                    mapPointersAndSizesArray[shardNumber].setElementValue(((long)bitsPerMapFixedLengthPortion * shardOrdinal) + bitsPerMapPointer, bitsPerMapSizeValue, size);
+
+                    int keyElementOrdinal = 0;
+
+                    for(int j=0;j<numBuckets;j++) {
+                        entryArray[shardNumber].setElementValue((long)bitsPerMapEntry * (bucketCounter[shardNumber] + j), bitsPerKeyElement, (1L << bitsPerKeyElement) - 1);
+                    }
+
+                    for(int j=0;j<size;j++) {
+                        int keyElementOrdinalDelta = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(keyElementOrdinalDelta);
+                        int valueElementOrdinal = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(valueElementOrdinal);
+                        int hashedBucket = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(hashedBucket);
+
+                        keyElementOrdinal += keyElementOrdinalDelta;
+
+                        if(primaryKeyHasher != null)
+                            hashedBucket = primaryKeyHasher.getRecordHash(keyElementOrdinal) & (numBuckets - 1);
+
+                        while(entryArray[shardNumber].getElementValue((long)bitsPerMapEntry * (bucketCounter[shardNumber] + hashedBucket), bitsPerKeyElement) != ((1L << bitsPerKeyElement) - 1)) {
+                            hashedBucket++;
+                            hashedBucket &= (numBuckets - 1);
+                        }
+
+                        long mapEntryBitOffset = bitsPerMapEntry * (bucketCounter[shardNumber] + hashedBucket);
+                        entryArray[shardNumber].clearElementValue(mapEntryBitOffset, bitsPerMapEntry);
+                        entryArray[shardNumber].setElementValue(mapEntryBitOffset, bitsPerKeyElement, keyElementOrdinal);
+                        entryArray[shardNumber].setElementValue(mapEntryBitOffset + bitsPerKeyElement, bitsPerValueElement, valueElementOrdinal);
                     }
 
-                    long mapEntryBitOffset = bitsPerMapEntry * (bucketCounter[shardNumber] + hashedBucket);
-                    entryArray[shardNumber].clearElementValue(mapEntryBitOffset, bitsPerMapEntry);
-                    entryArray[shardNumber].setElementValue(mapEntryBitOffset, bitsPerKeyElement, keyElementOrdinal);
-                    entryArray[shardNumber].setElementValue(mapEntryBitOffset + bitsPerKeyElement, bitsPerValueElement, valueElementOrdinal);
+                    bucketCounter[shardNumber] += numBuckets;
                 }
 
-                bucketCounter[shardNumber] += numBuckets;
+                mapPointersAndSizesArray[shardNumber].setElementValue((long)bitsPerMapFixedLengthPortion * shardOrdinal, bitsPerMapPointer, bucketCounter[shardNumber]);
             }
-
-            mapPointersAndSizesArray[shardNumber].setElementValue((long)bitsPerMapFixedLengthPortion * shardOrdinal, bitsPerMapPointer, bucketCounter[shardNumber]);
         }
-    }
 
-    @Override
-    public void writeSnapshot(DataOutputStream os) throws IOException {
-        /// for unsharded blobs, support pre v2.1.0 clients
-        if(numShards == 1) {
-            writeSnapshotShard(os, 0);
-        } else {
-            /// overall max ordinal
-            VarInt.writeVInt(os, maxOrdinal);
-            
-            for(int i=0;i<numShards;i++) {
-                writeSnapshotShard(os, i);
+        /**
+         * Calculates the checksum which a HollowMapTypeReadState will have once it has read this snapshot.
+         */
+        void applySnapshotToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+            int bitsPerMapFixedLengthPortion = bitsPerMapSizeValue + bitsPerMapPointer;
+            int bitsPerMapEntry = bitsPerKeyElement + bitsPerValueElement;
+            long emptyBucketKeyValue = (1L << bitsPerKeyElement) - 1;
+
+            for(int shardNumber=0;shardNumber<numShards;shardNumber++) {
+                int ordinal = currentCyclePopulated.nextSetBit(0);
+                while(ordinal != -1) {
+                    if((ordinal & (numShards - 1)) == shardNumber) {
+                        int shardOrdinal = ordinal / numShards;
+                        long fixedLengthOffset = (long)bitsPerMapFixedLengthPortion * shardOrdinal;
+                        int size = (int)mapPointersAndSizesArray[shardNumber].getElementValue(fixedLengthOffset + bitsPerMapPointer, bitsPerMapSizeValue);
+                        int numBuckets = HashCodes.hashTableSize(size);
+                        long startBucket = shardOrdinal == 0 ? 0 : mapPointersAndSizesArray[shardNumber].getElementValue(fixedLengthOffset - bitsPerMapFixedLengthPortion, bitsPerMapPointer);
+
+                        checksum.applyInt(ordinal);
+                        for(int i=0;i<numBuckets;i++) {
+                            long bucketOffset = (long)bitsPerMapEntry * (startBucket + i);
+                            long bucketKey = entryArray[shardNumber].getElementValue(bucketOffset, bitsPerKeyElement);
+                            if(bucketKey != emptyBucketKeyValue) {
+                                checksum.applyInt(i);
+                                checksum.applyInt((int)bucketKey);
+                                checksum.applyInt((int)entryArray[shardNumber].getElementValue(bucketOffset + bitsPerKeyElement, bitsPerValueElement));
+                            }
+                        }
+                    }
+
+                    ordinal = currentCyclePopulated.nextSetBit(ordinal + 1);
+                }
             }
         }
-        
-        /// Populated bits
-        currentCyclePopulated.serializeBitsTo(os);
 
-        mapPointersAndSizesArray = null;
-        entryArray = null;
-    }
-    
-    private void writeSnapshotShard(DataOutputStream os, int shardNumber) throws IOException {
-        int bitsPerMapFixedLengthPortion = bitsPerMapSizeValue + bitsPerMapPointer;
-        int bitsPerMapEntry = bitsPerKeyElement + bitsPerValueElement;
-
-        /// 1) max ordinal
-        VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
-
-        /// 2) statistics
-        VarInt.writeVInt(os, bitsPerMapPointer);
-        VarInt.writeVInt(os, bitsPerMapSizeValue);
-        VarInt.writeVInt(os, bitsPerKeyElement);
-        VarInt.writeVInt(os, bitsPerValueElement);
-        VarInt.writeVLong(os, totalOfMapBuckets[shardNumber]);
-
-        /// 3) list pointer array
-        int numMapFixedLengthLongs = maxShardOrdinal[shardNumber] == -1 ? 0 : (int)((((long)(maxShardOrdinal[shardNumber] + 1) * bitsPerMapFixedLengthPortion) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numMapFixedLengthLongs);
-        for(int i=0;i<numMapFixedLengthLongs;i++) {
-            os.writeLong(mapPointersAndSizesArray[shardNumber].get(i));
+        void writeSnapshot(DataOutputStream os) throws IOException {
+            /// for unsharded blobs, support pre v2.1.0 clients
+            if(numShards == 1) {
+                writeSnapshotShard(os, 0);
+            } else {
+                /// overall max ordinal
+                VarInt.writeVInt(os, maxOrdinal);
+
+                for(int i=0;i<numShards;i++) {
+                    writeSnapshotShard(os, i);
+                }
+            }
+
+            /// Populated bits
+            currentCyclePopulated.serializeBitsTo(os);
+
+            mapPointersAndSizesArray = null;
+            entryArray = null;
         }
 
-        /// 4) element array
-        int numElementLongs = totalOfMapBuckets[shardNumber] == 0 ? 0 : (int)(((totalOfMapBuckets[shardNumber] * bitsPerMapEntry) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numElementLongs);
-        for(int i=0;i<numElementLongs;i++) {
-            os.writeLong(entryArray[shardNumber].get(i));
+        private void writeSnapshotShard(DataOutputStream os, int shardNumber) throws IOException {
+            int bitsPerMapFixedLengthPortion = bitsPerMapSizeValue + bitsPerMapPointer;
+            int bitsPerMapEntry = bitsPerKeyElement + bitsPerValueElement;
+
+            /// 1) max ordinal
+            VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
+
+            /// 2) statistics
+            VarInt.writeVInt(os, bitsPerMapPointer);
+            VarInt.writeVInt(os, bitsPerMapSizeValue);
+            VarInt.writeVInt(os, bitsPerKeyElement);
+            VarInt.writeVInt(os, bitsPerValueElement);
+            VarInt.writeVLong(os, totalOfMapBuckets[shardNumber]);
+
+            /// 3) list pointer array
+            int numMapFixedLengthLongs = maxShardOrdinal[shardNumber] == -1 ? 0 : (int)((((long)(maxShardOrdinal[shardNumber] + 1) * bitsPerMapFixedLengthPortion) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numMapFixedLengthLongs);
+            for(int i=0;i<numMapFixedLengthLongs;i++) {
+                os.writeLong(mapPointersAndSizesArray[shardNumber].get(i));
+            }
+
+            /// 4) element array
+            int numElementLongs = totalOfMapBuckets[shardNumber] == 0 ? 0 : (int)(((totalOfMapBuckets[shardNumber] * bitsPerMapEntry) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numElementLongs);
+            for(int i=0;i<numElementLongs;i++) {
+                os.writeLong(entryArray[shardNumber].get(i));
+            }
         }
-    }
 
-    @Override
-    public void calculateDelta() {
-        calculateDelta(previousCyclePopulated, currentCyclePopulated);
-    }
+        void calculateDelta(ThreadSafeBitSet fromCyclePopulated, ThreadSafeBitSet toCyclePopulated) {
+            maxOrdinal = ordinalMap.maxOrdinal();
+            int bitsPerMapFixedLengthPortion = bitsPerMapSizeValue + bitsPerMapPointer;
+            int bitsPerMapEntry = bitsPerKeyElement + bitsPerValueElement;
 
-    @Override
-    public void writeDelta(DataOutputStream dos) throws IOException {
-        writeCalculatedDelta(dos);
-    }
+            numMapsInDelta = new int[numShards];
+            numBucketsInDelta = new long[numShards];
+            mapPointersAndSizesArray = new FixedLengthElementArray[numShards];
+            entryArray = new FixedLengthElementArray[numShards];
+            deltaAddedOrdinals = new ByteDataBuffer[numShards];
+            deltaRemovedOrdinals = new ByteDataBuffer[numShards];
 
-    @Override
-    public void calculateReverseDelta() {
-        calculateDelta(currentCyclePopulated, previousCyclePopulated);
-    }
+            ThreadSafeBitSet deltaAdditions = toCyclePopulated.andNot(fromCyclePopulated);
 
-    @Override
-    public void writeReverseDelta(DataOutputStream dos) throws IOException {
-        writeCalculatedDelta(dos);
-    }
+            int shardMask = numShards - 1;
 
-    private void calculateDelta(ThreadSafeBitSet fromCyclePopulated, ThreadSafeBitSet toCyclePopulated) {
-        maxOrdinal = ordinalMap.maxOrdinal();
-        int bitsPerMapFixedLengthPortion = bitsPerMapSizeValue + bitsPerMapPointer;
-        int bitsPerMapEntry = bitsPerKeyElement + bitsPerValueElement;
-
-        numMapsInDelta = new int[numShards];
-        numBucketsInDelta = new long[numShards];
-        mapPointersAndSizesArray = new FixedLengthElementArray[numShards];
-        entryArray = new FixedLengthElementArray[numShards];
-        deltaAddedOrdinals = new ByteDataBuffer[numShards];
-        deltaRemovedOrdinals = new ByteDataBuffer[numShards];
-        
-        ThreadSafeBitSet deltaAdditions = toCyclePopulated.andNot(fromCyclePopulated);
-        
-        int shardMask = numShards - 1;
-        
-        int addedOrdinal = deltaAdditions.nextSetBit(0);
-        while(addedOrdinal != -1) {
-            numMapsInDelta[addedOrdinal & shardMask]++;
-            long readPointer = ordinalMap.getPointerForData(addedOrdinal);
-            int size = VarInt.readVInt(ordinalMap.getByteData().getUnderlyingArray(), readPointer);
-            numBucketsInDelta[addedOrdinal & shardMask] += HashCodes.hashTableSize(size);
-
-            addedOrdinal = deltaAdditions.nextSetBit(addedOrdinal + 1);
-        }
+            int addedOrdinal = deltaAdditions.nextSetBit(0);
+            while(addedOrdinal != -1) {
+                numMapsInDelta[addedOrdinal & shardMask]++;
+                long readPointer = ordinalMap.getPointerForData(addedOrdinal);
+                int size = VarInt.readVInt(ordinalMap.getByteData().getUnderlyingArray(), readPointer);
+                numBucketsInDelta[addedOrdinal & shardMask] += HashCodes.hashTableSize(size);
 
-        for(int i=0;i<numShards;i++) {
-            mapPointersAndSizesArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numMapsInDelta[i] * bitsPerMapFixedLengthPortion);
-            entryArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, numBucketsInDelta[i] * bitsPerMapEntry);
-            deltaAddedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
-            deltaRemovedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
-        }
+                addedOrdinal = deltaAdditions.nextSetBit(addedOrdinal + 1);
+            }
 
-        ByteData data = ordinalMap.getByteData().getUnderlyingArray();
+            for(int i=0;i<numShards;i++) {
+                mapPointersAndSizesArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numMapsInDelta[i] * bitsPerMapFixedLengthPortion);
+                entryArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, numBucketsInDelta[i] * bitsPerMapEntry);
+                deltaAddedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
+                deltaRemovedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
+            }
 
-        int mapCounter[] = new int[numShards];
-        long bucketCounter[] = new long[numShards];
-        int previousRemovedOrdinal[] = new int[numShards];
-        int previousAddedOrdinal[] = new int[numShards];
-        
-        HollowWriteStateEnginePrimaryKeyHasher primaryKeyHasher = null;
+            ByteData data = ordinalMap.getByteData().getUnderlyingArray();
 
-        if(getSchema().getHashKey() != null)
-            primaryKeyHasher = new HollowWriteStateEnginePrimaryKeyHasher(getSchema().getHashKey(), getStateEngine());
+            int mapCounter[] = new int[numShards];
+            long bucketCounter[] = new long[numShards];
+            int previousRemovedOrdinal[] = new int[numShards];
+            int previousAddedOrdinal[] = new int[numShards];
 
-        for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
-            int shardNumber = ordinal & shardMask;
-            if(deltaAdditions.get(ordinal)) {
-                long readPointer = ordinalMap.getPointerForData(ordinal);
+            HollowWriteStateEnginePrimaryKeyHasher primaryKeyHasher = null;
 
-                int size = VarInt.readVInt(data, readPointer);
-                readPointer += VarInt.sizeOfVInt(size);
+            if(getSchema().getHashKey() != null)
+                primaryKeyHasher = new HollowWriteStateEnginePrimaryKeyHasher(getSchema().getHashKey(), getStateEngine());
 
-                int numBuckets = HashCodes.hashTableSize(size);
+            for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
+                int shardNumber = ordinal & shardMask;
+                if(deltaAdditions.get(ordinal)) {
+                    long readPointer = ordinalMap.getPointerForData(ordinal);
 
-                long endBucketPosition = bucketCounter[shardNumber] + numBuckets;
+                    int size = VarInt.readVInt(data, readPointer);
+                    readPointer += VarInt.sizeOfVInt(size);
 
-                mapPointersAndSizesArray[shardNumber].setElementValue((long)bitsPerMapFixedLengthPortion * mapCounter[shardNumber], bitsPerMapPointer, endBucketPosition);
-                mapPointersAndSizesArray[shardNumber].setElementValue(((long)bitsPerMapFixedLengthPortion * mapCounter[shardNumber]) + bitsPerMapPointer, bitsPerMapSizeValue, size);
+                    int numBuckets = HashCodes.hashTableSize(size);
 
-                int keyElementOrdinal = 0;
+                    long endBucketPosition = bucketCounter[shardNumber] + numBuckets;
 
-                for(int j=0;j<numBuckets;j++) {
-                    entryArray[shardNumber].setElementValue((long)bitsPerMapEntry * (bucketCounter[shardNumber] + j), bitsPerKeyElement, (1L << bitsPerKeyElement) - 1);
-                }
+                    mapPointersAndSizesArray[shardNumber].setElementValue((long)bitsPerMapFixedLengthPortion * mapCounter[shardNumber], bitsPerMapPointer, endBucketPosition);
+                    mapPointersAndSizesArray[shardNumber].setElementValue(((long)bitsPerMapFixedLengthPortion * mapCounter[shardNumber]) + bitsPerMapPointer, bitsPerMapSizeValue, size);
 
-                for(int j=0;j<size;j++) {
-                    int keyElementOrdinalDelta = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(keyElementOrdinalDelta);
-                    int valueElementOrdinal = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(valueElementOrdinal);
-                    int hashedBucket = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(hashedBucket);
+                    int keyElementOrdinal = 0;
+
+                    for(int j=0;j<numBuckets;j++) {
+                        entryArray[shardNumber].setElementValue((long)bitsPerMapEntry * (bucketCounter[shardNumber] + j), bitsPerKeyElement, (1L << bitsPerKeyElement) - 1);
+                    }
+
+                    for(int j=0;j<size;j++) {
+                        int keyElementOrdinalDelta = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(keyElementOrdinalDelta);
+                        int valueElementOrdinal = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(valueElementOrdinal);
+                        int hashedBucket = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(hashedBucket);
+
+                        keyElementOrdinal += keyElementOrdinalDelta;
 
-                    keyElementOrdinal += keyElementOrdinalDelta;
+                        if(primaryKeyHasher != null)
+                            hashedBucket = primaryKeyHasher.getRecordHash(keyElementOrdinal) & (numBuckets - 1);
 
-                    if(primaryKeyHasher != null)
-                        hashedBucket = primaryKeyHasher.getRecordHash(keyElementOrdinal) & (numBuckets - 1);
+                        while(entryArray[shardNumber].getElementValue((long)bitsPerMapEntry * (bucketCounter[shardNumber] + hashedBucket), bitsPerKeyElement) != ((1L << bitsPerKeyElement) - 1)) {
+                            hashedBucket++;
+                            hashedBucket &= (numBuckets - 1);
+                        }
 
-                    while(entryArray[shardNumber].getElementValue((long)bitsPerMapEntry * (bucketCounter[shardNumber] + hashedBucket), bitsPerKeyElement) != ((1L << bitsPerKeyElement) - 1)) {
-                        hashedBucket++;
-                        hashedBucket &= (numBuckets - 1);
+                        long mapEntryBitOffset = bitsPerMapEntry * (bucketCounter[shardNumber] + hashedBucket);
+                        entryArray[shardNumber].clearElementValue(mapEntryBitOffset, bitsPerMapEntry);
+                        entryArray[shardNumber].setElementValue(mapEntryBitOffset, bitsPerKeyElement, keyElementOrdinal);
+                        entryArray[shardNumber].setElementValue(mapEntryBitOffset + bitsPerKeyElement, bitsPerValueElement, valueElementOrdinal);
                     }
 
-                    long mapEntryBitOffset = bitsPerMapEntry * (bucketCounter[shardNumber] + hashedBucket);
-                    entryArray[shardNumber].clearElementValue(mapEntryBitOffset, bitsPerMapEntry);
-                    entryArray[shardNumber].setElementValue(mapEntryBitOffset, bitsPerKeyElement, keyElementOrdinal);
-                    entryArray[shardNumber].setElementValue(mapEntryBitOffset + bitsPerKeyElement, bitsPerValueElement, valueElementOrdinal);
+                    bucketCounter[shardNumber] += numBuckets;
+                    mapCounter[shardNumber]++;
+
+                    int shardOrdinal = ordinal / numShards;
+                    VarInt.writeVInt(deltaAddedOrdinals[shardNumber], shardOrdinal - previousAddedOrdinal[shardNumber]);
+                    previousAddedOrdinal[shardNumber] = shardOrdinal;
+                } else if(fromCyclePopulated.get(ordinal) && !toCyclePopulated.get(ordinal)) {
+                    int shardOrdinal = ordinal / numShards;
+                    VarInt.writeVInt(deltaRemovedOrdinals[shardNumber], shardOrdinal - previousRemovedOrdinal[shardNumber]);
+                    previousRemovedOrdinal[shardNumber] = shardOrdinal;
                 }
+            }
+        }
 
-                bucketCounter[shardNumber] += numBuckets;
-                mapCounter[shardNumber]++;
+        void writeCalculatedDelta(DataOutputStream os) throws IOException {
+            /// for unsharded blobs, support pre v2.1.0 clients
+            if(numShards == 1) {
+                writeCalculatedDeltaShard(os, 0);
+            } else {
+                /// overall max ordinal
+                VarInt.writeVInt(os, maxOrdinal);
 
-                int shardOrdinal = ordinal / numShards;
-                VarInt.writeVInt(deltaAddedOrdinals[shardNumber], shardOrdinal - previousAddedOrdinal[shardNumber]);
-                previousAddedOrdinal[shardNumber] = shardOrdinal;
-            } else if(fromCyclePopulated.get(ordinal) && !toCyclePopulated.get(ordinal)) {
-                int shardOrdinal = ordinal / numShards;
-                VarInt.writeVInt(deltaRemovedOrdinals[shardNumber], shardOrdinal - previousRemovedOrdinal[shardNumber]);
-                previousRemovedOrdinal[shardNumber] = shardOrdinal;
+                for(int i=0;i<numShards;i++) {
+                    writeCalculatedDeltaShard(os, i);
+                }
             }
+
+            mapPointersAndSizesArray = null;
+            entryArray = null;
+            deltaAddedOrdinals = null;
+            deltaRemovedOrdinals = null;
         }
-    }
 
-    private void writeCalculatedDelta(DataOutputStream os) throws IOException {
-        /// for unsharded blobs, support pre v2.1.0 clients
-        if(numShards == 1) {
-            writeCalculatedDeltaShard(os, 0);
-        } else {
-            /// overall max ordinal
-            VarInt.writeVInt(os, maxOrdinal);
-            
-            for(int i=0;i<numShards;i++) {
-                writeCalculatedDeltaShard(os, i);
+        private void writeCalculatedDeltaShard(DataOutputStream os, int shardNumber) throws IOException {
+
+            int bitsPerMapFixedLengthPortion = bitsPerMapSizeValue + bitsPerMapPointer;
+            int bitsPerMapEntry = bitsPerKeyElement + bitsPerValueElement;
+
+            /// 1) max ordinal
+            VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
+
+            /// 2) removal / addition ordinals.
+            VarInt.writeVLong(os, deltaRemovedOrdinals[shardNumber].length());
+            deltaRemovedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaRemovedOrdinals[shardNumber].length());
+            VarInt.writeVLong(os, deltaAddedOrdinals[shardNumber].length());
+            deltaAddedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaAddedOrdinals[shardNumber].length());
+
+            /// 3) statistics
+            VarInt.writeVInt(os, bitsPerMapPointer);
+            VarInt.writeVInt(os, bitsPerMapSizeValue);
+            VarInt.writeVInt(os, bitsPerKeyElement);
+            VarInt.writeVInt(os, bitsPerValueElement);
+            VarInt.writeVLong(os, totalOfMapBuckets[shardNumber]);
+
+            /// 4) pointer array
+            int numMapFixedLengthLongs = numMapsInDelta[shardNumber] == 0 ? 0 : (int)((((long)numMapsInDelta[shardNumber] * bitsPerMapFixedLengthPortion) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numMapFixedLengthLongs);
+            for(int i=0;i<numMapFixedLengthLongs;i++) {
+                os.writeLong(mapPointersAndSizesArray[shardNumber].get(i));
             }
-        }
-        
-        mapPointersAndSizesArray = null;
-        entryArray = null;
-        deltaAddedOrdinals = null;
-        deltaRemovedOrdinals = null;
-    }
-    
-    private void writeCalculatedDeltaShard(DataOutputStream os, int shardNumber) throws IOException {
-        
-        int bitsPerMapFixedLengthPortion = bitsPerMapSizeValue + bitsPerMapPointer;
-        int bitsPerMapEntry = bitsPerKeyElement + bitsPerValueElement;
-
-        /// 1) max ordinal
-        VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
-
-        /// 2) removal / addition ordinals.
-        VarInt.writeVLong(os, deltaRemovedOrdinals[shardNumber].length());
-        deltaRemovedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaRemovedOrdinals[shardNumber].length());
-        VarInt.writeVLong(os, deltaAddedOrdinals[shardNumber].length());
-        deltaAddedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaAddedOrdinals[shardNumber].length());
-
-        /// 3) statistics
-        VarInt.writeVInt(os, bitsPerMapPointer);
-        VarInt.writeVInt(os, bitsPerMapSizeValue);
-        VarInt.writeVInt(os, bitsPerKeyElement);
-        VarInt.writeVInt(os, bitsPerValueElement);
-        VarInt.writeVLong(os, totalOfMapBuckets[shardNumber]);
-
-        /// 4) pointer array
-        int numMapFixedLengthLongs = numMapsInDelta[shardNumber] == 0 ? 0 : (int)((((long)numMapsInDelta[shardNumber] * bitsPerMapFixedLengthPortion) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numMapFixedLengthLongs);
-        for(int i=0;i<numMapFixedLengthLongs;i++) {
-            os.writeLong(mapPointersAndSizesArray[shardNumber].get(i));
-        }
 
-        /// 5) element array
-        int numElementLongs = numBucketsInDelta[shardNumber] == 0 ? 0 : (int)(((numBucketsInDelta[shardNumber] * bitsPerMapEntry) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numElementLongs);
-        for(int i=0;i<numElementLongs;i++) {
-            os.writeLong(entryArray[shardNumber].get(i));
+            /// 5) element array
+            int numElementLongs = numBucketsInDelta[shardNumber] == 0 ? 0 : (int)(((numBucketsInDelta[shardNumber] * bitsPerMapEntry) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numElementLongs);
+            for(int i=0;i<numElementLongs;i++) {
+                os.writeLong(entryArray[shardNumber].get(i));
+            }
         }
     }
 }
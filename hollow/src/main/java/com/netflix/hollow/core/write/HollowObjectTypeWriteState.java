@@ -21,28 +21,31 @@ import com.netflix.hollow.core.memory.ByteData;
 import com.netflix.hollow.core.memory.ByteDataBuffer;
 import com.netflix.hollow.core.memory.ThreadSafeBitSet;
 import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import com.netflix.hollow.core.memory.encoding.HashCodes;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.WastefulRecycler;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
 import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import com.netflix.hollow.core.schema.HollowSchema;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class HollowObjectTypeWriteState extends HollowTypeWriteState {
 
     /// statistics required for writing fixed length set data
     private FieldStatistics fieldStats;
 
-    /// data required for writing snapshot or delta
-    private int maxOrdinal;
+    /// shard layout, shared by snapshots and deltas
     private int maxShardOrdinal[];
-    private FixedLengthElementArray fixedLengthLongArray[];
-    private ByteDataBuffer varLengthByteArrays[][];
-    private long recordBitOffset[];
 
-    /// additional data required for writing delta
-    private ByteDataBuffer deltaAddedOrdinals[];
-    private ByteDataBuffer deltaRemovedOrdinals[];
+    /// data calculated for each blob currently being written
+    private BlobData snapshotData;
+    private BlobData deltaData;
+    private BlobData reverseDeltaData;
 
     public HollowObjectTypeWriteState(HollowObjectSchema schema) {
         this(schema, -1);
@@ -164,193 +167,298 @@ public class HollowObjectTypeWriteState extends HollowTypeWriteState {
 
     @Override
     public void calculateSnapshot() {
-        maxOrdinal = ordinalMap.maxOrdinal();
-        int numBitsPerRecord = fieldStats.getNumBitsPerRecord();
-        
-        fixedLengthLongArray = new FixedLengthElementArray[numShards];
-        varLengthByteArrays = new ByteDataBuffer[numShards][];
-        recordBitOffset = new long[numShards];
-        
-        for(int i=0;i<numShards;i++) {
-            fixedLengthLongArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numBitsPerRecord * (maxShardOrdinal[i] + 1));
-            varLengthByteArrays[i] = new ByteDataBuffer[getSchema().numFields()];
-        }
-        
-        int shardMask = numShards - 1;
-    
-        for(int i=0;i<=maxOrdinal;i++) {
-            int shardNumber = i & shardMask;
-            if(currentCyclePopulated.get(i)) {
-                addRecord(i, recordBitOffset[shardNumber], fixedLengthLongArray[shardNumber], varLengthByteArrays[shardNumber]);
-            } else {
-                addNullRecord(i, recordBitOffset[shardNumber], fixedLengthLongArray[shardNumber], varLengthByteArrays[shardNumber]);
-            }
-            recordBitOffset[shardNumber] += numBitsPerRecord;
-        }
+        snapshotData = new BlobData();
+        snapshotData.calculateSnapshot();
     }
-    
+
     @Override
     public void writeSnapshot(DataOutputStream os) throws IOException {
-        /// for unsharded blobs, support pre v2.1.0 clients
-        if(numShards == 1) {
-            writeSnapshotShard(os, 0);
-        } else {
-            /// overall max ordinal
-            VarInt.writeVInt(os, maxOrdinal);
-            
-            for(int i=0;i<numShards;i++) {
-                writeSnapshotShard(os, i);
-            }
-        }
-
-        /// Populated bits
-        currentCyclePopulated.serializeBitsTo(os);
-        
-        fixedLengthLongArray = null;
-        varLengthByteArrays = null;
-        recordBitOffset = null;
+        snapshotData.writeSnapshot(os);
+        snapshotData = null;
     }
 
-    private void writeSnapshotShard(DataOutputStream os, int shardNumber) throws IOException {
-        /// 1) shard max ordinal
-        VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
-
-        /// 2) FixedLength field sizes
-        for(int i=0;i<getSchema().numFields();i++) {
-            VarInt.writeVInt(os, fieldStats.getMaxBitsForField(i));
-        }
-
-        /// 3) FixedLength data
-        long numBitsRequired = recordBitOffset[shardNumber];
-        long numLongsRequired = recordBitOffset[shardNumber] == 0 ? 0 : ((numBitsRequired - 1) / 64) + 1;
-        fixedLengthLongArray[shardNumber].writeTo(os, numLongsRequired);
-
-        /// 4) VarLength data
-        for(int i=0;i<varLengthByteArrays[shardNumber].length;i++) {
-            if(varLengthByteArrays[shardNumber][i] == null) {
-                VarInt.writeVLong(os, 0);
-            } else {
-                VarInt.writeVLong(os, varLengthByteArrays[shardNumber][i].length());
-                varLengthByteArrays[shardNumber][i].getUnderlyingArray().writeTo(os, 0, varLengthByteArrays[shardNumber][i].length());
-            }
-        }
+    @Override
+    public void applySnapshotToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+        snapshotData.applySnapshotToChecksum(checksum, withSchema);
     }
 
     @Override
     public void calculateDelta() {
-        calculateDelta(previousCyclePopulated, currentCyclePopulated);
+        deltaData = new BlobData();
+        deltaData.calculateDelta(previousCyclePopulated, currentCyclePopulated);
     }
 
     @Override
     public void writeDelta(DataOutputStream dos) throws IOException {
-        writeCalculatedDelta(dos);
+        deltaData.writeCalculatedDelta(dos);
+        deltaData = null;
     }
 
     @Override
     public void calculateReverseDelta() {
-        calculateDelta(currentCyclePopulated, previousCyclePopulated);
+        reverseDeltaData = new BlobData();
+        reverseDeltaData.calculateDelta(currentCyclePopulated, previousCyclePopulated);
     }
 
     @Override
     public void writeReverseDelta(DataOutputStream dos) throws IOException {
-        writeCalculatedDelta(dos);
+        reverseDeltaData.writeCalculatedDelta(dos);
+        reverseDeltaData = null;
     }
 
-    private void calculateDelta(ThreadSafeBitSet fromCyclePopulated, ThreadSafeBitSet toCyclePopulated) {
-        maxOrdinal = ordinalMap.maxOrdinal();
-        int numBitsPerRecord = fieldStats.getNumBitsPerRecord();
+    /**
+     * The data calculated for a single snapshot, delta, or reverse delta blob.  Each blob is calculated into its own
+     * BlobData, so that all three may be written from the same prepared state concurrently.
+     */
+    private class BlobData {
 
-        ThreadSafeBitSet deltaAdditions = toCyclePopulated.andNot(fromCyclePopulated);
+        /// data required for writing snapshot or delta
+        private int maxOrdinal;
+        private FixedLengthElementArray fixedLengthLongArray[];
+        private ByteDataBuffer varLengthByteArrays[][];
+        private long recordBitOffset[];
 
-        fixedLengthLongArray = new FixedLengthElementArray[numShards];
-        deltaAddedOrdinals = new ByteDataBuffer[numShards];
-        deltaRemovedOrdinals = new ByteDataBuffer[numShards];
-        varLengthByteArrays = new ByteDataBuffer[numShards][];
-        recordBitOffset = new long[numShards];
-        int numAddedRecordsInShard[] = new int[numShards];
-        
-        int shardMask = numShards - 1;
-        
-        int addedOrdinal = deltaAdditions.nextSetBit(0);
-        while(addedOrdinal != -1) {
-            numAddedRecordsInShard[addedOrdinal & shardMask]++;
-            addedOrdinal = deltaAdditions.nextSetBit(addedOrdinal + 1);
-        }
-        
-        for(int i=0;i<numShards;i++) {
-            fixedLengthLongArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numAddedRecordsInShard[i] * numBitsPerRecord);
-            deltaAddedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
-            deltaRemovedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
-            varLengthByteArrays[i] = new ByteDataBuffer[getSchema().numFields()];
-        }
+        /// additional data required for writing delta
+        private ByteDataBuffer deltaAddedOrdinals[];
+        private ByteDataBuffer deltaRemovedOrdinals[];
 
-        int previousRemovedOrdinal[] = new int[numShards];
-        int previousAddedOrdinal[] = new int[numShards];
+        void calculateSnapshot() {
+            maxOrdinal = ordinalMap.maxOrdinal();
+            int numBitsPerRecord = fieldStats.getNumBitsPerRecord();
 
-        for(int i=0;i<=maxOrdinal;i++) {
-            int shardNumber = i & shardMask;
-            if(deltaAdditions.get(i)) {
-                addRecord(i, recordBitOffset[shardNumber], fixedLengthLongArray[shardNumber], varLengthByteArrays[shardNumber]);
+            fixedLengthLongArray = new FixedLengthElementArray[numShards];
+            varLengthByteArrays = new ByteDataBuffer[numShards][];
+            recordBitOffset = new long[numShards];
+
+            for(int i=0;i<numShards;i++) {
+                fixedLengthLongArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numBitsPerRecord * (maxShardOrdinal[i] + 1));
+                varLengthByteArrays[i] = new ByteDataBuffer[getSchema().numFields()];
+            }
+
+            int shardMask = numShards - 1;
+
+            for(int i=0;i<=maxOrdinal;i++) {
+                int shardNumber = i & shardMask;
+                if(currentCyclePopulated.get(i)) {
+                    addRecord(i, recordBitOffset[shardNumber], fixedLengthLongArray[shardNumber], varLengthByteArrays[shardNumber]);
+                } else {
+                    addNullRecord(i, recordBitOffset[shardNumber], fixedLengthLongArray[shardNumber], varLengthByteArrays[shardNumber]);
+                }
                 recordBitOffset[shardNumber] += numBitsPerRecord;
-                int shardOrdinal = i / numShards;
-                VarInt.writeVInt(deltaAddedOrdinals[shardNumber], shardOrdinal - previousAddedOrdinal[shardNumber]);
-                previousAddedOrdinal[shardNumber] = shardOrdinal;
-            } else if(fromCyclePopulated.get(i) && !toCyclePopulated.get(i)) {
-                int shardOrdinal = i / numShards;
-                VarInt.writeVInt(deltaRemovedOrdinals[shardNumber], shardOrdinal - previousRemovedOrdinal[shardNumber]);
-                previousRemovedOrdinal[shardNumber] = shardOrdinal;
             }
         }
-    }
 
-    private void writeCalculatedDelta(DataOutputStream os) throws IOException {
-        /// for unsharded blobs, support pre v2.1.0 clients
-        if(numShards == 1) {
-            writeCalculatedDeltaShard(os, 0);
-        } else {
-            /// overall max ordinal
-            VarInt.writeVInt(os, maxOrdinal);
-            
-            for(int i=0;i<numShards;i++) {
-                writeCalculatedDeltaShard(os, i);
+        /**
+         * Calculates the checksum which a HollowObjectTypeReadState will have once it has read this snapshot.
+         */
+        void applySnapshotToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+            if(!(withSchema instanceof HollowObjectSchema))
+                throw new IllegalArgumentException("HollowObjectTypeWriteState can only calculate checksum with a HollowObjectSchema: " + getSchema().getName());
+
+            HollowObjectSchema commonSchema = getSchema().findCommonSchema((HollowObjectSchema)withSchema);
+
+            List<String> commonFieldNames = new ArrayList<String>();
+            for(int i=0;i<commonSchema.numFields();i++)
+                commonFieldNames.add(commonSchema.getFieldName(i));
+            Collections.sort(commonFieldNames);
+
+            int fieldIndexes[] = new int[commonFieldNames.size()];
+            for(int i=0;i<commonFieldNames.size();i++) {
+                fieldIndexes[i] = getSchema().getPosition(commonFieldNames.get(i));
+            }
+
+            int numBitsPerRecord = fieldStats.getNumBitsPerRecord();
+
+            for(int shardNumber=0;shardNumber<numShards;shardNumber++) {
+                int ordinal = currentCyclePopulated.nextSetBit(0);
+                while(ordinal != -1) {
+                    if((ordinal & (numShards - 1)) == shardNumber) {
+                        int shardOrdinal = ordinal / numShards;
+                        checksum.applyInt(ordinal);
+                        for(int i=0;i<fieldIndexes.length;i++) {
+                            int fieldIdx = fieldIndexes[i];
+                            int numBitsForField = fieldStats.getMaxBitsForField(fieldIdx);
+                            long bitOffset = ((long)numBitsPerRecord * shardOrdinal) + fieldStats.getFieldBitOffset(fieldIdx);
+
+                            if(!getSchema().getFieldType(fieldIdx).isVariableLength()) {
+                                long fixedLengthValue = numBitsForField <= 56 ?
+                                        fixedLengthLongArray[shardNumber].getElementValue(bitOffset, numBitsForField)
+                                        : fixedLengthLongArray[shardNumber].getLargeElementValue(bitOffset, numBitsForField);
+
+                                if(fixedLengthValue == (1L << numBitsForField) - 1)
+                                    checksum.applyInt(Integer.MAX_VALUE);
+                                else
+                                    checksum.applyLong(fixedLengthValue);
+                            } else {
+                                checksum.applyInt(varLengthFieldHashCode(shardNumber, shardOrdinal, fieldIdx, bitOffset, numBitsForField, numBitsPerRecord));
+                            }
+                        }
+                    }
+
+                    ordinal = currentCyclePopulated.nextSetBit(ordinal + 1);
+                }
             }
         }
-        
-        fixedLengthLongArray = null;
-        varLengthByteArrays = null;
-        deltaAddedOrdinals = null;
-        deltaRemovedOrdinals = null;
-        recordBitOffset = null;
-    }
 
-    private void writeCalculatedDeltaShard(DataOutputStream os, int shardNumber) throws IOException {
+        private int varLengthFieldHashCode(int shardNumber, int shardOrdinal, int fieldIdx, long bitOffset, int numBitsForField, int numBitsPerRecord) {
+            long endByte = fixedLengthLongArray[shardNumber].getElementValue(bitOffset, numBitsForField);
+            long startByte = shardOrdinal != 0 ? fixedLengthLongArray[shardNumber].getElementValue(bitOffset - numBitsPerRecord, numBitsForField) : 0;
 
-        /// 1) max ordinal
-        VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
+            if((endByte & (1L << numBitsForField - 1)) != 0)
+                return -1;
 
-        /// 2) removal / addition ordinals.
-        VarInt.writeVLong(os, deltaRemovedOrdinals[shardNumber].length());
-        deltaRemovedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaRemovedOrdinals[shardNumber].length());
-        VarInt.writeVLong(os, deltaAddedOrdinals[shardNumber].length());
-        deltaAddedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaAddedOrdinals[shardNumber].length());
+            startByte &= (1L << numBitsForField - 1) - 1;
 
-        /// 3) FixedLength field sizes
-        for(int i=0;i<getSchema().numFields();i++) {
-            VarInt.writeVInt(os, fieldStats.getMaxBitsForField(i));
+            int length = (int)(endByte - startByte);
+
+            ByteDataBuffer varLengthData = varLengthByteArrays[shardNumber][fieldIdx];
+            if(varLengthData == null)
+                return HashCodes.hashCode(new byte[0]);
+            return HashCodes.hashCode(varLengthData.getUnderlyingArray(), startByte, length);
         }
 
-        /// 4) FixedLength data
-        long numBitsRequired = recordBitOffset[shardNumber];
-        long numLongsRequired = numBitsRequired == 0 ? 0 : ((numBitsRequired - 1) / 64) + 1;
-        fixedLengthLongArray[shardNumber].writeTo(os, numLongsRequired);
+        void writeSnapshot(DataOutputStream os) throws IOException {
+            /// for unsharded blobs, support pre v2.1.0 clients
+            if(numShards == 1) {
+                writeSnapshotShard(os, 0);
+            } else {
+                /// overall max ordinal
+                VarInt.writeVInt(os, maxOrdinal);
+
+                for(int i=0;i<numShards;i++) {
+                    writeSnapshotShard(os, i);
+                }
+            }
+
+            /// Populated bits
+            currentCyclePopulated.serializeBitsTo(os);
+
+            fixedLengthLongArray = null;
+            varLengthByteArrays = null;
+            recordBitOffset = null;
+        }
+
+        private void writeSnapshotShard(DataOutputStream os, int shardNumber) throws IOException {
+            /// 1) shard max ordinal
+            VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
+
+            /// 2) FixedLength field sizes
+            for(int i=0;i<getSchema().numFields();i++) {
+                VarInt.writeVInt(os, fieldStats.getMaxBitsForField(i));
+            }
+
+            /// 3) FixedLength data
+            long numBitsRequired = recordBitOffset[shardNumber];
+            long numLongsRequired = recordBitOffset[shardNumber] == 0 ? 0 : ((numBitsRequired - 1) / 64) + 1;
+            fixedLengthLongArray[shardNumber].writeTo(os, numLongsRequired);
+
+            /// 4) VarLength data
+            for(int i=0;i<varLengthByteArrays[shardNumber].length;i++) {
+                if(varLengthByteArrays[shardNumber][i] == null) {
+                    VarInt.writeVLong(os, 0);
+                } else {
+                    VarInt.writeVLong(os, varLengthByteArrays[shardNumber][i].length());
+                    varLengthByteArrays[shardNumber][i].getUnderlyingArray().writeTo(os, 0, varLengthByteArrays[shardNumber][i].length());
+                }
+            }
+        }
+
+        void calculateDelta(ThreadSafeBitSet fromCyclePopulated, ThreadSafeBitSet toCyclePopulated) {
+            maxOrdinal = ordinalMap.maxOrdinal();
+            int numBitsPerRecord = fieldStats.getNumBitsPerRecord();
+
+            ThreadSafeBitSet deltaAdditions = toCyclePopulated.andNot(fromCyclePopulated);
 
-        /// 5) VarLength data
-        for(int i=0;i<varLengthByteArrays[shardNumber].length;i++) {
-            if(varLengthByteArrays[shardNumber][i] == null) {
-                VarInt.writeVLong(os, 0);
+            fixedLengthLongArray = new FixedLengthElementArray[numShards];
+            deltaAddedOrdinals = new ByteDataBuffer[numShards];
+            deltaRemovedOrdinals = new ByteDataBuffer[numShards];
+            varLengthByteArrays = new ByteDataBuffer[numShards][];
+            recordBitOffset = new long[numShards];
+            int numAddedRecordsInShard[] = new int[numShards];
+
+            int shardMask = numShards - 1;
+
+            int addedOrdinal = deltaAdditions.nextSetBit(0);
+            while(addedOrdinal != -1) {
+                numAddedRecordsInShard[addedOrdinal & shardMask]++;
+                addedOrdinal = deltaAdditions.nextSetBit(addedOrdinal + 1);
+            }
+
+            for(int i=0;i<numShards;i++) {
+                fixedLengthLongArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numAddedRecordsInShard[i] * numBitsPerRecord);
+                deltaAddedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
+                deltaRemovedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
+                varLengthByteArrays[i] = new ByteDataBuffer[getSchema().numFields()];
+            }
+
+            int previousRemovedOrdinal[] = new int[numShards];
+            int previousAddedOrdinal[] = new int[numShards];
+
+            for(int i=0;i<=maxOrdinal;i++) {
+                int shardNumber = i & shardMask;
+                if(deltaAdditions.get(i)) {
+                    addRecord(i, recordBitOffset[shardNumber], fixedLengthLongArray[shardNumber], varLengthByteArrays[shardNumber]);
+                    recordBitOffset[shardNumber] += numBitsPerRecord;
+                    int shardOrdinal = i / numShards;
+                    VarInt.writeVInt(deltaAddedOrdinals[shardNumber], shardOrdinal - previousAddedOrdinal[shardNumber]);
+                    previousAddedOrdinal[shardNumber] = shardOrdinal;
+                } else if(fromCyclePopulated.get(i) && !toCyclePopulated.get(i)) {
+                    int shardOrdinal = i / numShards;
+                    VarInt.writeVInt(deltaRemovedOrdinals[shardNumber], shardOrdinal - previousRemovedOrdinal[shardNumber]);
+                    previousRemovedOrdinal[shardNumber] = shardOrdinal;
+                }
+            }
+        }
+
+        void writeCalculatedDelta(DataOutputStream os) throws IOException {
+            /// for unsharded blobs, support pre v2.1.0 clients
+            if(numShards == 1) {
+                writeCalculatedDeltaShard(os, 0);
             } else {
-                VarInt.writeVLong(os, varLengthByteArrays[shardNumber][i].length());
-                varLengthByteArrays[shardNumber][i].getUnderlyingArray().writeTo(os, 0, varLengthByteArrays[shardNumber][i].length());
+                /// overall max ordinal
+                VarInt.writeVInt(os, maxOrdinal);
+
+                for(int i=0;i<numShards;i++) {
+                    writeCalculatedDeltaShard(os, i);
+                }
+            }
+
+            fixedLengthLongArray = null;
+            varLengthByteArrays = null;
+            deltaAddedOrdinals = null;
+            deltaRemovedOrdinals = null;
+            recordBitOffset = null;
+        }
+
+        private void writeCalculatedDeltaShard(DataOutputStream os, int shardNumber) throws IOException {
+
+            /// 1) max ordinal
+            VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
+
+            /// 2) removal / addition ordinals.
+            VarInt.writeVLong(os, deltaRemovedOrdinals[shardNumber].length());
+            deltaRemovedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaRemovedOrdinals[shardNumber].length());
+            VarInt.writeVLong(os, deltaAddedOrdinals[shardNumber].length());
+            deltaAddedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaAddedOrdinals[shardNumber].length());
+
+            /// 3) FixedLength field sizes
+            for(int i=0;i<getSchema().numFields();i++) {
+                VarInt.writeVInt(os, fieldStats.getMaxBitsForField(i));
+            }
+
+            /// 4) FixedLength data
+            long numBitsRequired = recordBitOffset[shardNumber];
+            long numLongsRequired = numBitsRequired == 0 ? 0 : ((numBitsRequired - 1) / 64) + 1;
+            fixedLengthLongArray[shardNumber].writeTo(os, numLongsRequired);
+
+            /// 5) VarLength data
+            for(int i=0;i<varLengthByteArrays[shardNumber].length;i++) {
+                if(varLengthByteArrays[shardNumber][i] == null) {
+                    VarInt.writeVLong(os, 0);
+                } else {
+                    VarInt.writeVLong(os, varLengthByteArrays[shardNumber][i].length());
+                    varLengthByteArrays[shardNumber][i].getUnderlyingArray().writeTo(os, 0, varLengthByteArrays[shardNumber][i].length());
+                }
             }
         }
     }
@@ -89,21 +89,60 @@ public class HollowObjectWriteRecord implements HollowWriteRecord {
     }
 
     public void setNull(String fieldName) {
-        int fieldIndex = getSchema().getPosition(fieldName);
+        setNull(getSchema().getPosition(fieldName));
+    }
+
+    public void setInt(String fieldName, int value) {
+        setInt(getSchema().getPosition(fieldName), value);
+    }
+
+    public void setLong(String fieldName, long value) {
+        setLong(getSchema().getPosition(fieldName), value);
+    }
+
+    public void setFloat(String fieldName, float value) {
+        setFloat(getSchema().getPosition(fieldName), value);
+    }
 
+    public void setDouble(String fieldName, double value) {
+        setDouble(getSchema().getPosition(fieldName), value);
+    }
+
+    public void setBoolean(String fieldName, boolean value) {
+        setBoolean(getSchema().getPosition(fieldName), value);
+    }
+
+    public void setBytes(String fieldName, byte[] value) {
+        if(value == null)  return;
+        setBytes(getSchema().getPosition(fieldName), value);
+    }
+
+    public void setString(String fieldName, String value) {
+        if(value == null)  return;
+        setString(getSchema().getPosition(fieldName), value);
+    }
+
+    public void setReference(String fieldName, int ordinal) {
+        setReference(getSchema().getPosition(fieldName), ordinal);
+    }
+
+    /*
+     * The following setters identify the field by its position in the schema, which avoids looking up
+     * the field name for each value written.
+     */
+
+    public void setNull(int fieldIndex) {
         ByteDataBuffer fieldBuffer = getFieldBuffer(fieldIndex);
         FieldType fieldType = getSchema().getFieldType(fieldIndex);
 
         writeNull(fieldBuffer, fieldType);
     }
 
-    public void setInt(String fieldName, int value) {
+    public void setInt(int fieldIndex, int value) {
         if(value == Integer.MIN_VALUE) {
-            setNull(fieldName);
+            setNull(fieldIndex);
         } else {
-            int fieldIndex = getSchema().getPosition(fieldName);
-
-            validateFieldType(fieldIndex, fieldName, FieldType.INT);
+            validateFieldType(fieldIndex, FieldType.INT);
 
             ByteDataBuffer buf = getFieldBuffer(fieldIndex);
 
@@ -112,13 +151,11 @@ public class HollowObjectWriteRecord implements HollowWriteRecord {
         }
     }
 
-    public void setLong(String fieldName, long value) {
+    public void setLong(int fieldIndex, long value) {
         if(value == Long.MIN_VALUE) {
-            setNull(fieldName);
+            setNull(fieldIndex);
         } else {
-            int fieldIndex = getSchema().getPosition(fieldName);
-
-            validateFieldType(fieldIndex, fieldName, FieldType.LONG);
+            validateFieldType(fieldIndex, FieldType.LONG);
 
             ByteDataBuffer buf = getFieldBuffer(fieldIndex);
 
@@ -127,10 +164,8 @@ public class HollowObjectWriteRecord implements HollowWriteRecord {
         }
     }
 
-    public void setFloat(String fieldName, float value) {
-        int fieldIndex = getSchema().getPosition(fieldName);
-
-        validateFieldType(fieldIndex, fieldName, FieldType.FLOAT);
+    public void setFloat(int fieldIndex, float value) {
+        validateFieldType(fieldIndex, FieldType.FLOAT);
 
         ByteDataBuffer buf = getFieldBuffer(fieldIndex);
 
@@ -138,10 +173,8 @@ public class HollowObjectWriteRecord implements HollowWriteRecord {
         writeFixedLengthInt(buf, intBits);
     }
 
-    public void setDouble(String fieldName, double value) {
-        int fieldIndex = getSchema().getPosition(fieldName);
-
-        validateFieldType(fieldIndex, fieldName, FieldType.DOUBLE);
+    public void setDouble(int fieldIndex, double value) {
+        validateFieldType(fieldIndex, FieldType.DOUBLE);
 
         ByteDataBuffer buf = getFieldBuffer(fieldIndex);
 
@@ -149,22 +182,18 @@ public class HollowObjectWriteRecord implements HollowWriteRecord {
         writeFixedLengthLong(buf, longBits);
     }
 
-    public void setBoolean(String fieldName, boolean value) {
-        int fieldIndex = getSchema().getPosition(fieldName);
-
-        validateFieldType(fieldIndex, fieldName, FieldType.BOOLEAN);
+    public void setBoolean(int fieldIndex, boolean value) {
+        validateFieldType(fieldIndex, FieldType.BOOLEAN);
 
         ByteDataBuffer buf = getFieldBuffer(fieldIndex);
 
         buf.write(value ? (byte) 1 : (byte) 0);
     }
 
-    public void setBytes(String fieldName, byte[] value) {
+    public void setBytes(int fieldIndex, byte[] value) {
         if(value == null)  return;
 
-        int fieldIndex = getSchema().getPosition(fieldName);
-
-        validateFieldType(fieldIndex, fieldName, FieldType.BYTES);
+        validateFieldType(fieldIndex, FieldType.BYTES);
 
         ByteDataBuffer buf = getFieldBuffer(fieldIndex);
 
@@ -173,12 +202,10 @@ public class HollowObjectWriteRecord implements HollowWriteRecord {
         }
     }
 
-    public void setString(String fieldName, String value) {
+    public void setString(int fieldIndex, String value) {
         if(value == null)  return;
 
-        int fieldIndex = getSchema().getPosition(fieldName);
-
-        validateFieldType(fieldIndex, fieldName, FieldType.STRING);
+        validateFieldType(fieldIndex, FieldType.STRING);
 
         ByteDataBuffer buf = getFieldBuffer(fieldIndex);
 
@@ -187,10 +214,8 @@ public class HollowObjectWriteRecord implements HollowWriteRecord {
         }
     }
 
-    public void setReference(String fieldName, int ordinal) {
-        int fieldIndex = getSchema().getPosition(fieldName);
-
-        validateFieldType(fieldIndex, fieldName, FieldType.REFERENCE);
+    public void setReference(int fieldIndex, int ordinal) {
+        validateFieldType(fieldIndex, FieldType.REFERENCE);
 
         ByteDataBuffer buf = getFieldBuffer(fieldIndex);
 
@@ -262,9 +287,9 @@ public class HollowObjectWriteRecord implements HollowWriteRecord {
         fieldBuffer.write((byte) (intBits));
     }
 
-    private void validateFieldType(int fieldIndex, String fieldName, FieldType attemptedFieldType) {
+    private void validateFieldType(int fieldIndex, FieldType attemptedFieldType) {
         if(getSchema().getFieldType(fieldIndex) != attemptedFieldType) {
-            throw new IllegalArgumentException("Attempting to serialize " + attemptedFieldType + " in field " + fieldName + ".  Carefully check your schema for type " + getSchema().getName() + ".");
+            throw new IllegalArgumentException("Attempting to serialize " + attemptedFieldType + " in field " + getSchema().getFieldName(fieldIndex) + ".  Carefully check your schema for type " + getSchema().getName() + ".");
         }
     }
 }
@@ -25,6 +25,8 @@ import com.netflix.hollow.core.memory.encoding.HashCodes;
 import com.netflix.hollow.core.memory.encoding.VarInt;
 import com.netflix.hollow.core.memory.pool.WastefulRecycler;
 import com.netflix.hollow.core.schema.HollowSetSchema;
+import com.netflix.hollow.core.schema.HollowSchema;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.DataOutputStream;
 import java.io.IOException;
 
@@ -36,17 +38,13 @@ public class HollowSetTypeWriteState extends HollowTypeWriteState {
     private int bitsPerSetSizeValue;
     private long totalOfSetBuckets[];
 
-    /// data required for writing snapshot or delta
-    private int maxOrdinal;
+    /// shard layout, shared by snapshots and deltas
     private int maxShardOrdinal[];
-    private FixedLengthElementArray setPointersAndSizesArray[];
-    private FixedLengthElementArray elementArray[];
 
-    /// additional data required for writing delta
-    private int numSetsInDelta[];
-    private long numBucketsInDelta[];
-    private ByteDataBuffer deltaAddedOrdinals[];
-    private ByteDataBuffer deltaRemovedOrdinals[];
+    /// data calculated for each blob currently being written
+    private BlobData snapshotData;
+    private BlobData deltaData;
+    private BlobData reverseDeltaData;
 
     public HollowSetTypeWriteState(HollowSetSchema schema) {
         this(schema, -1);
@@ -173,290 +171,359 @@ public class HollowSetTypeWriteState extends HollowTypeWriteState {
 
     @Override
     public void calculateSnapshot() {
-        maxOrdinal = ordinalMap.maxOrdinal();
-        int bitsPerSetFixedLengthPortion = bitsPerSetSizeValue + bitsPerSetPointer;
-        
-        setPointersAndSizesArray = new FixedLengthElementArray[numShards];
-        elementArray = new FixedLengthElementArray[numShards];
-        
-        for(int i=0;i<numShards;i++) {
-            setPointersAndSizesArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerSetFixedLengthPortion * (maxShardOrdinal[i] + 1));
-            elementArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerElement * totalOfSetBuckets[i]);
-        }
+        snapshotData = new BlobData();
+        snapshotData.calculateSnapshot();
+    }
 
-        ByteData data = ordinalMap.getByteData().getUnderlyingArray();
+    @Override
+    public void writeSnapshot(DataOutputStream os) throws IOException {
+        snapshotData.writeSnapshot(os);
+        snapshotData = null;
+    }
 
-        int bucketCounter[] = new int[numShards];
-        int shardMask = numShards - 1;
+    @Override
+    public void applySnapshotToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+        snapshotData.applySnapshotToChecksum(checksum, withSchema);
+    }
 
-        HollowWriteStateEnginePrimaryKeyHasher primaryKeyHasher = null;
+    @Override
+    public void calculateDelta() {
+        deltaData = new BlobData();
+        deltaData.calculateDelta(previousCyclePopulated, currentCyclePopulated);
+    }
 
-        if(getSchema().getHashKey() != null)
-            primaryKeyHasher = new HollowWriteStateEnginePrimaryKeyHasher(getSchema().getHashKey(), getStateEngine());
+    @Override
+    public void writeDelta(DataOutputStream dos) throws IOException {
+        deltaData.writeCalculatedDelta(dos);
+        deltaData = null;
+    }
 
-        for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
-            int shardNumber = ordinal & shardMask;
-            int shardOrdinal = ordinal / numShards;
-            
-            if(currentCyclePopulated.get(ordinal)) {
-                long readPointer = ordinalMap.getPointerForData(ordinal);
+    @Override
+    public void calculateReverseDelta() {
+        reverseDeltaData = new BlobData();
+        reverseDeltaData.calculateDelta(currentCyclePopulated, previousCyclePopulated);
+    }
 
-                int size = VarInt.readVInt(data, readPointer);
-                readPointer += VarInt.sizeOfVInt(size);
+    @Override
+    public void writeReverseDelta(DataOutputStream dos) throws IOException {
+        reverseDeltaData.writeCalculatedDelta(dos);
+        reverseDeltaData = null;
+    }
 
-                int numBuckets = HashCodes.hashTableSize(size);
+    /**
+     * The data calculated for a single snapshot, delta, or reverse delta blob.  Each blob is calculated into its own
+     * BlobData, so that all three may be written from the same prepared state concurrently.
+     */
+    private class BlobData {
 
-                setPointersAndSizesArray[shardNumber].setElementValue(((long)bitsPerSetFixedLengthPortion * shardOrdinal) + bitsPerSetPointer, bitsPerSetSizeValue, size);
+        /// data required for writing snapshot or delta
+        private int maxOrdinal;
+        private FixedLengthElementArray setPointersAndSizesArray[];
+        private FixedLengthElementArray elementArray[];
 
-                int elementOrdinal = 0;
+        /// additional data required for writing delta
+        private int numSetsInDelta[];
+        private long numBucketsInDelta[];
+        private ByteDataBuffer deltaAddedOrdinals[];
+        private ByteDataBuffer deltaRemovedOrdinals[];
 
-                for(int j=0;j<numBuckets;j++) {
-                    elementArray[shardNumber].setElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + j), bitsPerElement, (1L << bitsPerElement) - 1);
-                }
+        void calculateSnapshot() {
+            maxOrdinal = ordinalMap.maxOrdinal();
+            int bitsPerSetFixedLengthPortion = bitsPerSetSizeValue + bitsPerSetPointer;
 
-                for(int j=0;j<size;j++) {
-                    int elementOrdinalDelta = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(elementOrdinalDelta);
-                    int hashedBucket = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(hashedBucket);
+            setPointersAndSizesArray = new FixedLengthElementArray[numShards];
+            elementArray = new FixedLengthElementArray[numShards];
 
-                    elementOrdinal += elementOrdinalDelta;
+            for(int i=0;i<numShards;i++) {
+                setPointersAndSizesArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerSetFixedLengthPortion * (maxShardOrdinal[i] + 1));
+                elementArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)bitsPerElement * totalOfSetBuckets[i]);
+            }
+
+            ByteData data = ordinalMap.getByteData().getUnderlyingArray();
 
-                    if(primaryKeyHasher != null)
-                        hashedBucket = primaryKeyHasher.getRecordHash(elementOrdinal) & (numBuckets - 1);
+            int bucketCounter[] = new int[numShards];
+            int shardMask = numShards - 1;
 
-                    while(elementArray[shardNumber].getElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement) != ((1L << bitsPerElement) - 1)) {
-                        hashedBucket++;
-                        hashedBucket &= (numBuckets - 1);
+            HollowWriteStateEnginePrimaryKeyHasher primaryKeyHasher = null;
+
+            if(getSchema().getHashKey() != null)
+                primaryKeyHasher = new HollowWriteStateEnginePrimaryKeyHasher(getSchema().getHashKey(), getStateEngine());
+
+            for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
+                int shardNumber = ordinal & shardMask;
+                int shardOrdinal = ordinal / numShards;
+
+                if(currentCyclePopulated.get(ordinal)) {
+                    long readPointer = ordinalMap.getPointerForData(ordinal);
+
+                    int size = VarInt.readVInt(data, readPointer);
+                    readPointer += VarInt.sizeOfVInt(size);
+
+                    int numBuckets = HashCodes.hashTableSize(size);
+
+                    setPointersAndSizesArray[shardNumber].setElementValue(((long)bitsPerSetFixedLengthPortion * shardOrdinal) + bitsPerSetPointer, bitsPerSetSizeValue, size);
+
+                    int elementOrdinal = 0;
+
+                    for(int j=0;j<numBuckets;j++) {
+                        elementArray[shardNumber].setElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + j), bitsPerElement, (1L << bitsPerElement) - 1);
+                    }
+
+                    for(int j=0;j<size;j++) {
+                        int elementOrdinalDelta = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(elementOrdinalDelta);
+                        int hashedBucket = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(hashedBucket);
+
+                        elementOrdinal += elementOrdinalDelta;
+
+                        if(primaryKeyHasher != null)
+                            hashedBucket = primaryKeyHasher.getRecordHash(elementOrdinal) & (numBuckets - 1);
+
+                        while(elementArray[shardNumber].getElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement) != ((1L << bitsPerElement) - 1)) {
+                            hashedBucket++;
+                            hashedBucket &= (numBuckets - 1);
+                        }
+
+                        elementArray[shardNumber].clearElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement);
+                        elementArray[shardNumber].setElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement, elementOrdinal);
                     }
 
-                    elementArray[shardNumber].clearElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement);
-                    elementArray[shardNumber].setElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement, elementOrdinal);
+                    bucketCounter[shardNumber] += numBuckets;
                 }
 
-                bucketCounter[shardNumber] += numBuckets;
+                setPointersAndSizesArray[shardNumber].setElementValue((long)bitsPerSetFixedLengthPortion * shardOrdinal, bitsPerSetPointer, bucketCounter[shardNumber]);
             }
-
-            setPointersAndSizesArray[shardNumber].setElementValue((long)bitsPerSetFixedLengthPortion * shardOrdinal, bitsPerSetPointer, bucketCounter[shardNumber]);
         }
-    }
 
-    @Override
-    public void writeSnapshot(DataOutputStream os) throws IOException {
-        /// for unsharded blobs, support pre v2.1.0 clients
-        if(numShards == 1) {
-            writeSnapshotShard(os, 0);
-        } else {
-            /// overall max ordinal
-            VarInt.writeVInt(os, maxOrdinal);
-            
-            for(int i=0;i<numShards;i++) {
-                writeSnapshotShard(os, i);
+        /**
+         * Calculates the checksum which a HollowSetTypeReadState will have once it has read this snapshot.
+         */
+        void applySnapshotToChecksum(HollowChecksum checksum, HollowSchema withSchema) {
+            int bitsPerSetFixedLengthPortion = bitsPerSetSizeValue + bitsPerSetPointer;
+            long emptyBucketValue = (1L << bitsPerElement) - 1;
+
+            for(int shardNumber=0;shardNumber<numShards;shardNumber++) {
+                int ordinal = currentCyclePopulated.nextSetBit(0);
+                while(ordinal != -1) {
+                    if((ordinal & (numShards - 1)) == shardNumber) {
+                        int shardOrdinal = ordinal / numShards;
+                        long fixedLengthOffset = (long)bitsPerSetFixedLengthPortion * shardOrdinal;
+                        int size = (int)setPointersAndSizesArray[shardNumber].getElementValue(fixedLengthOffset + bitsPerSetPointer, bitsPerSetSizeValue);
+                        int numBuckets = HashCodes.hashTableSize(size);
+                        long startBucket = shardOrdinal == 0 ? 0 : setPointersAndSizesArray[shardNumber].getElementValue(fixedLengthOffset - bitsPerSetFixedLengthPortion, bitsPerSetPointer);
+
+                        checksum.applyInt(ordinal);
+                        for(int i=0;i<numBuckets;i++) {
+                            long bucketValue = elementArray[shardNumber].getElementValue((long)bitsPerElement * (startBucket + i), bitsPerElement);
+                            if(bucketValue != emptyBucketValue) {
+                                checksum.applyInt(i);
+                                checksum.applyInt((int)bucketValue);
+                            }
+                        }
+                    }
+
+                    ordinal = currentCyclePopulated.nextSetBit(ordinal + 1);
+                }
             }
         }
-        
-        /// Populated bits
-        currentCyclePopulated.serializeBitsTo(os);
 
-        setPointersAndSizesArray = null;
-        elementArray = null;
-    }
-    
-    private void writeSnapshotShard(DataOutputStream os, int shardNumber) throws IOException {
-        int bitsPerSetFixedLengthPortion = bitsPerSetSizeValue + bitsPerSetPointer;
-
-        /// 1) max ordinal
-        VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
-
-        /// 2) statistics
-        VarInt.writeVInt(os, bitsPerSetPointer);
-        VarInt.writeVInt(os, bitsPerSetSizeValue);
-        VarInt.writeVInt(os, bitsPerElement);
-        VarInt.writeVLong(os, totalOfSetBuckets[shardNumber]);
-
-        /// 3) set pointer array
-        int numSetFixedLengthLongs = maxShardOrdinal[shardNumber] == -1 ? 0 : (int)((((long)(maxShardOrdinal[shardNumber] + 1) * bitsPerSetFixedLengthPortion) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numSetFixedLengthLongs);
-        for(int i=0;i<numSetFixedLengthLongs;i++) {
-            os.writeLong(setPointersAndSizesArray[shardNumber].get(i));
-        }
+        void writeSnapshot(DataOutputStream os) throws IOException {
+            /// for unsharded blobs, support pre v2.1.0 clients
+            if(numShards == 1) {
+                writeSnapshotShard(os, 0);
+            } else {
+                /// overall max ordinal
+                VarInt.writeVInt(os, maxOrdinal);
+
+                for(int i=0;i<numShards;i++) {
+                    writeSnapshotShard(os, i);
+                }
+            }
 
-        /// 4) element array
-        int numElementLongs = totalOfSetBuckets[shardNumber] == 0 ? 0 : (int)(((totalOfSetBuckets[shardNumber] * bitsPerElement) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numElementLongs);
-        for(int i=0;i<numElementLongs;i++) {
-            os.writeLong(elementArray[shardNumber].get(i));
+            /// Populated bits
+            currentCyclePopulated.serializeBitsTo(os);
+
+            setPointersAndSizesArray = null;
+            elementArray = null;
         }
-    }
 
-    @Override
-    public void calculateDelta() {
-        calculateDelta(previousCyclePopulated, currentCyclePopulated);
-    }
+        private void writeSnapshotShard(DataOutputStream os, int shardNumber) throws IOException {
+            int bitsPerSetFixedLengthPortion = bitsPerSetSizeValue + bitsPerSetPointer;
 
-    @Override
-    public void writeDelta(DataOutputStream dos) throws IOException {
-        writeCalculatedDelta(dos);
-    }
+            /// 1) max ordinal
+            VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
 
-    @Override
-    public void calculateReverseDelta() {
-        calculateDelta(currentCyclePopulated, previousCyclePopulated);
-    }
+            /// 2) statistics
+            VarInt.writeVInt(os, bitsPerSetPointer);
+            VarInt.writeVInt(os, bitsPerSetSizeValue);
+            VarInt.writeVInt(os, bitsPerElement);
+            VarInt.writeVLong(os, totalOfSetBuckets[shardNumber]);
 
-    @Override
-    public void writeReverseDelta(DataOutputStream dos) throws IOException {
-        writeCalculatedDelta(dos);
-    }
+            /// 3) set pointer array
+            int numSetFixedLengthLongs = maxShardOrdinal[shardNumber] == -1 ? 0 : (int)((((long)(maxShardOrdinal[shardNumber] + 1) * bitsPerSetFixedLengthPortion) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numSetFixedLengthLongs);
+            for(int i=0;i<numSetFixedLengthLongs;i++) {
+                os.writeLong(setPointersAndSizesArray[shardNumber].get(i));
+            }
 
-    public void calculateDelta(ThreadSafeBitSet fromCyclePopulated, ThreadSafeBitSet toCyclePopulated) {
-        maxOrdinal = ordinalMap.maxOrdinal();
-        int bitsPerSetFixedLengthPortion = bitsPerSetSizeValue + bitsPerSetPointer;
-        
-        numSetsInDelta = new int[numShards];
-        numBucketsInDelta = new long[numShards];
-        setPointersAndSizesArray = new FixedLengthElementArray[numShards];
-        elementArray = new FixedLengthElementArray[numShards];
-        deltaAddedOrdinals = new ByteDataBuffer[numShards];
-        deltaRemovedOrdinals = new ByteDataBuffer[numShards];
-
-        ThreadSafeBitSet deltaAdditions = toCyclePopulated.andNot(fromCyclePopulated);
-        
-        int shardMask = numShards - 1;
-        
-        int addedOrdinal = deltaAdditions.nextSetBit(0);
-        while(addedOrdinal != -1) {
-            numSetsInDelta[addedOrdinal & shardMask]++;
-            long readPointer = ordinalMap.getPointerForData(addedOrdinal);
-            int size = VarInt.readVInt(ordinalMap.getByteData().getUnderlyingArray(), readPointer);
-            numBucketsInDelta[addedOrdinal & shardMask] += HashCodes.hashTableSize(size);
-
-            addedOrdinal = deltaAdditions.nextSetBit(addedOrdinal + 1);
-        }
-        
-        for(int i=0;i<numShards;i++) {
-            setPointersAndSizesArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numSetsInDelta[i] * bitsPerSetFixedLengthPortion);
-            elementArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numBucketsInDelta[i] * bitsPerElement);
-            deltaAddedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
-            deltaRemovedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
+            /// 4) element array
+            int numElementLongs = totalOfSetBuckets[shardNumber] == 0 ? 0 : (int)(((totalOfSetBuckets[shardNumber] * bitsPerElement) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numElementLongs);
+            for(int i=0;i<numElementLongs;i++) {
+                os.writeLong(elementArray[shardNumber].get(i));
+            }
         }
 
-        ByteData data = ordinalMap.getByteData().getUnderlyingArray();
+        void calculateDelta(ThreadSafeBitSet fromCyclePopulated, ThreadSafeBitSet toCyclePopulated) {
+            maxOrdinal = ordinalMap.maxOrdinal();
+            int bitsPerSetFixedLengthPortion = bitsPerSetSizeValue + bitsPerSetPointer;
 
-        int setCounter[] = new int[numShards];
-        long bucketCounter[] = new long[numShards];
-        int previousRemovedOrdinal[] = new int[numShards];
-        int previousAddedOrdinal[] = new int[numShards];
+            numSetsInDelta = new int[numShards];
+            numBucketsInDelta = new long[numShards];
+            setPointersAndSizesArray = new FixedLengthElementArray[numShards];
+            elementArray = new FixedLengthElementArray[numShards];
+            deltaAddedOrdinals = new ByteDataBuffer[numShards];
+            deltaRemovedOrdinals = new ByteDataBuffer[numShards];
 
-        HollowWriteStateEnginePrimaryKeyHasher primaryKeyHasher = null;
+            ThreadSafeBitSet deltaAdditions = toCyclePopulated.andNot(fromCyclePopulated);
 
-        if(getSchema().getHashKey() != null)
-            primaryKeyHasher = new HollowWriteStateEnginePrimaryKeyHasher(getSchema().getHashKey(), getStateEngine());
+            int shardMask = numShards - 1;
 
-        for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
-            int shardNumber = ordinal & shardMask;
-            if(deltaAdditions.get(ordinal)) {
-                long readPointer = ordinalMap.getPointerForData(ordinal);
+            int addedOrdinal = deltaAdditions.nextSetBit(0);
+            while(addedOrdinal != -1) {
+                numSetsInDelta[addedOrdinal & shardMask]++;
+                long readPointer = ordinalMap.getPointerForData(addedOrdinal);
+                int size = VarInt.readVInt(ordinalMap.getByteData().getUnderlyingArray(), readPointer);
+                numBucketsInDelta[addedOrdinal & shardMask] += HashCodes.hashTableSize(size);
 
-                int size = VarInt.readVInt(data, readPointer);
-                readPointer += VarInt.sizeOfVInt(size);
+                addedOrdinal = deltaAdditions.nextSetBit(addedOrdinal + 1);
+            }
 
-                int numBuckets = HashCodes.hashTableSize(size);
+            for(int i=0;i<numShards;i++) {
+                setPointersAndSizesArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numSetsInDelta[i] * bitsPerSetFixedLengthPortion);
+                elementArray[i] = new FixedLengthElementArray(WastefulRecycler.DEFAULT_INSTANCE, (long)numBucketsInDelta[i] * bitsPerElement);
+                deltaAddedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
+                deltaRemovedOrdinals[i] = new ByteDataBuffer(WastefulRecycler.DEFAULT_INSTANCE);
+            }
 
-                long endBucketPosition = bucketCounter[shardNumber] + numBuckets;
+            ByteData data = ordinalMap.getByteData().getUnderlyingArray();
 
-                setPointersAndSizesArray[shardNumber].setElementValue((long)bitsPerSetFixedLengthPortion * setCounter[shardNumber], bitsPerSetPointer, endBucketPosition);
-                setPointersAndSizesArray[shardNumber].setElementValue(((long)bitsPerSetFixedLengthPortion * setCounter[shardNumber]) + bitsPerSetPointer, bitsPerSetSizeValue, size);
+            int setCounter[] = new int[numShards];
+            long bucketCounter[] = new long[numShards];
+            int previousRemovedOrdinal[] = new int[numShards];
+            int previousAddedOrdinal[] = new int[numShards];
 
-                int elementOrdinal = 0;
+            HollowWriteStateEnginePrimaryKeyHasher primaryKeyHasher = null;
 
-                for(int j=0;j<numBuckets;j++) {
-                    elementArray[shardNumber].setElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + j), bitsPerElement, (1L << bitsPerElement) - 1);
-                }
+            if(getSchema().getHashKey() != null)
+                primaryKeyHasher = new HollowWriteStateEnginePrimaryKeyHasher(getSchema().getHashKey(), getStateEngine());
 
-                for(int j=0;j<size;j++) {
-                    int elementOrdinalDelta = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(elementOrdinalDelta);
-                    int hashedBucket = VarInt.readVInt(data, readPointer);
-                    readPointer += VarInt.sizeOfVInt(hashedBucket);
-                    elementOrdinal += elementOrdinalDelta;
+            for(int ordinal=0;ordinal<=maxOrdinal;ordinal++) {
+                int shardNumber = ordinal & shardMask;
+                if(deltaAdditions.get(ordinal)) {
+                    long readPointer = ordinalMap.getPointerForData(ordinal);
 
-                    if(primaryKeyHasher != null)
-                        hashedBucket = primaryKeyHasher.getRecordHash(elementOrdinal) & (numBuckets - 1);
+                    int size = VarInt.readVInt(data, readPointer);
+                    readPointer += VarInt.sizeOfVInt(size);
 
-                    while(elementArray[shardNumber].getElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement) != ((1L << bitsPerElement) - 1)) {
-                        hashedBucket++;
-                        hashedBucket &= (numBuckets - 1);
+                    int numBuckets = HashCodes.hashTableSize(size);
+
+                    long endBucketPosition = bucketCounter[shardNumber] + numBuckets;
+
+                    setPointersAndSizesArray[shardNumber].setElementValue((long)bitsPerSetFixedLengthPortion * setCounter[shardNumber], bitsPerSetPointer, endBucketPosition);
+                    setPointersAndSizesArray[shardNumber].setElementValue(((long)bitsPerSetFixedLengthPortion * setCounter[shardNumber]) + bitsPerSetPointer, bitsPerSetSizeValue, size);
+
+                    int elementOrdinal = 0;
+
+                    for(int j=0;j<numBuckets;j++) {
+                        elementArray[shardNumber].setElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + j), bitsPerElement, (1L << bitsPerElement) - 1);
                     }
 
-                    elementArray[shardNumber].clearElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement);
-                    elementArray[shardNumber].setElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement, elementOrdinal);
-                }
+                    for(int j=0;j<size;j++) {
+                        int elementOrdinalDelta = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(elementOrdinalDelta);
+                        int hashedBucket = VarInt.readVInt(data, readPointer);
+                        readPointer += VarInt.sizeOfVInt(hashedBucket);
+                        elementOrdinal += elementOrdinalDelta;
 
-                bucketCounter[shardNumber] += numBuckets;
-                setCounter[shardNumber]++;
+                        if(primaryKeyHasher != null)
+                            hashedBucket = primaryKeyHasher.getRecordHash(elementOrdinal) & (numBuckets - 1);
 
-                int shardOrdinal = ordinal / numShards;
-                VarInt.writeVInt(deltaAddedOrdinals[shardNumber], shardOrdinal - previousAddedOrdinal[shardNumber]);
-                previousAddedOrdinal[shardNumber] = shardOrdinal;
-            } else if(fromCyclePopulated.get(ordinal) && !toCyclePopulated.get(ordinal)) {
-                int shardOrdinal = ordinal / numShards;
-                VarInt.writeVInt(deltaRemovedOrdinals[shardNumber], shardOrdinal - previousRemovedOrdinal[shardNumber]);
-                previousRemovedOrdinal[shardNumber] = shardOrdinal;
+                        while(elementArray[shardNumber].getElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement) != ((1L << bitsPerElement) - 1)) {
+                            hashedBucket++;
+                            hashedBucket &= (numBuckets - 1);
+                        }
+
+                        elementArray[shardNumber].clearElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement);
+                        elementArray[shardNumber].setElementValue((long)bitsPerElement * (bucketCounter[shardNumber] + hashedBucket), bitsPerElement, elementOrdinal);
+                    }
+
+                    bucketCounter[shardNumber] += numBuckets;
+                    setCounter[shardNumber]++;
+
+                    int shardOrdinal = ordinal / numShards;
+                    VarInt.writeVInt(deltaAddedOrdinals[shardNumber], shardOrdinal - previousAddedOrdinal[shardNumber]);
+                    previousAddedOrdinal[shardNumber] = shardOrdinal;
+                } else if(fromCyclePopulated.get(ordinal) && !toCyclePopulated.get(ordinal)) {
+                    int shardOrdinal = ordinal / numShards;
+                    VarInt.writeVInt(deltaRemovedOrdinals[shardNumber], shardOrdinal - previousRemovedOrdinal[shardNumber]);
+                    previousRemovedOrdinal[shardNumber] = shardOrdinal;
+                }
             }
         }
-    }
 
-    private void writeCalculatedDelta(DataOutputStream os) throws IOException {
-        /// for unsharded blobs, support pre v2.1.0 clients
-        if(numShards == 1) {
-            writeCalculatedDeltaShard(os, 0);
-        } else {
-            /// overall max ordinal
-            VarInt.writeVInt(os, maxOrdinal);
-            
-            for(int i=0;i<numShards;i++) {
-                writeCalculatedDeltaShard(os, i);
+        void writeCalculatedDelta(DataOutputStream os) throws IOException {
+            /// for unsharded blobs, support pre v2.1.0 clients
+            if(numShards == 1) {
+                writeCalculatedDeltaShard(os, 0);
+            } else {
+                /// overall max ordinal
+                VarInt.writeVInt(os, maxOrdinal);
+
+                for(int i=0;i<numShards;i++) {
+                    writeCalculatedDeltaShard(os, i);
+                }
             }
+
+            setPointersAndSizesArray = null;
+            elementArray = null;
+            deltaAddedOrdinals = null;
+            deltaRemovedOrdinals = null;
         }
-        
-        setPointersAndSizesArray = null;
-        elementArray = null;
-        deltaAddedOrdinals = null;
-        deltaRemovedOrdinals = null;
-    }
-    
-    private void writeCalculatedDeltaShard(DataOutputStream os, int shardNumber) throws IOException {
-        
-        int bitsPerSetFixedLengthPortion = bitsPerSetSizeValue + bitsPerSetPointer;
-
-        /// 1) max ordinal
-        VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
-
-        /// 2) removal / addition ordinals.
-        VarInt.writeVLong(os, deltaRemovedOrdinals[shardNumber].length());
-        deltaRemovedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaRemovedOrdinals[shardNumber].length());
-        VarInt.writeVLong(os, deltaAddedOrdinals[shardNumber].length());
-        deltaAddedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaAddedOrdinals[shardNumber].length());
-
-        /// 3) statistics
-        VarInt.writeVInt(os, bitsPerSetPointer);
-        VarInt.writeVInt(os, bitsPerSetSizeValue);
-        VarInt.writeVInt(os, bitsPerElement);
-        VarInt.writeVLong(os, totalOfSetBuckets[shardNumber]);
-
-        /// 4) set pointer array
-        int numSetFixedLengthLongs = numSetsInDelta[shardNumber] == 0 ? 0 : (int)((((long)numSetsInDelta[shardNumber] * bitsPerSetFixedLengthPortion) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numSetFixedLengthLongs);
-        for(int i=0;i<numSetFixedLengthLongs;i++) {
-            os.writeLong(setPointersAndSizesArray[shardNumber].get(i));
-        }
 
-        /// 5) element array
-        int numElementLongs = numBucketsInDelta[shardNumber] == 0 ? 0 : (int)(((numBucketsInDelta[shardNumber] * bitsPerElement) - 1) / 64) + 1;
-        VarInt.writeVInt(os, numElementLongs);
-        for(int i=0;i<numElementLongs;i++) {
-            os.writeLong(elementArray[shardNumber].get(i));
+        private void writeCalculatedDeltaShard(DataOutputStream os, int shardNumber) throws IOException {
+
+            int bitsPerSetFixedLengthPortion = bitsPerSetSizeValue + bitsPerSetPointer;
+
+            /// 1) max ordinal
+            VarInt.writeVInt(os, maxShardOrdinal[shardNumber]);
+
+            /// 2) removal / addition ordinals.
+            VarInt.writeVLong(os, deltaRemovedOrdinals[shardNumber].length());
+            deltaRemovedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaRemovedOrdinals[shardNumber].length());
+            VarInt.writeVLong(os, deltaAddedOrdinals[shardNumber].length());
+            deltaAddedOrdinals[shardNumber].getUnderlyingArray().writeTo(os, 0, deltaAddedOrdinals[shardNumber].length());
+
+            /// 3) statistics
+            VarInt.writeVInt(os, bitsPerSetPointer);
+            VarInt.writeVInt(os, bitsPerSetSizeValue);
+            VarInt.writeVInt(os, bitsPerElement);
+            VarInt.writeVLong(os, totalOfSetBuckets[shardNumber]);
+
+            /// 4) set pointer array
+            int numSetFixedLengthLongs = numSetsInDelta[shardNumber] == 0 ? 0 : (int)((((long)numSetsInDelta[shardNumber] * bitsPerSetFixedLengthPortion) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numSetFixedLengthLongs);
+            for(int i=0;i<numSetFixedLengthLongs;i++) {
+                os.writeLong(setPointersAndSizesArray[shardNumber].get(i));
+            }
+
+            /// 5) element array
+            int numElementLongs = numBucketsInDelta[shardNumber] == 0 ? 0 : (int)(((numBucketsInDelta[shardNumber] * bitsPerElement) - 1) / 64) + 1;
+            VarInt.writeVInt(os, numElementLongs);
+            for(int i=0;i<numElementLongs;i++) {
+                os.writeLong(elementArray[shardNumber].get(i));
+            }
         }
     }
 
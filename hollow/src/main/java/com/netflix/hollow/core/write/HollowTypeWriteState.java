@@ -29,6 +29,7 @@ import com.netflix.hollow.core.write.HollowHashableWriteRecord.HashBehavior;
 import com.netflix.hollow.core.write.copy.HollowRecordCopier;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
 import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.util.BitSet;
@@ -252,7 +253,7 @@ public abstract class HollowTypeWriteState {
         if(isRestored() && !wroteData) {
             HollowRecordCopier copier = HollowRecordCopier.createCopier(restoredReadState, schema);
 
-            BitSet unusedPreviousOrdinals = ordinalMap.getUnusedPreviousOrdinals();
+            ThreadSafeBitSet unusedPreviousOrdinals = ordinalMap.getUnusedPreviousOrdinals();
             int ordinal = unusedPreviousOrdinals.nextSetBit(0);
 
             while(ordinal != -1) {
@@ -277,6 +278,12 @@ public abstract class HollowTypeWriteState {
 
     public abstract void writeSnapshot(DataOutputStream dos) throws IOException;
 
+    /**
+     * Apply the data calculated for the snapshot to a checksum, exactly as {@link HollowTypeReadState#getChecksum(HollowSchema)} will
+     * once the snapshot has been read.  Must be called after {@link #calculateSnapshot()} and before {@link #writeSnapshot(DataOutputStream)}.
+     */
+    public abstract void applySnapshotToChecksum(HollowChecksum checksum, HollowSchema withSchema);
+
     public abstract void calculateDelta();
 
     public abstract void writeDelta(DataOutputStream dos) throws IOException;
@@ -172,8 +172,10 @@ public class HollowWriteStateEngine implements HollowStateEngine {
 
     /**
      * Transition from the "adding records" phase of a cycle to the "writing" phase of a cycle.
+     * <p>
+     * Once prepared, the snapshot, delta, and reverse delta for the cycle may be written concurrently by separate {@link HollowBlobWriter}s.
      */
-    public void prepareForWrite() {
+    public synchronized void prepareForWrite() {
         if(!preparedForNextCycle)  // this call should be a no-op if we are already prepared for write
             return;
 
@@ -62,6 +62,10 @@ public class HollowListTypeMapper extends HollowTypeMapper {
                 return (int)assignedOrdinal & Integer.MAX_VALUE;
         }
 
+        int memoizedOrdinal = identityMemoizedOrdinal(obj);
+        if(memoizedOrdinal != -1)
+            return memoizedOrdinal;
+
         List<?> l = (List<?>)obj;
 
         HollowListWriteRecord rec = (HollowListWriteRecord)writeRecord();
@@ -87,6 +91,8 @@ public class HollowListTypeMapper extends HollowTypeMapper {
             ((MemoizedList<?>)obj).__assigned_ordinal = (long)assignedOrdinal | cycleSpecificAssignedOrdinalBits();
         }
 
+        memoizeIdentity(obj, assignedOrdinal);
+
         return assignedOrdinal;
     }
 
@@ -68,6 +68,10 @@ public class HollowMapTypeMapper extends HollowTypeMapper {
                 return (int)assignedOrdinal & Integer.MAX_VALUE;
         }
 
+        int memoizedOrdinal = identityMemoizedOrdinal(obj);
+        if(memoizedOrdinal != -1)
+            return memoizedOrdinal;
+
         Map<?, ?> m = (Map<?, ?>)obj;
 
         HollowMapWriteRecord rec = (HollowMapWriteRecord)writeRecord();
@@ -84,6 +88,8 @@ public class HollowMapTypeMapper extends HollowTypeMapper {
         if(obj instanceof MemoizedMap) {
             ((MemoizedMap<?, ?>)obj).__assigned_ordinal = (long)assignedOrdinal | cycleSpecificAssignedOrdinalBits();
         }
+
+        memoizeIdentity(obj, assignedOrdinal);
         
         return assignedOrdinal;
     }
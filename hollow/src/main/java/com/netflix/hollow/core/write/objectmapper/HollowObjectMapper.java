@@ -38,6 +38,7 @@ public class HollowObjectMapper {
 
     private boolean ignoreListOrdering = false;
     private boolean useDefaultHashKeys = true;
+    private int identityMemoizationEntriesPerType = 0;
 
     public HollowObjectMapper(HollowWriteStateEngine stateEngine) {
         this.stateEngine = stateEngine;
@@ -56,6 +57,25 @@ public class HollowObjectMapper {
         this.useDefaultHashKeys = false;
     }
 
+    /**
+     * Remember, by identity, the ordinals assigned to POJOs in the current cycle.  When the same instance is reached again during 
+     * the cycle, whether added directly or referenced from another POJO, its previously assigned ordinal is used without serializing 
+     * and hashing it again.  This benefits data models in which the same child instances are shared by many parents.
+     * <p>
+     * Up to approximately maxEntriesPerType POJOs are remembered for each type, after which newly added POJOs may displace previously
+     * remembered ones.  POJOs are only weakly referenced.
+     * <p>
+     * WARNING: POJOs must not be modified after they are added during a cycle, and ordinals must not be removed from the current
+     * cycle once they have been assigned, otherwise a stale ordinal may be returned.
+     *
+     * @param maxEntriesPerType the approximate number of POJOs remembered for each type
+     */
+    public void useIdentityMemoization(int maxEntriesPerType) {
+        this.identityMemoizationEntriesPerType = maxEntriesPerType;
+        for(HollowTypeMapper typeMapper : typeMappers.values())
+            typeMapper.memoizeByIdentity(maxEntriesPerType);
+    }
+
     /**
      * Adds the specified POJO to the state engine.
      * <p>
@@ -71,6 +91,22 @@ public class HollowObjectMapper {
         return typeMapper.write(o);
     }
 
+    /**
+     * Extracts the primary key of the specified POJO, as declared by the {@link HollowPrimaryKey} annotation on its class.
+     * <p>
+     * Unless previously initialized, the type's schema is derived and added to the data model.
+     *
+     * @param o the POJO whose primary key should be extracted
+     * @return the type and primary key values of the POJO
+     * @throws IllegalArgumentException if the POJO's type does not declare a primary key
+     */
+    public RecordPrimaryKey extractPrimaryKey(Object o) {
+        HollowTypeMapper typeMapper = getTypeMapper(o.getClass(), null, null);
+        if(!(typeMapper instanceof HollowObjectTypeMapper))
+            throw new IllegalArgumentException("Primary keys may only be extracted from OBJECT types, not " + o.getClass());
+        return ((HollowObjectTypeMapper)typeMapper).extractPrimaryKey(o);
+    }
+
     /**
      * @deprecated use {@link #add(Object)} instead.
      */
@@ -131,6 +167,8 @@ public class HollowObjectMapper {
             if(existing != null) {
                 typeMapper = existing;
             } else {
+                if(identityMemoizationEntriesPerType > 0)
+                    typeMapper.memoizeByIdentity(identityMemoizationEntriesPerType);
                 typeMapper.addTypeState(stateEngine);
             }
         }
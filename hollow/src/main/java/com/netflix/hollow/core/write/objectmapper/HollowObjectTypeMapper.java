@@ -51,6 +51,8 @@ public class HollowObjectTypeMapper extends HollowTypeMapper {
 
     private final List<MappedField> mappedFields;
 
+    private volatile int primaryKeyFieldPathIdx[][];
+
     public HollowObjectTypeMapper(HollowObjectMapper parentMapper, Class<?> clazz, String declaredTypeName, Set<Type> visited) {
         this.parentMapper = parentMapper;
         this.clazz = clazz;
@@ -108,6 +110,9 @@ public class HollowObjectTypeMapper extends HollowTypeMapper {
             }
         }
 
+        for(MappedField field : mappedFields)
+            field.fieldPosition = schema.getPosition(field.getFieldName());
+
         HollowObjectTypeWriteState existingWriteState = (HollowObjectTypeWriteState) parentMapper.getStateEngine().getTypeState(typeName);
         this.writeState = existingWriteState != null ? existingWriteState : new HollowObjectTypeWriteState(schema, getNumShards(clazz));
 
@@ -168,6 +173,10 @@ public class HollowObjectTypeMapper extends HollowTypeMapper {
         if(obj.getClass() != clazz && !clazz.isAssignableFrom(obj.getClass()))
             throw new IllegalArgumentException("Attempting to write unexpected class!  Expected " + clazz + " but object was " + obj.getClass());
 
+        int memoizedOrdinal = identityMemoizedOrdinal(obj);
+        if(memoizedOrdinal != -1)
+            return memoizedOrdinal;
+
         HollowObjectWriteRecord rec = (HollowObjectWriteRecord)writeRecord();
 
         for(int i=0;i<mappedFields.size();i++) {
@@ -185,9 +194,47 @@ public class HollowObjectTypeMapper extends HollowTypeMapper {
         case NONE:
             break;
         }
+
+        memoizeIdentity(obj, assignedOrdinal);
         return assignedOrdinal;
     }
 
+    /**
+     * Extract the primary key of the specified object, as declared by the {@link HollowPrimaryKey} annotation on its class.
+     */
+    RecordPrimaryKey extractPrimaryKey(Object obj) {
+        int fieldPathIdx[][] = this.primaryKeyFieldPathIdx;
+        if(fieldPathIdx == null) {
+            PrimaryKey pKey = schema.getPrimaryKey();
+            if(pKey == null)
+                throw new IllegalArgumentException("Type " + typeName + " does not declare a primary key");
+
+            fieldPathIdx = new int[pKey.numFields()][];
+            for(int i=0;i<fieldPathIdx.length;i++)
+                fieldPathIdx[i] = pKey.getFieldPathIndex(parentMapper.getStateEngine(), i);
+            this.primaryKeyFieldPathIdx = fieldPathIdx;
+        }
+
+        Object key[] = new Object[fieldPathIdx.length];
+        for(int i=0;i<key.length;i++)
+            key[i] = retrieveFieldValue(obj, fieldPathIdx[i], 0);
+
+        return new RecordPrimaryKey(typeName, key);
+    }
+
+    private Object retrieveFieldValue(Object obj, int fieldPathIdx[], int pathPosition) {
+        MappedField field = mappedFields.get(fieldPathIdx[pathPosition]);
+
+        if(pathPosition == fieldPathIdx.length - 1)
+            return field.retrieveFieldValue(obj);
+
+        Object fieldObject = field.retrieveFieldValue(obj);
+        if(fieldObject == null)
+            return null;
+
+        return ((HollowObjectTypeMapper)field.subTypeMapper).retrieveFieldValue(fieldObject, fieldPathIdx, pathPosition + 1);
+    }
+
     public String[] getDefaultElementHashKey() {
         PrimaryKey pKey = schema.getPrimaryKey();
         if (pKey != null) return pKey.getFieldPaths();
@@ -221,6 +268,8 @@ public class HollowObjectTypeMapper extends HollowTypeMapper {
         private final HollowHashKey hashKeyAnnotation;
         private final HollowShardLargeType numShardsAnnotation;
         private final boolean isInlinedField;
+        /// the position of this field in the schema of the records it is copied to, assigned once the schema is built.
+        private int fieldPosition;
 
         private MappedField(Field f) {
             this(f, new HashSet<Type>());
@@ -328,109 +377,158 @@ public class HollowObjectTypeMapper extends HollowTypeMapper {
             return subTypeMapper.getTypeName();
         }
 
+        /**
+         * @return the value of this field in the specified object, boxed as it would be passed to a 
+         * {@link com.netflix.hollow.core.index.HollowPrimaryKeyIndex} query, or the referenced object for REFERENCE fields.
+         */
+        @SuppressWarnings("deprecation")
+        public Object retrieveFieldValue(Object obj) {
+            Object fieldObject;
+
+            switch(fieldType) {
+                case BOOLEAN:
+                    return Boolean.valueOf(unsafe.getBoolean(obj, fieldOffset));
+                case INT:
+                    return Integer.valueOf(unsafe.getInt(obj, fieldOffset));
+                case SHORT:
+                    return Integer.valueOf(unsafe.getShort(obj, fieldOffset));
+                case BYTE:
+                    return Integer.valueOf(unsafe.getByte(obj, fieldOffset));
+                case CHAR:
+                    return Integer.valueOf(unsafe.getChar(obj, fieldOffset));
+                case LONG:
+                    return Long.valueOf(unsafe.getLong(obj, fieldOffset));
+                case DOUBLE:
+                    return Double.valueOf(unsafe.getDouble(obj, fieldOffset));
+                case FLOAT:
+                    return Float.valueOf(unsafe.getFloat(obj, fieldOffset));
+                case STRING:
+                    fieldObject = unsafe.getObject(obj, fieldOffset);
+                    return fieldObject == null ? null : new String((char[])fieldObject);
+                case INLINED_SHORT:
+                    fieldObject = unsafe.getObject(obj, fieldOffset);
+                    return fieldObject == null ? null : Integer.valueOf(((Short)fieldObject).intValue());
+                case INLINED_BYTE:
+                    fieldObject = unsafe.getObject(obj, fieldOffset);
+                    return fieldObject == null ? null : Integer.valueOf(((Byte)fieldObject).intValue());
+                case INLINED_CHAR:
+                    fieldObject = unsafe.getObject(obj, fieldOffset);
+                    return fieldObject == null ? null : Integer.valueOf(((Character)fieldObject).charValue());
+                case NULLABLE_PRIMITIVE_BOOLEAN:
+                    fieldObject = unsafe.getObject(obj, fieldOffset);
+                    return fieldObject == null ? null : Boolean.valueOf(((NullablePrimitiveBoolean)fieldObject).getBooleanValue());
+                case DATE_TIME:
+                    return Long.valueOf(((Date)obj).getTime());
+                case ENUM_NAME:
+                    return ((Enum<?>)obj).name();
+                default:
+                    return unsafe.getObject(obj, fieldOffset);
+            }
+        }
+
         @SuppressWarnings("deprecation")
         public void copy(Object obj, HollowObjectWriteRecord rec) {
             Object fieldObject;
             
             switch(fieldType) {
                 case BOOLEAN:
-                    rec.setBoolean(fieldName, unsafe.getBoolean(obj, fieldOffset));
+                    rec.setBoolean(fieldPosition, unsafe.getBoolean(obj, fieldOffset));
                     break;
                 case INT:
-                    rec.setInt(fieldName, unsafe.getInt(obj, fieldOffset));
+                    rec.setInt(fieldPosition, unsafe.getInt(obj, fieldOffset));
                     break;
                 case SHORT:
-                    rec.setInt(fieldName, unsafe.getShort(obj, fieldOffset));
+                    rec.setInt(fieldPosition, unsafe.getShort(obj, fieldOffset));
                     break;
                 case BYTE:
-                    rec.setInt(fieldName, unsafe.getByte(obj, fieldOffset));
+                    rec.setInt(fieldPosition, unsafe.getByte(obj, fieldOffset));
                     break;
                 case CHAR:
-                    rec.setInt(fieldName, unsafe.getChar(obj, fieldOffset));
+                    rec.setInt(fieldPosition, unsafe.getChar(obj, fieldOffset));
                     break;
                 case LONG:
-                    rec.setLong(fieldName, unsafe.getLong(obj, fieldOffset));
+                    rec.setLong(fieldPosition, unsafe.getLong(obj, fieldOffset));
                     break;
                 case DOUBLE:
                     double d = unsafe.getDouble(obj, fieldOffset);
                     if(!Double.isNaN(d))
-                        rec.setDouble(fieldName, d);
+                        rec.setDouble(fieldPosition, d);
                     break;
                 case FLOAT:
                     float f = unsafe.getFloat(obj, fieldOffset);
                     if(!Float.isNaN(f))
-                        rec.setFloat(fieldName, f);
+                        rec.setFloat(fieldPosition, f);
                     break;
                 case STRING:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setString(fieldName, new String((char[])fieldObject));
+                        rec.setString(fieldPosition, new String((char[])fieldObject));
                     break;
                 case BYTES:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setBytes(fieldName, (byte[])fieldObject);
+                        rec.setBytes(fieldPosition, (byte[])fieldObject);
                     break;
                 case INLINED_BOOLEAN:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setBoolean(fieldName, ((Boolean)fieldObject).booleanValue());
+                        rec.setBoolean(fieldPosition, ((Boolean)fieldObject).booleanValue());
                     break;
                 case INLINED_INT:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setInt(fieldName, ((Integer)fieldObject).intValue());
+                        rec.setInt(fieldPosition, ((Integer)fieldObject).intValue());
                     break;
                 case INLINED_SHORT:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setInt(fieldName, ((Short)fieldObject).intValue());
+                        rec.setInt(fieldPosition, ((Short)fieldObject).intValue());
                     break;
                 case INLINED_BYTE:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setInt(fieldName, ((Byte)fieldObject).intValue());
+                        rec.setInt(fieldPosition, ((Byte)fieldObject).intValue());
                     break;
                 case INLINED_CHAR:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setInt(fieldName, (int)((Character)fieldObject).charValue());
+                        rec.setInt(fieldPosition, (int)((Character)fieldObject).charValue());
                     break;
                 case INLINED_LONG:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setLong(fieldName, ((Long)fieldObject).longValue());
+                        rec.setLong(fieldPosition, ((Long)fieldObject).longValue());
                     break;
                 case INLINED_DOUBLE:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setDouble(fieldName, ((Double)fieldObject).doubleValue());
+                        rec.setDouble(fieldPosition, ((Double)fieldObject).doubleValue());
                     break;
                 case INLINED_FLOAT:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setFloat(fieldName, ((Float)fieldObject).floatValue());
+                        rec.setFloat(fieldPosition, ((Float)fieldObject).floatValue());
                     break;
                 case INLINED_STRING:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setString(fieldName, (String)fieldObject);
+                        rec.setString(fieldPosition, (String)fieldObject);
                     break;
                 case NULLABLE_PRIMITIVE_BOOLEAN:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setBoolean(fieldName, ((NullablePrimitiveBoolean)fieldObject).getBooleanValue());
+                        rec.setBoolean(fieldPosition, ((NullablePrimitiveBoolean)fieldObject).getBooleanValue());
                     break;
                 case DATE_TIME:
-                    rec.setLong(fieldName, ((Date)obj).getTime());
+                    rec.setLong(fieldPosition, ((Date)obj).getTime());
                     break;
                 case ENUM_NAME:
-                    rec.setString(fieldName, ((Enum<?>)obj).name());
+                    rec.setString(fieldPosition, ((Enum<?>)obj).name());
                     break;
                 case REFERENCE:
                     fieldObject = unsafe.getObject(obj, fieldOffset);
                     if(fieldObject != null)
-                        rec.setReference(fieldName, subTypeMapper.write(fieldObject));
+                        rec.setReference(fieldPosition, subTypeMapper.write(fieldObject));
                     break;
             }
         }
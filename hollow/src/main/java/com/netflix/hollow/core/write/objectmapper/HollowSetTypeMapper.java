@@ -65,6 +65,10 @@ public class HollowSetTypeMapper extends HollowTypeMapper {
                 return (int)assignedOrdinal & Integer.MAX_VALUE;
         }
         
+        int memoizedOrdinal = identityMemoizedOrdinal(obj);
+        if(memoizedOrdinal != -1)
+            return memoizedOrdinal;
+
         Set<?> s = (Set<?>)obj;
 
         HollowSetWriteRecord rec = (HollowSetWriteRecord)writeRecord();
@@ -79,6 +83,8 @@ public class HollowSetTypeMapper extends HollowTypeMapper {
         if(obj instanceof MemoizedSet) {
             ((MemoizedSet<?>)obj).__assigned_ordinal = (long)assignedOrdinal | cycleSpecificAssignedOrdinalBits();
         }
+
+        memoizeIdentity(obj, assignedOrdinal);
         
         return assignedOrdinal;
     }
@@ -33,6 +33,8 @@ public abstract class HollowTypeMapper {
 
     private final ThreadLocal<HollowWriteRecord> writeRec = new ThreadLocal<HollowWriteRecord>();
 
+    private volatile IdentityOrdinalCache identityOrdinalCache;
+
     protected abstract String getTypeName();
 
     protected abstract int write(Object obj);
@@ -78,6 +80,29 @@ public abstract class HollowTypeMapper {
         return clazz.getSimpleName();
     }
     
+    /**
+     * Remember the ordinals assigned to up to approximately maxEntries POJOs of this type, by identity, for the remainder of each cycle.
+     */
+    void memoizeByIdentity(int maxEntries) {
+        this.identityOrdinalCache = new IdentityOrdinalCache(maxEntries);
+    }
+
+    /**
+     * @return the ordinal which was assigned to the specified POJO earlier in this cycle, or -1 if it is not known.
+     */
+    protected int identityMemoizedOrdinal(Object obj) {
+        IdentityOrdinalCache cache = identityOrdinalCache;
+        if(cache == null)
+            return -1;
+        return cache.get(obj, cycleSpecificAssignedOrdinalBits());
+    }
+
+    protected void memoizeIdentity(Object obj, int assignedOrdinal) {
+        IdentityOrdinalCache cache = identityOrdinalCache;
+        if(cache != null)
+            cache.put(obj, assignedOrdinal, cycleSpecificAssignedOrdinalBits());
+    }
+
     protected long cycleSpecificAssignedOrdinalBits() {
         return getTypeWriteState().getStateEngine().getNextStateRandomizedTag() & ASSIGNED_ORDINAL_CYCLE_MASK;
     }
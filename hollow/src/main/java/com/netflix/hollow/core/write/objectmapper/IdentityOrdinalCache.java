@@ -0,0 +1,74 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.write.objectmapper;
+
+import static com.netflix.hollow.core.write.objectmapper.HollowTypeMapper.ASSIGNED_ORDINAL_CYCLE_MASK;
+
+import com.netflix.hollow.core.memory.encoding.HashCodes;
+import java.lang.ref.WeakReference;
+
+/**
+ * A fixed-size cache from the identity of a POJO to the ordinal which was assigned to it in the current cycle.
+ * <p>
+ * Each POJO maps to a single slot, and a newly cached POJO replaces whatever was previously in its slot, so the memory used is bounded 
+ * by the number of slots.  POJOs are only weakly referenced, and entries are tagged with the cycle in which they were 
+ * cached, so that entries from prior cycles are never returned.
+ * <p>
+ * The cache may be read and updated concurrently.  Races may only cause a cached ordinal to be missed, never an incorrect ordinal to be returned.
+ */
+class IdentityOrdinalCache {
+
+    private final Entry entries[];
+    private final int mask;
+
+    IdentityOrdinalCache(int maxEntries) {
+        int size = Integer.highestOneBit(Math.max(maxEntries, 1));
+        if(size < maxEntries)
+            size <<= 1;
+        this.entries = new Entry[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the ordinal assigned to the specified POJO in the cycle identified by cycleBits, or -1 if it is not cached.
+     */
+    int get(Object obj, long cycleBits) {
+        Entry entry = entries[slot(obj)];
+        if(entry != null && entry.get() == obj && (entry.assignedOrdinal & ASSIGNED_ORDINAL_CYCLE_MASK) == cycleBits)
+            return (int)entry.assignedOrdinal & Integer.MAX_VALUE;
+        return -1;
+    }
+
+    void put(Object obj, int ordinal, long cycleBits) {
+        entries[slot(obj)] = new Entry(obj, (long)ordinal | cycleBits);
+    }
+
+    private int slot(Object obj) {
+        return HashCodes.hashInt(System.identityHashCode(obj)) & mask;
+    }
+
+    private static class Entry extends WeakReference<Object> {
+        private final long assignedOrdinal;
+
+        Entry(Object obj, long assignedOrdinal) {
+            super(obj);
+            this.assignedOrdinal = assignedOrdinal;
+        }
+    }
+
+}
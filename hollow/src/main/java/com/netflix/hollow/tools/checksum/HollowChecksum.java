@@ -23,7 +23,10 @@ import com.netflix.hollow.core.util.SimultaneousExecutor;
 import com.netflix.hollow.core.schema.HollowSchema;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
 import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Vector;
 
 /**
@@ -66,13 +69,32 @@ public class HollowChecksum {
     }
     
     public static HollowChecksum forStateEngineWithCommonSchemas(HollowReadStateEngine stateEngine, HollowReadStateEngine commonSchemasWithState) {
+        Map<String, HollowSchema> commonSchemas = new HashMap<String, HollowSchema>();
+        for(HollowSchema schema : commonSchemasWithState.getSchemas())
+            commonSchemas.put(schema.getName(), schema);
+        return forStateEngineWithCommonSchemas(stateEngine, commonSchemas);
+    }
+
+    /**
+     * Calculate the checksum for the types and fields of a HollowReadStateEngine which are in common with the schemas of a HollowWriteStateEngine.
+     * <p>
+     * This is equivalent to calculating the checksum with common schemas against a HollowReadStateEngine which has read a snapshot from the
+     * HollowWriteStateEngine.
+     */
+    public static HollowChecksum forStateEngineWithCommonSchemas(HollowReadStateEngine stateEngine, HollowWriteStateEngine commonSchemasWithState) {
+        Map<String, HollowSchema> commonSchemas = new HashMap<String, HollowSchema>();
+        for(HollowSchema schema : commonSchemasWithState.getSchemas())
+            commonSchemas.put(schema.getName(), schema);
+        return forStateEngineWithCommonSchemas(stateEngine, commonSchemas);
+    }
+
+    private static HollowChecksum forStateEngineWithCommonSchemas(HollowReadStateEngine stateEngine, Map<String, HollowSchema> commonSchemas) {
         final Vector<TypeChecksum> typeChecksums = new Vector<TypeChecksum>();
         SimultaneousExecutor executor = new SimultaneousExecutor();
 
         for(final HollowTypeReadState typeState : stateEngine.getTypeStates()) {
-            HollowTypeReadState commonSchemasWithType = commonSchemasWithState.getTypeState(typeState.getSchema().getName());
-            if(commonSchemasWithType != null) {
-                final HollowSchema commonSchemasWith = commonSchemasWithType.getSchema();
+            final HollowSchema commonSchemasWith = commonSchemas.get(typeState.getSchema().getName());
+            if(commonSchemasWith != null) {
                 executor.execute(new Runnable() {
                     public void run() {
                         HollowChecksum cksum = typeState.getChecksum(commonSchemasWith);
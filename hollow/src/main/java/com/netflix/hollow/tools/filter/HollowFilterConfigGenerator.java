@@ -0,0 +1,227 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.tools.filter;
+
+import com.netflix.hollow.api.sampling.SampleResult;
+import com.netflix.hollow.core.index.key.PrimaryKey;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.read.filter.HollowFilterConfig;
+import com.netflix.hollow.core.read.filter.HollowFilterConfig.ObjectFilterConfig;
+import com.netflix.hollow.core.schema.HollowCollectionSchema;
+import com.netflix.hollow.core.schema.HollowMapSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import com.netflix.hollow.core.schema.HollowSchema;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The HollowFilterConfigGenerator derives an <i>include</i> {@link HollowFilterConfig} from the field accesses recorded by the
+ * samplers of a {@link HollowReadStateEngine}.
+ * <p>
+ * Sampling must be enabled on the state engine's type states (e.g. with an 
+ * {@link com.netflix.hollow.api.sampling.EnabledSamplingDirector}).  Call {@link #collectSampleResults(HollowReadStateEngine)} 
+ * periodically over a window of time which is representative of the consumer's usage.  The state engine may change (e.g. after a 
+ * double snapshot) during the window.
+ * <p>
+ * The generated config includes:
+ * <ul>
+ * <li>each OBJECT field which was accessed, and each field in the primary key of an included type,</li>
+ * <li>each LIST, SET, or MAP type which was accessed, and</li>
+ * <li>the closure of types referenced by each of the above.  Referenced OBJECT types for which no field access was recorded are
+ * included in their entirety.</li>
+ * </ul>
+ * Any field which is only accessed rarely may not be recorded during the window, so the generated config should be reviewed
+ * before it is used.
+ */
+public class HollowFilterConfigGenerator {
+
+    private final Map<String, Long> sampleCounts;
+
+    public HollowFilterConfigGenerator() {
+        this.sampleCounts = new HashMap<String, Long>();
+    }
+
+    /**
+     * Collect the sample results currently recorded for each type in the provided state engine.  The samplers are not reset.
+     */
+    public void collectSampleResults(HollowReadStateEngine stateEngine) {
+        for(HollowTypeReadState typeState : stateEngine.getTypeStates()) {
+            for(SampleResult result : typeState.getSampler().getSampleResults()) {
+                Long count = sampleCounts.get(result.getIdentifier());
+                if(count == null || count.longValue() < result.getNumSamples())
+                    sampleCounts.put(result.getIdentifier(), result.getNumSamples());
+            }
+        }
+    }
+
+    /**
+     * @return whether any access has been recorded by the collected sample results.
+     */
+    public boolean hasSampleResults() {
+        for(Long count : sampleCounts.values()) {
+            if(count.longValue() > 0)
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Generate an include filter from the sample results collected so far.
+     * 
+     * @param stateEngine a state engine with the current data model, against which the filter will be applied
+     * @throws IllegalStateException if no access has been recorded, which most likely indicates that sampling was not enabled.
+     */
+    public HollowFilterConfig generateFilterConfig(HollowReadStateEngine stateEngine) {
+        if(!hasSampleResults())
+            throw new IllegalStateException("No sampled accesses have been collected; is sampling enabled?");
+
+        Map<String, HollowSchema> schemas = new HashMap<String, HollowSchema>();
+        for(HollowSchema schema : stateEngine.getSchemas())
+            schemas.put(schema.getName(), schema);
+
+        HollowFilterConfig filter = new HollowFilterConfig(false);
+        Set<String> includedTypes = new HashSet<String>();
+
+        for(HollowSchema schema : schemas.values()) {
+            if(wasAccessed(schema))
+                includeType(stateEngine, schema.getName(), schemas, filter, includedTypes);
+        }
+
+        return filter;
+    }
+
+    private boolean wasAccessed(HollowSchema schema) {
+        if(schema instanceof HollowObjectSchema) {
+            HollowObjectSchema objSchema = (HollowObjectSchema)schema;
+            for(int i=0;i<objSchema.numFields();i++) {
+                if(wasAccessed(schema.getName() + "." + objSchema.getFieldName(i)))
+                    return true;
+            }
+            return false;
+        }
+
+        return wasAccessed(schema.getName() + ".size()")
+            || wasAccessed(schema.getName() + ".get()")
+            || wasAccessed(schema.getName() + ".iterator()")
+            || wasAccessed(schema.getName() + ".bucketValue()");
+    }
+
+    private boolean wasAccessed(String identifier) {
+        Long count = sampleCounts.get(identifier);
+        return count != null && count.longValue() > 0;
+    }
+
+    private void includeType(HollowReadStateEngine stateEngine, String type, Map<String, HollowSchema> schemas, HollowFilterConfig filter, Set<String> includedTypes) {
+        if(!includedTypes.add(type))
+            return;
+
+        HollowSchema schema = schemas.get(type);
+
+        switch(schema.getSchemaType()) {
+        case OBJECT:
+            HollowObjectSchema objSchema = (HollowObjectSchema)schema;
+            boolean includeAllFields = !wasAccessed(schema);
+
+            for(int i=0;i<objSchema.numFields();i++) {
+                if(includeAllFields || wasAccessed(type + "." + objSchema.getFieldName(i)))
+                    includeField(stateEngine, objSchema, i, schemas, filter, includedTypes);
+            }
+
+            if(objSchema.getPrimaryKey() != null)
+                includePrimaryKey(stateEngine, objSchema.getPrimaryKey(), schemas, filter, includedTypes);
+            break;
+        case LIST:
+        case SET:
+            filter.addType(type);
+            includeType(stateEngine, ((HollowCollectionSchema)schema).getElementType(), schemas, filter, includedTypes);
+            break;
+        case MAP:
+            filter.addType(type);
+            includeType(stateEngine, ((HollowMapSchema)schema).getKeyType(), schemas, filter, includedTypes);
+            includeType(stateEngine, ((HollowMapSchema)schema).getValueType(), schemas, filter, includedTypes);
+            break;
+        }
+    }
+
+    private void includeField(HollowReadStateEngine stateEngine, HollowObjectSchema schema, int fieldIdx, Map<String, HollowSchema> schemas, HollowFilterConfig filter, Set<String> includedTypes) {
+        filter.addField(schema.getName(), schema.getFieldName(fieldIdx));
+        if(schema.getFieldType(fieldIdx) == FieldType.REFERENCE)
+            includeType(stateEngine, schema.getReferencedType(fieldIdx), schemas, filter, includedTypes);
+    }
+
+    /**
+     * Primary key fields are always retained, so that primary key indexes may be created for included types.
+     */
+    private void includePrimaryKey(HollowReadStateEngine stateEngine, PrimaryKey primaryKey, Map<String, HollowSchema> schemas, HollowFilterConfig filter, Set<String> includedTypes) {
+        for(int i=0;i<primaryKey.numFields();i++) {
+            int fieldPathIdx[] = primaryKey.getFieldPathIndex(stateEngine, i);
+            HollowObjectSchema schema = (HollowObjectSchema)schemas.get(primaryKey.getType());
+            for(int j=0;j<fieldPathIdx.length;j++) {
+                includeField(stateEngine, schema, fieldPathIdx[j], schemas, filter, includedTypes);
+                if(j < fieldPathIdx.length - 1)
+                    schema = (HollowObjectSchema)schemas.get(schema.getReferencedType(fieldPathIdx[j]));
+            }
+        }
+    }
+
+    /**
+     * Project the reduction in heap footprint which would result from applying the provided filter to the provided state engine.
+     * <p>
+     * Excluded types contribute their entire approximate heap footprint.  Types with excluded fields contribute the share of their
+     * footprint proportional to the fixed-length bits required for the excluded fields, so the savings from excluded STRING and
+     * BYTES fields are underestimated.
+     * <p>
+     * Only the types which have been materialized in the state engine are considered.
+     */
+    public static long projectHeapFootprintReductionInBytes(HollowReadStateEngine stateEngine, HollowFilterConfig filter) {
+        long reduction = 0;
+
+        for(HollowTypeReadState typeState : stateEngine.getTypeStates()) {
+            String type = typeState.getSchema().getName();
+            long footprint = typeState.getApproximateHeapFootprintInBytes();
+
+            if(!filter.doesIncludeType(type)) {
+                reduction += footprint;
+            } else if(typeState instanceof HollowObjectTypeReadState) {
+                HollowObjectTypeReadState objectTypeState = (HollowObjectTypeReadState)typeState;
+                HollowObjectSchema schema = objectTypeState.getSchema();
+                ObjectFilterConfig typeConfig = filter.getObjectTypeConfig(type);
+
+                long totalBits = 0;
+                long excludedBits = 0;
+                for(int i=0;i<schema.numFields();i++) {
+                    int fieldBits = objectTypeState.bitsRequiredForField(schema.getFieldName(i));
+                    totalBits += fieldBits;
+                    if(!typeConfig.includesField(schema.getFieldName(i)))
+                        excludedBits += fieldBits;
+                }
+
+                if(totalBits > 0)
+                    reduction += footprint * excludedBits / totalBits;
+            }
+        }
+
+        return reduction;
+    }
+
+}
@@ -0,0 +1,241 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.client;
+
+import com.netflix.hollow.api.consumer.HollowConsumer;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowBlobPrefetcherTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void prefetchesWithinWindow() throws Exception {
+        AtomicInteger numFetched = new AtomicInteger();
+        CountDownLatch firstDeltasFetched = new CountDownLatch(2);
+
+        HollowUpdatePlan plan = new HollowUpdatePlan();
+        plan.add(new TestBlob(Long.MIN_VALUE, 1, data(1, 100), numFetched, null));
+        for(int i=1;i<6;i++)
+            plan.add(new TestBlob(i, i + 1, data(i + 1, 100), numFetched, i <= 2 ? firstDeltasFetched : null));
+
+        HollowBlobPrefetcher.PrefetchedPlan prefetchedPlan = new HollowBlobPrefetcher(executor, 2).prefetch(plan);
+
+        try {
+            /// the two subsequent blobs are fetched while the first transition is outstanding
+            Assert.assertTrue(firstDeltasFetched.await(5, TimeUnit.SECONDS));
+
+            for(int i=0;i<6;i++) {
+                InputStream is = prefetchedPlan.getInputStream(i);
+                Assert.assertArrayEquals(data(i + 1, 100), readFully(is));
+                is.close();
+                Assert.assertTrue(numFetched.get() <= i + 3);
+            }
+
+            Assert.assertEquals(6, numFetched.get());
+        } finally {
+            prefetchedPlan.close();
+        }
+    }
+
+    @Test
+    public void spillsLargeBlobsToTemporaryFiles() throws Exception {
+        File tempDir = File.createTempFile("hollow-prefetch", "");
+        tempDir.delete();
+        tempDir.mkdir();
+
+        try {
+            HollowUpdatePlan plan = new HollowUpdatePlan();
+            plan.add(new TestBlob(1, 2, data(2, 10), new AtomicInteger(), null));
+            plan.add(new TestBlob(2, 3, data(3, 100000), new AtomicInteger(), null));
+
+            HollowBlobPrefetcher.PrefetchedPlan prefetchedPlan = new HollowBlobPrefetcher(executor, 1, 1024, tempDir).prefetch(plan);
+            try {
+                readFully(prefetchedPlan.getInputStream(0));
+                InputStream is = prefetchedPlan.getInputStream(1);
+                Assert.assertEquals(1, tempDir.listFiles().length);
+                Assert.assertArrayEquals(data(3, 100000), readFully(is));
+                is.close();
+                Assert.assertEquals(0, tempDir.listFiles().length);
+            } finally {
+                prefetchedPlan.close();
+            }
+        } finally {
+            for(File f : tempDir.listFiles())
+                f.delete();
+            tempDir.delete();
+        }
+    }
+
+    @Test
+    public void failuresAreReportedWhenTransitionIsOpened() throws Exception {
+        HollowUpdatePlan plan = new HollowUpdatePlan();
+        plan.add(new TestBlob(1, 2, data(2, 10), new AtomicInteger(), null));
+        plan.add(new HollowConsumer.Blob(2, 3) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                throw new IOException("unavailable");
+            }
+        });
+
+        HollowBlobPrefetcher.PrefetchedPlan prefetchedPlan = new HollowBlobPrefetcher(executor, 4).prefetch(plan);
+        try {
+            readFully(prefetchedPlan.getInputStream(0));
+            prefetchedPlan.getInputStream(1);
+            Assert.fail();
+        } catch(IOException expected) {
+            Assert.assertEquals("unavailable", expected.getMessage());
+        } finally {
+            prefetchedPlan.close();
+        }
+    }
+
+    @Test
+    public void consumerAppliesPrefetchedDeltas() throws Exception {
+        final Map<Long, byte[]> snapshots = new HashMap<Long, byte[]>();
+        final Map<Long, byte[]> deltas = new HashMap<Long, byte[]>();
+
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+
+        for(long version=1;version<=10;version++) {
+            for(int i=0;i<100;i++)
+                mapper.add(new TypeA(i, version * i));
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            if(version == 1) {
+                writer.writeSnapshot(baos);
+                snapshots.put(version, baos.toByteArray());
+            } else {
+                writer.writeDelta(baos);
+                deltas.put(version - 1, baos.toByteArray());
+            }
+            writeEngine.prepareForNextCycle();
+        }
+
+        HollowConsumer.BlobRetriever retriever = new HollowConsumer.BlobRetriever() {
+            public HollowConsumer.Blob retrieveSnapshotBlob(long desiredVersion) {
+                return new TestBlob(Long.MIN_VALUE, 1, snapshots.get(1L), new AtomicInteger(), null);
+            }
+
+            public HollowConsumer.Blob retrieveDeltaBlob(long currentVersion) {
+                byte[] delta = deltas.get(currentVersion);
+                return delta == null ? null : new TestBlob(currentVersion, currentVersion + 1, delta, new AtomicInteger(), null);
+            }
+
+            public HollowConsumer.Blob retrieveReverseDeltaBlob(long currentVersion) {
+                return null;
+            }
+        };
+
+        HollowConsumer consumer = HollowConsumer.withBlobRetriever(retriever)
+                                                .withBlobPrefetching(executor, 3)
+                                                .build();
+
+        consumer.triggerRefreshTo(10);
+
+        Assert.assertEquals(10, consumer.getCurrentVersionId());
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState)consumer.getStateEngine().getTypeState("TypeA");
+        BitSet populatedOrdinals = typeState.getPopulatedOrdinals();
+        Assert.assertEquals(100, populatedOrdinals.cardinality());
+        for(int ordinal = populatedOrdinals.nextSetBit(0); ordinal != -1; ordinal = populatedOrdinals.nextSetBit(ordinal + 1)) {
+            int id = typeState.readInt(ordinal, typeState.getSchema().getPosition("id"));
+            Assert.assertEquals(10L * id, typeState.readLong(ordinal, typeState.getSchema().getPosition("value")));
+        }
+    }
+
+    private static byte[] data(int seed, int length) {
+        byte[] data = new byte[length];
+        for(int i=0;i<length;i++)
+            data[i] = (byte)(seed * 31 + i);
+        return data;
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while((n = is.read(buf)) != -1)
+            baos.write(buf, 0, n);
+        return baos.toByteArray();
+    }
+
+    private static class TestBlob extends HollowConsumer.Blob {
+        private final byte[] data;
+        private final AtomicInteger numFetched;
+        private final CountDownLatch fetchLatch;
+
+        TestBlob(long fromVersion, long toVersion, byte[] data, AtomicInteger numFetched, CountDownLatch fetchLatch) {
+            super(fromVersion, toVersion);
+            this.data = data;
+            this.numFetched = numFetched;
+            this.fetchLatch = fetchLatch;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            numFetched.incrementAndGet();
+            if(fetchLatch != null)
+                fetchLatch.countDown();
+            return new ByteArrayInputStream(data);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class TypeA {
+        int id;
+        long value;
+
+        public TypeA(int id, long value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+}
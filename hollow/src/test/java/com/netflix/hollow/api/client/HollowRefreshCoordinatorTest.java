@@ -0,0 +1,266 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.client;
+
+import com.netflix.hollow.api.consumer.HollowConsumer;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowRefreshCoordinatorTest {
+
+    private ExecutorService refreshExecutor;
+    private CountDownLatch refreshGate;
+    private CountDownLatch snapshotRetrievalStarted;
+    private CountDownLatch snapshotRetrievalGate;
+
+    private Map<Long, byte[]> snapshots;
+    private Map<Long, byte[]> deltas;
+    private AtomicInteger numSnapshotsRetrieved;
+    private AtomicInteger numRefreshesScheduled;
+    private HollowConsumer consumer;
+
+    @Before
+    public void setUp() throws IOException {
+        refreshExecutor = Executors.newSingleThreadExecutor();
+        refreshGate = new CountDownLatch(1);
+        snapshotRetrievalStarted = new CountDownLatch(1);
+        snapshotRetrievalGate = new CountDownLatch(0);
+        numSnapshotsRetrieved = new AtomicInteger();
+        numRefreshesScheduled = new AtomicInteger();
+        snapshots = new HashMap<Long, byte[]>();
+        deltas = new HashMap<Long, byte[]>();
+
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+
+        for(long version=1;version<=3;version++) {
+            for(int i=0;i<10;i++)
+                mapper.add(new TypeA(i, version * i));
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            if(version == 1) {
+                writer.writeSnapshot(baos);
+                snapshots.put(version, baos.toByteArray());
+            } else {
+                writer.writeDelta(baos);
+                deltas.put(version - 1, baos.toByteArray());
+            }
+            writeEngine.prepareForNextCycle();
+        }
+
+        HollowConsumer.BlobRetriever retriever = new HollowConsumer.BlobRetriever() {
+            public HollowConsumer.Blob retrieveSnapshotBlob(long desiredVersion) {
+                numSnapshotsRetrieved.incrementAndGet();
+                snapshotRetrievalStarted.countDown();
+                try {
+                    snapshotRetrievalGate.await();
+                } catch(InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+                byte[] snapshot = snapshots.get(1L);
+                return snapshot == null ? null : new TestBlob(Long.MIN_VALUE, 1, snapshot);
+            }
+
+            public HollowConsumer.Blob retrieveDeltaBlob(long currentVersion) {
+                byte[] delta = deltas.get(currentVersion);
+                return delta == null ? null : new TestBlob(currentVersion, currentVersion + 1, delta);
+            }
+
+            public HollowConsumer.Blob retrieveReverseDeltaBlob(long currentVersion) {
+                return null;
+            }
+        };
+
+        consumer = HollowConsumer.withBlobRetriever(retriever)
+                                 .withRefreshExecutor(new Executor() {
+                                     public void execute(Runnable command) {
+                                         numRefreshesScheduled.incrementAndGet();
+                                         refreshExecutor.execute(command);
+                                     }
+                                 })
+                                 .build();
+
+        /// hold the refresh thread until the test releases it, so that requests queue up behind it
+        refreshExecutor.execute(new Runnable() {
+            public void run() {
+                try {
+                    refreshGate.await();
+                } catch(InterruptedException ignore) { }
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        refreshGate.countDown();
+        refreshExecutor.shutdownNow();
+    }
+
+    @Test
+    public void mergesConcurrentRequestsForTheSameVersion() throws Exception {
+        HollowRefreshFuture f1 = consumer.refreshToAsync(3);
+        HollowRefreshFuture f2 = consumer.refreshToAsync(3);
+        HollowRefreshFuture f3 = consumer.refreshToAsync(3);
+
+        refreshGate.countDown();
+
+        Assert.assertEquals(3L, f1.get(5, TimeUnit.SECONDS).longValue());
+        Assert.assertEquals(3L, f2.get(5, TimeUnit.SECONDS).longValue());
+        Assert.assertEquals(3L, f3.get(5, TimeUnit.SECONDS).longValue());
+        Assert.assertEquals(1, numSnapshotsRetrieved.get());
+        Assert.assertEquals(3, consumer.getCurrentVersionId());
+    }
+
+    @Test
+    public void cancellingAllRequestsAbandonsUnstartedRefresh() throws Exception {
+        HollowRefreshFuture f1 = consumer.refreshToAsync(2);
+        HollowRefreshFuture f2 = consumer.refreshToAsync(2);
+
+        Assert.assertTrue(f1.cancel(false));
+        Assert.assertTrue(f1.isCancelled());
+        Assert.assertTrue(f1.isDone());
+        Assert.assertFalse(f2.isDone());
+
+        try {
+            f1.get();
+            Assert.fail();
+        } catch(CancellationException expected) { }
+
+        Assert.assertTrue(f2.cancel(true));
+
+        refreshGate.countDown();
+        HollowRefreshFuture f3 = consumer.refreshToAsync(1);
+        Assert.assertEquals(1L, f3.get(5, TimeUnit.SECONDS).longValue());
+
+        /// the abandoned refresh to version 2 never ran
+        Assert.assertEquals(1, numSnapshotsRetrieved.get());
+        Assert.assertEquals(1, consumer.getCurrentVersionId());
+    }
+
+    @Test
+    public void cancellingAllRequestsDoesNotAbandonStartedRefresh() throws Exception {
+        snapshotRetrievalGate = new CountDownLatch(1);
+
+        HollowRefreshFuture f1 = consumer.refreshToAsync(1);
+        refreshGate.countDown();
+        Assert.assertTrue(snapshotRetrievalStarted.await(5, TimeUnit.SECONDS));
+
+        Assert.assertTrue(f1.cancel(false));
+        Assert.assertTrue(f1.isDone());
+
+        /// the started refresh is still in flight, so a new request for the same version is merged into it
+        HollowRefreshFuture f2 = consumer.refreshToAsync(1);
+        Assert.assertFalse(f2.isDone());
+
+        snapshotRetrievalGate.countDown();
+        Assert.assertEquals(1L, f2.get(5, TimeUnit.SECONDS).longValue());
+        Assert.assertEquals(1, numRefreshesScheduled.get());
+        Assert.assertEquals(1, numSnapshotsRetrieved.get());
+        Assert.assertEquals(1, consumer.getCurrentVersionId());
+    }
+
+    @Test
+    public void supportsTimeoutsAndListeners() throws Exception {
+        HollowRefreshFuture future = consumer.refreshToAsync(2);
+
+        try {
+            future.get(10, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch(TimeoutException expected) { }
+
+        final CountDownLatch listenerCalled = new CountDownLatch(1);
+        future.addListener(new Runnable() {
+            public void run() {
+                listenerCalled.countDown();
+            }
+        }, new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+
+        refreshGate.countDown();
+
+        Assert.assertTrue(listenerCalled.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(future.isDone());
+        Assert.assertFalse(future.cancel(false));
+        Assert.assertEquals(2L, future.get().longValue());
+    }
+
+    @Test
+    public void reportsFailedRefreshes() throws Exception {
+        snapshots.clear();
+
+        HollowRefreshFuture future = consumer.refreshToAsync(1);
+        refreshGate.countDown();
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch(ExecutionException expected) { }
+
+        Assert.assertEquals(Long.MIN_VALUE, consumer.getCurrentVersionId());
+    }
+
+    private static class TestBlob extends HollowConsumer.Blob {
+        private final byte[] data;
+
+        TestBlob(long fromVersion, long toVersion, byte[] data) {
+            super(fromVersion, toVersion);
+            this.data = data;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ByteArrayInputStream(data);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class TypeA {
+        int id;
+        long value;
+
+        public TypeA(int id, long value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+}
@@ -28,11 +28,23 @@ class FakeBlob extends Blob {
         super(toVersion);
     }
 
+    private long sizeInBytes = -1;
+
     public FakeBlob(long fromVersion, long toVersion) {
         super(fromVersion, toVersion);
     }
 
+    public FakeBlob(long fromVersion, long toVersion, long sizeInBytes) {
+        super(fromVersion, toVersion);
+        this.sizeInBytes = sizeInBytes;
+    }
+
     public InputStream getInputStream() throws IOException {
         return null;
     }
+
+    @Override
+    public long getSizeInBytes() {
+        return sizeInBytes;
+    }
 }
\ No newline at end of file
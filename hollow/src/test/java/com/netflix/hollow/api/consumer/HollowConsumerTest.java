@@ -0,0 +1,45 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.consumer;
+
+import com.netflix.hollow.api.client.HollowAPIFactory;
+import com.netflix.hollow.core.util.DefaultHashCodeFinder;
+import java.util.ArrayList;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HollowConsumerTest {
+
+    @Test
+    public void legacyConstructorUsesArgumentsAsProvided() {
+        HollowConsumer consumer = new HollowConsumer(null, null, new ArrayList<HollowConsumer.RefreshListener>(), 
+                                                     HollowAPIFactory.DEFAULT_FACTORY, null, 
+                                                     HollowConsumer.ObjectLongevityConfig.DEFAULT_CONFIG, 
+                                                     HollowConsumer.ObjectLongevityDetector.DEFAULT_DETECTOR, 
+                                                     HollowConsumer.DoubleSnapshotConfig.DEFAULT_CONFIG, 
+                                                     DefaultHashCodeFinder.INSTANCE, null);
+
+        Assert.assertEquals(Long.MIN_VALUE, consumer.getCurrentVersionId());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void builderRequiresBlobRetriever() {
+        new HollowConsumer.Builder().build();
+    }
+
+}
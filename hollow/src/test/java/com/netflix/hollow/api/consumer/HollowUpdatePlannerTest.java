@@ -17,6 +17,7 @@
  */
 package com.netflix.hollow.api.consumer;
 
+import com.netflix.hollow.api.client.HollowUpdateCostEstimator;
 import com.netflix.hollow.api.client.HollowUpdatePlan;
 import com.netflix.hollow.api.client.HollowUpdatePlanner;
 import com.netflix.hollow.api.consumer.HollowConsumer.Blob;
@@ -27,12 +28,13 @@ import org.junit.Test;
 public class HollowUpdatePlannerTest {
 
     FakeBlobRetriever mockTransitionCreator;
+    HollowConsumer.DoubleSnapshotConfig doubleSnapshotConfig;
     HollowUpdatePlanner planner;
 
     @Before
     public void setUp() {
         mockTransitionCreator = new FakeBlobRetriever();
-        planner = new HollowUpdatePlanner(mockTransitionCreator, new HollowConsumer.DoubleSnapshotConfig() {
+        doubleSnapshotConfig = new HollowConsumer.DoubleSnapshotConfig() {
             @Override
             public int maxDeltasBeforeDoubleSnapshot() {
                 return 3;
@@ -42,7 +44,8 @@ public class HollowUpdatePlannerTest {
             public boolean allowDoubleSnapshot() {
                 return true;
             }
-        });
+        };
+        planner = new HollowUpdatePlanner(mockTransitionCreator, doubleSnapshotConfig);
     }
 
     @Test
@@ -260,6 +263,85 @@ public class HollowUpdatePlannerTest {
         assertTransition(plan.getTransition(1), 1, 2);
     }
 
+    @Test
+    public void costBasedPlanningPrefersCheaperDoubleSnapshot() throws Exception {
+        planner = new HollowUpdatePlanner(mockTransitionCreator, doubleSnapshotConfig, new HollowUpdateCostEstimator());
+
+        addMockSnapshot(4, 4, 1000);
+        addMockDelta(1, 2, 800);
+        addMockDelta(2, 3, 800);
+        addMockDelta(3, 4, 800);
+
+        HollowUpdatePlan plan = planner.planUpdate(1, 4, true);
+
+        Assert.assertEquals(1, plan.numTransitions());
+        assertTransition(plan.getTransition(0), Long.MIN_VALUE, 4);
+    }
+
+    @Test
+    public void costBasedPlanningPrefersCheaperDeltas() throws Exception {
+        planner = new HollowUpdatePlanner(mockTransitionCreator, doubleSnapshotConfig, new HollowUpdateCostEstimator());
+
+        addMockSnapshot(4, 4, 1000);
+        addMockDelta(1, 2, 100);
+        addMockDelta(2, 3, 100);
+        addMockDelta(3, 4, 100);
+
+        HollowUpdatePlan plan = planner.planUpdate(1, 4, true);
+
+        Assert.assertEquals(3, plan.numTransitions());
+        assertTransition(plan.getTransition(0), 1, 2);
+    }
+
+    @Test
+    public void costBasedPlanningAccountsForMeasuredThroughput() throws Exception {
+        HollowUpdateCostEstimator estimator = new HollowUpdateCostEstimator();
+        /// snapshots are measured to apply at 10 bytes/ns, deltas at 1 byte/ns
+        estimator.recordTransition(new FakeBlob(Long.MIN_VALUE, 1, 10000), 1000);
+        estimator.recordTransition(new FakeBlob(1, 2, 1000), 1000);
+        planner = new HollowUpdatePlanner(mockTransitionCreator, doubleSnapshotConfig, estimator);
+
+        addMockSnapshot(4, 4, 5000);
+        addMockDelta(1, 2, 800);
+        addMockDelta(2, 3, 800);
+        addMockDelta(3, 4, 800);
+
+        HollowUpdatePlan plan = planner.planUpdate(1, 4, true);
+
+        Assert.assertEquals(1, plan.numTransitions());
+        assertTransition(plan.getTransition(0), Long.MIN_VALUE, 4);
+        Assert.assertEquals(500d, estimator.estimateCost(plan), 0.001d);
+    }
+
+    @Test
+    public void costBasedPlanningFollowsDeltasWhenSizesAreUnknown() throws Exception {
+        planner = new HollowUpdatePlanner(mockTransitionCreator, doubleSnapshotConfig, new HollowUpdateCostEstimator());
+
+        addMockSnapshot(4, 4, 1);
+        addMockDelta(1, 2);
+        addMockDelta(2, 3, 800);
+        addMockDelta(3, 4, 800);
+
+        HollowUpdatePlan plan = planner.planUpdate(1, 4, true);
+
+        Assert.assertEquals(3, plan.numTransitions());
+        assertTransition(plan.getTransition(0), 1, 2);
+    }
+
+    @Test
+    public void costBasedPlanningDoesNotDoubleSnapshotIfNotAllowed() throws Exception {
+        planner = new HollowUpdatePlanner(mockTransitionCreator, doubleSnapshotConfig, new HollowUpdateCostEstimator());
+
+        addMockSnapshot(4, 4, 1000);
+        addMockDelta(1, 2, 800);
+        addMockDelta(2, 3, 800);
+        addMockDelta(3, 4, 800);
+
+        HollowUpdatePlan plan = planner.planUpdate(1, 4, false);
+
+        Assert.assertEquals(3, plan.numTransitions());
+    }
+
 
     private void assertTransition(HollowConsumer.Blob transition, long expectedFrom, long expectedTo) {
         Assert.assertEquals(transition.getFromVersion(), expectedFrom);
@@ -279,6 +361,14 @@ public class HollowUpdatePlannerTest {
         mockTransitionCreator.addDelta(fromVersion, result);
     }
 
+    private void addMockSnapshot(long desiredVersion, long actualVersion, long sizeInBytes) {
+        mockTransitionCreator.addSnapshot(desiredVersion, new FakeBlob(Long.MIN_VALUE, actualVersion, sizeInBytes));
+    }
+
+    private void addMockDelta(long fromVersion, long toVersion, long sizeInBytes) {
+        mockTransitionCreator.addDelta(fromVersion, new FakeBlob(fromVersion, toVersion, sizeInBytes));
+    }
+
     private void addMockReverseDelta(long fromVersion, long toVersion) {
         Blob result = new FakeBlob(fromVersion, toVersion);
 
@@ -0,0 +1,158 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.consumer.fs;
+
+import com.netflix.hollow.api.consumer.HollowConsumer;
+import com.netflix.hollow.api.producer.HollowProducer;
+import com.netflix.hollow.api.producer.fs.HollowFilesystemAnnouncer;
+import com.netflix.hollow.api.producer.fs.HollowFilesystemPublisher;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowFilesystemAnnouncementWatcherTest {
+
+    /// long enough that only watch events can account for an announcement being observed during a test
+    private static final long LONG_POLLING_INTERVAL_MILLIS = 10 * 60 * 1000;
+
+    private File publishDir;
+    private List<HollowFilesystemAnnouncementWatcher> watchers;
+
+    @Before
+    public void setUp() throws IOException {
+        publishDir = Files.createTempDirectory("hollow-publish").toFile();
+        watchers = new ArrayList<HollowFilesystemAnnouncementWatcher>();
+    }
+
+    @After
+    public void tearDown() {
+        for(HollowFilesystemAnnouncementWatcher watcher : watchers)
+            watcher.close();
+        for(File f : publishDir.listFiles())
+            f.delete();
+        publishDir.delete();
+    }
+
+    @Test
+    public void observesAnnouncementsViaWatchEvents() throws Exception {
+        HollowFilesystemAnnouncer announcer = new HollowFilesystemAnnouncer(publishDir);
+        HollowFilesystemAnnouncementWatcher watcher = newWatcher(true, LONG_POLLING_INTERVAL_MILLIS);
+
+        Assert.assertEquals(HollowConsumer.AnnouncementWatcher.NO_ANNOUNCEMENT_AVAILABLE, watcher.getLatestVersion());
+
+        announcer.announce(5);
+        awaitLatestVersion(watcher, 5);
+
+        announcer.announce(6);
+        awaitLatestVersion(watcher, 6);
+    }
+
+    @Test
+    public void observesAnnouncementsViaPolling() throws Exception {
+        HollowFilesystemAnnouncer announcer = new HollowFilesystemAnnouncer(publishDir);
+        announcer.announce(1);
+
+        HollowFilesystemAnnouncementWatcher watcher = newWatcher(false, 10);
+        Assert.assertEquals(1, watcher.getLatestVersion());
+
+        announcer.announce(2);
+        awaitLatestVersion(watcher, 2);
+    }
+
+    @Test
+    public void refreshesSubscribedConsumers() throws Exception {
+        HollowProducer producer = HollowProducer.withPublisher(new HollowFilesystemPublisher(publishDir))
+                                                .withAnnouncer(new HollowFilesystemAnnouncer(publishDir))
+                                                .build();
+
+        HollowFilesystemBlobRetriever blobRetriever = new HollowFilesystemBlobRetriever(publishDir);
+        HollowConsumer consumer = HollowConsumer.withBlobRetriever(blobRetriever)
+                                                .withAnnouncementWatcher(newWatcher(true, LONG_POLLING_INTERVAL_MILLIS))
+                                                .build();
+
+        try {
+            for(int cycle=1;cycle<=2;cycle++) {
+                final int numRecords = cycle * 10;
+                producer.runCycle(new HollowProducer.Populator() {
+                    public void populate(HollowProducer.WriteState newState) throws Exception {
+                        for(int i=0;i<numRecords;i++)
+                            newState.add(new TypeA(i));
+                    }
+                });
+
+                long deadline = System.currentTimeMillis() + 10000;
+                while(consumer.getCurrentVersionId() == Long.MIN_VALUE
+                        || consumer.getStateEngine().getTypeState("TypeA").getPopulatedOrdinals().cardinality() != numRecords) {
+                    Assert.assertTrue("consumer was not refreshed", System.currentTimeMillis() < deadline);
+                    Thread.sleep(5);
+                }
+            }
+        } finally {
+            blobRetriever.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNonPositivePollingInterval() {
+        new HollowFilesystemAnnouncementWatcher(publishDir, false, 0);
+    }
+
+    @Test
+    public void stopsWatchingWhenClosed() throws Exception {
+        HollowFilesystemAnnouncer announcer = new HollowFilesystemAnnouncer(publishDir);
+        announcer.announce(1);
+
+        HollowFilesystemAnnouncementWatcher watcher = newWatcher(true, 10);
+        watcher.close();
+        Thread.sleep(100);
+
+        announcer.announce(2);
+        Thread.sleep(100);
+        Assert.assertEquals(1, watcher.getLatestVersion());
+    }
+
+    private HollowFilesystemAnnouncementWatcher newWatcher(boolean watchForEvents, long pollingIntervalMillis) {
+        HollowFilesystemAnnouncementWatcher watcher = new HollowFilesystemAnnouncementWatcher(publishDir, watchForEvents, pollingIntervalMillis);
+        watchers.add(watcher);
+        return watcher;
+    }
+
+    private static void awaitLatestVersion(HollowFilesystemAnnouncementWatcher watcher, long expectedVersion) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while(watcher.getLatestVersion() != expectedVersion) {
+            Assert.assertTrue("announcement was not observed", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class TypeA {
+        int id;
+
+        public TypeA(int id) {
+            this.id = id;
+        }
+    }
+
+}
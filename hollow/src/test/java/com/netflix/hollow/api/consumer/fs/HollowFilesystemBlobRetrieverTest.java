@@ -0,0 +1,196 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.consumer.fs;
+
+import com.netflix.hollow.api.consumer.HollowConsumer;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowFilesystemBlobRetrieverTest {
+
+    private File blobStoreDir;
+    private HollowFilesystemBlobRetriever retriever;
+
+    @Before
+    public void setUp() throws IOException {
+        blobStoreDir = Files.createTempDirectory("hollow-blob-store").toFile();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if(retriever != null)
+            retriever.close();
+        for(File f : blobStoreDir.listFiles())
+            f.delete();
+        blobStoreDir.delete();
+    }
+
+    @Test
+    public void retrievesIndexedBlobs() throws IOException {
+        writeFile("snapshot-1");
+        writeFile("snapshot-5");
+        writeFile("delta-1-2");
+        writeFile("delta-12-13");
+        writeFile("reversedelta-2-1");
+        writeFile("announced.version");
+
+        retriever = new HollowFilesystemBlobRetriever(blobStoreDir);
+
+        assertBlob(retriever.retrieveSnapshotBlob(4), Long.MIN_VALUE, 1);
+        assertBlob(retriever.retrieveSnapshotBlob(5), Long.MIN_VALUE, 5);
+        assertBlob(retriever.retrieveSnapshotBlob(100), Long.MIN_VALUE, 5);
+        Assert.assertNull(retriever.retrieveSnapshotBlob(0));
+
+        assertBlob(retriever.retrieveDeltaBlob(1), 1, 2);
+        assertBlob(retriever.retrieveDeltaBlob(12), 12, 13);
+        Assert.assertNull(retriever.retrieveDeltaBlob(2));
+
+        assertBlob(retriever.retrieveReverseDeltaBlob(2), 2, 1);
+        Assert.assertNull(retriever.retrieveReverseDeltaBlob(1));
+
+        Assert.assertEquals(4, retriever.retrieveDeltaBlob(1).getSizeInBytes());
+    }
+
+    @Test
+    public void retrievesBlobsWrittenByOtherWriters() throws IOException {
+        writeFile("snapshot-1");
+
+        retriever = new HollowFilesystemBlobRetriever(blobStoreDir);
+        Assert.assertNull(retriever.retrieveDeltaBlob(1));
+
+        writeFile("delta-1-2");
+        writeFile("snapshot-2");
+        assertBlob(retriever.retrieveDeltaBlob(1), 1, 2);
+        assertBlob(retriever.retrieveSnapshotBlob(2), Long.MIN_VALUE, 2);
+
+        new File(blobStoreDir, "delta-1-2").delete();
+        Assert.assertNull(retriever.retrieveDeltaBlob(1));
+    }
+
+    @Test
+    public void doesNotRescanForSnapshotWhenAnEarlierSnapshotIsIndexed() throws IOException {
+        writeFile("snapshot-1");
+
+        retriever = new HollowFilesystemBlobRetriever(blobStoreDir);
+        Assert.assertFalse(retriever.getIndex().isWatching());
+        assertBlob(retriever.retrieveSnapshotBlob(2), Long.MIN_VALUE, 1);
+
+        writeFile("snapshot-2");
+        assertBlob(retriever.retrieveSnapshotBlob(2), Long.MIN_VALUE, 1);
+
+        retriever.getIndex().rescan();
+        assertBlob(retriever.retrieveSnapshotBlob(2), Long.MIN_VALUE, 2);
+    }
+
+    @Test
+    public void watchesForBlobsWrittenByOtherWritersWhenAsked() throws Exception {
+        writeFile("snapshot-1");
+
+        retriever = new HollowFilesystemBlobRetriever(blobStoreDir).startWatching();
+        Assert.assertTrue(retriever.getIndex().isWatching());
+
+        writeFile("snapshot-2");
+        long deadline = System.currentTimeMillis() + 10000;
+        while(retriever.retrieveSnapshotBlob(2).getToVersion() != 2 && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertBlob(retriever.retrieveSnapshotBlob(2), Long.MIN_VALUE, 2);
+
+        retriever.close();
+        Assert.assertFalse(retriever.getIndex().isWatching());
+    }
+
+    @Test
+    public void copiesRemoteBlobsAndAppliesRetention() throws IOException {
+        HollowConsumer.BlobRetriever remoteRetriever = new HollowConsumer.BlobRetriever() {
+            public HollowConsumer.Blob retrieveSnapshotBlob(long desiredVersion) {
+                return new RemoteBlob(Long.MIN_VALUE, desiredVersion);
+            }
+
+            public HollowConsumer.Blob retrieveDeltaBlob(long currentVersion) {
+                return new RemoteBlob(currentVersion, currentVersion + 1);
+            }
+
+            public HollowConsumer.Blob retrieveReverseDeltaBlob(long currentVersion) {
+                return new RemoteBlob(currentVersion, currentVersion - 1);
+            }
+        };
+
+        retriever = new HollowFilesystemBlobRetriever(blobStoreDir, remoteRetriever, false, 2);
+
+        readFully(retriever.retrieveSnapshotBlob(1));
+        readFully(retriever.retrieveDeltaBlob(1));
+        readFully(retriever.retrieveReverseDeltaBlob(2));
+        readFully(retriever.retrieveSnapshotBlob(2));
+        readFully(retriever.retrieveDeltaBlob(2));
+        Assert.assertEquals(2, retriever.getIndex().getNumSnapshots());
+
+        /// the local copies are used once present
+        Assert.assertFalse(retriever.retrieveDeltaBlob(1) instanceof RemoteBlob);
+        Assert.assertEquals(4, retriever.retrieveDeltaBlob(1).getSizeInBytes());
+
+        readFully(retriever.retrieveSnapshotBlob(3));
+
+        Assert.assertEquals(2, retriever.getIndex().getNumSnapshots());
+        Assert.assertFalse(new File(blobStoreDir, "snapshot-1").exists());
+        Assert.assertFalse(new File(blobStoreDir, "delta-1-2").exists());
+        Assert.assertFalse(new File(blobStoreDir, "reversedelta-2-1").exists());
+        Assert.assertTrue(new File(blobStoreDir, "snapshot-2").exists());
+        Assert.assertTrue(new File(blobStoreDir, "snapshot-3").exists());
+        Assert.assertTrue(new File(blobStoreDir, "delta-2-3").exists());
+        Assert.assertNull(retriever.getIndex().getDelta(1));
+        Assert.assertNotNull(retriever.getIndex().getDelta(2));
+    }
+
+    private void assertBlob(HollowConsumer.Blob blob, long expectedFromVersion, long expectedToVersion) {
+        Assert.assertNotNull(blob);
+        Assert.assertEquals(expectedFromVersion, blob.getFromVersion());
+        Assert.assertEquals(expectedToVersion, blob.getToVersion());
+    }
+
+    private void writeFile(String filename) throws IOException {
+        try(FileOutputStream os = new FileOutputStream(new File(blobStoreDir, filename))) {
+            os.write(new byte[] { 1, 2, 3, 4 });
+        }
+    }
+
+    private static void readFully(HollowConsumer.Blob blob) throws IOException {
+        try(InputStream is = blob.getInputStream()) {
+            while(is.read() != -1);
+        }
+    }
+
+    private static class RemoteBlob extends HollowConsumer.Blob {
+        RemoteBlob(long fromVersion, long toVersion) {
+            super(fromVersion, toVersion);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new ByteArrayInputStream(new byte[] { 1, 2, 3, 4 });
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.producer;
+
+import com.netflix.hollow.api.producer.HollowProducer.Blob;
+import com.netflix.hollow.api.producer.fs.HollowInMemoryBlobStager;
+import com.netflix.hollow.core.index.HollowPrimaryKeyIndex;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.write.objectmapper.HollowPrimaryKey;
+import com.netflix.hollow.core.write.objectmapper.RecordPrimaryKey;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HollowIncrementalProducerTest {
+
+    private HollowReadStateEngine validatedStateEngine;
+
+    @Test
+    public void publishesAdditionsModificationsAndDeletions() {
+        runIncrementalCycles(false);
+    }
+
+    @Test
+    public void publishesChangesWithIndexesKeptUpToDateInPlace() {
+        runIncrementalCycles(true);
+    }
+
+    @Test
+    public void deletesByRecordPrimaryKey() {
+        HollowIncrementalProducer incrementalProducer = new HollowIncrementalProducer(createProducer(false));
+
+        incrementalProducer.addOrModify(new TypeA(1, 10, 100));
+        incrementalProducer.runIncrementalCycle();
+        Assert.assertEquals(1, populatedCount("TypeA"));
+
+        incrementalProducer.delete(new RecordPrimaryKey("TypeA", new Object[] { 1 }));
+        incrementalProducer.runIncrementalCycle();
+
+        Assert.assertFalse(incrementalProducer.hasChanges());
+        Assert.assertEquals(0, populatedCount("TypeA"));
+        Assert.assertEquals(0, populatedCount("TypeB"));
+    }
+
+    private void runIncrementalCycles(boolean checksumOnlyIntegrityCheck) {
+        HollowIncrementalProducer incrementalProducer = new HollowIncrementalProducer(createProducer(checksumOnlyIntegrityCheck));
+
+        for(int i=0;i<100;i++)
+            incrementalProducer.addOrModify(new TypeA(i, i, i));
+        incrementalProducer.runIncrementalCycle();
+
+        Assert.assertFalse(incrementalProducer.hasChanges());
+        Assert.assertEquals(100, populatedCount("TypeA"));
+        Assert.assertEquals(100, populatedCount("TypeB"));
+
+        for(int cycle=1;cycle<=5;cycle++) {
+            /// modify one record, and the child record referenced by it
+            incrementalProducer.addOrModify(new TypeA(cycle, cycle * 1000, cycle * 1000));
+            /// delete one record, and the child record referenced only by it
+            incrementalProducer.delete(new TypeA(50 + cycle, 0, 0));
+            /// add one new record
+            incrementalProducer.addOrModify(new TypeA(100 + cycle, 100 + cycle, 100 + cycle));
+            incrementalProducer.runIncrementalCycle();
+
+            Assert.assertFalse(incrementalProducer.hasChanges());
+            Assert.assertEquals(100, populatedCount("TypeA"));
+            Assert.assertEquals(100, populatedCount("TypeB"));
+
+            HollowPrimaryKeyIndex idx = new HollowPrimaryKeyIndex(validatedStateEngine, "TypeA", "id");
+            HollowObjectTypeReadState typeA = (HollowObjectTypeReadState)validatedStateEngine.getTypeState("TypeA");
+            HollowObjectTypeReadState typeB = (HollowObjectTypeReadState)validatedStateEngine.getTypeState("TypeB");
+
+            for(int i=0;i<=100+cycle;i++) {
+                int ordinal = idx.getMatchingOrdinal(i);
+
+                if((i > 50 && i <= 50 + cycle) || i == 100) {
+                    Assert.assertEquals(-1, ordinal);
+                } else {
+                    int expectedValue = (i > 0 && i <= cycle) ? i * 1000 : i;
+                    Assert.assertEquals(expectedValue, typeA.readInt(ordinal, typeA.getSchema().getPosition("value")));
+                    int bOrdinal = typeA.readOrdinal(ordinal, typeA.getSchema().getPosition("b"));
+                    Assert.assertEquals(expectedValue, typeB.readInt(bOrdinal, typeB.getSchema().getPosition("x")));
+                }
+            }
+        }
+    }
+
+    private HollowProducer createProducer(boolean checksumOnlyIntegrityCheck) {
+        return HollowProducer.withPublisher(new HollowProducer.Publisher() {
+                                    public void publish(Blob blob) { }
+                                })
+                             .withBlobStager(new HollowInMemoryBlobStager())
+                             .withChecksumOnlyIntegrityCheck(checksumOnlyIntegrityCheck)
+                             .withValidator(new HollowProducer.Validator() {
+                                    public void validate(HollowProducer.ReadState readState) {
+                                        validatedStateEngine = readState.getStateEngine();
+                                    }
+                                })
+                             .build();
+    }
+
+    private int populatedCount(String type) {
+        return validatedStateEngine.getTypeState(type).getPopulatedOrdinals().cardinality();
+    }
+
+    @HollowPrimaryKey(fields="id")
+    private static class TypeA {
+        int id;
+        int value;
+        TypeB b;
+
+        TypeA(int id, int value, int x) {
+            this.id = id;
+            this.value = value;
+            this.b = new TypeB(x);
+        }
+    }
+
+    private static class TypeB {
+        int x;
+
+        TypeB(int x) {
+            this.x = x;
+        }
+    }
+
+}
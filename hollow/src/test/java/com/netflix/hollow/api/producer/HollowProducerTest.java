@@ -24,6 +24,7 @@ import com.netflix.hollow.api.producer.HollowProducer.Blob;
 import com.netflix.hollow.api.producer.HollowProducer.Blob.Type;
 import com.netflix.hollow.api.producer.HollowProducer.ReadState;
 import com.netflix.hollow.api.producer.HollowProducerListener.ProducerStatus;
+import com.netflix.hollow.api.producer.HollowProducerListener.PublishStatus;
 import com.netflix.hollow.api.producer.HollowProducerListener.RestoreStatus;
 import com.netflix.hollow.api.producer.HollowProducerListener.Status;
 import com.netflix.hollow.api.producer.fs.HollowFilesystemAnnouncer;
@@ -38,9 +39,15 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import org.junit.After;
 import org.junit.Assert;
@@ -224,6 +231,113 @@ public class HollowProducerTest {
         }
     }
 
+    @Test
+    public void testBlobsAreStagedConcurrently() throws Exception {
+        ExecutorService stagingExecutor = Executors.newFixedThreadPool(3);
+        final List<PublishStatus> staged = Collections.synchronizedList(new ArrayList<PublishStatus>());
+
+        try {
+            HollowProducer producer = HollowProducer.withPublisher(new FakeBlobPublisher())
+                                                    .withBlobStagingExecutor(stagingExecutor)
+                                                    .withListener(new FakeProducerListener())
+                                                    .withListener(new AbstractHollowProducerListener() {
+                                                        @Override
+                                                        public void onArtifactStage(PublishStatus stageStatus, long elapsed, TimeUnit unit) {
+                                                            staged.add(stageStatus);
+                                                        }
+                                                    })
+                                                    .build();
+
+            for(int cycle=0;cycle<5;cycle++) {
+                staged.clear();
+                final int c = cycle;
+                producer.runCycle(new HollowProducer.Populator() {
+                    public void populate(HollowProducer.WriteState newState) throws Exception {
+                        for(int i=0;i<100;i++)
+                            newState.add(new TestCollections(i, c));
+                    }
+                });
+
+                /// the integrity check applies each delta and reverse delta and compares checksums, so would fail this cycle if any blob were corrupt
+                Assert.assertEquals(Status.SUCCESS, lastProducerStatus.getStatus());
+
+                Set<Type> stagedTypes = new HashSet<>();
+                for(PublishStatus status : staged) {
+                    Assert.assertEquals(Status.SUCCESS, status.getStatus());
+                    stagedTypes.add(status.getBlob().getType());
+                }
+                if(cycle == 0)
+                    Assert.assertEquals(EnumSet.of(Type.SNAPSHOT), stagedTypes);
+                else
+                    Assert.assertEquals(EnumSet.allOf(Type.class), stagedTypes);
+            }
+        } finally {
+            stagingExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testChecksumOnlyIntegrityCheck() throws Exception {
+        final int[] validatedCounts = new int[1];
+
+        HollowProducer producer = HollowProducer.withPublisher(new FakeBlobPublisher())
+                                                .withChecksumOnlyIntegrityCheck(true)
+                                                .withListener(new FakeProducerListener())
+                                                .withValidator(new HollowProducer.Validator() {
+                                                    public void validate(ReadState readState) {
+                                                        validatedCounts[0] = readState.getStateEngine().getTypeState("TestCollections").getPopulatedOrdinals().cardinality();
+                                                    }
+                                                })
+                                                .build();
+
+        for(int cycle=0;cycle<5;cycle++) {
+            final int c = cycle;
+            producer.runCycle(new HollowProducer.Populator() {
+                public void populate(HollowProducer.WriteState newState) throws Exception {
+                    for(int i=0;i<100 + c;i++)
+                        newState.add(new TestCollections(i, c));
+                }
+            });
+
+            Assert.assertEquals(Status.SUCCESS, lastProducerStatus.getStatus());
+            Assert.assertEquals(100 + cycle, validatedCounts[0]);
+        }
+    }
+
+    @Test
+    public void testChecksumOnlyIntegrityCheckRecoversFromValidationFailure() throws Exception {
+        final int[] validatedCounts = new int[1];
+
+        HollowProducer producer = HollowProducer.withPublisher(new FakeBlobPublisher())
+                                                .withChecksumOnlyIntegrityCheck(true)
+                                                .withListener(new FakeProducerListener())
+                                                .withValidator(new HollowProducer.Validator() {
+                                                    public void validate(ReadState readState) {
+                                                        validatedCounts[0] = readState.getStateEngine().getTypeState("TestCollections").getPopulatedOrdinals().cardinality();
+                                                        if(validatedCounts[0] > 1000)
+                                                            throw new IllegalStateException("too many records");
+                                                    }
+                                                })
+                                                .build();
+
+        /// the third cycle is rejected after the delta has been checked in place, and must not affect the cycles which follow it
+        int[] numRecords = { 100, 101, 2000, 103, 104 };
+
+        for(int cycle=0;cycle<numRecords.length;cycle++) {
+            final int c = cycle;
+            final int n = numRecords[cycle];
+            producer.runCycle(new HollowProducer.Populator() {
+                public void populate(HollowProducer.WriteState newState) throws Exception {
+                    for(int i=0;i<n;i++)
+                        newState.add(new TestCollections(i, c));
+                }
+            });
+
+            Assert.assertEquals(n, validatedCounts[0]);
+            Assert.assertEquals(n > 1000 ? Status.FAIL : Status.SUCCESS, lastProducerStatus.getStatus());
+        }
+    }
+
     private void restoreAndAssert(HollowProducer producer, long version, int size, int valueMultiplier) throws Exception {
         restoreAndAssert(producer, version, size, valueMultiplier, 1);
     }
@@ -292,6 +406,26 @@ public class HollowProducerTest {
         }
     }
 
+    @SuppressWarnings("unused")
+    private static class TestCollections {
+        int id;
+        List<Integer> list;
+        Set<Integer> set;
+        Map<Integer, Integer> map;
+
+        TestCollections(int id, int cycle) {
+            this.id = id;
+            this.list = new ArrayList<>();
+            this.set = new HashSet<>();
+            this.map = new HashMap<>();
+            for(int i=0;i<(id + cycle) % 7;i++) {
+                list.add(id * i + cycle);
+                set.add(id + i * cycle);
+                map.put(i, id + cycle);
+            }
+        }
+    }
+
     private class FakeProducerListener extends AbstractHollowProducerListener {
         @Override
         public void onCycleComplete(ProducerStatus status, long elapsed, TimeUnit unit) {
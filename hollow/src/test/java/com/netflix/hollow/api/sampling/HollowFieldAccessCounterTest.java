@@ -0,0 +1,148 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.api.sampling;
+
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HollowFieldAccessCounterTest {
+
+    @Test
+    public void countsConcurrentAccesses() throws InterruptedException {
+        HollowObjectSchema schema = new HollowObjectSchema("TestType", 3);
+        schema.addField("a", FieldType.INT);
+        schema.addField("b", FieldType.LONG);
+        schema.addField("c", FieldType.DOUBLE);
+
+        final HollowFieldAccessCounter counter = new HollowFieldAccessCounter(schema);
+
+        Thread threads[] = new Thread[8];
+        for(int i=0;i<threads.length;i++) {
+            threads[i] = new Thread(new Runnable() {
+                public void run() {
+                    for(int j=0;j<100000;j++) {
+                        counter.increment(0);
+                        if(j % 2 == 0)
+                            counter.increment(2);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        for(Thread t : threads)
+            t.join();
+
+        Assert.assertEquals(800000, counter.getAccessCount(0));
+        Assert.assertEquals(0, counter.getAccessCount(1));
+        Assert.assertEquals(400000, counter.getAccessCount(2));
+
+        counter.reset();
+        Assert.assertEquals(0, counter.getAccessCount(0));
+    }
+
+    @Test
+    public void doesNotCountAccessesFromUpdateThread() throws InterruptedException {
+        HollowObjectSchema schema = new HollowObjectSchema("TestType", 1);
+        schema.addField("a", FieldType.INT);
+
+        final HollowObjectSampler sampler = new HollowObjectSampler(schema, DisabledSamplingDirector.INSTANCE);
+        HollowFieldAccessCounter counter = new HollowFieldAccessCounter(schema);
+        sampler.setFieldAccessCounter(counter);
+        sampler.setUpdateThread(Thread.currentThread());
+
+        sampler.recordFieldAccess(0);
+        Assert.assertEquals(0, counter.getAccessCount(0));
+
+        Thread reader = new Thread() {
+            public void run() {
+                sampler.recordFieldAccess(0);
+            }
+        };
+        reader.start();
+        reader.join();
+        Assert.assertEquals(1, counter.getAccessCount(0));
+
+        sampler.setUpdateThread(null);
+        sampler.recordFieldAccess(0);
+        Assert.assertEquals(2, counter.getAccessCount(0));
+    }
+
+    @Test
+    public void capturesFieldAccessesFromStateEngine() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        for(int i=0;i<10;i++)
+            mapper.add(new TypeA(i, i * 100L));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new HollowBlobWriter(writeEngine).writeSnapshot(baos);
+
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        readEngine.setFieldAccessCounting(true);
+        new HollowBlobReader(readEngine).readSnapshot(new ByteArrayInputStream(baos.toByteArray()));
+
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState)readEngine.getTypeState("TypeA");
+        int idPosition = typeState.getSchema().getPosition("id");
+        int valuePosition = typeState.getSchema().getPosition("value");
+
+        HollowFieldAccessSnapshot before = HollowFieldAccessSnapshot.capture(readEngine);
+        Assert.assertEquals(0, before.getAccessCount("TypeA", "id"));
+
+        for(int i=0;i<10;i++)
+            typeState.readInt(i, idPosition);
+        typeState.readLong(3, valuePosition);
+
+        HollowFieldAccessSnapshot after = HollowFieldAccessSnapshot.capture(readEngine);
+        Assert.assertEquals(10, after.getAccessCount("TypeA", "id"));
+        Assert.assertEquals(1, after.getAccessCount("TypeA", "value"));
+        Assert.assertTrue(after.getAccessRatesPerSecond(before).get("TypeA.id") > 0);
+
+        typeState.readInt(0, idPosition);
+        HollowFieldAccessSnapshot last = HollowFieldAccessSnapshot.capture(readEngine);
+        Assert.assertEquals(Arrays.asList("TypeA.value"), last.getUnaccessedFields(after));
+
+        readEngine.setFieldAccessCounting(false);
+        Assert.assertNull(typeState.getFieldAccessCounter());
+        Assert.assertTrue(HollowFieldAccessSnapshot.capture(readEngine).getAccessCounts().isEmpty());
+    }
+
+    @SuppressWarnings("unused")
+    private static class TypeA {
+        int id;
+        long value;
+
+        public TypeA(int id, long value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+}
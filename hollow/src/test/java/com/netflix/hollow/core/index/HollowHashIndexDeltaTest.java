@@ -0,0 +1,204 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.index;
+
+import com.netflix.hollow.core.AbstractStateEngineTest;
+import com.netflix.hollow.core.read.iterator.HollowOrdinalIterator;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HollowHashIndexDeltaTest extends AbstractStateEngineTest {
+
+    private static final int NUM_GENRES = 20;
+    private static final int NUM_TAGS = 50;
+
+    private HollowObjectMapper mapper;
+
+    @Test
+    public void selectTopLevelRecordsMatchingTopLevelField() throws IOException {
+        testDeltaUpdates("", "genre");
+    }
+
+    @Test
+    public void selectTopLevelRecordsMatchingCollectionElementField() throws IOException {
+        testDeltaUpdates("", "tags.element.tagId");
+    }
+
+    @Test
+    public void selectSharedCollectionElementsMatchingTopLevelField() throws IOException {
+        testDeltaUpdates("tags.element", "genre");
+    }
+
+    @Test
+    public void selectTopLevelRecordsMatchingMultipleFields() throws IOException {
+        testDeltaUpdates("", "genre", "tags.element.tagId");
+    }
+
+    @Test
+    public void resultsRemainValidAfterUpdate() throws IOException {
+        Map<Integer, Movie> movies = new HashMap<Integer, Movie>();
+        movies.put(1, new Movie(1, 1, 1, 2));
+        movies.put(2, new Movie(2, 1, 2, 3));
+
+        addMovies(movies);
+        roundTripSnapshot();
+
+        HollowHashIndex index = new HollowHashIndex(readStateEngine, "Movie", "", "genre");
+        index.listenForDeltaUpdates();
+
+        HollowHashIndexResult priorResult = index.findMatches(1);
+        Assert.assertEquals(2, priorResult.numResults());
+
+        movies.remove(1);
+        addMovies(movies);
+        roundTripDelta();
+
+        Assert.assertEquals(1, index.findMatches(1).numResults());
+        Assert.assertEquals(2, priorResult.numResults());
+        Assert.assertEquals(2, toBitSet(priorResult).cardinality());
+
+        movies.remove(2);
+        addMovies(movies);
+        roundTripDelta();
+
+        Assert.assertNull(index.findMatches(1));
+    }
+
+    private void testDeltaUpdates(String selectField, String... matchFields) throws IOException {
+        Random rand = new Random(selectField.hashCode() ^ Arrays.hashCode(matchFields));
+        Map<Integer, Movie> movies = new HashMap<Integer, Movie>();
+
+        for(int i=0;i<500;i++)
+            movies.put(i, randomMovie(rand, i));
+
+        addMovies(movies);
+        roundTripSnapshot();
+
+        HollowHashIndex index = new HollowHashIndex(readStateEngine, "Movie", selectField, matchFields);
+        index.listenForDeltaUpdates();
+
+        for(int cycle=0;cycle<15;cycle++) {
+            for(int i=0;i<25;i++)
+                movies.remove(rand.nextInt(1000));
+            for(int i=0;i<25;i++) {
+                int id = rand.nextInt(1000);
+                movies.put(id, randomMovie(rand, id));
+            }
+
+            addMovies(movies);
+            roundTripDelta();
+
+            assertIndexesEqual(new HollowHashIndex(readStateEngine, "Movie", selectField, matchFields), index, matchFields.length);
+        }
+    }
+
+    private void assertIndexesEqual(HollowHashIndex expected, HollowHashIndex actual, int numMatchFields) {
+        for(int genre=0;genre<NUM_GENRES;genre++) {
+            if(numMatchFields == 1) {
+                assertResultsEqual(expected.findMatches(genre), actual.findMatches(genre));
+            } else {
+                for(int tag=0;tag<NUM_TAGS;tag++)
+                    assertResultsEqual(expected.findMatches(genre, tag), actual.findMatches(genre, tag));
+            }
+        }
+
+        for(int tag=0;tag<NUM_TAGS;tag++) {
+            if(numMatchFields == 1)
+                assertResultsEqual(expected.findMatches(tag), actual.findMatches(tag));
+        }
+    }
+
+    private void assertResultsEqual(HollowHashIndexResult expected, HollowHashIndexResult actual) {
+        if(expected == null) {
+            Assert.assertNull(actual);
+            return;
+        }
+
+        Assert.assertNotNull(actual);
+        Assert.assertEquals(expected.numResults(), actual.numResults());
+        BitSet expectedOrdinals = toBitSet(expected);
+        Assert.assertEquals(expectedOrdinals, toBitSet(actual));
+
+        for(int ordinal = expectedOrdinals.nextSetBit(0); ordinal != -1; ordinal = expectedOrdinals.nextSetBit(ordinal + 1))
+            Assert.assertTrue(actual.contains(ordinal));
+    }
+
+    private BitSet toBitSet(HollowHashIndexResult result) {
+        BitSet ordinals = new BitSet();
+        HollowOrdinalIterator iter = result.iterator();
+        int ordinal = iter.next();
+        while(ordinal != HollowOrdinalIterator.NO_MORE_ORDINALS) {
+            ordinals.set(ordinal);
+            ordinal = iter.next();
+        }
+        return ordinals;
+    }
+
+    private Movie randomMovie(Random rand, int id) {
+        int numTags = rand.nextInt(4);
+        int tags[] = new int[numTags];
+        for(int i=0;i<numTags;i++)
+            tags[i] = rand.nextInt(NUM_TAGS);
+        return new Movie(id, rand.nextInt(NUM_GENRES), tags);
+    }
+
+    private void addMovies(Map<Integer, Movie> movies) {
+        for(Movie movie : movies.values())
+            mapper.add(movie);
+    }
+
+    @Override
+    protected void initializeTypeStates() {
+        mapper = new HollowObjectMapper(writeStateEngine);
+        mapper.initializeTypeState(Movie.class);
+    }
+
+    @SuppressWarnings("unused")
+    private static class Movie {
+        private final int id;
+        private final int genre;
+        private final List<Tag> tags;
+
+        public Movie(int id, int genre, int... tagIds) {
+            this.id = id;
+            this.genre = genre;
+            this.tags = new ArrayList<Tag>();
+            for(int tagId : tagIds)
+                tags.add(new Tag(tagId));
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Tag {
+        private final int tagId;
+
+        public Tag(int tagId) {
+            this.tagId = tagId;
+        }
+    }
+
+}
@@ -0,0 +1,183 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.index;
+
+import com.netflix.hollow.core.AbstractStateEngineTest;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.core.write.objectmapper.HollowPrimaryKey;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HollowPrimaryKeyIndexDeltaTest extends AbstractStateEngineTest {
+
+    private HollowObjectMapper mapper;
+
+    @Test
+    public void indexIsUpdatedIncrementallyAcrossDeltas() throws IOException {
+        Random rand = new Random(1000);
+        Map<Integer, Integer> records = new HashMap<Integer, Integer>();
+
+        for(int i=0;i<1000;i++)
+            records.put(i, i);
+
+        addRecords(records);
+        roundTripSnapshot();
+
+        HollowPrimaryKeyIndex idx = new HollowPrimaryKeyIndex(readStateEngine, "Keyed", "id");
+        idx.listenForDeltaUpdates();
+        assertIndexMatches(idx, records);
+
+        for(int cycle=0;cycle<20;cycle++) {
+            /// remove some records, modify some records, and add some new records (growing the table in later cycles)
+            for(int i=0;i<50;i++)
+                records.remove(rand.nextInt(2000));
+            for(int i=0;i<50;i++) {
+                int id = rand.nextInt(2000);
+                if(records.containsKey(id))
+                    records.put(id, rand.nextInt());
+            }
+            for(int i=0;i<80;i++)
+                records.put(rand.nextInt(2000), rand.nextInt());
+
+            addRecords(records);
+            roundTripDelta();
+
+            assertIndexMatches(idx, records);
+            assertIndexMatches(new HollowPrimaryKeyIndex(readStateEngine, "Keyed", "id"), records);
+            Assert.assertFalse(idx.containsDuplicates());
+        }
+    }
+
+    @Test
+    public void removedRecordsAreNotReturned() throws IOException {
+        Map<Integer, Integer> records = new HashMap<Integer, Integer>();
+        for(int i=0;i<100;i++)
+            records.put(i, i);
+
+        addRecords(records);
+        roundTripSnapshot();
+
+        HollowPrimaryKeyIndex idx = new HollowPrimaryKeyIndex(readStateEngine, "Keyed", "id");
+        idx.listenForDeltaUpdates();
+
+        for(int i=0;i<100;i+=2)
+            records.remove(i);
+
+        addRecords(records);
+        roundTripDelta();
+        assertIndexMatches(idx, records);
+
+        /// re-add the removed keys with new values; these may reuse tombstoned buckets
+        for(int i=0;i<100;i+=2)
+            records.put(i, i + 1000);
+
+        addRecords(records);
+        roundTripDelta();
+        assertIndexMatches(idx, records);
+    }
+
+    @Test
+    public void concurrentReadersAlwaysFindUnchangedRecords() throws Exception {
+        Map<Integer, Integer> records = new HashMap<Integer, Integer>();
+        for(int i=0;i<1000;i++)
+            records.put(i, i);
+
+        addRecords(records);
+        roundTripSnapshot();
+
+        final HollowPrimaryKeyIndex idx = new HollowPrimaryKeyIndex(readStateEngine, "Keyed", "id");
+        idx.listenForDeltaUpdates();
+
+        final AtomicBoolean finished = new AtomicBoolean(false);
+        final AtomicInteger misses = new AtomicInteger();
+
+        Thread reader = new Thread() {
+            public void run() {
+                while(!finished.get()) {
+                    /// records 0-499 are never modified
+                    for(int i=0;i<500;i++) {
+                        if(idx.getMatchingOrdinal(i) == -1)
+                            misses.incrementAndGet();
+                    }
+                }
+            }
+        };
+        reader.start();
+
+        Random rand = new Random(2000);
+        for(int cycle=0;cycle<10;cycle++) {
+            for(int i=500;i<1000;i++)
+                records.put(i, rand.nextInt());
+
+            addRecords(records);
+            roundTripDelta();
+        }
+
+        finished.set(true);
+        reader.join();
+
+        Assert.assertEquals(0, misses.get());
+        assertIndexMatches(idx, records);
+    }
+
+    private void addRecords(Map<Integer, Integer> records) {
+        for(Map.Entry<Integer, Integer> entry : records.entrySet())
+            mapper.add(new Keyed(entry.getKey(), entry.getValue()));
+    }
+
+    private void assertIndexMatches(HollowPrimaryKeyIndex idx, Map<Integer, Integer> records) {
+        for(int id=0;id<2000;id++) {
+            int ordinal = idx.getMatchingOrdinal(id);
+            Integer value = records.get(id);
+
+            if(value == null) {
+                Assert.assertEquals(-1, ordinal);
+            } else {
+                Assert.assertTrue(ordinal != -1);
+                Assert.assertTrue(readStateEngine.getTypeState("Keyed").getPopulatedOrdinals().get(ordinal));
+                Object[] key = idx.getRecordKey(ordinal);
+                Assert.assertEquals(id, key[0]);
+            }
+        }
+    }
+
+    @Override
+    protected void initializeTypeStates() {
+        mapper = new HollowObjectMapper(writeStateEngine);
+        mapper.initializeTypeState(Keyed.class);
+    }
+
+    @HollowPrimaryKey(fields="id")
+    @SuppressWarnings("unused")
+    private static class Keyed {
+        private final int id;
+        private final int value;
+
+        public Keyed(int id, int value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures the throughput of concurrent additions to a {@link ByteArrayOrdinalMap} as the number of threads increases.
+ * <p>
+ * This is not run as part of the test suite.  Run the main method, optionally specifying the maximum number of threads
+ * and the number of distinct values added by each thread.
+ */
+public class ByteArrayOrdinalMapBenchmark {
+
+    public static void main(String args[]) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int valuesPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+
+        /// warm up
+        run(maxThreads, valuesPerThread / 10);
+
+        for(int numThreads=1;numThreads<=maxThreads;numThreads*=2) {
+            long bestNanos = Long.MAX_VALUE;
+            for(int i=0;i<3;i++)
+                bestNanos = Math.min(bestNanos, run(numThreads, valuesPerThread));
+
+            long totalValues = (long)numThreads * valuesPerThread;
+            System.out.printf("%3d threads: %,12d additions/sec%n", numThreads, (long)(totalValues / (bestNanos / 1000000000d)));
+        }
+    }
+
+    private static long run(int numThreads, final int valuesPerThread) throws InterruptedException {
+        final ByteArrayOrdinalMap map = new ByteArrayOrdinalMap();
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread threads[] = new Thread[numThreads];
+
+        for(int t=0;t<numThreads;t++) {
+            final int firstValue = t * valuesPerThread;
+            threads[t] = new Thread() {
+                public void run() {
+                    ByteDataBuffer buf = new ByteDataBuffer();
+                    try {
+                        start.await();
+                    } catch(InterruptedException e) {
+                        return;
+                    }
+                    for(int i=0;i<valuesPerThread;i++) {
+                        ByteArrayOrdinalMapTest.writeValue(buf, firstValue + i);
+                        map.getOrAssignOrdinal(buf);
+                        buf.reset();
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        long startTime = System.nanoTime();
+        start.countDown();
+        for(Thread thread : threads)
+            thread.join();
+        return System.nanoTime() - startTime;
+    }
+
+}
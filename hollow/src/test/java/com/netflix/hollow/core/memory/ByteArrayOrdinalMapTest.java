@@ -0,0 +1,234 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory;
+
+import com.netflix.hollow.core.memory.encoding.VarInt;
+import java.util.BitSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteArrayOrdinalMapTest {
+
+    private static final int NUM_THREADS = 8;
+    private static final int NUM_VALUES = 200000;
+
+    @Test
+    public void assignsOneOrdinalPerValueWhenAddedConcurrently() throws Exception {
+        final ByteArrayOrdinalMap map = new ByteArrayOrdinalMap();
+        final AtomicIntegerArray assignedOrdinals = new AtomicIntegerArray(NUM_VALUES);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        for(int i=0;i<NUM_VALUES;i++)
+            assignedOrdinals.set(i, -1);
+
+        Thread threads[] = new Thread[NUM_THREADS];
+        for(int t=0;t<NUM_THREADS;t++) {
+            final int threadNumber = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        ByteDataBuffer buf = new ByteDataBuffer();
+                        /// every thread adds every value, in a different order, so that many additions race with each other.
+                        for(int i=0;i<NUM_VALUES;i++) {
+                            int value = (i * (threadNumber + 1)) % NUM_VALUES;
+                            if(threadNumber % 2 == 1)
+                                value = NUM_VALUES - 1 - value;
+                            writeValue(buf, value);
+                            int ordinal = map.getOrAssignOrdinal(buf);
+                            buf.reset();
+
+                            if(!assignedOrdinals.compareAndSet(value, -1, ordinal) && assignedOrdinals.get(value) != ordinal)
+                                throw new AssertionError("Value " + value + " was assigned ordinals " + assignedOrdinals.get(value) + " and " + ordinal);
+                        }
+                    } catch(Throwable th) {
+                        failure.compareAndSet(null, th);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        start.countDown();
+        for(Thread thread : threads)
+            thread.join();
+
+        if(failure.get() != null)
+            throw new AssertionError(failure.get());
+
+        BitSet ordinals = new BitSet();
+        for(int i=0;i<NUM_VALUES;i++) {
+            Assert.assertFalse("ordinal assigned to more than one value", ordinals.get(assignedOrdinals.get(i)));
+            ordinals.set(assignedOrdinals.get(i));
+        }
+        Assert.assertEquals(NUM_VALUES, ordinals.cardinality());
+
+        ByteDataBuffer buf = new ByteDataBuffer();
+        for(int i=0;i<NUM_VALUES;i++) {
+            writeValue(buf, i);
+            Assert.assertEquals(assignedOrdinals.get(i), map.get(buf));
+            buf.reset();
+        }
+
+        map.prepareForWrite();
+        for(int i=0;i<NUM_VALUES;i++) {
+            long pointer = map.getPointerForData(assignedOrdinals.get(i));
+            Assert.assertEquals(i, VarInt.readVInt(map.getByteData().getUnderlyingArray(), pointer));
+        }
+    }
+
+    @Test
+    public void retainsDistinctValuesAddedConcurrentlyWhileGrowing() throws Exception {
+        final int numThreads = 16;
+        final int valuesPerThread = 5000;
+
+        /// each iteration begins with a small key array, so that threads frequently encounter moved buckets and must wait for growth.
+        for(int iteration=0;iteration<20;iteration++) {
+            final ByteArrayOrdinalMap map = new ByteArrayOrdinalMap();
+            final int[][] assignedOrdinals = new int[numThreads][valuesPerThread];
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            final CountDownLatch start = new CountDownLatch(1);
+
+            Thread threads[] = new Thread[numThreads];
+            for(int t=0;t<numThreads;t++) {
+                final int threadNumber = t;
+                threads[t] = new Thread() {
+                    public void run() {
+                        try {
+                            start.await();
+                            ByteDataBuffer buf = new ByteDataBuffer();
+                            for(int i=0;i<valuesPerThread;i++) {
+                                writeValue(buf, (i * numThreads) + threadNumber);
+                                assignedOrdinals[threadNumber][i] = map.getOrAssignOrdinal(buf);
+                                buf.reset();
+                            }
+                        } catch(Throwable th) {
+                            failure.compareAndSet(null, th);
+                        }
+                    }
+                };
+                threads[t].start();
+            }
+
+            start.countDown();
+            for(Thread thread : threads)
+                thread.join();
+
+            if(failure.get() != null)
+                throw new AssertionError(failure.get());
+
+            BitSet ordinals = new BitSet();
+            ByteDataBuffer buf = new ByteDataBuffer();
+            for(int t=0;t<numThreads;t++) {
+                for(int i=0;i<valuesPerThread;i++) {
+                    int ordinal = assignedOrdinals[t][i];
+                    Assert.assertFalse("ordinal assigned to more than one value", ordinals.get(ordinal));
+                    ordinals.set(ordinal);
+
+                    writeValue(buf, (i * numThreads) + t);
+                    Assert.assertEquals(ordinal, map.get(buf));
+                    buf.reset();
+                }
+            }
+            Assert.assertEquals(numThreads * valuesPerThread, ordinals.cardinality());
+        }
+    }
+
+    @Test
+    public void reusesOrdinalsReleasedByLostRaces() throws Exception {
+        final int numValues = 20000;
+        final ByteArrayOrdinalMap map = new ByteArrayOrdinalMap();
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread threads[] = new Thread[NUM_THREADS];
+        for(int t=0;t<NUM_THREADS;t++) {
+            threads[t] = new Thread() {
+                public void run() {
+                    try {
+                        start.await();
+                        ByteDataBuffer buf = new ByteDataBuffer();
+                        /// every thread adds the same values in the same order, so that each ordinal lost to a race is released.
+                        for(int i=0;i<numValues;i++) {
+                            writeValue(buf, i);
+                            map.getOrAssignOrdinal(buf);
+                            buf.reset();
+                        }
+                    } catch(Throwable th) {
+                        failure.compareAndSet(null, th);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        start.countDown();
+        for(Thread thread : threads)
+            thread.join();
+
+        if(failure.get() != null)
+            throw new AssertionError(failure.get());
+
+        /// each ordinal which was released must be assigned before the ordinal space grows, so the ordinal space eventually becomes dense.
+        /// without reuse, every released ordinal would remain a hole.  some released ordinals may be above the current max ordinal.
+        int maxOrdinal = map.maxOrdinal();
+        int numOrdinals = numValues;
+        ByteDataBuffer buf = new ByteDataBuffer();
+        while(maxOrdinal + 1 != numOrdinals) {
+            Assert.assertTrue("released ordinals were not reused", numOrdinals < NUM_THREADS * numValues);
+            writeValue(buf, numOrdinals++);
+            maxOrdinal = Math.max(maxOrdinal, map.getOrAssignOrdinal(buf));
+            buf.reset();
+        }
+
+        writeValue(buf, numOrdinals);
+        Assert.assertEquals(maxOrdinal + 1, map.getOrAssignOrdinal(buf));
+    }
+
+    @Test
+    public void reusesPreferredOrdinals() {
+        ByteArrayOrdinalMap map = new ByteArrayOrdinalMap();
+        BitSet previousOrdinals = new BitSet();
+        previousOrdinals.set(5);
+        previousOrdinals.set(10);
+        map.reservePreviouslyPopulatedOrdinals(previousOrdinals);
+
+        ByteDataBuffer buf = new ByteDataBuffer();
+        writeValue(buf, 100);
+        Assert.assertEquals(10, map.getOrAssignOrdinal(buf, 10));
+        buf.reset();
+        writeValue(buf, 200);
+        int ordinal = map.getOrAssignOrdinal(buf, 10);
+        Assert.assertTrue(ordinal != 10 && ordinal != 5);
+        buf.reset();
+        writeValue(buf, 100);
+        Assert.assertEquals(10, map.getOrAssignOrdinal(buf, 5));
+    }
+
+    static void writeValue(ByteDataBuffer buf, int value) {
+        VarInt.writeVInt(buf, value);
+        /// pad some values so that byte sequences are of varying lengths
+        for(int i=0;i<(value & 0x0F);i++)
+            buf.write((byte)i);
+    }
+
+}
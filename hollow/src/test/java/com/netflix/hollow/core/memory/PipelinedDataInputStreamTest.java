@@ -0,0 +1,202 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory;
+
+import com.netflix.hollow.core.memory.encoding.VarInt;
+import com.netflix.hollow.core.read.engine.HollowBlobHeaderReader;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PipelinedDataInputStreamTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void decodesAcrossBufferBoundaries() throws IOException {
+        byte data[] = encodeTestData(12345);
+
+        assertDecodesTestData(new PipelinedDataInputStream(new ByteArrayInputStream(data), null, 7, 1), 12345);
+        assertDecodesTestData(new PipelinedDataInputStream(new ByteArrayInputStream(data), executor, 7, 3), 12345);
+        assertDecodesTestData(new PipelinedDataInputStream(new ByteArrayInputStream(data), executor, 4096, 2), 12345);
+    }
+
+    @Test
+    public void propagatesReadAheadFailures() throws IOException {
+        final byte data[] = encodeTestData(1000);
+
+        InputStream failingStream = new InputStream() {
+            int position = 0;
+
+            @Override
+            public int read() throws IOException {
+                if(position == 100)
+                    throw new IOException("failed");
+                return data[position++] & 0xFF;
+            }
+        };
+
+        PipelinedDataInputStream is = new PipelinedDataInputStream(failingStream, executor, 16, 2);
+        try {
+            while(is.read() != -1);
+            Assert.fail("expected the read ahead failure to be rethrown");
+        } catch(IOException expected) {
+            Assert.assertEquals("failed", expected.getMessage());
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void propagatesReadAheadErrors() throws IOException {
+        InputStream failingStream = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new OutOfMemoryError("failed");
+            }
+        };
+
+        PipelinedDataInputStream is = new PipelinedDataInputStream(failingStream, executor, 16, 2);
+        try {
+            is.read();
+            Assert.fail("expected the read ahead failure to be rethrown");
+        } catch(IOException expected) {
+            Assert.assertTrue(expected.getCause() instanceof OutOfMemoryError);
+        } finally {
+            is.close();
+        }
+    }
+
+    @Test
+    public void stopsReadingAheadWhenClosed() throws IOException {
+        PipelinedDataInputStream is = new PipelinedDataInputStream(new ByteArrayInputStream(new byte[100000]), executor, 16, 2);
+        Assert.assertEquals(0, is.readInt());
+        is.close();
+    }
+
+    @Test
+    public void readsBlobsWithReadAhead() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        HollowReadStateEngine expectedEngine = new HollowReadStateEngine();
+        HollowBlobReader expectedReader = new HollowBlobReader(expectedEngine);
+
+        SimultaneousExecutor snapshotExecutor = new SimultaneousExecutor();
+        HollowBlobReader reader = new HollowBlobReader(readEngine, new HollowBlobHeaderReader(), snapshotExecutor, null, executor);
+
+        for(int cycle=0;cycle<3;cycle++) {
+            for(int i=cycle*500;i<5000+(cycle*700);i++)
+                mapper.add(new TestRecord(i, cycle));
+
+            writeEngine.prepareForWrite();
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            if(cycle == 0) {
+                writer.writeSnapshot(baos);
+                reader.readSnapshot(new ByteArrayInputStream(baos.toByteArray()));
+                expectedReader.readSnapshot(new ByteArrayInputStream(baos.toByteArray()));
+            } else {
+                writer.writeDelta(baos);
+                reader.applyDelta(new ByteArrayInputStream(baos.toByteArray()));
+                expectedReader.applyDelta(new ByteArrayInputStream(baos.toByteArray()));
+            }
+
+            Assert.assertEquals(HollowChecksum.forStateEngine(expectedEngine), HollowChecksum.forStateEngine(readEngine));
+
+            writeEngine.prepareForNextCycle();
+        }
+
+        snapshotExecutor.shutdown();
+    }
+
+    private byte[] encodeTestData(int numValues) throws IOException {
+        Random rand = new Random(numValues);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream dos = new DataOutputStream(baos);
+
+        for(int i=0;i<numValues;i++) {
+            VarInt.writeVInt(dos, rand.nextInt() >>> rand.nextInt(32));
+            VarInt.writeVLong(dos, rand.nextLong() >>> rand.nextInt(64));
+            dos.writeLong(rand.nextLong());
+            dos.writeByte(i);
+        }
+
+        return baos.toByteArray();
+    }
+
+    private void assertDecodesTestData(PipelinedDataInputStream is, int numValues) throws IOException {
+        Random rand = new Random(numValues);
+
+        try {
+            for(int i=0;i<numValues;i++) {
+                Assert.assertEquals(rand.nextInt() >>> rand.nextInt(32), VarInt.readVInt(is));
+                Assert.assertEquals(rand.nextLong() >>> rand.nextInt(64), VarInt.readVLong(is));
+                Assert.assertEquals(rand.nextLong(), is.readLong());
+                Assert.assertEquals((byte)i, is.readByte());
+            }
+            Assert.assertEquals(-1, is.read());
+        } finally {
+            is.close();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class TestRecord {
+        int intField;
+        long longField;
+        byte[] bytesField;
+
+        TestRecord(int i, int cycle) {
+            this.intField = i;
+            this.longField = ((long)cycle << 40) | i;
+            this.bytesField = new byte[i % 37];
+            for(int j=0;j<bytesField.length;j++)
+                bytesField[j] = (byte)(i + j);
+        }
+    }
+
+}
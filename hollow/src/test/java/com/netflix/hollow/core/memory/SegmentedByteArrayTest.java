@@ -0,0 +1,81 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory;
+
+import com.netflix.hollow.core.memory.pool.ArraySegmentRecycler;
+import com.netflix.hollow.core.memory.pool.ByteBufferRecycler;
+import com.netflix.hollow.core.memory.pool.WastefulRecycler;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SegmentedByteArrayTest {
+
+    private static final int MAPPED_LENGTH = 5000;
+
+    @Test
+    public void writesToHeapCopyOfMappedSegments() throws IOException {
+        writesToCopyOfMappedSegments(new WastefulRecycler(11, 8));
+    }
+
+    @Test
+    public void writesToOffHeapCopyOfMappedSegments() throws IOException {
+        writesToCopyOfMappedSegments(new ByteBufferRecycler(11, 8));
+    }
+
+    private void writesToCopyOfMappedSegments(ArraySegmentRecycler recycler) throws IOException {
+        File file = File.createTempFile("segmented-bytes", ".hollow");
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        for(int i=0;i<MAPPED_LENGTH;i++)
+            fos.write(i);
+        fos.close();
+
+        SegmentedByteArray arr = new SegmentedByteArray(recycler);
+        MappedDataInputStream is = new MappedDataInputStream(file);
+        try {
+            arr.readFrom(is, MAPPED_LENGTH);
+
+            /// overwrite a mapped byte, then grow beyond the mapped data
+            arr.set(10, (byte)-1);
+            for(int i=MAPPED_LENGTH;i<MAPPED_LENGTH*2;i++)
+                arr.set(i, (byte)(i * 3));
+
+            for(int i=0;i<MAPPED_LENGTH;i++)
+                Assert.assertEquals(i == 10 ? (byte)-1 : (byte)i, arr.get(i));
+            for(int i=MAPPED_LENGTH;i<MAPPED_LENGTH*2;i++)
+                Assert.assertEquals((byte)(i * 3), arr.get(i));
+        } finally {
+            is.close();
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(10);
+            Assert.assertEquals(10, raf.read());
+        } finally {
+            raf.close();
+        }
+
+        arr.destroy();
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory.pool;
+
+import com.netflix.hollow.core.memory.pool.BoundedRecyclingRecycler.EvictionPolicy;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.util.DefaultHashCodeFinder;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BoundedRecyclingRecyclerTest {
+
+    private static final long LONG_SEGMENT_BYTES = ((1 << 4) + 1) * 8;
+    private static final long BYTE_SEGMENT_BYTES = 1 << 6;
+
+    @Test
+    public void recycledSegmentsAreReusedAfterSwap() {
+        BoundedRecyclingRecycler recycler = new BoundedRecyclingRecycler(6, 4, 1024, EvictionPolicy.DISCARD_RECYCLED);
+
+        long[] longs = recycler.getLongArray();
+        byte[] bytes = recycler.getByteArray();
+        Assert.assertEquals(2, recycler.getMisses());
+
+        longs[3] = 100;
+        recycler.recycleLongArray(longs);
+        recycler.recycleByteArray(bytes);
+        Assert.assertEquals(LONG_SEGMENT_BYTES + BYTE_SEGMENT_BYTES, recycler.getRetainedBytes());
+
+        /// not available until after the swap
+        Assert.assertNotSame(longs, recycler.getLongArray());
+        Assert.assertEquals(3, recycler.getMisses());
+
+        recycler.swap();
+
+        long[] reused = recycler.getLongArray();
+        Assert.assertSame(longs, reused);
+        Assert.assertEquals(0, reused[3]);
+        Assert.assertSame(bytes, recycler.getByteArray());
+        Assert.assertEquals(2, recycler.getHits());
+        Assert.assertEquals(0, recycler.getRetainedBytes());
+        Assert.assertEquals(LONG_SEGMENT_BYTES + BYTE_SEGMENT_BYTES, recycler.getPeakRetainedBytes());
+    }
+
+    @Test
+    public void discardsRecycledSegmentsBeyondMaximum() {
+        BoundedRecyclingRecycler recycler = new BoundedRecyclingRecycler(6, 4, BYTE_SEGMENT_BYTES * 3, EvictionPolicy.DISCARD_RECYCLED);
+
+        byte[] first = recycler.getByteArray();
+        for(int i=0;i<3;i++)
+            recycler.recycleByteArray(i == 0 ? first : recycler.getByteArray());
+        recycler.recycleByteArray(recycler.getByteArray());
+        recycler.recycleLongArray(recycler.getLongArray());
+
+        Assert.assertEquals(BYTE_SEGMENT_BYTES * 3, recycler.getRetainedBytes());
+        Assert.assertEquals(2, recycler.getEvictions());
+
+        recycler.swap();
+        Assert.assertSame(first, recycler.getByteArray());
+    }
+
+    @Test
+    public void evictsOldestSegmentsBeyondMaximum() {
+        BoundedRecyclingRecycler recycler = new BoundedRecyclingRecycler(6, 4, LONG_SEGMENT_BYTES + BYTE_SEGMENT_BYTES, EvictionPolicy.EVICT_OLDEST);
+
+        long[] oldLongs = recycler.getLongArray();
+        byte[] oldBytes = recycler.getByteArray();
+        recycler.recycleLongArray(oldLongs);
+        recycler.recycleByteArray(oldBytes);
+
+        byte[] newBytes = recycler.getByteArray();
+        recycler.recycleByteArray(newBytes);
+        Assert.assertEquals(1, recycler.getEvictions());
+
+        long[] newLongs = new long[(1 << 4) + 1];
+        recycler.recycleLongArray(newLongs);
+        Assert.assertEquals(2, recycler.getEvictions());
+        Assert.assertTrue(recycler.getRetainedBytes() <= LONG_SEGMENT_BYTES + BYTE_SEGMENT_BYTES);
+
+        recycler.swap();
+        Assert.assertSame(newLongs, recycler.getLongArray());
+        Assert.assertNotSame(oldBytes, recycler.getByteArray());
+    }
+
+    @Test
+    public void boundsRetainedBytesWhileApplyingDeltas() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+
+        for(int i=0;i<10000;i++)
+            mapper.add(new TypeA(i, i));
+
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        writer.writeSnapshot(snapshot);
+
+        writeEngine.prepareForNextCycle();
+        for(int i=0;i<10000;i++)
+            mapper.add(new TypeA(i, i * 2));
+
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        writer.writeDelta(delta);
+
+        long maxPooledBytes = 16 * 1024;
+        BoundedRecyclingRecycler recycler = new BoundedRecyclingRecycler(11, 8, maxPooledBytes, EvictionPolicy.EVICT_OLDEST);
+        HollowReadStateEngine readEngine = new HollowReadStateEngine(DefaultHashCodeFinder.INSTANCE, true, recycler);
+        HollowBlobReader reader = new HollowBlobReader(readEngine);
+        reader.readSnapshot(new ByteArrayInputStream(snapshot.toByteArray()));
+        reader.applyDelta(new ByteArrayInputStream(delta.toByteArray()));
+
+        Assert.assertTrue(recycler.getPeakRetainedBytes() <= maxPooledBytes);
+        Assert.assertTrue(recycler.getEvictions() > 0);
+        Assert.assertEquals(recycler.getRetainedBytes(), readEngine.getMemoryReport().getRecyclerPoolBytes());
+
+        HollowReadStateEngine expected = new HollowReadStateEngine();
+        HollowBlobReader expectedReader = new HollowBlobReader(expected);
+        expectedReader.readSnapshot(new ByteArrayInputStream(snapshot.toByteArray()));
+        expectedReader.applyDelta(new ByteArrayInputStream(delta.toByteArray()));
+
+        Assert.assertEquals(HollowChecksum.forStateEngine(expected), HollowChecksum.forStateEngine(readEngine));
+    }
+
+    @SuppressWarnings("unused")
+    private static class TypeA {
+        int id;
+        long value;
+
+        public TypeA(int id, long value) {
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.memory.pool;
+
+import com.netflix.hollow.core.memory.HollowUnsafeHandle;
+import com.netflix.hollow.core.memory.SegmentedByteArray;
+import com.netflix.hollow.core.memory.SegmentedLongArray;
+import java.nio.ByteBuffer;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ByteBufferRecyclerTest {
+
+    private static final long SLAB_SIZE = 1 << 26;
+
+    @Test
+    public void trimReleasesSlabsWhoseSegmentsAreAllAvailable() {
+        ByteBufferRecycler recycler = new ByteBufferRecycler(11, 8);
+
+        long[] addresses = new long[100];
+        for(int i=0;i<addresses.length;i++)
+            addresses[i] = recycler.getLongSegment();
+        long byteSegment = recycler.getByteSegment();
+
+        Assert.assertEquals(SLAB_SIZE, recycler.getAllocatedOffHeapBytes());
+        Assert.assertEquals(0, recycler.trim());
+
+        for(int i=0;i<addresses.length;i++)
+            recycler.recycleLongSegment(addresses[i]);
+        recycler.recycleByteSegment(byteSegment);
+
+        /// recycled segments may still be in use until the next swap
+        Assert.assertEquals(0, recycler.trim());
+
+        recycler.swap();
+        Assert.assertEquals(SLAB_SIZE, recycler.trim());
+        Assert.assertEquals(0, recycler.getAllocatedOffHeapBytes());
+        Assert.assertEquals(0, recycler.getPooledOffHeapBytes());
+
+        /// the recycler remains usable once trimmed
+        long address = recycler.getLongSegment();
+        Assert.assertNotEquals(0, address);
+        Assert.assertEquals(SLAB_SIZE, recycler.getAllocatedOffHeapBytes());
+    }
+
+    @Test
+    public void directBuffersCanBeFreedImmediately() {
+        Assert.assertTrue(HollowUnsafeHandle.freeDirectBuffer(ByteBuffer.allocateDirect(1024)));
+    }
+
+    @Test
+    public void trimRetainsSlabsWithSegmentsInUse() {
+        ByteBufferRecycler recycler = new ByteBufferRecycler(11, 8);
+
+        long inUse = recycler.getLongSegment();
+        long available = recycler.getLongSegment();
+        recycler.recycleLongSegment(available);
+        recycler.swap();
+
+        Assert.assertEquals(0, recycler.trim());
+        Assert.assertEquals(SLAB_SIZE, recycler.getAllocatedOffHeapBytes());
+
+        /// the available segment is still pooled
+        Assert.assertEquals(available, recycler.getLongSegment());
+        Assert.assertNotEquals(inUse, available);
+    }
+
+    @Test
+    public void offHeapArraysAreDestroyedIntoTheirOwnRecycler() {
+        ByteBufferRecycler offHeapRecycler = new ByteBufferRecycler(11, 8);
+
+        SegmentedLongArray longArray = new SegmentedLongArray(offHeapRecycler, 1000);
+        longArray.set(999, 12345L);
+        Assert.assertEquals(12345L, longArray.get(999));
+
+        SegmentedByteArray byteArray = new SegmentedByteArray(offHeapRecycler);
+        byteArray.set(5000, (byte)7);
+
+        /// a recycler which does not supply off-heap segments must not be assumed to accept them
+        longArray.destroy(new BoundedRecyclingRecycler(1 << 20));
+        byteArray.destroy();
+
+        offHeapRecycler.swap();
+        Assert.assertTrue(offHeapRecycler.getPooledOffHeapBytes() > 0);
+    }
+
+}
@@ -0,0 +1,168 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read;
+
+import com.netflix.hollow.core.memory.MappedDataInputStream;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.read.filter.HollowFilterConfig;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowBlobReaderMappedSnapshotTest {
+
+    private byte[] snapshot;
+    private File snapshotFile;
+    private List<byte[]> deltas;
+
+    @Before
+    public void setUp() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.setTargetMaxTypeShardSize(16384);
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+
+        deltas = new ArrayList<byte[]>();
+
+        for(int cycle=0;cycle<3;cycle++) {
+            for(int i=cycle*500;i<5000+(cycle*700);i++)
+                mapper.add(new TestRecord(i, cycle));
+
+            writeEngine.prepareForWrite();
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            if(cycle == 0) {
+                writer.writeSnapshot(baos);
+                snapshot = baos.toByteArray();
+                snapshotFile = File.createTempFile("snapshot", ".hollow");
+                snapshotFile.deleteOnExit();
+                FileOutputStream fos = new FileOutputStream(snapshotFile);
+                fos.write(snapshot);
+                fos.close();
+            } else {
+                writer.writeDelta(baos);
+                deltas.add(baos.toByteArray());
+            }
+
+            writeEngine.prepareForNextCycle();
+        }
+    }
+
+    @Test
+    public void readsSnapshotInPlace() throws IOException {
+        HollowReadStateEngine mappedEngine = new HollowReadStateEngine();
+        HollowReadStateEngine heapEngine = new HollowReadStateEngine();
+        HollowBlobReader mappedReader = new HollowBlobReader(mappedEngine);
+        HollowBlobReader heapReader = new HollowBlobReader(heapEngine);
+
+        MappedDataInputStream is = new MappedDataInputStream(snapshotFile);
+        try {
+            mappedReader.readSnapshot(is);
+        } finally {
+            is.close();
+        }
+        heapReader.readSnapshot(new ByteArrayInputStream(snapshot));
+
+        assertIdentical(heapEngine, mappedEngine);
+
+        for(byte[] delta : deltas) {
+            mappedReader.applyDelta(new ByteArrayInputStream(delta));
+            heapReader.applyDelta(new ByteArrayInputStream(delta));
+            assertIdentical(heapEngine, mappedEngine);
+        }
+    }
+
+    @Test
+    public void readsFilteredSnapshotInPlace() throws IOException {
+        HollowFilterConfig filter = new HollowFilterConfig(true);
+        filter.addField("TestRecord", "intField");
+        filter.addType("MapOfIntegerToLong");
+
+        HollowReadStateEngine mappedEngine = new HollowReadStateEngine();
+        HollowReadStateEngine heapEngine = new HollowReadStateEngine();
+
+        MappedDataInputStream is = new MappedDataInputStream(snapshotFile);
+        try {
+            new HollowBlobReader(mappedEngine).readSnapshot(is, filter);
+        } finally {
+            is.close();
+        }
+        new HollowBlobReader(heapEngine).readSnapshot(new ByteArrayInputStream(snapshot), filter);
+
+        Assert.assertEquals(HollowChecksum.forStateEngine(heapEngine), HollowChecksum.forStateEngine(mappedEngine));
+        Assert.assertNull(mappedEngine.getTypeState("MapOfIntegerToLong"));
+    }
+
+    private void assertIdentical(HollowReadStateEngine expected, HollowReadStateEngine actual) {
+        Assert.assertEquals(HollowChecksum.forStateEngine(expected), HollowChecksum.forStateEngine(actual));
+
+        HollowObjectTypeReadState expectedRecords = (HollowObjectTypeReadState)expected.getTypeState("TestRecord");
+        HollowObjectTypeReadState actualRecords = (HollowObjectTypeReadState)actual.getTypeState("TestRecord");
+        int bytesField = expectedRecords.getSchema().getPosition("bytesField");
+
+        for(int ordinal = expectedRecords.getPopulatedOrdinals().nextSetBit(0); ordinal != -1; ordinal = expectedRecords.getPopulatedOrdinals().nextSetBit(ordinal + 1)) {
+            Assert.assertEquals(expectedRecords.readLong(ordinal, 1), actualRecords.readLong(ordinal, 1));
+            Assert.assertTrue(Arrays.equals(expectedRecords.readBytes(ordinal, bytesField), actualRecords.readBytes(ordinal, bytesField)));
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class TestRecord {
+        int intField;
+        long longField;
+        byte[] bytesField;
+        List<Integer> listField;
+        Set<Integer> setField;
+        Map<Integer, Long> mapField;
+
+        TestRecord(int i, int cycle) {
+            this.intField = i;
+            this.longField = i % 3 == 0 ? ((long)cycle << 40) | i : i;
+            this.bytesField = new byte[i % 37];
+            this.listField = new ArrayList<Integer>();
+            this.setField = new HashSet<Integer>();
+            this.mapField = new HashMap<Integer, Long>();
+            for(int j=0;j<bytesField.length;j++)
+                bytesField[j] = (byte)(i + j);
+            for(int j=0;j<i%7;j++) {
+                listField.add(i + j);
+                setField.add(i * j);
+                mapField.put(j, (long)i);
+            }
+        }
+    }
+
+}
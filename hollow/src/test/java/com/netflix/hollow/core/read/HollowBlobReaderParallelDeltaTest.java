@@ -0,0 +1,141 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read;
+
+import com.netflix.hollow.core.read.engine.HollowBlobHeaderReader;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowBlobReaderParallelDeltaTest {
+
+    private byte[] snapshot;
+    private List<byte[]> deltas;
+    private List<byte[]> reverseDeltas;
+
+    @Before
+    public void setUp() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.setTargetMaxTypeShardSize(4096);
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+
+        deltas = new ArrayList<byte[]>();
+        reverseDeltas = new ArrayList<byte[]>();
+
+        for(int cycle=0;cycle<4;cycle++) {
+            for(int i=cycle*200;i<2000+(cycle*300);i++)
+                mapper.add(new TestRecord(i, cycle));
+
+            writeEngine.prepareForWrite();
+
+            if(cycle == 0) {
+                snapshot = write(writer, 0);
+            } else {
+                deltas.add(write(writer, 1));
+                reverseDeltas.add(0, write(writer, 2));
+            }
+
+            writeEngine.prepareForNextCycle();
+        }
+    }
+
+    @Test
+    public void producesIdenticalStateToSerialDeltas() throws IOException {
+        HollowReadStateEngine serialEngine = new HollowReadStateEngine();
+        HollowReadStateEngine parallelEngine = new HollowReadStateEngine();
+        HollowBlobReader serialReader = new HollowBlobReader(serialEngine);
+        HollowBlobReader parallelReader = new HollowBlobReader(parallelEngine, new HollowBlobHeaderReader(), null, new SimultaneousExecutor(4));
+
+        serialReader.readSnapshot(new ByteArrayInputStream(snapshot));
+        parallelReader.readSnapshot(new ByteArrayInputStream(snapshot));
+
+        Assert.assertTrue(parallelEngine.getTypeState("TestRecord").numShards() > 1);
+
+        for(byte[] delta : deltas) {
+            serialReader.applyDelta(new ByteArrayInputStream(delta));
+            parallelReader.applyDelta(new ByteArrayInputStream(delta));
+            assertIdentical(serialEngine, parallelEngine);
+        }
+
+        for(byte[] reverseDelta : reverseDeltas) {
+            serialReader.applyDelta(new ByteArrayInputStream(reverseDelta));
+            parallelReader.applyDelta(new ByteArrayInputStream(reverseDelta));
+            assertIdentical(serialEngine, parallelEngine);
+        }
+    }
+
+    private byte[] write(HollowBlobWriter writer, int blobType) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        switch(blobType) {
+        case 0: writer.writeSnapshot(baos); break;
+        case 1: writer.writeDelta(baos); break;
+        default: writer.writeReverseDelta(baos); break;
+        }
+        return baos.toByteArray();
+    }
+
+    private void assertIdentical(HollowReadStateEngine expected, HollowReadStateEngine actual) {
+        Assert.assertEquals(HollowChecksum.forStateEngine(expected), HollowChecksum.forStateEngine(actual));
+
+        for(String type : expected.getAllTypes()) {
+            Assert.assertEquals(expected.getTypeState(type).maxOrdinal(), actual.getTypeState(type).maxOrdinal());
+            Assert.assertEquals(expected.getTypeState(type).getPopulatedOrdinals(), actual.getTypeState(type).getPopulatedOrdinals());
+            Assert.assertEquals(expected.getTypeState(type).getPreviousOrdinals(), actual.getTypeState(type).getPreviousOrdinals());
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class TestRecord {
+        int intField;
+        long longField;
+        List<Integer> listField;
+        Set<Integer> setField;
+        Map<Integer, Long> mapField;
+
+        TestRecord(int i, int cycle) {
+            this.intField = i;
+            this.longField = i % 3 == 0 ? cycle : 0;
+            this.listField = new ArrayList<Integer>();
+            this.setField = new HashSet<Integer>();
+            this.mapField = new HashMap<Integer, Long>();
+            for(int j=0;j<i%7;j++) {
+                listField.add(i + j);
+                setField.add(i * j);
+                mapField.put(j, (long)i);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,141 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read;
+
+import com.netflix.hollow.core.read.engine.HollowBlobHeaderReader;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.filter.HollowFilterConfig;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowBlobReaderParallelSnapshotTest {
+
+    private byte[] snapshot;
+
+    @Before
+    public void setUp() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.setTargetMaxTypeShardSize(4096);
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+
+        for(int i=0;i<2000;i++)
+            mapper.add(new TestRecord(i));
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new HollowBlobWriter(writeEngine).writeSnapshot(baos);
+        snapshot = baos.toByteArray();
+    }
+
+    @Test
+    public void producesIdenticalStateToSerialRead() throws IOException {
+        HollowReadStateEngine serialEngine = readSnapshot(null, null);
+        HollowReadStateEngine parallelEngine = readSnapshot(new SimultaneousExecutor(4), null);
+
+        Assert.assertTrue(parallelEngine.getTypeState("TestRecord").numShards() > 1);
+        assertIdentical(serialEngine, parallelEngine);
+    }
+
+    @Test
+    public void producesIdenticalFilteredStateToSerialRead() throws IOException {
+        HollowFilterConfig filter = new HollowFilterConfig(true);
+        filter.addField("TestRecord", "longField");
+        filter.addType("SetOfInteger");
+
+        HollowReadStateEngine serialEngine = readSnapshot(null, filter);
+        HollowReadStateEngine parallelEngine = readSnapshot(new SimultaneousExecutor(4), filter);
+
+        Assert.assertNull(parallelEngine.getTypeState("SetOfInteger"));
+        Assert.assertEquals(-1, ((HollowObjectSchema)parallelEngine.getSchema("TestRecord")).getPosition("longField"));
+        assertIdentical(serialEngine, parallelEngine);
+    }
+
+    @Test
+    public void decodesSectionsAfterTheyAreReadWithCallingThreadExecutor() throws IOException {
+        HollowReadStateEngine serialEngine = readSnapshot(null, null);
+        HollowReadStateEngine parallelEngine = readSnapshot(new Executor() {
+            public void execute(Runnable command) {
+                command.run();
+            }
+        }, null);
+
+        assertIdentical(serialEngine, parallelEngine);
+    }
+
+    private HollowReadStateEngine readSnapshot(Executor executor, HollowFilterConfig filter) throws IOException {
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        HollowBlobReader reader = new HollowBlobReader(readEngine, new HollowBlobHeaderReader(), executor);
+        if(filter == null)
+            reader.readSnapshot(new ByteArrayInputStream(snapshot));
+        else
+            reader.readSnapshot(new ByteArrayInputStream(snapshot), filter);
+        return readEngine;
+    }
+
+    private void assertIdentical(HollowReadStateEngine expected, HollowReadStateEngine actual) {
+        Assert.assertEquals(new HashSet<String>(expected.getAllTypes()), new HashSet<String>(actual.getAllTypes()));
+        Assert.assertEquals(HollowChecksum.forStateEngine(expected), HollowChecksum.forStateEngine(actual));
+
+        for(String type : expected.getAllTypes()) {
+            Assert.assertEquals(expected.getTypeState(type).maxOrdinal(), actual.getTypeState(type).maxOrdinal());
+            Assert.assertEquals(expected.getTypeState(type).getPopulatedOrdinals(), actual.getTypeState(type).getPopulatedOrdinals());
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class TestRecord {
+        int intField;
+        long longField;
+        double doubleField;
+        List<Integer> listField;
+        Set<Integer> setField;
+        Map<Integer, Long> mapField;
+
+        TestRecord(int i) {
+            this.intField = i;
+            this.longField = i * 1000L;
+            this.doubleField = i / 3d;
+            this.listField = new ArrayList<Integer>();
+            this.setField = new HashSet<Integer>();
+            this.mapField = new HashMap<Integer, Long>();
+            for(int j=0;j<i%7;j++) {
+                listField.add(i + j);
+                setField.add(i * j);
+                mapField.put(j, (long)i);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read;
+
+import com.netflix.hollow.api.sampling.HollowFieldAccessSnapshot;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowLazyTypeMaterializationTest {
+
+    private byte[] snapshot;
+    private List<byte[]> deltas;
+
+    @Before
+    public void setUp() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.setTargetMaxTypeShardSize(16384);
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+
+        deltas = new ArrayList<byte[]>();
+
+        for(int cycle=0;cycle<3;cycle++) {
+            for(int i=cycle*500;i<5000+(cycle*700);i++) {
+                mapper.add(new TestRecord(i, cycle));
+                mapper.add(new UnusedRecord(i * cycle));
+            }
+
+            writeEngine.prepareForWrite();
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            if(cycle == 0) {
+                writer.writeSnapshot(baos);
+                snapshot = baos.toByteArray();
+            } else {
+                writer.writeDelta(baos);
+                deltas.add(baos.toByteArray());
+            }
+
+            writeEngine.prepareForNextCycle();
+        }
+    }
+
+    @Test
+    public void materializesTypesOnFirstAccess() throws IOException {
+        HollowReadStateEngine eagerEngine = new HollowReadStateEngine();
+        HollowReadStateEngine lazyEngine = new HollowReadStateEngine();
+        lazyEngine.setLazyTypeMaterialization(true);
+
+        HollowBlobReader eagerReader = new HollowBlobReader(eagerEngine);
+        HollowBlobReader lazyReader = new HollowBlobReader(lazyEngine);
+
+        eagerReader.readSnapshot(new ByteArrayInputStream(snapshot));
+        lazyReader.readSnapshot(new ByteArrayInputStream(snapshot));
+
+        Assert.assertTrue(lazyEngine.getMaterializedTypeStates().isEmpty());
+        Assert.assertEquals(new HashSet<String>(eagerEngine.getAllTypes()), new HashSet<String>(lazyEngine.getAllTypes()));
+        Assert.assertEquals(eagerEngine.getSchemas().size(), lazyEngine.getSchemas().size());
+        Assert.assertEquals(eagerEngine.getSchema("TestRecord"), lazyEngine.getSchema("TestRecord"));
+
+        /// deltas for types which have not been materialized are retained
+        eagerReader.applyDelta(new ByteArrayInputStream(deltas.get(0)));
+        lazyReader.applyDelta(new ByteArrayInputStream(deltas.get(0)));
+        Assert.assertTrue(lazyEngine.getMaterializedTypeStates().isEmpty());
+
+        /// the retrieved type, and the types it references, are materialized
+        HollowObjectTypeReadState lazyRecords = (HollowObjectTypeReadState)lazyEngine.getTypeState("TestRecord");
+        Assert.assertNotNull(lazyRecords);
+        Assert.assertNotNull(lazyRecords.getSchema().getReferencedTypeState(lazyRecords.getSchema().getPosition("listField")));
+        Assert.assertEquals(eagerEngine.getTypeState("TestRecord").getPopulatedOrdinals(), lazyRecords.getPopulatedOrdinals());
+        Assert.assertEquals(eagerEngine.getTypeState("TestRecord").getPreviousOrdinals(), lazyRecords.getPreviousOrdinals());
+
+        Set<String> materializedTypes = new HashSet<String>();
+        for(HollowTypeReadState typeState : lazyEngine.getMaterializedTypeStates())
+            materializedTypes.add(typeState.getSchema().getName());
+        Assert.assertTrue(materializedTypes.contains("ListOfInteger"));
+        Assert.assertTrue(materializedTypes.contains("Integer"));
+        Assert.assertFalse(materializedTypes.contains("UnusedRecord"));
+
+        /// deltas for materialized types are applied as usual
+        eagerReader.applyDelta(new ByteArrayInputStream(deltas.get(1)));
+        lazyReader.applyDelta(new ByteArrayInputStream(deltas.get(1)));
+
+        for(String type : eagerEngine.getAllTypes())
+            Assert.assertNotNull(lazyEngine.getTypeDataAccess(type));
+
+        Assert.assertEquals(eagerEngine.getTypeStates().size(), lazyEngine.getTypeStates().size());
+        Assert.assertEquals(HollowChecksum.forStateEngine(eagerEngine), HollowChecksum.forStateEngine(lazyEngine));
+    }
+
+    @Test
+    public void getTypeStatesMaterializesEveryType() throws IOException {
+        HollowReadStateEngine eagerEngine = new HollowReadStateEngine();
+        HollowReadStateEngine lazyEngine = new HollowReadStateEngine();
+        lazyEngine.setLazyTypeMaterialization(true);
+        lazyEngine.setFieldAccessCounting(true);
+
+        new HollowBlobReader(eagerEngine).readSnapshot(new ByteArrayInputStream(snapshot));
+        new HollowBlobReader(lazyEngine).readSnapshot(new ByteArrayInputStream(snapshot));
+
+        /// unmaterialized types are captured with no accesses, without materializing them
+        HollowFieldAccessSnapshot accessSnapshot = HollowFieldAccessSnapshot.capture(lazyEngine);
+        Assert.assertEquals(0, accessSnapshot.getAccessCount("UnusedRecord", "value"));
+        Assert.assertTrue(accessSnapshot.getAccessCounts().containsKey("UnusedRecord.value"));
+        Assert.assertTrue(lazyEngine.getMaterializedTypeStates().isEmpty());
+
+        Assert.assertEquals(HollowChecksum.forStateEngine(eagerEngine), HollowChecksum.forStateEngine(lazyEngine));
+        Assert.assertEquals(eagerEngine.getTypeStates().size(), lazyEngine.getMaterializedTypeStates().size());
+    }
+
+    @Test
+    public void materializesTypeOnUpdateThreadOnceDeltaQueueIsFull() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+
+        HollowReadStateEngine eagerEngine = new HollowReadStateEngine();
+        HollowReadStateEngine lazyEngine = new HollowReadStateEngine();
+        lazyEngine.setLazyTypeMaterialization(true);
+        HollowBlobReader eagerReader = new HollowBlobReader(eagerEngine);
+        HollowBlobReader lazyReader = new HollowBlobReader(lazyEngine);
+
+        for(int cycle=0;cycle<20;cycle++) {
+            for(int i=0;i<100;i++)
+                mapper.add(new UnusedRecord(i + cycle));
+
+            writeEngine.prepareForWrite();
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            if(cycle == 0) {
+                writer.writeSnapshot(baos);
+                eagerReader.readSnapshot(new ByteArrayInputStream(baos.toByteArray()));
+                lazyReader.readSnapshot(new ByteArrayInputStream(baos.toByteArray()));
+            } else {
+                writer.writeDelta(baos);
+                eagerReader.applyDelta(new ByteArrayInputStream(baos.toByteArray()));
+                lazyReader.applyDelta(new ByteArrayInputStream(baos.toByteArray()));
+            }
+
+            writeEngine.prepareForNextCycle();
+        }
+
+        /// far fewer deltas than were applied are retained before the type is materialized
+        Assert.assertEquals(1, lazyEngine.getMaterializedTypeStates().size());
+
+        HollowTypeReadState eagerRecords = eagerEngine.getTypeState("UnusedRecord");
+        HollowTypeReadState lazyRecords = lazyEngine.getTypeState("UnusedRecord");
+        Assert.assertEquals(eagerRecords.getPopulatedOrdinals(), lazyRecords.getPopulatedOrdinals());
+        Assert.assertEquals(eagerRecords.getPreviousOrdinals(), lazyRecords.getPreviousOrdinals());
+        Assert.assertEquals(HollowChecksum.forStateEngine(eagerEngine), HollowChecksum.forStateEngine(lazyEngine));
+    }
+
+    @SuppressWarnings("unused")
+    private static class TestRecord {
+        int intField;
+        long longField;
+        List<Integer> listField;
+
+        TestRecord(int i, int cycle) {
+            this.intField = i;
+            this.longField = ((long)cycle << 40) | i;
+            this.listField = new ArrayList<Integer>();
+            for(int j=0;j<i%7;j++)
+                listField.add(i + j);
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class UnusedRecord {
+        long value;
+
+        UnusedRecord(long value) {
+            this.value = value;
+        }
+    }
+
+}
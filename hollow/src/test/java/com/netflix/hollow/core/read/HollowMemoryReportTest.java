@@ -0,0 +1,172 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read;
+
+import com.netflix.hollow.core.index.HollowHashIndex;
+import com.netflix.hollow.core.index.HollowPrimaryKeyIndex;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowMemoryMonitor;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.FieldMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.ShardMemory;
+import com.netflix.hollow.core.read.engine.HollowMemoryReport.TypeMemory;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.schema.HollowSchema.SchemaType;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowMemoryReportTest {
+
+    private HollowReadStateEngine readEngine;
+
+    @Before
+    public void setUp() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.setTargetMaxTypeShardSize(4096);
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+
+        for(int i=0;i<1000;i++) {
+            Map<Integer, Integer> map = new HashMap<Integer, Integer>();
+            map.put(i, i + 1);
+            map.put(i + 1, i + 2);
+            mapper.add(new TypeA(i, new byte[] { (byte)i, (byte)(i >> 8), 1, 2, 3 }, Arrays.asList(i, i + 1, i + 2), new HashSet<Integer>(Arrays.asList(i, i + 3)), map));
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new HollowBlobWriter(writeEngine).writeSnapshot(baos);
+
+        readEngine = new HollowReadStateEngine();
+        new HollowBlobReader(readEngine).readSnapshot(new ByteArrayInputStream(baos.toByteArray()));
+    }
+
+    @Test
+    public void reportsPerTypeShardAndField() {
+        HollowMemoryReport report = readEngine.getMemoryReport();
+
+        TypeMemory typeA = report.getType("TypeA");
+        Assert.assertEquals(SchemaType.OBJECT, typeA.getSchemaType());
+        Assert.assertEquals(readEngine.getTypeState("TypeA").numShards(), typeA.getShards().size());
+        Assert.assertTrue(typeA.getShards().size() > 1);
+        Assert.assertTrue(typeA.getOrdinalTrackingBytes() > 0);
+
+        long dataVarLengthBytes = 0;
+        for(ShardMemory shard : typeA.getShards()) {
+            long fieldFixedLengthBytes = 0;
+            for(FieldMemory field : shard.getFields()) {
+                fieldFixedLengthBytes += field.getFixedLengthBytes();
+            }
+            Assert.assertEquals(5, shard.getFields().size());
+            /// each field's share of the allocation is rounded down
+            Assert.assertTrue(shard.getFixedLengthBytes() >= fieldFixedLengthBytes);
+            Assert.assertTrue(shard.getFixedLengthBytes() < fieldFixedLengthBytes + shard.getFields().size());
+            Assert.assertEquals(0, shard.getField("id").getVarLengthBytes());
+            dataVarLengthBytes += shard.getField("data").getVarLengthBytes();
+        }
+        Assert.assertTrue(dataVarLengthBytes >= 5000);
+        Assert.assertEquals(dataVarLengthBytes, typeA.getVarLengthBytes());
+        Assert.assertEquals(0, typeA.getHashTableOverheadBytes());
+
+        TypeMemory list = report.getType("ListOfInteger");
+        Assert.assertEquals(0, list.getHashTableOverheadBytes());
+        Assert.assertTrue(list.getFieldBytes("elements") >= (3000 * list.getShards().get(0).getField("elements").getBitsPerField()) / 8);
+        Assert.assertEquals(list.getFixedLengthBytes(), list.getFieldBytes("pointers") + list.getFieldBytes("elements"));
+
+        Assert.assertTrue(report.getType("SetOfInteger").getHashTableOverheadBytes() > 0);
+        Assert.assertTrue(report.getType("MapOfIntegerToInteger").getHashTableOverheadBytes() > 0);
+
+        long totalBytes = report.getRecyclerPoolBytes();
+        for(TypeMemory type : report.getTypes())
+            totalBytes += type.getTotalBytes();
+        Assert.assertEquals(totalBytes, report.getTotalBytes());
+        Assert.assertTrue(report.getRecyclerPoolBytes() >= 0);
+    }
+
+    @Test
+    public void reportsIndexesListeningForDeltaUpdates() {
+        Assert.assertEquals(0, readEngine.getMemoryReport().getType("TypeA").getIndexBytes());
+
+        HollowPrimaryKeyIndex primaryKeyIndex = new HollowPrimaryKeyIndex(readEngine, "TypeA", "id");
+        HollowHashIndex hashIndex = new HollowHashIndex(readEngine, "TypeA", "", "id");
+        primaryKeyIndex.listenForDeltaUpdates();
+        hashIndex.listenForDeltaUpdates();
+
+        TypeMemory typeA = readEngine.getMemoryReport().getType("TypeA");
+        Assert.assertEquals(2, typeA.getIndexes().size());
+        Assert.assertEquals(primaryKeyIndex.getIndexMemory().getBytes() + hashIndex.getIndexMemory().getBytes(), typeA.getIndexBytes());
+        Assert.assertTrue(primaryKeyIndex.getIndexMemory().getBytes() >= (1000 * 10) / 8);
+        Assert.assertTrue(hashIndex.getIndexMemory().getBytes() > 0);
+        Assert.assertEquals(typeA.getFixedLengthBytes() + typeA.getVarLengthBytes() + typeA.getOrdinalTrackingBytes() + typeA.getIndexBytes(), typeA.getTotalBytes());
+
+        primaryKeyIndex.detachFromDeltaUpdates();
+        hashIndex.detachFromDeltaUpdates();
+        Assert.assertEquals(0, readEngine.getMemoryReport().getType("TypeA").getIndexBytes());
+    }
+
+    @Test
+    public void exposesReportViaJmx() throws Exception {
+        HollowMemoryMonitor monitor = new HollowMemoryMonitor(readEngine);
+        monitor.register("test");
+
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName("com.netflix.hollow:type=HollowMemory,name=\"test\"");
+
+            Assert.assertEquals(monitor.getTotalBytes(), ((Long)server.getAttribute(name, "TotalBytes")).longValue());
+            Assert.assertNotNull(server.getAttribute(name, "FieldBytes"));
+            Assert.assertNotNull(server.getAttribute(name, "TypeIndexBytes"));
+            Assert.assertTrue(((String)server.getAttribute(name, "Report")).contains("TypeA (OBJECT)"));
+            Assert.assertTrue(monitor.getFieldBits().get("TypeA.id") > 0);
+        } finally {
+            monitor.unregister();
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class TypeA {
+        int id;
+        byte[] data;
+        List<Integer> list;
+        Set<Integer> set;
+        Map<Integer, Integer> map;
+
+        public TypeA(int id, byte[] data, List<Integer> list, Set<Integer> set, Map<Integer, Integer> map) {
+            this.id = id;
+            this.data = data;
+            this.list = list;
+            this.set = set;
+            this.map = map;
+        }
+    }
+
+}
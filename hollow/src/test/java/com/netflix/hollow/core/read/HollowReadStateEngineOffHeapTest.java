@@ -0,0 +1,156 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read;
+
+import com.netflix.hollow.core.memory.pool.ByteBufferRecycler;
+import com.netflix.hollow.core.memory.pool.RecyclingRecycler;
+import com.netflix.hollow.core.read.engine.HollowBlobHeaderReader;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.util.SimultaneousExecutor;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.tools.checksum.HollowChecksum;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowReadStateEngineOffHeapTest {
+
+    private byte[] snapshot;
+    private List<byte[]> deltas;
+
+    @Before
+    public void setUp() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.setTargetMaxTypeShardSize(16384);
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+
+        deltas = new ArrayList<byte[]>();
+
+        for(int cycle=0;cycle<3;cycle++) {
+            for(int i=cycle*500;i<5000+(cycle*700);i++)
+                mapper.add(new TestRecord(i, cycle));
+
+            writeEngine.prepareForWrite();
+
+            ByteArrayOutputStream baos = new ByteArrayOutputStream();
+            if(cycle == 0) {
+                writer.writeSnapshot(baos);
+                snapshot = baos.toByteArray();
+            } else {
+                writer.writeDelta(baos);
+                deltas.add(baos.toByteArray());
+            }
+
+            writeEngine.prepareForNextCycle();
+        }
+    }
+
+    @Test
+    public void directMemory() throws IOException {
+        HollowReadStateEngine offHeapEngine = new HollowReadStateEngine(new ByteBufferRecycler(11, 8));
+        assertIdenticalToHeap(offHeapEngine, new HollowBlobReader(offHeapEngine), new HollowReadStateEngine());
+    }
+
+    @Test
+    public void mappedMemory() throws IOException {
+        File tempDir = new File(System.getProperty("java.io.tmpdir"));
+        HollowReadStateEngine offHeapEngine = new HollowReadStateEngine(new ByteBufferRecycler(10, 7, tempDir));
+        HollowReadStateEngine heapEngine = new HollowReadStateEngine(new RecyclingRecycler(10, 7));
+        assertIdenticalToHeap(offHeapEngine, new HollowBlobReader(offHeapEngine), heapEngine);
+    }
+
+    @Test
+    public void directMemoryWithParallelLoading() throws IOException {
+        HollowReadStateEngine offHeapEngine = new HollowReadStateEngine(new ByteBufferRecycler(11, 8));
+        SimultaneousExecutor executor = new SimultaneousExecutor(4);
+        HollowBlobReader offHeapReader = new HollowBlobReader(offHeapEngine, new HollowBlobHeaderReader(), executor, executor);
+
+        assertIdenticalToHeap(offHeapEngine, offHeapReader, new HollowReadStateEngine());
+    }
+
+    private void assertIdenticalToHeap(HollowReadStateEngine offHeapEngine, HollowBlobReader offHeapReader, HollowReadStateEngine heapEngine) throws IOException {
+        HollowBlobReader heapReader = new HollowBlobReader(heapEngine);
+
+        offHeapReader.readSnapshot(new ByteArrayInputStream(snapshot));
+        heapReader.readSnapshot(new ByteArrayInputStream(snapshot));
+
+        assertIdentical(heapEngine, offHeapEngine);
+
+        for(byte[] delta : deltas) {
+            offHeapReader.applyDelta(new ByteArrayInputStream(delta));
+            heapReader.applyDelta(new ByteArrayInputStream(delta));
+            assertIdentical(heapEngine, offHeapEngine);
+        }
+    }
+
+    private void assertIdentical(HollowReadStateEngine expected, HollowReadStateEngine actual) {
+        Assert.assertEquals(HollowChecksum.forStateEngine(expected), HollowChecksum.forStateEngine(actual));
+
+        HollowObjectTypeReadState expectedRecords = (HollowObjectTypeReadState)expected.getTypeState("TestRecord");
+        HollowObjectTypeReadState actualRecords = (HollowObjectTypeReadState)actual.getTypeState("TestRecord");
+        int bytesField = expectedRecords.getSchema().getPosition("bytesField");
+
+        for(int ordinal = expectedRecords.getPopulatedOrdinals().nextSetBit(0); ordinal != -1; ordinal = expectedRecords.getPopulatedOrdinals().nextSetBit(ordinal + 1)) {
+            Assert.assertEquals(expectedRecords.readLong(ordinal, 1), actualRecords.readLong(ordinal, 1));
+            Assert.assertTrue(Arrays.equals(expectedRecords.readBytes(ordinal, bytesField), actualRecords.readBytes(ordinal, bytesField)));
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class TestRecord {
+        int intField;
+        long longField;
+        byte[] bytesField;
+        List<Integer> listField;
+        Set<Integer> setField;
+        Map<Integer, Long> mapField;
+
+        TestRecord(int i, int cycle) {
+            this.intField = i;
+            this.longField = i % 3 == 0 ? ((long)cycle << 40) | i : i;
+            this.bytesField = new byte[i % 37];
+            this.listField = new ArrayList<Integer>();
+            this.setField = new HashSet<Integer>();
+            this.mapField = new HashMap<Integer, Long>();
+            for(int j=0;j<bytesField.length;j++)
+                bytesField[j] = (byte)(i + j);
+            for(int j=0;j<i%7;j++) {
+                listField.add(i + j);
+                setField.add(i * j);
+                mapField.put(j, (long)i);
+            }
+        }
+    }
+
+}
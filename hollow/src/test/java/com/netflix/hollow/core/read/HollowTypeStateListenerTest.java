@@ -26,11 +26,16 @@ import com.netflix.hollow.core.write.HollowObjectWriteRecord;
 import com.netflix.hollow.core.write.HollowWriteStateEngine;
 import com.netflix.hollow.core.read.engine.HollowBlobReader;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.HollowTypeReadState;
+import com.netflix.hollow.core.read.engine.HollowTypeStateListener;
 import com.netflix.hollow.core.read.engine.PopulatedOrdinalListener;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
+import java.util.List;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -94,6 +99,41 @@ public class HollowTypeStateListenerTest {
         Assert.assertTrue(populatedBitSet.get(4));
     }
 
+    @Test
+    public void removesEachRegisteredListener() throws IOException {
+        HollowObjectTypeWriteState writeState = new HollowObjectTypeWriteState(schema);
+        writeStateEngine.addTypeState(writeState);
+        addRecord(writeState, 1, "one");
+        roundTripSnapshot();
+
+        HollowTypeReadState typeState = readStateEngine.getTypeState("TestObject");
+        List<HollowTypeStateListener> expected = new ArrayList<HollowTypeStateListener>(Arrays.asList(typeState.getListeners()));
+        PopulatedOrdinalListener first = new PopulatedOrdinalListener();
+        PopulatedOrdinalListener last = new PopulatedOrdinalListener();
+        typeState.addListener(first);
+        typeState.addListener(last);
+        expected.add(first);
+        expected.add(last);
+        Assert.assertEquals(expected, Arrays.asList(typeState.getListeners()));
+
+        /// the most recently registered listener is the last in the array
+        typeState.removeListener(last);
+        expected.remove(last);
+        Assert.assertEquals(expected, Arrays.asList(typeState.getListeners()));
+
+        /// removing a listener which is not registered has no effect
+        typeState.removeListener(last);
+        Assert.assertEquals(expected, Arrays.asList(typeState.getListeners()));
+
+        typeState.removeListener(listener);
+        expected.remove(listener);
+        Assert.assertEquals(expected, Arrays.asList(typeState.getListeners()));
+
+        typeState.removeListener(first);
+        expected.remove(first);
+        Assert.assertEquals(expected, Arrays.asList(typeState.getListeners()));
+    }
+
     private void addRecord(HollowObjectTypeWriteState writeState, int intVal, String strVal) {
         HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
 
@@ -0,0 +1,177 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BlobSectionRecorderTest {
+
+    private File spillDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        spillDirectory = Files.createTempDirectory("hollow-spill").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        for(File f : spillDirectory.listFiles())
+            f.delete();
+        spillDirectory.delete();
+    }
+
+    @Test
+    public void retainsSmallSectionsOnHeap() throws IOException {
+        byte[] data = data(1000);
+        BlobSectionRecorder recorder = new BlobSectionRecorder(new ByteArrayInputStream(data), 4096, spillDirectory);
+
+        new DataInputStream(recorder).readFully(new byte[1000]);
+        Assert.assertEquals(0, spillDirectory.list().length);
+
+        Assert.assertArrayEquals(data, readFully(recorder.endSection()));
+    }
+
+    @Test
+    public void spillsLargeSectionsToFile() throws IOException {
+        byte[] data = data(100000);
+        BlobSectionRecorder recorder = new BlobSectionRecorder(new ByteArrayInputStream(data), 4096, spillDirectory);
+        DataInputStream dis = new DataInputStream(recorder);
+
+        /// mix single-byte reads, bulk reads and skips, across the heap limit
+        byte[] first = new byte[40000];
+        first[0] = dis.readByte();
+        dis.readFully(first, 1, 39999);
+        dis.skipBytes(20000);
+        InputStream firstSection = recorder.endSection();
+
+        dis.readFully(new byte[40000]);
+        InputStream secondSection = recorder.endSection();
+
+        byte[] expectedFirst = new byte[60000];
+        System.arraycopy(data, 0, expectedFirst, 0, 60000);
+        byte[] expectedSecond = new byte[40000];
+        System.arraycopy(data, 60000, expectedSecond, 0, 40000);
+
+        Assert.assertArrayEquals(expectedFirst, readFully(firstSection));
+        Assert.assertArrayEquals(expectedSecond, readFully(secondSection));
+
+        firstSection.close();
+        secondSection.close();
+        Assert.assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test
+    public void spillsEntireSectionWithNoHeapAllowance() throws IOException {
+        byte[] data = data(10000);
+        BlobSectionRecorder recorder = new BlobSectionRecorder(new ByteArrayInputStream(data), 0, spillDirectory);
+
+        new DataInputStream(recorder).readFully(new byte[10000]);
+        InputStream section = recorder.endSection();
+
+        Assert.assertArrayEquals(data, readFully(section));
+        section.close();
+        Assert.assertEquals(0, spillDirectory.list().length);
+    }
+
+    @Test
+    public void handsChunksToConcurrentReaderWithoutSpilling() throws Exception {
+        byte[] data = data(100000);
+        BlobSectionRecorder recorder = new BlobSectionRecorder(new ByteArrayInputStream(data), 4096, spillDirectory);
+
+        SectionReader reader = new SectionReader(recorder.currentSection());
+        reader.start();
+        awaitWaiting(reader);
+
+        /// the reader releases each chunk as it is read, so the recorded section never exceeds the heap allowance.
+        new DataInputStream(recorder).readFully(new byte[100000]);
+        Assert.assertEquals(0, spillDirectory.list().length);
+
+        InputStream section = recorder.endSection();
+        reader.join();
+        Assert.assertNull(reader.failure);
+        Assert.assertArrayEquals(data, reader.bytesRead);
+        section.close();
+    }
+
+    @Test
+    public void abandonedSectionEndsConcurrentReader() throws Exception {
+        BlobSectionRecorder recorder = new BlobSectionRecorder(new ByteArrayInputStream(data(10000)), 4096, spillDirectory);
+
+        SectionReader reader = new SectionReader(recorder.currentSection());
+        reader.start();
+        awaitWaiting(reader);
+
+        new DataInputStream(recorder).readFully(new byte[10000]);
+        recorder.abandonCurrentSection();
+
+        reader.join();
+        Assert.assertNull(reader.failure);
+        Assert.assertTrue(reader.bytesRead.length < 10000);
+        Assert.assertEquals(0, spillDirectory.list().length);
+    }
+
+    private static void awaitWaiting(Thread thread) throws InterruptedException {
+        while(thread.getState() != Thread.State.WAITING)
+            Thread.sleep(1);
+    }
+
+    private static class SectionReader extends Thread {
+        private final InputStream section;
+        private volatile byte[] bytesRead;
+        private volatile Throwable failure;
+
+        SectionReader(InputStream section) {
+            this.section = section;
+        }
+
+        public void run() {
+            try {
+                bytesRead = readFully(section);
+            } catch(Throwable th) {
+                failure = th;
+            }
+        }
+    }
+
+    private static byte[] data(int length) {
+        byte[] data = new byte[length];
+        for(int i=0;i<length;i++)
+            data[i] = (byte)(i * 31);
+        return data;
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] buf = new byte[4096];
+        int n;
+        while((n = is.read(buf)) != -1)
+            baos.write(buf, 0, n);
+        return baos.toByteArray();
+    }
+
+}
@@ -0,0 +1,139 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine.object;
+
+import com.netflix.hollow.core.AbstractStateEngineTest;
+import com.netflix.hollow.core.memory.pool.RecyclingRecycler;
+import com.netflix.hollow.core.read.dataaccess.HollowObjectTypeDataAccess;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import com.netflix.hollow.core.util.StateEngineRoundTripper;
+import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
+import java.io.IOException;
+import java.util.BitSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowObjectTypeReadSessionRetentionTest extends AbstractStateEngineTest {
+
+    private static final int NUM_RECORDS = 100;
+
+    HollowObjectSchema schema;
+
+    @Before
+    public void setUp() {
+        schema = new HollowObjectSchema("TestObject", 2);
+        schema.addField("id", FieldType.INT);
+        schema.addField("value", FieldType.LONG);
+
+        super.setUp();
+    }
+
+    @Test
+    public void retiredDataIsDestroyedOnceOlderSessionsClose() throws IOException {
+        readStateEngine = new HollowReadStateEngine(new RecyclingRecycler());
+
+        addRecords(0);
+        StateEngineRoundTripper.roundTripSnapshot(writeStateEngine, readStateEngine);
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState)readStateEngine.getTypeState("TestObject");
+        int numShards = typeState.numShards();
+
+        HollowObjectTypeReadSession session0 = typeState.openReadSession();
+
+        applyDelta(1);
+        HollowObjectTypeReadSession session1 = typeState.openReadSession();
+        int ordinals1[] = ordinalsById(typeState);
+        Assert.assertEquals(numShards, typeState.numRetiredDataElements());
+
+        applyDelta(2);
+        HollowObjectTypeReadSession session2 = typeState.openReadSession();
+        int ordinals2[] = ordinalsById(typeState);
+        Assert.assertEquals(2 * numShards, typeState.numRetiredDataElements());
+
+        /// the sessions overlap: once the oldest is closed, only the data it alone pinned is destroyed
+        session0.close();
+        applyDelta(3);
+        Assert.assertEquals(2 * numShards, typeState.numRetiredDataElements());
+        assertValues(session1, ordinals1, 1);
+        assertValues(session2, ordinals2, 2);
+
+        session1.close();
+        applyDelta(4);
+        Assert.assertEquals(2 * numShards, typeState.numRetiredDataElements());
+        assertValues(session2, ordinals2, 2);
+
+        /// data replaced before the oldest open session was opened is destroyed, regardless of newer sessions
+        HollowObjectTypeReadSession session4 = typeState.openReadSession();
+        int ordinals4[] = ordinalsById(typeState);
+        session2.close();
+        applyDelta(5);
+        Assert.assertEquals(numShards, typeState.numRetiredDataElements());
+        applyDelta(6);
+        Assert.assertEquals(2 * numShards, typeState.numRetiredDataElements());
+        assertValues(session4, ordinals4, 4);
+
+        session4.close();
+        applyDelta(7);
+        Assert.assertEquals(0, typeState.numRetiredDataElements());
+        assertValues(typeState, ordinalsById(typeState), 7);
+    }
+
+    private void applyDelta(int cycle) throws IOException {
+        addRecords(cycle);
+        StateEngineRoundTripper.roundTripDelta(writeStateEngine, readStateEngine);
+    }
+
+    private void addRecords(int cycle) {
+        HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
+
+        for(int i=0;i<NUM_RECORDS;i++) {
+            rec.reset();
+            rec.setInt("id", i);
+            rec.setLong("value", (long)i * 1000 + cycle);
+            writeStateEngine.add("TestObject", rec);
+        }
+    }
+
+    private int[] ordinalsById(HollowObjectTypeReadState typeState) {
+        int ordinals[] = new int[NUM_RECORDS];
+        BitSet populatedOrdinals = typeState.getPopulatedOrdinals();
+        int ordinal = populatedOrdinals.nextSetBit(0);
+        while(ordinal != -1) {
+            ordinals[typeState.readInt(ordinal, 0)] = ordinal;
+            ordinal = populatedOrdinals.nextSetBit(ordinal + 1);
+        }
+        return ordinals;
+    }
+
+    private void assertValues(HollowObjectTypeDataAccess access, int ordinals[], int cycle) {
+        for(int i=0;i<NUM_RECORDS;i++) {
+            Assert.assertEquals(i, access.readInt(ordinals[i], 0));
+            Assert.assertEquals((long)i * 1000 + cycle, access.readLong(ordinals[i], 1));
+        }
+    }
+
+    @Override
+    protected void initializeTypeStates() {
+        writeStateEngine.setTargetMaxTypeShardSize(512);
+        writeStateEngine.addTypeState(new HollowObjectTypeWriteState(schema));
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.engine.object;
+
+import com.netflix.hollow.core.AbstractStateEngineTest;
+import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
+import com.netflix.hollow.core.memory.encoding.ZigZag;
+import com.netflix.hollow.core.memory.pool.WastefulRecycler;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
+import java.io.IOException;
+import java.util.BitSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowObjectTypeReadStateColumnOffsetTest extends AbstractStateEngineTest {
+
+    private static final int LOG2_BITS_PER_RECORD = 24;
+
+    HollowObjectSchema schema;
+
+    @Before
+    public void setUp() {
+        schema = new HollowObjectSchema("TestObject", 3);
+        schema.addField("intField", FieldType.INT);
+        schema.addField("longField", FieldType.LONG);
+        schema.addField("refField", FieldType.REFERENCE, "TestObject");
+
+        super.setUp();
+    }
+
+    @Test
+    public void readsColumnsWhereFieldOffsetsExceedIntegerRange() throws IOException {
+        HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
+        rec.setInt("intField", 1);
+        rec.setLong("longField", 1);
+        rec.setReference("refField", 0);
+        writeStateEngine.add("TestObject", rec);
+
+        roundTripSnapshot();
+
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState)readStateEngine.getTypeState("TestObject");
+
+        /// pretend that each record is 2^24 bits wide, without allocating the data, so that the bit offset of
+        /// any ordinal above 127 can only be represented as a long.  Each value read is the ordinal it was read from.
+        HollowObjectTypeDataElements data = typeState.currentDataElements()[0];
+        data.bitsPerRecord = 1 << LOG2_BITS_PER_RECORD;
+        data.fixedLengthData = new OrdinalEchoingElementArray();
+
+        int ordinal = 200;
+        Assert.assertTrue(HollowObjectTypeReadStateShard.fieldOffset(data, ordinal, 0) > Integer.MAX_VALUE);
+
+        BitSet ordinals = new BitSet();
+        ordinals.set(ordinal);
+        int ints[] = new int[ordinal + 1];
+        long longs[] = new long[ordinal + 1];
+        int refs[] = new int[ordinal + 1];
+
+        typeState.readIntColumn(0, ordinals, ints);
+        typeState.readLongColumn(1, ordinals, longs);
+        typeState.readOrdinalColumn(2, ordinals, refs);
+
+        Assert.assertEquals(ZigZag.decodeInt(ordinal), ints[ordinal]);
+        Assert.assertEquals(ZigZag.decodeLong(ordinal), longs[ordinal]);
+        Assert.assertEquals(ordinal, refs[ordinal]);
+
+        Assert.assertEquals(typeState.readInt(ordinal, 0), ints[ordinal]);
+        Assert.assertEquals(typeState.readLong(ordinal, 1), longs[ordinal]);
+        Assert.assertEquals(typeState.readOrdinal(ordinal, 2), refs[ordinal]);
+    }
+
+    @Override
+    protected void initializeTypeStates() {
+        writeStateEngine.addTypeState(new HollowObjectTypeWriteState(schema));
+    }
+
+    private static class OrdinalEchoingElementArray extends FixedLengthElementArray {
+        OrdinalEchoingElementArray() {
+            super(WastefulRecycler.SMALL_ARRAY_RECYCLER, 64);
+        }
+
+        @Override
+        public long getElementValue(long index, int bitsPerElement) {
+            return index >>> LOG2_BITS_PER_RECORD;
+        }
+
+        @Override
+        public long getLargeElementValue(long index, int bitsPerElement) {
+            return index >>> LOG2_BITS_PER_RECORD;
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.object;
+
+import com.netflix.hollow.api.sampling.HollowObjectSampler;
+import com.netflix.hollow.core.AbstractStateEngineTest;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
+import java.io.IOException;
+import java.util.BitSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowObjectColumnReadTest extends AbstractStateEngineTest {
+
+    HollowObjectSchema schema;
+    HollowObjectSchema referencedSchema;
+
+    @Before
+    public void setUp() {
+        schema = new HollowObjectSchema("TestObject", 3);
+        schema.addField("intField", FieldType.INT);
+        schema.addField("longField", FieldType.LONG);
+        schema.addField("refField", FieldType.REFERENCE, "TestReferenced");
+
+        referencedSchema = new HollowObjectSchema("TestReferenced", 1);
+        referencedSchema.addField("value", FieldType.INT);
+
+        super.setUp();
+    }
+
+    @Test
+    public void columnsMatchIndividualReads() throws IOException {
+        HollowObjectWriteRecord refRec = new HollowObjectWriteRecord(referencedSchema);
+        HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
+
+        for(int i=0;i<1000;i++) {
+            rec.reset();
+            if(i % 7 != 0) {
+                rec.setInt("intField", i - 500);
+                rec.setLong("longField", (long)i * Integer.MAX_VALUE);
+
+                refRec.reset();
+                refRec.setInt("value", i % 100);
+                rec.setReference("refField", writeStateEngine.add("TestReferenced", refRec));
+            }
+            writeStateEngine.add("TestObject", rec);
+        }
+
+        roundTripSnapshot();
+
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState)readStateEngine.getTypeState("TestObject");
+        Assert.assertTrue(typeState.numShards() > 1);
+
+        BitSet ordinals = new BitSet();
+        for(int i=0;i<=typeState.maxOrdinal();i+=3)
+            ordinals.set(i);
+
+        int ints[] = new int[typeState.maxOrdinal() + 1];
+        long longs[] = new long[typeState.maxOrdinal() + 1];
+        int refs[] = new int[typeState.maxOrdinal() + 1];
+
+        readStateEngine.setFieldAccessCounting(true);
+        typeState.readIntColumn(0, ordinals, ints);
+        typeState.readLongColumn(1, ordinals, longs);
+        typeState.readOrdinalColumn(2, ordinals, refs);
+
+        /// each value read from a column counts as an access of its field
+        for(int i=0;i<3;i++)
+            Assert.assertEquals(ordinals.cardinality(), ((HollowObjectSampler)typeState.getSampler()).getFieldAccessCounter().getAccessCount(i));
+
+        for(int i=0;i<=typeState.maxOrdinal();i++) {
+            if(ordinals.get(i)) {
+                Assert.assertEquals(typeState.readInt(i, 0), ints[i]);
+                Assert.assertEquals(typeState.readLong(i, 1), longs[i]);
+                Assert.assertEquals(typeState.readOrdinal(i, 2), refs[i]);
+            } else {
+                Assert.assertEquals(0, ints[i]);
+                Assert.assertEquals(0L, longs[i]);
+                Assert.assertEquals(0, refs[i]);
+            }
+        }
+
+        Assert.assertEquals(Integer.MIN_VALUE, ints[0]);
+        Assert.assertEquals(Long.MIN_VALUE, longs[0]);
+        Assert.assertEquals(-1, refs[0]);
+    }
+
+    @Override
+    protected void initializeTypeStates() {
+        writeStateEngine.setTargetMaxTypeShardSize(4096);
+        writeStateEngine.addTypeState(new HollowObjectTypeWriteState(schema));
+        writeStateEngine.addTypeState(new HollowObjectTypeWriteState(referencedSchema));
+    }
+
+}
@@ -0,0 +1,127 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.core.read.object;
+
+import com.netflix.hollow.api.objects.generic.GenericHollowObject;
+import com.netflix.hollow.core.AbstractStateEngineTest;
+import com.netflix.hollow.core.memory.pool.RecyclingRecycler;
+import com.netflix.hollow.core.read.dataaccess.HollowObjectTypeDataAccess;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadSession;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
+import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import com.netflix.hollow.core.util.StateEngineRoundTripper;
+import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
+import java.io.IOException;
+import java.util.BitSet;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowObjectReadSessionTest extends AbstractStateEngineTest {
+
+    HollowObjectSchema schema;
+
+    @Before
+    public void setUp() {
+        schema = new HollowObjectSchema("TestObject", 3);
+        schema.addField("id", FieldType.INT);
+        schema.addField("value", FieldType.LONG);
+        schema.addField("name", FieldType.STRING);
+
+        super.setUp();
+    }
+
+    @Test
+    public void sessionReadsArePinnedAcrossDeltas() throws IOException {
+        readStateEngine = new HollowReadStateEngine(new RecyclingRecycler());
+
+        addRecords(0);
+        StateEngineRoundTripper.roundTripSnapshot(writeStateEngine, readStateEngine);
+
+        HollowObjectTypeReadState typeState = (HollowObjectTypeReadState)readStateEngine.getTypeState("TestObject");
+        HollowObjectTypeReadSession session = typeState.openReadSession();
+        int pinnedOrdinals[] = ordinalsById(typeState);
+
+        assertRecords(session, pinnedOrdinals, 0);
+
+        addRecords(1);
+        StateEngineRoundTripper.roundTripDelta(writeStateEngine, readStateEngine);
+        addRecords(2);
+        StateEngineRoundTripper.roundTripDelta(writeStateEngine, readStateEngine);
+
+        assertRecords(session, pinnedOrdinals, 0);
+        assertRecords(typeState, ordinalsById(typeState), 2);
+
+        session.close();
+
+        addRecords(3);
+        StateEngineRoundTripper.roundTripDelta(writeStateEngine, readStateEngine);
+        assertRecords(typeState, ordinalsById(typeState), 3);
+
+        HollowObjectTypeReadSession nextSession = typeState.openReadSession();
+        assertRecords(nextSession, ordinalsById(typeState), 3);
+        nextSession.close();
+    }
+
+    private void addRecords(int cycle) {
+        HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
+
+        for(int i=0;i<100;i++) {
+            rec.reset();
+            rec.setInt("id", i);
+            if(i % 10 != 0)
+                rec.setLong("value", (long)i * 1000 + cycle);
+            rec.setString("name", "name" + i);
+            writeStateEngine.add("TestObject", rec);
+        }
+    }
+
+    private int[] ordinalsById(HollowObjectTypeReadState typeState) {
+        int ordinals[] = new int[100];
+        BitSet populatedOrdinals = typeState.getPopulatedOrdinals();
+        int ordinal = populatedOrdinals.nextSetBit(0);
+        while(ordinal != -1) {
+            ordinals[typeState.readInt(ordinal, 0)] = ordinal;
+            ordinal = populatedOrdinals.nextSetBit(ordinal + 1);
+        }
+        return ordinals;
+    }
+
+    private void assertRecords(HollowObjectTypeDataAccess access, int ordinals[], int cycle) {
+        for(int i=0;i<100;i++) {
+            GenericHollowObject obj = new GenericHollowObject(access, ordinals[i]);
+            Assert.assertEquals(i, obj.getInt("id"));
+            if(i % 10 != 0)
+                Assert.assertEquals((long)i * 1000 + cycle, obj.getLong("value"));
+            else
+                Assert.assertTrue(obj.isNull("value"));
+            Assert.assertEquals("name" + i, obj.getString("name"));
+            Assert.assertTrue(obj.isStringFieldEqual("name", "name" + i));
+        }
+    }
+
+    @Override
+    protected void initializeTypeStates() {
+        writeStateEngine.setTargetMaxTypeShardSize(512);
+        writeStateEngine.addTypeState(new HollowObjectTypeWriteState(schema));
+    }
+
+}
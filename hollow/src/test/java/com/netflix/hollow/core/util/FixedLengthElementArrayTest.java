@@ -17,9 +17,14 @@
  */
 package com.netflix.hollow.core.util;
 
+import com.netflix.hollow.core.memory.MappedDataInputStream;
 import com.netflix.hollow.core.memory.encoding.FixedLengthElementArray;
 
 import com.netflix.hollow.core.memory.pool.WastefulRecycler;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.util.Random;
 import org.junit.Assert;
 import org.junit.Test;
@@ -65,6 +70,38 @@ public class FixedLengthElementArrayTest {
         }
     }
 
+    @Test
+    public void testGetFromMappedFile() throws IOException {
+        int numBitsPerElement = 23;
+        int numElements = 10000;
+        long bitMask = (1L << numBitsPerElement) - 1;
+
+        /// small segments, so that many elements span both longs and segments
+        FixedLengthElementArray arr = new FixedLengthElementArray(WastefulRecycler.SMALL_ARRAY_RECYCLER, (long)numBitsPerElement * numElements);
+        for(int i=0;i<numElements;i++)
+            arr.setElementValue((long)i*numBitsPerElement, numBitsPerElement, (i * 7919L) & bitMask);
+
+        long numLongs = (((long)numBitsPerElement * numElements - 1) >>> 6) + 1;
+        File file = File.createTempFile("fixed-length-elements", ".hollow");
+        file.deleteOnExit();
+        DataOutputStream dos = new DataOutputStream(new FileOutputStream(file));
+        arr.writeTo(dos, numLongs);
+        dos.close();
+
+        MappedDataInputStream is = new MappedDataInputStream(file);
+        try {
+            FixedLengthElementArray mapped = FixedLengthElementArray.deserializeFrom(is, WastefulRecycler.SMALL_ARRAY_RECYCLER);
+
+            for(int i=0;i<numElements;i++) {
+                long expected = (i * 7919L) & bitMask;
+                Assert.assertEquals(expected, mapped.getElementValue((long)i*numBitsPerElement, numBitsPerElement, bitMask));
+                Assert.assertEquals(expected, mapped.getLargeElementValue((long)i*numBitsPerElement, numBitsPerElement, bitMask));
+            }
+        } finally {
+            is.close();
+        }
+    }
+
     @Test
     public void testCopyBitRange() {
         for(int iteration = 0;iteration < 100;iteration++) {
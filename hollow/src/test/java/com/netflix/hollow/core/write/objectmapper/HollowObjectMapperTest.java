@@ -21,7 +21,12 @@ import com.netflix.hollow.api.objects.generic.GenericHollowObject;
 import com.netflix.hollow.core.AbstractStateEngineTest;
 import com.netflix.hollow.core.index.HollowPrimaryKeyIndex;
 import com.netflix.hollow.core.index.key.PrimaryKey;
+import com.netflix.hollow.core.schema.HollowObjectSchema;
 import com.netflix.hollow.core.schema.HollowSchema;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
+import com.netflix.hollow.core.write.HollowObjectWriteRecord;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
 import com.netflix.hollow.tools.stringifier.HollowRecordJsonStringifier;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -93,6 +98,86 @@ public class HollowObjectMapperTest extends AbstractStateEngineTest {
         Assert.assertEquals(expected, actual);
     }
 
+    @Test
+    public void writesSameBytesAsNameBasedSetters() throws IOException {
+        HollowObjectMapper mapper = new HollowObjectMapper(writeStateEngine);
+        mapper.initializeTypeState(TypeWithAllFieldTypes.class);
+
+        HollowWriteStateEngine nameBasedStateEngine = new HollowWriteStateEngine();
+        HollowObjectSchema schema = (HollowObjectSchema)writeStateEngine.getSchema("TypeWithAllFieldTypes");
+        HollowObjectSchema integerSchema = (HollowObjectSchema)writeStateEngine.getSchema("Integer");
+        nameBasedStateEngine.addTypeState(new HollowObjectTypeWriteState(integerSchema));
+        nameBasedStateEngine.addTypeState(new HollowObjectTypeWriteState(schema));
+
+        for(int i=0;i<20;i++) {
+            TypeWithAllFieldTypes t = new TypeWithAllFieldTypes(i);
+            if(i % 3 == 1)
+                t.nullFirstHalf();
+            else if(i % 3 == 2)
+                t.nullSecondHalf();
+            if(i % 5 == 0)
+                t.d = Double.NaN;
+
+            mapper.add(t);
+            addByFieldName(nameBasedStateEngine, schema, integerSchema, t);
+        }
+
+        Assert.assertArrayEquals(writeSnapshotData(nameBasedStateEngine), writeSnapshotData(writeStateEngine));
+    }
+
+    private void addByFieldName(HollowWriteStateEngine stateEngine, HollowObjectSchema schema, HollowObjectSchema integerSchema, TypeWithAllFieldTypes t) {
+        HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema);
+        rec.setBoolean("bool", t.bool);
+        rec.setInt("i", t.i);
+        rec.setInt("b", t.b);
+        rec.setInt("s", t.s);
+        rec.setInt("c", t.c);
+        rec.setLong("l", t.l);
+        if(!Float.isNaN(t.f))
+            rec.setFloat("f", t.f);
+        if(!Double.isNaN(t.d))
+            rec.setDouble("d", t.d);
+        if(t.inlinedBoolean != null)
+            rec.setBoolean("inlinedBoolean", t.inlinedBoolean.booleanValue());
+        if(t.inlinedInt != null)
+            rec.setInt("inlinedInt", t.inlinedInt.intValue());
+        if(t.inlinedByte != null)
+            rec.setInt("inlinedByte", t.inlinedByte.intValue());
+        if(t.inlinedShort != null)
+            rec.setInt("inlinedShort", t.inlinedShort.intValue());
+        if(t.inlinedChar != null)
+            rec.setInt("inlinedChar", t.inlinedChar.charValue());
+        if(t.inlinedLong != null)
+            rec.setLong("inlinedLong", t.inlinedLong.longValue());
+        if(t.inlinedFloat != null)
+            rec.setFloat("inlinedFloat", t.inlinedFloat.floatValue());
+        if(t.inlinedDouble != null)
+            rec.setDouble("inlinedDouble", t.inlinedDouble.doubleValue());
+        rec.setString("inlinedString", t.inlinedString);
+        if(t.charArray != null)
+            rec.setString("charArray", new String(t.charArray));
+        rec.setBytes("byteArray", t.byteArray);
+        if(t.nullablePrimitiveBoolean != null)
+            rec.setBoolean("nullablePrimitiveBoolean", t.nullablePrimitiveBoolean.getBooleanValue());
+        if(t.referencedInteger != null) {
+            HollowObjectWriteRecord integerRec = new HollowObjectWriteRecord(integerSchema);
+            integerRec.setInt("value", t.referencedInteger.intValue());
+            rec.setReference("referencedInteger", stateEngine.add("Integer", integerRec));
+        }
+        stateEngine.add("TypeWithAllFieldTypes", rec);
+    }
+
+    /**
+     * @return the snapshot of the specified state engine, less the leading version and randomized state tags.
+     */
+    private static byte[] writeSnapshotData(HollowWriteStateEngine stateEngine) throws IOException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        stateEngine.prepareForWrite();
+        new HollowBlobWriter(stateEngine).writeSnapshot(baos);
+        byte[] snapshot = baos.toByteArray();
+        return Arrays.copyOfRange(snapshot, 20, snapshot.length);
+    }
+
     @Test
     public void testEnumAndInlineClass() throws IOException {
         HollowObjectMapper mapper = new HollowObjectMapper(writeStateEngine);
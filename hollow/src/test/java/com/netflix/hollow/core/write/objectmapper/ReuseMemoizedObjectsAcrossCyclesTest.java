@@ -165,6 +165,57 @@ public class ReuseMemoizedObjectsAcrossCyclesTest {
         }
     }
 
+    @Test
+    public void memoizeObjectsByIdentityWithinCycle() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        mapper.useIdentityMemoization(1024);
+
+        TypeB shared = new TypeB(1);
+        List<TypeB> sharedList = Arrays.asList(shared);
+
+        Assert.assertEquals(0, mapper.add(new ParentType(1, shared, sharedList)));
+        /// the shared instances are not serialized again within the cycle, so this modification is not observed
+        shared.value = 2;
+        Assert.assertEquals(1, mapper.add(new ParentType(2, shared, sharedList)));
+
+        HollowReadStateEngine readEngine = StateEngineRoundTripper.roundTripSnapshot(writeEngine);
+
+        Assert.assertEquals(1, readEngine.getTypeState("TypeB").getPopulatedOrdinals().cardinality());
+        Assert.assertEquals(1, readEngine.getTypeState("ListOfTypeB").getPopulatedOrdinals().cardinality());
+
+        writeEngine.prepareForNextCycle();
+
+        /// ordinals memoized in the prior cycle are not reused
+        mapper.add(new ParentType(1, shared, sharedList));
+
+        StateEngineRoundTripper.roundTripDelta(writeEngine, readEngine);
+
+        Assert.assertEquals(1, readEngine.getTypeState("TypeB").getPopulatedOrdinals().cardinality());
+        Assert.assertEquals(1, readEngine.getTypeState("TypeB").getPopulatedOrdinals().nextSetBit(0));
+    }
+
+    @SuppressWarnings("unused")
+    private static class ParentType {
+        int id;
+        TypeB b;
+        List<TypeB> list;
+
+        public ParentType(int id, TypeB b, List<TypeB> list) {
+            this.id = id;
+            this.b = b;
+            this.list = list;
+        }
+    }
+
+    private static class TypeB {
+        int value;
+
+        public TypeB(int value) {
+            this.value = value;
+        }
+    }
+
     @SuppressWarnings("unused")
     private static class TypeA {
         int value;
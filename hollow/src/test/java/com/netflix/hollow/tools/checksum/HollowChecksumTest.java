@@ -23,11 +23,23 @@ import com.netflix.hollow.core.util.StateEngineRoundTripper;
 import com.netflix.hollow.tools.checksum.HollowChecksum;
 import com.netflix.hollow.core.schema.HollowObjectSchema;
 import com.netflix.hollow.core.schema.HollowObjectSchema.FieldType;
+import com.netflix.hollow.core.write.HollowBlobWriter;
 import com.netflix.hollow.core.write.HollowObjectTypeWriteState;
 import com.netflix.hollow.core.write.HollowObjectWriteRecord;
 import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
 import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -61,6 +73,67 @@ public class HollowChecksumTest {
         Assert.assertEquals(cksum1, cksum2);
     }
 
+
+    @Test
+    public void snapshotChecksumCalculatedByWriterMatchesReadState() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        writeEngine.setTargetMaxTypeShardSize(256);
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        Random rand = new Random(1000);
+
+        for(int cycle=0;cycle<5;cycle++) {
+            writeEngine.prepareForNextCycle();
+            for(int i=0;i<200;i++) {
+                if(rand.nextInt(4) != 0)
+                    mapper.addObject(new TypeWithCollections(i, rand));
+            }
+
+            HollowBlobWriter writer = new HollowBlobWriter(writeEngine);
+            writer.calculateSnapshotChecksum(null);
+            ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+            writer.writeSnapshot(snapshot);
+
+            readEngine = new HollowReadStateEngine();
+            new HollowBlobReader(readEngine).readSnapshot(new ByteArrayInputStream(snapshot.toByteArray()));
+
+            Assert.assertEquals(HollowChecksum.forStateEngine(readEngine), writer.getSnapshotChecksum());
+        }
+
+        Assert.assertTrue(readEngine.getTypeState("TypeWithCollections").numShards() > 1);
+        Assert.assertTrue(readEngine.getTypeState("ListOfInteger").numShards() > 1);
+    }
+
+    @Test
+    public void snapshotChecksumCalculatedByWriterWithCommonSchemas() throws IOException {
+        HollowObjectSchema schema1 = new HollowObjectSchema("TypeA", 3);
+        schema1.addField("a1", FieldType.INT);
+        schema1.addField("a4", FieldType.FLOAT);
+        schema1.addField("a2", FieldType.STRING);
+
+        HollowWriteStateEngine writeState = new HollowWriteStateEngine();
+        writeState.addTypeState(new HollowObjectTypeWriteState(schema1));
+        HollowObjectWriteRecord rec = new HollowObjectWriteRecord(schema1);
+        for(int i=0;i<100;i++) {
+            rec.reset();
+            rec.setInt("a1", i);
+            rec.setFloat("a4", (float)i);
+            if(i % 10 != 0)
+                rec.setString("a2", String.valueOf(i));
+            writeState.add("TypeA", rec);
+        }
+
+        HollowBlobWriter writer = new HollowBlobWriter(writeState);
+        writer.calculateSnapshotChecksum(readEngine2);
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        writer.writeSnapshot(snapshot);
+
+        HollowReadStateEngine readEngine = new HollowReadStateEngine();
+        new HollowBlobReader(readEngine).readSnapshot(new ByteArrayInputStream(snapshot.toByteArray()));
+
+        Assert.assertEquals(HollowChecksum.forStateEngineWithCommonSchemas(readEngine, readEngine2), writer.getSnapshotChecksum());
+        Assert.assertEquals(HollowChecksum.forStateEngineWithCommonSchemas(readEngine2, readEngine), writer.getSnapshotChecksum());
+    }
     
     private HollowReadStateEngine createStateEngine(HollowObjectSchema schema) throws IOException {
         HollowWriteStateEngine writeState = new HollowWriteStateEngine();
@@ -82,6 +155,39 @@ public class HollowChecksumTest {
         
         return StateEngineRoundTripper.roundTripSnapshot(writeState);
     }
+
+    @SuppressWarnings("unused")
+    private static class TypeWithCollections {
+        int id;
+        Integer nullableInt;
+        long longValue;
+        double doubleValue;
+        Float nullableFloat;
+        boolean booleanValue;
+        byte[] bytes;
+        List<Integer> list;
+        Set<Long> set;
+        Map<Integer, Double> map;
+
+        TypeWithCollections(int id, Random rand) {
+            this.id = id;
+            this.nullableInt = rand.nextBoolean() ? null : Integer.valueOf(rand.nextInt());
+            this.longValue = rand.nextLong();
+            this.doubleValue = rand.nextDouble();
+            this.nullableFloat = rand.nextBoolean() ? null : Float.valueOf(rand.nextFloat());
+            this.booleanValue = rand.nextBoolean();
+            this.bytes = rand.nextInt(3) == 0 ? null : new byte[rand.nextInt(10)];
+            this.list = new ArrayList<Integer>();
+            this.set = new HashSet<Long>();
+            this.map = new HashMap<Integer, Double>();
+            int size = rand.nextInt(8);
+            for(int i=0;i<size;i++) {
+                list.add(rand.nextInt(20));
+                set.add((long)rand.nextInt(50));
+                map.put(rand.nextInt(50), (double)rand.nextInt(5));
+            }
+        }
+    }
     
     
 }
@@ -0,0 +1,169 @@
+/*
+ *
+ *  Copyright 2017 Netflix, Inc.
+ *
+ *     Licensed under the Apache License, Version 2.0 (the "License");
+ *     you may not use this file except in compliance with the License.
+ *     You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *     Unless required by applicable law or agreed to in writing, software
+ *     distributed under the License is distributed on an "AS IS" BASIS,
+ *     WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *     See the License for the specific language governing permissions and
+ *     limitations under the License.
+ *
+ */
+package com.netflix.hollow.tools.filter;
+
+import com.netflix.hollow.api.sampling.EnabledSamplingDirector;
+import com.netflix.hollow.core.read.engine.HollowBlobReader;
+import com.netflix.hollow.core.read.engine.HollowReadStateEngine;
+import com.netflix.hollow.core.read.engine.list.HollowListTypeReadState;
+import com.netflix.hollow.core.read.engine.object.HollowObjectTypeReadState;
+import com.netflix.hollow.core.read.filter.HollowFilterConfig;
+import com.netflix.hollow.core.write.HollowBlobWriter;
+import com.netflix.hollow.core.write.HollowWriteStateEngine;
+import com.netflix.hollow.core.write.objectmapper.HollowObjectMapper;
+import com.netflix.hollow.core.write.objectmapper.HollowPrimaryKey;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HollowFilterConfigGeneratorTest {
+
+    private byte[] snapshot;
+    private HollowReadStateEngine readEngine;
+
+    @Before
+    public void setUp() throws IOException {
+        HollowWriteStateEngine writeEngine = new HollowWriteStateEngine();
+        HollowObjectMapper mapper = new HollowObjectMapper(writeEngine);
+
+        for(int i=0;i<100;i++) {
+            mapper.add(new Movie(i, 1000 + i, i * 1000000L, new Country(i % 5, i * 10000L), Arrays.asList(i, i + 1, i + 2)));
+            mapper.add(new Unused(i));
+        }
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        new HollowBlobWriter(writeEngine).writeSnapshot(baos);
+        snapshot = baos.toByteArray();
+
+        readEngine = new HollowReadStateEngine();
+        new HollowBlobReader(readEngine).readSnapshot(new ByteArrayInputStream(snapshot));
+    }
+
+    @Test
+    public void generatesIncludeFilterFromSampledFields() throws IOException {
+        HollowObjectTypeReadState movieState = (HollowObjectTypeReadState)readEngine.getTypeState("Movie");
+        movieState.setSamplingDirector(new EnabledSamplingDirector());
+
+        for(int i=0;i<100;i++) {
+            movieState.readInt(i, movieState.getSchema().getPosition("id"));
+            movieState.readOrdinal(i, movieState.getSchema().getPosition("country"));
+        }
+
+        HollowFilterConfigGenerator generator = new HollowFilterConfigGenerator();
+        generator.collectSampleResults(readEngine);
+        HollowFilterConfig filter = generator.generateFilterConfig(readEngine);
+
+        Assert.assertFalse(filter.isExcludeFilter());
+
+        Assert.assertTrue(filter.doesIncludeType("Movie"));
+        Assert.assertTrue(filter.getObjectTypeConfig("Movie").includesField("id"));
+        Assert.assertTrue(filter.getObjectTypeConfig("Movie").includesField("country"));
+        Assert.assertTrue(filter.getObjectTypeConfig("Movie").includesField("movieCode"));
+        Assert.assertFalse(filter.getObjectTypeConfig("Movie").includesField("budget"));
+        Assert.assertFalse(filter.getObjectTypeConfig("Movie").includesField("awards"));
+
+        Assert.assertTrue(filter.doesIncludeType("Country"));
+        Assert.assertTrue(filter.getObjectTypeConfig("Country").includesField("code"));
+        Assert.assertTrue(filter.getObjectTypeConfig("Country").includesField("population"));
+
+        Assert.assertFalse(filter.doesIncludeType("Unused"));
+        Assert.assertFalse(filter.doesIncludeType("ListOfInteger"));
+        Assert.assertFalse(filter.doesIncludeType("Integer"));
+
+        Assert.assertTrue(HollowFilterConfigGenerator.projectHeapFootprintReductionInBytes(readEngine, filter) > 0);
+
+        HollowReadStateEngine filteredEngine = new HollowReadStateEngine();
+        new HollowBlobReader(filteredEngine).readSnapshot(new ByteArrayInputStream(snapshot), filter);
+
+        Assert.assertNull(filteredEngine.getTypeState("Unused"));
+        Assert.assertNull(filteredEngine.getTypeState("ListOfInteger"));
+        HollowObjectTypeReadState filteredMovieState = (HollowObjectTypeReadState)filteredEngine.getTypeState("Movie");
+        Assert.assertEquals(-1, filteredMovieState.getSchema().getPosition("budget"));
+        Assert.assertEquals(42, filteredMovieState.readInt(42, filteredMovieState.getSchema().getPosition("id")));
+    }
+
+    @Test
+    public void sampledCollectionsAreIncludedWithElements() {
+        HollowObjectTypeReadState movieState = (HollowObjectTypeReadState)readEngine.getTypeState("Movie");
+        movieState.setSamplingDirector(new EnabledSamplingDirector());
+        readEngine.getTypeState("ListOfInteger").setSamplingDirector(new EnabledSamplingDirector());
+
+        int awardsOrdinal = movieState.readOrdinal(0, movieState.getSchema().getPosition("awards"));
+        ((HollowListTypeReadState)readEngine.getTypeState("ListOfInteger")).size(awardsOrdinal);
+
+        HollowFilterConfigGenerator generator = new HollowFilterConfigGenerator();
+        generator.collectSampleResults(readEngine);
+        HollowFilterConfig filter = generator.generateFilterConfig(readEngine);
+
+        Assert.assertTrue(filter.getObjectTypeConfig("Movie").includesField("awards"));
+        Assert.assertTrue(filter.doesIncludeType("ListOfInteger"));
+        Assert.assertTrue(filter.doesIncludeType("Integer"));
+        Assert.assertFalse(filter.doesIncludeType("Country"));
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void failsWithoutSampleResults() {
+        HollowFilterConfigGenerator generator = new HollowFilterConfigGenerator();
+        generator.collectSampleResults(readEngine);
+        generator.generateFilterConfig(readEngine);
+    }
+
+    @HollowPrimaryKey(fields="movieCode")
+    @SuppressWarnings("unused")
+    private static class Movie {
+        int id;
+        long movieCode;
+        long budget;
+        Country country;
+        List<Integer> awards;
+
+        public Movie(int id, long movieCode, long budget, Country country, List<Integer> awards) {
+            this.id = id;
+            this.movieCode = movieCode;
+            this.budget = budget;
+            this.country = country;
+            this.awards = awards;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Country {
+        int code;
+        long population;
+
+        public Country(int code, long population) {
+            this.code = code;
+            this.population = population;
+        }
+    }
+
+    @SuppressWarnings("unused")
+    private static class Unused {
+        long x;
+
+        public Unused(long x) {
+            this.x = x;
+        }
+    }
+
+}